@@ -0,0 +1,645 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Klasse om een heel bestand met cliëntgegevens in één keer door te rekenen, zonder GUI.
+ * Het invoerbestand (zie BatchRegel voor het format) wordt opgedeeld in partities die elk
+ * in een eigen thread worden berekend. Elke partitie schrijft naar een eigen deelbestand,
+ * aan het eind worden de deelbestanden achter elkaar gezet in het uitvoerbestand. De uitvoer
+ * staat dus in dezelfde volgorde als de invoer.
+ *
+ * Tijdens de berekening wordt na elk checkpointinterval per partitie de uitvoer naar schijf
+ * geforceerd en de voortgang vastgelegd in een BatchJournaal. Als een berekening wordt onderbroken
+ * pakt een nieuwe run met dezelfde invoer en uitvoer de draad op bij het laatste checkpoint. De
+ * uitvoer is dan byte voor byte gelijk aan die van een run zonder onderbreking. Is de invoer intussen
+ * aangepast, dan begint de nieuwe run opnieuw.
+ *
+ * Elke partitie houdt tijdens het rekenen een PopulatieStatistiek en een KostenKubus bij, die na
+ * afloop worden samengevoegd en naast de uitvoer worden bewaard (uitvoer.statistiek, uitvoer.kubus
+ * en de kubus als CSV in uitvoer.kubus.csv).
+ *
+ * Een regel die niet gelezen of berekend kan worden krijgt FOUT in de uitvoer en komt met de
+ * Foutcode ervoor in het quarantainebestand (uitvoer.quarantaine, regels als CODE;invoerregel), in
+ * dezelfde volgorde als in de invoer. Het verslag telt de fouten per Foutcode. Fouten worden niet
+ * gelogd en kosten geen stacktrace (zie Rekenfout), zodat de doorvoer niet afhangt van het aantal
+ * foute regels. Als een bronbestand met tabellen ontbreekt stopt de berekening met een IOException;
+ * het journaal blijft dan staan.
+ *
+ * Een andere thread (bijvoorbeeld de GUI) kan de voortgang volgen met getVoortgang() en
+ * getAantalNieuweRegels(), elke uitvoerregel meekrijgen met setVolger() en de berekening stoppen met
+ * annuleer(). Na annuleren maakt elke partitie nog een checkpoint, zodat een nieuwe run verder gaat
+ * waar deze gebleven is.
+ */
+public class BatchBerekening {
+
+    private static final int UITVOERBUFFER = 64 * 1024;
+    private static final byte[] REGELEINDE = {'\n'};
+
+    private final Path invoer;
+    private final Path uitvoer;
+    private final Path journaalPad;
+    private int aantalPartities = Runtime.getRuntime().availableProcessors();
+    private int checkpointInterval = 10_000; // aantal regels per partitie tussen 2 checkpoints
+    private int cacheGrootte = 100_000; // 0 is geen cache
+    private UitkeringCache cache = null;
+    private PopulatieStatistiek statistiek = null;
+    private KostenKubus kubus = null;
+    private volatile Consumer<String> volger = null;
+    private volatile boolean geannuleerd = false;
+    private volatile long invoerGrootte = 0;
+    private volatile AtomicLongArray voortgang = null; // verwerkte bytes invoer per partitie
+
+    // gegevens voor het verslag
+    private boolean hervat = false;
+    private long aantalRegels = 0;
+    private final AtomicLong nieuweRegels = new AtomicLong();
+    private final AtomicLong aantalFouten = new AtomicLong();
+    private final AtomicLongArray foutenPerCode = new AtomicLongArray(Foutcode.values().length); // hele uitvoer
+    private final AtomicLong aantalCheckpoints = new AtomicLong();
+    private final AtomicLong checkpointNanos = new AtomicLong();
+    private final AtomicLong partitieNanos = new AtomicLong();
+    private long totaalNanos = 0;
+
+    public BatchBerekening(Path invoer, Path uitvoer) {
+        this.invoer = invoer;
+        this.uitvoer = uitvoer;
+        this.journaalPad = getJournaalbestand(uitvoer);
+    }
+
+    /**
+     * Stelt het aantal partities (en dus threads) in. Heeft geen effect bij het hervatten van een
+     * onderbroken berekening, dan geldt de indeling uit het journaal.
+     * @param aantalPartities minimaal 1.
+     */
+    public void setAantalPartities(int aantalPartities) {
+        this.aantalPartities = Math.max(1, aantalPartities);
+    }
+
+    /**
+     * @param checkpointInterval aantal regels per partitie tussen 2 checkpoints, minimaal 1.
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = Math.max(1, checkpointInterval);
+    }
+
+    /**
+     * Stelt de grootte in van de cache met berekende daguitkeringen, zie UitkeringCache.
+     * @param cacheGrootte maximaal aantal bewaarde uitkomsten, 0 om zonder cache te rekenen.
+     */
+    public void setCacheGrootte(int cacheGrootte) {
+        this.cacheGrootte = Math.max(0, cacheGrootte);
+    }
+
+    /**
+     * Geeft elke uitvoerregel (zonder regeleinde) ook aan volger, zodra die berekend is. De volger wordt
+     * vanuit alle partities tegelijk aangeroepen, dus de regels komen niet in de volgorde van de invoer,
+     * en moet thread-safe en snel zijn. Regels van voor het hervatten worden niet opnieuw gegeven.
+     * @param volger de volger, of null.
+     */
+    public void setVolger(Consumer<String> volger) {
+        this.volger = volger;
+    }
+
+    /**
+     * Laat de berekening zo snel mogelijk stoppen. Kan vanuit elke thread worden aangeroepen. voerUit()
+     * eindigt dan met een InterruptedIOException en het journaal blijft staan voor het hervatten.
+     */
+    public void annuleer() {
+        geannuleerd = true;
+    }
+
+    /**
+     * @return het deel van de invoer dat verwerkt is, van 0 tot 1, inclusief het deel van voor het hervatten.
+     */
+    public double getVoortgang() {
+        AtomicLongArray posities = voortgang;
+        if (posities == null || invoerGrootte == 0) {
+            return 0;
+        }
+        long verwerkt = 0;
+        for (int i = 0; i < posities.length(); i++) {
+            verwerkt += posities.get(i);
+        }
+        return Math.min(1.0, (double) verwerkt / invoerGrootte);
+    }
+
+    /**
+     * @return het aantal regels dat in deze run berekend is, ook terwijl de berekening nog loopt.
+     */
+    public long getAantalNieuweRegels() {
+        return nieuweRegels.get();
+    }
+
+    /**
+     * Voert de berekening uit. Als er een journaal van een eerdere, onderbroken run met dezelfde
+     * invoer bestaat, wordt die run hervat. Na afloop zijn journaal en deelbestanden verwijderd.
+     * @throws IOException als invoer, uitvoer of journaal niet gelezen of geschreven kan worden.
+     * Het journaal blijft dan staan zodat de berekening later hervat kan worden.
+     */
+    public void voerUit() throws IOException {
+        long startTijd = System.nanoTime();
+        UitkeringCache vorigeCache = Uitkering.getCache();
+        cache = (cacheGrootte > 0) ? new UitkeringCache(cacheGrootte) : null;
+        Uitkering.setCache(cache);
+        try (FileChannel invoerKanaal = FileChannel.open(invoer, StandardOpenOption.READ)) {
+            long grootte = invoerKanaal.size();
+            long controlegetal = BatchJournaal.controlegetal(invoerKanaal, grootte);
+            BatchJournaal journaal = BatchJournaal.hervat(journaalPad, grootte, controlegetal);
+            hervat = (journaal != null);
+            if (journaal == null) { // geen journaal, of een van een invoer die intussen is aangepast
+                journaal = BatchJournaal.nieuw(journaalPad, grootte, controlegetal,
+                        bepaalGrenzen(invoerKanaal, grootte));
+            }
+
+            try {
+                int aantal = journaal.getAantalPartities();
+                invoerGrootte = grootte;
+                voortgang = new AtomicLongArray(aantal);
+                ExecutorService threads = Executors.newFixedThreadPool(aantal);
+                ArrayList<Future<PartitieResultaat>> resultaten = new ArrayList<>();
+                for (int i = 0; i < aantal; i++) {
+                    final int partitie = i;
+                    final BatchJournaal j = journaal;
+                    resultaten.add(threads.submit(() -> verwerkPartitie(invoerKanaal, j, partitie)));
+                }
+                threads.shutdown();
+
+                aantalRegels = 0;
+                statistiek = new PopulatieStatistiek();
+                kubus = new KostenKubus();
+                IOException fout = null;
+                for (int i = 0; i < aantal; i++) {
+                    try {
+                        PartitieResultaat resultaat = wachtOp(resultaten.get(i));
+                        statistiek.voegSamen(resultaat.statistiek);
+                        kubus.voegSamen(resultaat.kubus);
+                        aantalRegels += journaal.getAantalRegels(i);
+                    }
+                    catch (IOException e) {
+                        // de andere partities laten stoppen en hun checkpoint afwachten voor het journaal dicht gaat
+                        geannuleerd = true;
+                        if (fout == null || (fout instanceof InterruptedIOException
+                                && !(e instanceof InterruptedIOException))) {
+                            fout = e; // de oorzaak, niet een partitie die daardoor gestopt is
+                        }
+                    }
+                }
+                if (fout != null) {
+                    throw fout;
+                }
+                voegSamen(aantal, uitvoer, this::deelbestand);
+                voegSamen(aantal, getQuarantainebestand(uitvoer), this::quarantainedeel);
+                statistiek.schrijf(getStatistiekbestand(uitvoer));
+                kubus.schrijf(getKubusbestand(uitvoer));
+                kubus.schrijfCsv(Paths.get(uitvoer + ".kubus.csv"));
+            }
+            finally {
+                journaal.sluit();
+            }
+        }
+        finally {
+            Uitkering.setCache(vorigeCache);
+        }
+        ruimTussenbestandenOp(uitvoer);
+        totaalNanos = System.nanoTime() - startTijd;
+    }
+
+    /**
+     * Deelt het invoerbestand op in ongeveer even grote partities die elk met een hele regel beginnen.
+     */
+    private long[] bepaalGrenzen(FileChannel invoerKanaal, long grootte) throws IOException {
+        long[] grenzen = new long[aantalPartities + 1];
+        for (int i = 1; i < aantalPartities; i++) {
+            grenzen[i] = Math.max(grenzen[i - 1],
+                    RegelLezer.beginVolgendeRegel(invoerKanaal, grootte * i / aantalPartities));
+        }
+        grenzen[aantalPartities] = grootte;
+        return grenzen;
+    }
+
+    /**
+     * Rekent een partitie door vanaf het laatste checkpoint in het journaal.
+     * @return statistiek en kubus over alle regels in de partitie, inclusief regels van voor het checkpoint.
+     */
+    private PartitieResultaat verwerkPartitie(FileChannel invoerKanaal, BatchJournaal journaal, int partitie)
+            throws IOException {
+        long start = System.nanoTime();
+        long regels = journaal.getAantalRegels(partitie);
+        RegelLezer lezer = new RegelLezer(invoerKanaal, journaal.getInvoerPositie(partitie),
+                journaal.getPartitieEind(partitie));
+
+        // het quarantainedeel staat niet in het journaal en wordt bij het hervatten opnieuw opgebouwd
+        try (BufferedWriter quarantaine = Files.newBufferedWriter(quarantainedeel(partitie), StandardCharsets.UTF_8);
+             FileChannel deel = FileChannel.open(deelbestand(partitie), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            PartitieResultaat resultaat = new PartitieResultaat(quarantaine);
+            herstelStatistiek(invoerKanaal, journaal, partitie, resultaat);
+            // alles na het laatste checkpoint is mogelijk onvolledig en wordt opnieuw berekend
+            deel.truncate(journaal.getUitvoerPositie(partitie));
+            deel.position(journaal.getUitvoerPositie(partitie));
+            ByteBuffer buffer = ByteBuffer.allocate(UITVOERBUFFER);
+
+            long partitieStart = journaal.getPartitieStart(partitie);
+            voortgang.set(partitie, lezer.getPositie() - partitieStart);
+            int sindsCheckpoint = 0;
+            String regel;
+            while (!geannuleerd && (regel = lezer.volgendeRegel()) != null) {
+                if (regel.isBlank()) {
+                    continue;
+                }
+                String uitvoerRegel = berekenRegel(regel, resultaat);
+                schrijf(deel, buffer, uitvoerRegel.getBytes(StandardCharsets.UTF_8));
+                schrijf(deel, buffer, REGELEINDE);
+                regels++;
+                nieuweRegels.incrementAndGet();
+                voortgang.lazySet(partitie, lezer.getPositie() - partitieStart);
+                Consumer<String> v = volger;
+                if (v != null) {
+                    v.accept(uitvoerRegel);
+                }
+
+                if (++sindsCheckpoint == checkpointInterval) {
+                    checkpoint(deel, buffer, journaal, partitie, lezer.getPositie(), regels);
+                    sindsCheckpoint = 0;
+                }
+            }
+            checkpoint(deel, buffer, journaal, partitie, lezer.getPositie(), regels); // partitie klaar of geannuleerd
+            if (geannuleerd) {
+                throw new InterruptedIOException("Batchberekening geannuleerd.");
+            }
+            for (int i = 0; i < resultaat.fouten.length; i++) {
+                foutenPerCode.addAndGet(i, resultaat.fouten[i]);
+            }
+            partitieNanos.addAndGet(System.nanoTime() - start);
+            return resultaat;
+        }
+    }
+
+    /**
+     * Bouwt bij het hervatten statistiek en kubus op over de regels die voor het checkpoint al berekend
+     * zijn. Daarvoor wordt niet opnieuw gerekend: groep en regime komen uit de invoerregel en het bedrag
+     * uit de bijbehorende regel in het deelbestand, die in dezelfde volgorde staan. Alleen regels met
+     * FOUT worden opnieuw doorgerekend, om hun Foutcode weer in de quarantaine te zetten.
+     */
+    private void herstelStatistiek(FileChannel invoerKanaal, BatchJournaal journaal, int partitie,
+                                   PartitieResultaat resultaat) throws IOException {
+        if (journaal.getUitvoerPositie(partitie) == 0) {
+            return; // nog niets berekend
+        }
+        try (FileChannel deel = FileChannel.open(deelbestand(partitie), StandardOpenOption.READ)) {
+            RegelLezer invoerLezer = new RegelLezer(invoerKanaal, journaal.getPartitieStart(partitie),
+                    journaal.getInvoerPositie(partitie));
+            RegelLezer uitvoerLezer = new RegelLezer(deel, 0, journaal.getUitvoerPositie(partitie));
+            String regel;
+            while ((regel = invoerLezer.volgendeRegel()) != null) {
+                if (regel.isBlank()) {
+                    continue;
+                }
+                String uitvoerRegel = uitvoerLezer.volgendeRegel();
+                if (uitvoerRegel == null) {
+                    throw new IOException("Deelbestand " + partitie + " past niet bij het journaal.");
+                }
+                String bedrag = uitvoerRegel.substring(uitvoerRegel.lastIndexOf(BatchRegel.SCHEIDINGSTEKEN) + 1);
+                if (!bedrag.equals("FOUT")) {
+                    resultaat.voegToe(BatchRegel.lees(regel), new BigDecimal(bedrag));
+                }
+                else {
+                    resultaat.quarantaine(bepaalFoutcode(regel), regel);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param regel een invoerregel die eerder FOUT opleverde.
+     * @return de Foutcode van die regel, REKENFOUT als de regel nu wel berekend kan worden.
+     */
+    private static Foutcode bepaalFoutcode(String regel) throws IOException {
+        try {
+            BatchRegel.lees(regel).bereken();
+            return Foutcode.REKENFOUT;
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        catch (RuntimeException e) {
+            return Foutcode.van(e);
+        }
+    }
+
+    /**
+     * Rekent één invoerregel door. Een regel die niet gelezen of berekend kan worden levert een
+     * uitvoerregel met FOUT op en gaat naar de quarantaine, de berekening gaat dan door met de
+     * volgende regel.
+     * @throws IOException ook als een bronbestand met tabellen niet gelezen kan worden.
+     */
+    private String berekenRegel(String regel, PartitieResultaat resultaat) throws IOException {
+        BatchRegel batchRegel;
+        try {
+            batchRegel = BatchRegel.lees(regel);
+        }
+        catch (IllegalArgumentException e) {
+            aantalFouten.incrementAndGet();
+            resultaat.quarantaine(Foutcode.van(e), regel);
+            return regel.split(BatchRegel.SCHEIDINGSTEKEN, 2)[0] + ";;;FOUT";
+        }
+
+        BigDecimal maanduitkering;
+        try {
+            maanduitkering = batchRegel.bereken();
+        }
+        catch (UncheckedIOException e) { // geldt voor elke regel, dus stoppen in plaats van alles in quarantaine
+            throw e.getCause();
+        }
+        catch (RuntimeException e) { // ook fouten uit de rekenklassen zelf, bijv. een ontbrekende index
+            aantalFouten.incrementAndGet();
+            resultaat.quarantaine(Foutcode.van(e), regel);
+            maanduitkering = null;
+        }
+        if (maanduitkering != null) {
+            resultaat.voegToe(batchRegel, maanduitkering);
+        }
+        return batchRegel.uitvoer(maanduitkering);
+    }
+
+    private void schrijf(FileChannel deel, ByteBuffer buffer, byte[] bytes) throws IOException {
+        if (buffer.remaining() < bytes.length) {
+            leeg(deel, buffer);
+        }
+        if (bytes.length > buffer.capacity()) { // past niet in de buffer, direct schrijven
+            ByteBuffer groot = ByteBuffer.wrap(bytes);
+            while (groot.hasRemaining()) {
+                deel.write(groot);
+            }
+        }
+        else {
+            buffer.put(bytes);
+        }
+    }
+
+    private void leeg(FileChannel deel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            deel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Zet de uitvoer van de partitie op schijf en legt daarna pas de voortgang vast. Zo verwijst het
+     * journaal nooit naar uitvoer die bij een crash verloren had kunnen gaan.
+     */
+    private void checkpoint(FileChannel deel, ByteBuffer buffer, BatchJournaal journaal, int partitie,
+                            long invoerPositie, long regels) throws IOException {
+        long start = System.nanoTime();
+        leeg(deel, buffer);
+        deel.force(false);
+        journaal.schrijf(partitie, invoerPositie, deel.position(), regels);
+        aantalCheckpoints.incrementAndGet();
+        checkpointNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * Zet de delen van alle partities achter elkaar in het bestand doel.
+     */
+    private static void voegSamen(int aantal, Path doelbestand, IntFunction<Path> delen) throws IOException {
+        try (FileChannel doel = FileChannel.open(doelbestand, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < aantal; i++) {
+                try (FileChannel deel = FileChannel.open(delen.apply(i), StandardOpenOption.READ)) {
+                    long positie = 0;
+                    long grootte = deel.size();
+                    while (positie < grootte) {
+                        positie += deel.transferTo(positie, grootte - positie, doel);
+                    }
+                }
+            }
+            doel.force(true);
+        }
+    }
+
+    private Path deelbestand(int partitie) {
+        return getDeelbestand(uitvoer, partitie);
+    }
+
+    private Path quarantainedeel(int partitie) {
+        return getQuarantainedeel(uitvoer, partitie);
+    }
+
+    /**
+     * Verwijdert het journaal en de deelbestanden van een berekening naar uitvoer. Het journaal eerst, zodat
+     * een half opgeruimde berekening niet wordt hervat.
+     * @param uitvoer het uitvoerbestand van een batchberekening.
+     */
+    public static void ruimTussenbestandenOp(Path uitvoer) throws IOException {
+        Files.deleteIfExists(getJournaalbestand(uitvoer));
+        for (int i = 0; ; i++) {
+            Files.deleteIfExists(getQuarantainedeel(uitvoer, i));
+            if (!Files.deleteIfExists(getDeelbestand(uitvoer, i))) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @param uitvoer het uitvoerbestand van een batchberekening.
+     * @return de plek van het journaal waarmee een onderbroken berekening wordt hervat.
+     */
+    public static Path getJournaalbestand(Path uitvoer) {
+        return Paths.get(uitvoer + ".journaal");
+    }
+
+    /**
+     * @param uitvoer het uitvoerbestand van een batchberekening.
+     * @return de plek van de uitvoer van een partitie, tot die aan het eind in uitvoer wordt samengevoegd.
+     */
+    public static Path getDeelbestand(Path uitvoer, int partitie) {
+        return Paths.get(uitvoer + ".deel" + partitie);
+    }
+
+    /**
+     * @param uitvoer het uitvoerbestand van een batchberekening.
+     * @return de plek van de quarantaine van een partitie, zie getQuarantainebestand().
+     */
+    public static Path getQuarantainedeel(Path uitvoer, int partitie) {
+        return Paths.get(getQuarantainebestand(uitvoer) + ".deel" + partitie);
+    }
+
+    /**
+     * @param uitvoer het uitvoerbestand van een batchberekening.
+     * @return de plek van de regels die niet berekend konden worden, elk met de Foutcode ervoor.
+     */
+    public static Path getQuarantainebestand(Path uitvoer) {
+        return Paths.get(uitvoer + ".quarantaine");
+    }
+
+    /**
+     * @param uitvoer het uitvoerbestand van een batchberekening.
+     * @return de plek waar de statistiek van die berekening wordt bewaard.
+     */
+    public static Path getStatistiekbestand(Path uitvoer) {
+        return Paths.get(uitvoer + ".statistiek");
+    }
+
+    /**
+     * @param uitvoer het uitvoerbestand van een batchberekening.
+     * @return de plek waar de KostenKubus van die berekening binair wordt bewaard.
+     */
+    public static Path getKubusbestand(Path uitvoer) {
+        return Paths.get(uitvoer + ".kubus");
+    }
+
+    private static <T> T wachtOp(Future<T> resultaat) throws IOException {
+        try {
+            return resultaat.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batchberekening onderbroken.", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Batchberekening mislukt.", e.getCause());
+        }
+    }
+
+    public long getAantalRegels() {
+        return aantalRegels;
+    }
+
+    /**
+     * @return de samengevoegde statistiek van de laatste run, of null als er nog geen run is geweest.
+     */
+    public PopulatieStatistiek getStatistiek() {
+        return statistiek;
+    }
+
+    /**
+     * @return de samengevoegde kubus van de laatste run, of null als er nog geen run is geweest.
+     */
+    public KostenKubus getKubus() {
+        return kubus;
+    }
+
+    public long getAantalFouten() {
+        return aantalFouten.get();
+    }
+
+    /**
+     * @param code de Foutcode.
+     * @return het aantal regels in de uitvoer van de laatste run met die Foutcode, inclusief regels
+     * die voor het hervatten al berekend waren.
+     */
+    public long getAantalFouten(Foutcode code) {
+        return foutenPerCode.get(code.ordinal());
+    }
+
+    /**
+     * Geeft een kort verslag van de laatste run, met de tijd die aan checkpoints is besteed.
+     * @return verslag als String van meerdere regels.
+     */
+    public String getVerslag() {
+        double checkpointMs = checkpointNanos.get() / 1e6;
+        double aandeel = partitieNanos.get() == 0 ? 0 : 100.0 * checkpointNanos.get() / partitieNanos.get();
+        return (hervat ? "Onderbroken berekening hervat.\n" : "")
+                + "Regels: " + aantalRegels + ", waarvan " + nieuweRegels.get() + " in deze run ("
+                + aantalFouten.get() + " met fouten)\n"
+                + "Looptijd: " + String.format("%.1f", totaalNanos / 1e6) + " ms\n"
+                + "Checkpoints: " + aantalCheckpoints.get() + ", " + String.format("%.1f", checkpointMs)
+                + " ms (" + String.format("%.1f", aandeel) + "% van de rekentijd)"
+                + getFoutenVerslag()
+                + (cache == null ? "" : "\n" + cache);
+    }
+
+    private String getFoutenVerslag() {
+        StringBuilder verslag = new StringBuilder();
+        for (Foutcode code : Foutcode.values()) {
+            long aantal = foutenPerCode.get(code.ordinal());
+            if (aantal > 0) {
+                verslag.append(verslag.length() == 0 ? "\nIn quarantaine: " : ", ").append(code).append(' ').append(aantal);
+            }
+        }
+        return verslag.toString();
+    }
+
+    /**
+     * Start een batchberekening vanaf de commandline.
+     * Gebruik: java BatchBerekening invoer uitvoer [partities] [checkpointinterval] [cachegrootte]
+     * @param args de commandline argumenten.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Gebruik: java BatchBerekening invoer uitvoer [partities] [checkpointinterval] [cachegrootte]");
+            return;
+        }
+        BatchBerekening batch = new BatchBerekening(Paths.get(args[0]), Paths.get(args[1]));
+        if (args.length > 2) {
+            batch.setAantalPartities(Integer.parseInt(args[2]));
+        }
+        if (args.length > 3) {
+            batch.setCheckpointInterval(Integer.parseInt(args[3]));
+        }
+        if (args.length > 4) {
+            batch.setCacheGrootte(Integer.parseInt(args[4]));
+        }
+        try {
+            batch.voerUit();
+            System.out.println(batch.getVerslag());
+            System.out.print(batch.getStatistiek().getRapport());
+        }
+        catch (IOException e) {
+            System.out.println("Batchberekening gestopt: " + e.getMessage());
+            System.out.println("Start opnieuw met dezelfde invoer en uitvoer om verder te gaan.");
+            System.exit(1); // zodat een BatchCoordinator ziet dat deze shard mislukt is
+        }
+    }
+
+    /**
+     * Wat een partitie tijdens het rekenen bijhoudt naast de uitvoer.
+     */
+    private static class PartitieResultaat {
+        private final PopulatieStatistiek statistiek = new PopulatieStatistiek();
+        private final KostenKubus kubus = new KostenKubus();
+        private final long[] fouten = new long[Foutcode.values().length];
+        private final BufferedWriter quarantaine;
+
+        PartitieResultaat(BufferedWriter quarantaine) {
+            this.quarantaine = quarantaine;
+        }
+
+        void voegToe(BatchRegel regel, BigDecimal maanduitkering) {
+            statistiek.voegToe(regel.getGroep(), regel.getId(), maanduitkering);
+            kubus.voegToe(UitkeringCache.maandIndex(regel.getRekenmaand()), regel.getRegimeCode(maanduitkering),
+                    maanduitkering.movePointRight(2).longValue());
+        }
+
+        void quarantaine(Foutcode code, String regel) throws IOException {
+            fouten[code.ordinal()]++;
+            quarantaine.write(code.name());
+            quarantaine.write(BatchRegel.SCHEIDINGSTEKEN);
+            quarantaine.write(regel);
+            quarantaine.write('\n');
+        }
+    }
+}
@@ -0,0 +1,273 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verdeelt een batchberekening over meerdere werkerprocessen. Het invoerbestand wordt op basis van
+ * de hash van het cliënt-id opgedeeld in shards, zodat alle regels van één cliënt in dezelfde shard
+ * terechtkomen. Elke shard wordt door een WerkerStarter doorgerekend met BatchBerekening.
+ *
+ * Bij het opdelen wordt per invoerregel vastgelegd in welke shard hij terecht is gekomen (1 byte
+ * per regel). De uitvoer van elke shard staat in invoervolgorde, dus met die volgorde kunnen de
+ * shards weer worden samengevoegd tot precies hetzelfde uitvoerbestand als van een enkele
+ * BatchBerekening, zonder alles in het geheugen te hoeven houden. De statistieken en kubussen van
+ * de shards worden samengevoegd tot één PopulatieStatistiek en één KostenKubus. De quarantaine van
+ * de shards komt shard na shard in één quarantainebestand, dus per cliënt in invoervolgorde.
+ */
+public class BatchCoordinator {
+
+    private static final int MAXIMUM_SHARDS = 255; // volgorde wordt per regel in 1 byte opgeslagen
+
+    private final Path invoer;
+    private final Path uitvoer;
+    private final int aantalShards;
+    private WerkerStarter starter = new LokaleWerkerStarter(1);
+    private PopulatieStatistiek statistiek = null;
+    private KostenKubus kubus = null;
+
+    public BatchCoordinator(Path invoer, Path uitvoer, int aantalShards) {
+        if (aantalShards < 1 || aantalShards > MAXIMUM_SHARDS) {
+            throw new IllegalArgumentException("Aantal shards moet tussen 1 en " + MAXIMUM_SHARDS + " liggen.");
+        }
+        this.invoer = invoer;
+        this.uitvoer = uitvoer;
+        this.aantalShards = aantalShards;
+    }
+
+    public void setStarter(WerkerStarter starter) {
+        this.starter = starter;
+    }
+
+    /**
+     * @return de samengevoegde statistiek van alle shards, of null als er nog geen run is geweest.
+     */
+    public PopulatieStatistiek getStatistiek() {
+        return statistiek;
+    }
+
+    /**
+     * @return de samengevoegde kubus van alle shards, of null als er nog geen run is geweest.
+     */
+    public KostenKubus getKubus() {
+        return kubus;
+    }
+
+    /**
+     * Bepaalt in welke shard een cliënt wordt berekend.
+     * @param id het cliënt-id, het eerste veld van de invoerregel.
+     * @param aantalShards het totaal aantal shards.
+     * @return nummer van de shard, van 0 tot aantalShards.
+     */
+    public static int getShard(String id, int aantalShards) {
+        return Math.floorMod(id.hashCode(), aantalShards);
+    }
+
+    /**
+     * Deelt de invoer op, laat alle shards tegelijk berekenen en voegt de uitvoer samen.
+     * Tussenbestanden worden na afloop verwijderd, ook als een shard mislukt; dan pas nadat de andere
+     * werkers gestopt zijn.
+     * @throws IOException als een bestand niet gelezen of geschreven kan worden, of een shard mislukt.
+     * @throws InterruptedException als er wordt onderbroken tijdens het wachten op de werkers.
+     */
+    public void voerUit() throws IOException, InterruptedException {
+        try {
+            verdeel();
+            berekenShards();
+            voegSamen();
+            statistiek = new PopulatieStatistiek();
+            for (int i = 0; i < aantalShards; i++) {
+                statistiek.voegSamen(PopulatieStatistiek.lees(BatchBerekening.getStatistiekbestand(shardUitvoer(i))));
+            }
+            statistiek.schrijf(BatchBerekening.getStatistiekbestand(uitvoer));
+            kubus = new KostenKubus();
+            for (int i = 0; i < aantalShards; i++) {
+                kubus.voegSamen(KostenKubus.lees(BatchBerekening.getKubusbestand(shardUitvoer(i))));
+            }
+            kubus.schrijf(BatchBerekening.getKubusbestand(uitvoer));
+            kubus.schrijfCsv(Paths.get(uitvoer + ".kubus.csv"));
+            try (OutputStream quarantaine = new BufferedOutputStream(
+                    Files.newOutputStream(BatchBerekening.getQuarantainebestand(uitvoer)))) {
+                for (int i = 0; i < aantalShards; i++) {
+                    Files.copy(BatchBerekening.getQuarantainebestand(shardUitvoer(i)), quarantaine);
+                }
+            }
+        }
+        finally {
+            Files.deleteIfExists(volgordebestand());
+            for (int i = 0; i < aantalShards; i++) {
+                Files.deleteIfExists(shardInvoer(i));
+                Files.deleteIfExists(shardUitvoer(i));
+                Files.deleteIfExists(BatchBerekening.getStatistiekbestand(shardUitvoer(i)));
+                Files.deleteIfExists(BatchBerekening.getKubusbestand(shardUitvoer(i)));
+                Files.deleteIfExists(Paths.get(shardUitvoer(i) + ".kubus.csv"));
+                Files.deleteIfExists(BatchBerekening.getQuarantainebestand(shardUitvoer(i)));
+                BatchBerekening.ruimTussenbestandenOp(shardUitvoer(i)); // zonder shardinvoer niet te hervatten
+            }
+        }
+    }
+
+    private void verdeel() throws IOException {
+        BufferedWriter[] shards = new BufferedWriter[aantalShards];
+        try (BufferedReader lezer = Files.newBufferedReader(invoer, StandardCharsets.UTF_8);
+             OutputStream volgorde = new BufferedOutputStream(Files.newOutputStream(volgordebestand()))) {
+            for (int i = 0; i < aantalShards; i++) {
+                shards[i] = Files.newBufferedWriter(shardInvoer(i), StandardCharsets.UTF_8);
+            }
+            String regel;
+            while ((regel = lezer.readLine()) != null) {
+                if (regel.isBlank()) { // slaat BatchBerekening ook over
+                    continue;
+                }
+                int shard = getShard(regel.split(BatchRegel.SCHEIDINGSTEKEN, 2)[0].strip(), aantalShards);
+                shards[shard].write(regel);
+                shards[shard].write('\n');
+                volgorde.write(shard);
+            }
+        }
+        finally {
+            for (BufferedWriter shard : shards) {
+                if (shard != null) {
+                    shard.close();
+                }
+            }
+        }
+    }
+
+    private void berekenShards() throws IOException, InterruptedException {
+        ExecutorService threads = Executors.newFixedThreadPool(aantalShards);
+        ArrayList<Future<Void>> resultaten = new ArrayList<>();
+        for (int i = 0; i < aantalShards; i++) {
+            final int shard = i;
+            resultaten.add(threads.submit(() -> {
+                starter.voerUit(shard, shardInvoer(shard), shardUitvoer(shard));
+                return null;
+            }));
+        }
+        threads.shutdown();
+
+        for (Future<Void> resultaat : resultaten) {
+            try {
+                resultaat.get();
+            }
+            catch (ExecutionException e) {
+                stopWerkers(threads);
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Shard mislukt.", e.getCause());
+            }
+            catch (InterruptedException e) {
+                stopWerkers(threads);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Onderbreekt de werkers die nog rekenen en wacht tot ze allemaal gestopt zijn, zodat geen werker
+     * meer schrijft in de tussenbestanden die daarna worden verwijderd. Zie LokaleWerkerStarter.
+     */
+    private static void stopWerkers(ExecutorService threads) {
+        threads.shutdownNow();
+        boolean onderbroken = false;
+        while (true) {
+            try {
+                if (threads.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            }
+            catch (InterruptedException e) {
+                onderbroken = true;
+            }
+        }
+        if (onderbroken) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Voegt de uitvoer van de shards samen in de volgorde van de oorspronkelijke invoer.
+     */
+    private void voegSamen() throws IOException {
+        BufferedReader[] shards = new BufferedReader[aantalShards];
+        try (InputStream volgorde = new BufferedInputStream(Files.newInputStream(volgordebestand()));
+             BufferedWriter schrijver = Files.newBufferedWriter(uitvoer, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < aantalShards; i++) {
+                shards[i] = Files.newBufferedReader(shardUitvoer(i), StandardCharsets.UTF_8);
+            }
+            int shard;
+            while ((shard = volgorde.read()) >= 0) {
+                String regel = shards[shard].readLine();
+                if (regel == null) {
+                    throw new IOException("Uitvoer van shard " + shard + " is onvolledig.");
+                }
+                schrijver.write(regel);
+                schrijver.write('\n');
+            }
+        }
+        finally {
+            for (BufferedReader lezer : shards) {
+                if (lezer != null) {
+                    lezer.close();
+                }
+            }
+        }
+    }
+
+    private Path volgordebestand() {
+        return Paths.get(uitvoer + ".volgorde");
+    }
+
+    private Path shardInvoer(int shard) {
+        return Paths.get(uitvoer + ".shard" + shard + ".invoer");
+    }
+
+    private Path shardUitvoer(int shard) {
+        return Paths.get(uitvoer + ".shard" + shard);
+    }
+
+    /**
+     * Start een verdeelde batchberekening met lokale werkerprocessen.
+     * Gebruik: java BatchCoordinator invoer uitvoer shards [partitiesPerShard]
+     * @param args de commandline argumenten.
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Gebruik: java BatchCoordinator invoer uitvoer shards [partitiesPerShard]");
+            return;
+        }
+        BatchCoordinator coordinator = new BatchCoordinator(Paths.get(args[0]), Paths.get(args[1]),
+                Integer.parseInt(args[2]));
+        if (args.length > 3) {
+            coordinator.setStarter(new LokaleWerkerStarter(Integer.parseInt(args[3])));
+        }
+        try {
+            long start = System.nanoTime();
+            coordinator.voerUit();
+            System.out.println("Verdeelde berekening klaar in " + String.format("%.1f", (System.nanoTime() - start) / 1e6) + " ms.");
+            System.out.print(coordinator.getStatistiek().getRapport());
+        }
+        catch (IOException e) {
+            System.out.println("Verdeelde berekening gestopt: " + e.getMessage());
+            System.exit(1);
+        }
+        catch (InterruptedException e) {
+            System.out.println("Verdeelde berekening onderbroken.");
+            System.exit(1);
+        }
+    }
+}
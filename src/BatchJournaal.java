@@ -0,0 +1,230 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Voortgangsjournaal van een batchberekening. Het journaal legt vast hoe het invoerbestand is
+ * opgedeeld in partities, en per partitie tot welke positie de invoer verwerkt is en hoe lang
+ * het bijbehorende uitvoerbestand op dat moment was. Na een onderbreking kan de berekening
+ * daarmee per partitie verder vanaf het laatste checkpoint.
+ *
+ * Opbouw van het bestand (big-endian):
+ * - kop: magic, aantal partities, grootte invoerbestand, controlegetal van de inhoud van het
+ *   invoerbestand (zie controlegetal()), partitiegrenzen, CRC32 van de kop.
+ * - daarna een checkpoint per keer: partitie, invoerpositie, uitvoerpositie, aantal regels, CRC32.
+ * Een checkpoint dat half geschreven is (bijvoorbeeld door een crash) heeft een verkeerde CRC
+ * en wordt bij het inlezen genegeerd.
+ *
+ * Een journaal hoort alleen bij een invoerbestand met dezelfde grootte en hetzelfde controlegetal.
+ * Is de invoer intussen aangepast, ook als de grootte gelijk bleef, dan wordt niet hervat: anders
+ * zouden al berekende partities van de oude invoer gemengd worden met die van de nieuwe.
+ */
+public class BatchJournaal {
+
+    private static final int MAGIC = 0x574A4232; // "WJB2"
+    private static final int CHECKPOINT_GROOTTE = 4 + 8 + 8 + 8 + 4;
+    private static final int VAST_GROOTTE = 4 + 4 + 8 + 8; // kop tot de partitiegrenzen
+    private static final long LEESBLOK = 64L * 1024 * 1024;
+
+    private final FileChannel kanaal;
+    private final long invoerGrootte;
+    private final long invoerControlegetal;
+    private final long[] grenzen; // grenzen[i] t/m grenzen[i+1] is partitie i
+    private final long[] invoerPositie;
+    private final long[] uitvoerPositie;
+    private final long[] aantalRegels;
+    private final ByteBuffer schrijfBuffer = ByteBuffer.allocate(CHECKPOINT_GROOTTE);
+
+    private BatchJournaal(FileChannel kanaal, long invoerGrootte, long invoerControlegetal, long[] grenzen) {
+        this.kanaal = kanaal;
+        this.invoerGrootte = invoerGrootte;
+        this.invoerControlegetal = invoerControlegetal;
+        this.grenzen = grenzen;
+        int aantal = grenzen.length - 1;
+        this.invoerPositie = new long[aantal];
+        this.uitvoerPositie = new long[aantal];
+        this.aantalRegels = new long[aantal];
+        for (int i = 0; i < aantal; i++) {
+            invoerPositie[i] = grenzen[i]; // nog niets verwerkt
+        }
+    }
+
+    /**
+     * Maakt een nieuw journaal aan. Een bestaand journaal op dezelfde plek wordt overschreven.
+     * @param pad locatie van het journaal.
+     * @param invoerGrootte grootte van het invoerbestand in bytes, ter controle bij hervatten.
+     * @param invoerControlegetal controlegetal() van het invoerbestand, ter controle bij hervatten.
+     * @param grenzen begin van elke partitie, met als laatste waarde het einde van de laatste partitie.
+     * @return het geopende journaal.
+     * @throws IOException als het journaal niet geschreven kan worden.
+     */
+    public static BatchJournaal nieuw(Path pad, long invoerGrootte, long invoerControlegetal, long[] grenzen)
+            throws IOException {
+        FileChannel kanaal = FileChannel.open(pad, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer kop = ByteBuffer.allocate(kopGrootte(grenzen.length - 1));
+        kop.putInt(MAGIC).putInt(grenzen.length - 1).putLong(invoerGrootte).putLong(invoerControlegetal);
+        for (long grens : grenzen) {
+            kop.putLong(grens);
+        }
+        kop.putInt(crc(kop.array(), kop.position()));
+        kop.flip();
+        while (kop.hasRemaining()) {
+            kanaal.write(kop);
+        }
+        kanaal.force(true);
+        return new BatchJournaal(kanaal, invoerGrootte, invoerControlegetal, grenzen);
+    }
+
+    /**
+     * Opent een bestaand journaal om een onderbroken berekening te hervatten. Checkpoints die
+     * niet volledig geschreven zijn worden van het eind van het bestand afgeknipt.
+     * @param pad locatie van het journaal.
+     * @param invoerGrootte grootte van het invoerbestand, moet gelijk zijn aan die in het journaal.
+     * @param invoerControlegetal controlegetal() van het invoerbestand, moet gelijk zijn aan dat in het journaal.
+     * @return het geopende journaal met de laatste voortgang per partitie, of null als er geen
+     * bruikbaar journaal is (bestand ontbreekt, is beschadigd of hoort bij een andere invoer).
+     * @throws IOException als het journaal niet gelezen kan worden.
+     */
+    public static BatchJournaal hervat(Path pad, long invoerGrootte, long invoerControlegetal) throws IOException {
+        if (!Files.exists(pad)) {
+            return null;
+        }
+        FileChannel kanaal = FileChannel.open(pad, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        ByteBuffer vast = ByteBuffer.allocate(VAST_GROOTTE);
+        if (kanaal.read(vast, 0) < VAST_GROOTTE || vast.getInt(0) != MAGIC || vast.getLong(8) != invoerGrootte
+                || vast.getLong(16) != invoerControlegetal) {
+            kanaal.close();
+            return null;
+        }
+        int aantal = vast.getInt(4);
+        if (aantal <= 0 || kopGrootte(aantal) > kanaal.size()) {
+            kanaal.close();
+            return null;
+        }
+        ByteBuffer kop = ByteBuffer.allocate(kopGrootte(aantal));
+        kanaal.read(kop, 0);
+        if (kop.getInt(kop.capacity() - 4) != crc(kop.array(), kop.capacity() - 4)) {
+            kanaal.close();
+            return null;
+        }
+        long[] grenzen = new long[aantal + 1];
+        for (int i = 0; i <= aantal; i++) {
+            grenzen[i] = kop.getLong(VAST_GROOTTE + 8 * i);
+        }
+        BatchJournaal journaal = new BatchJournaal(kanaal, invoerGrootte, invoerControlegetal, grenzen);
+
+        // checkpoints inlezen, de laatste geldige per partitie telt
+        long positie = kop.capacity();
+        ByteBuffer checkpoint = ByteBuffer.allocate(CHECKPOINT_GROOTTE);
+        while (positie + CHECKPOINT_GROOTTE <= kanaal.size()) {
+            checkpoint.clear();
+            kanaal.read(checkpoint, positie);
+            int partitie = checkpoint.getInt(0);
+            if (checkpoint.getInt(CHECKPOINT_GROOTTE - 4) != crc(checkpoint.array(), CHECKPOINT_GROOTTE - 4)
+                    || partitie < 0 || partitie >= aantal) {
+                break;
+            }
+            journaal.invoerPositie[partitie] = checkpoint.getLong(4);
+            journaal.uitvoerPositie[partitie] = checkpoint.getLong(12);
+            journaal.aantalRegels[partitie] = checkpoint.getLong(20);
+            positie += CHECKPOINT_GROOTTE;
+        }
+        kanaal.truncate(positie); // half geschreven checkpoint weg
+        kanaal.position(positie);
+        return journaal;
+    }
+
+    /**
+     * Berekent het controlegetal (CRC32C) over de hele inhoud van een invoerbestand. Het bestand wordt
+     * in blokken gemapt, zodat dit ongeveer zo snel gaat als het bestand van schijf gelezen kan worden.
+     * @param invoer het geopende invoerbestand, de positie van het kanaal verandert niet.
+     * @param grootte het aantal bytes vanaf het begin dat meetelt.
+     * @return het controlegetal.
+     * @throws IOException als het bestand niet gelezen kan worden.
+     */
+    public static long controlegetal(FileChannel invoer, long grootte) throws IOException {
+        CRC32C crc = new CRC32C();
+        for (long positie = 0; positie < grootte; positie += LEESBLOK) {
+            MappedByteBuffer blok = invoer.map(FileChannel.MapMode.READ_ONLY, positie,
+                    Math.min(LEESBLOK, grootte - positie));
+            crc.update(blok);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Schrijft een checkpoint voor een partitie en zorgt dat het op schijf staat voordat de methode
+     * terugkeert. De uitvoer van de partitie moet op dat moment al tot uitvoerPositie op schijf staan.
+     * @param partitie nummer van de partitie.
+     * @param invoer positie in het invoerbestand tot waar de partitie verwerkt is.
+     * @param uitvoer lengte van het uitvoerbestand van de partitie.
+     * @param regels aantal verwerkte regels in de partitie tot nu toe.
+     * @throws IOException als het checkpoint niet geschreven kan worden.
+     */
+    public synchronized void schrijf(int partitie, long invoer, long uitvoer, long regels) throws IOException {
+        schrijfBuffer.clear();
+        schrijfBuffer.putInt(partitie).putLong(invoer).putLong(uitvoer).putLong(regels);
+        schrijfBuffer.putInt(crc(schrijfBuffer.array(), schrijfBuffer.position()));
+        schrijfBuffer.flip();
+        while (schrijfBuffer.hasRemaining()) {
+            kanaal.write(schrijfBuffer);
+        }
+        kanaal.force(false);
+        invoerPositie[partitie] = invoer;
+        uitvoerPositie[partitie] = uitvoer;
+        aantalRegels[partitie] = regels;
+    }
+
+    public int getAantalPartities() {
+        return grenzen.length - 1;
+    }
+
+    public long getInvoerGrootte() {
+        return invoerGrootte;
+    }
+
+    public long getInvoerControlegetal() {
+        return invoerControlegetal;
+    }
+
+    public long getPartitieStart(int partitie) {
+        return grenzen[partitie];
+    }
+
+    public long getPartitieEind(int partitie) {
+        return grenzen[partitie + 1];
+    }
+
+    public synchronized long getInvoerPositie(int partitie) {
+        return invoerPositie[partitie];
+    }
+
+    public synchronized long getUitvoerPositie(int partitie) {
+        return uitvoerPositie[partitie];
+    }
+
+    public synchronized long getAantalRegels(int partitie) {
+        return aantalRegels[partitie];
+    }
+
+    public void sluit() throws IOException {
+        kanaal.close();
+    }
+
+    private static int kopGrootte(int aantalPartities) {
+        return VAST_GROOTTE + 8 * (aantalPartities + 1) + 4;
+    }
+
+    private static int crc(byte[] data, int lengte) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, lengte);
+        return (int) crc.getValue();
+    }
+}
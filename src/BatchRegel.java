@@ -0,0 +1,426 @@
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Klasse om een regel uit een invoerbestand voor de batchberekening op te slaan en door te rekenen.
+ * Een regel bevat de gegevens van één cliënt over één maand, gescheiden door puntkomma's:
+ * id;regeling;rekenmaand;inkomsten;rekendagloon;klasse;maatmanloon;arbeidsvermogen;garantiebedrag;loonwaarde;overigeInkomsten
+ *
+ * Regeling is WAO of WAJONG. Velden die niet van toepassing zijn mogen leeg blijven, bijvoorbeeld
+ * de WAO-velden bij een Wajong-regel. Arbeidsvermogen is "ja" of "nee" (leeg is "ja"). Bedragen
+ * worden gelezen zoals in de GUI, dus met punt of komma als decimaalteken en eventueel een euroteken.
+ * Inkomsten zijn altijd per maand.
+ *
+ * Ongeldige gegevens geven een Rekenfout met een Foutcode die zegt wat er mis is.
+ *
+ * Een BatchRegel verandert na het lezen niet meer, en rekent met een nieuw WaoProfiel of WajongProfiel
+ * per berekening. Dezelfde regel kan dus vanuit meerdere threads tegelijk worden doorgerekend.
+ */
+public class BatchRegel {
+
+    public static final String SCHEIDINGSTEKEN = ";";
+    public static final String[] VELDNAMEN = {"id", "regeling", "rekenmaand", "inkomsten", "rekendagloon",
+            "klasse", "maatmanloon", "arbeidsvermogen", "garantiebedrag", "loonwaarde", "overigeInkomsten"};
+    private static final int AANTAL_VELDEN = VELDNAMEN.length;
+
+    private final String id;
+    private final String regeling;
+    private final String rekenmaand;
+    private final String inkomsten;
+    private final String rekendagloon;
+    private final String klasse;
+    private final String maatmanloon;
+    private final String arbeidsvermogen;
+    private final String garantiebedrag;
+    private final String loonwaarde;
+    private final String overigeInkomsten;
+
+    private BatchRegel(String[] velden) {
+        this.id = velden[0];
+        this.regeling = velden[1].toUpperCase();
+        this.rekenmaand = velden[2].toLowerCase();
+        this.inkomsten = velden[3];
+        this.rekendagloon = velden[4];
+        this.klasse = velden[5];
+        this.maatmanloon = velden[6];
+        this.arbeidsvermogen = velden[7];
+        this.garantiebedrag = velden[8];
+        this.loonwaarde = velden[9];
+        this.overigeInkomsten = velden[10];
+    }
+
+    /**
+     * Leest een regel uit het invoerbestand. Ontbrekende velden aan het eind van de regel worden als
+     * leeg gezien, zodat een Wajong-regel niet alle WAO-velden hoeft te bevatten.
+     * @param regel de regel uit het invoerbestand zonder regeleinde.
+     * @return BatchRegel met de gegevens van de regel.
+     * @throws Rekenfout als de regel geen id, regeling of geldige rekenmaand bevat.
+     */
+    public static BatchRegel lees(String regel) {
+        return lees(regel.split(SCHEIDINGSTEKEN, -1));
+    }
+
+    /**
+     * Leest een regel uit losse velden in de volgorde van VELDNAMEN. Ontbrekende velden aan het eind
+     * worden als leeg gezien.
+     * @param gelezen de velden.
+     * @return BatchRegel met de gegevens van de velden.
+     * @throws Rekenfout als de velden geen id, regeling of geldige rekenmaand bevatten.
+     */
+    public static BatchRegel lees(String[] gelezen) {
+        String[] velden = new String[AANTAL_VELDEN];
+        for (int i = 0; i < AANTAL_VELDEN; i++) {
+            velden[i] = (i < gelezen.length) ? gelezen[i].strip() : "";
+        }
+        return controleer(velden);
+    }
+
+    /**
+     * Leest een regel uit losse velden, bijvoorbeeld uit een verzoek aan de RekenServer. De namen
+     * staan in VELDNAMEN. Ontbrekende velden worden als leeg gezien.
+     * @param gelezen de velden op naam.
+     * @return BatchRegel met de gegevens van de velden.
+     * @throws Rekenfout als de velden geen id, regeling of geldige rekenmaand bevatten.
+     */
+    public static BatchRegel lees(Map<String, String> gelezen) {
+        String[] velden = new String[AANTAL_VELDEN];
+        for (int i = 0; i < AANTAL_VELDEN; i++) {
+            String veld = gelezen.get(VELDNAMEN[i]);
+            velden[i] = (veld == null) ? "" : veld.strip();
+        }
+        return controleer(velden);
+    }
+
+    private static BatchRegel controleer(String[] velden) {
+        if (velden[0].isEmpty() || velden[1].isEmpty() || velden[2].length() != 6) {
+            throw new Rekenfout(Foutcode.REGEL_ONVOLLEDIG, "Regel mist id, regeling of rekenmaand.");
+        }
+        // ook voor de KostenKubus, die per maandindex telt
+        if (UitkeringCache.maandIndex(velden[2]) < 0) {
+            throw new Rekenfout(Foutcode.ONGELDIGE_REKENMAAND, "Ongeldige rekenmaand " + velden[2] + ".");
+        }
+        return new BatchRegel(velden);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRegeling() {
+        return regeling;
+    }
+
+    public String getRekenmaand() {
+        return rekenmaand;
+    }
+
+    /**
+     * Bepaalt in welke groep deze regel valt voor de statistiek van de batch: WAO per klasse, of
+     * Wajong met of zonder arbeidsvermogen en loondispensatie.
+     * @return omschrijving van de groep.
+     */
+    public String getGroep() {
+        if (regeling.equals("WAO")) {
+            return "WAO klasse " + klasse;
+        }
+        if (arbeidsvermogen.equalsIgnoreCase("nee")) {
+            return "Wajong zonder arbeidsvermogen";
+        }
+        if (!loonwaarde.isEmpty()) {
+            return "Wajong met arbeidsvermogen en loondispensatie";
+        }
+        return "Wajong met arbeidsvermogen";
+    }
+
+    /**
+     * Bepaalt het regime van deze regel voor de KostenKubus. Voor WAO is dat 8 * klasse. Voor Wajong
+     * een code van 0 tot 8 met bit 4 voor arbeidsvermogen, bit 2 voor loondispensatie en bit 1 als het
+     * garantiebedrag bepalend was voor de uitkomst.
+     * @param maanduitkering de berekende maanduitkering, om te zien of het garantiebedrag bepalend was.
+     * @return regimecode van 0 tot KostenKubus.AANTAL_REGIMES.
+     */
+    public int getRegimeCode(BigDecimal maanduitkering) {
+        if (regeling.equals("WAO")) {
+            return 8 * leesKlasse();
+        }
+        int code = 0;
+        if (!arbeidsvermogen.equalsIgnoreCase("nee")) {
+            code |= 4;
+        }
+        if (!loonwaarde.isEmpty()) {
+            code |= 2;
+        }
+        if (!garantiebedrag.isEmpty()) {
+            // het garantiebedrag is een dagbedrag, de uitkering is dan precies garantiebedrag * dagen in de maand
+            BigDecimal gar = BigDecimalUtil.multiply(BigDecimal.valueOf(BedragLezer.lees(garantiebedrag), 2),
+                    Uitkering.UK_DAGEN_IN_MND);
+            if (gar.compareTo(maanduitkering) == 0) {
+                code |= 1;
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Berekent de bruto maanduitkering voor deze regel met dezelfde controles als de GUI.
+     * Als er geen inkomsten zijn opgegeven wordt de volledige uitkering berekend.
+     * @return de bruto maanduitkering in euro.
+     * @throws Rekenfout als de gegevens op de regel geen berekening toelaten.
+     */
+    public BigDecimal bereken() {
+        return bereken((BeleidsScenario) null);
+    }
+
+    /**
+     * Berekent de bruto maanduitkering voor deze regel met andere beleidsparameters.
+     * @param scenario het scenario, of null om met de huidige parameters te rekenen.
+     * @return de bruto maanduitkering in euro.
+     * @throws Rekenfout als de gegevens op de regel geen berekening toelaten.
+     */
+    public BigDecimal bereken(BeleidsScenario scenario) {
+        switch (regeling) {
+            case "WAO":
+                return berekenWao(scenario);
+            case "WAJONG":
+                return berekenWajong(scenario);
+            default:
+                throw new Rekenfout(Foutcode.ONBEKENDE_REGELING, "Onbekende regeling " + regeling + ".");
+        }
+    }
+
+    /**
+     * Berekent de maanduitkering voor deze regel bij een reeks inkomsten in plaats van de inkomsten op
+     * de regel. De uitkomst per bedrag is gelijk aan die van bereken() voor een regel met dat bedrag,
+     * maar de gegevens van de regel worden maar 1x gecontroleerd en de Uitkering maar 1x aangemaakt.
+     * @param inkomstenReeks inkomsten per maand zoals in het invoerbestand, leeg voor geen inkomsten.
+     * @return maanduitkeringen in de volgorde van inkomstenReeks, null bij een bedrag waarmee
+     * bereken() een IllegalArgumentException zou geven.
+     * @throws Rekenfout als de gegevens op de regel zelf geen berekening toelaten.
+     */
+    public BigDecimal[] bereken(String[] inkomstenReeks) {
+        int aantal = inkomstenReeks.length;
+        BigDecimal[] uitkomsten = new BigDecimal[aantal];
+        String[] verdiensten = new String[aantal];
+        boolean[] geldig = new boolean[aantal];
+        for (int i = 0; i < aantal; i++) {
+            try {
+                verdiensten[i] = leesBedrag(inkomstenReeks[i]);
+                geldig[i] = true;
+            }
+            catch (IllegalArgumentException e) {
+                // blijft null
+            }
+        }
+
+        Uitkering uitkering;
+        boolean metInkomsten; // of er met inkomsten gerekend kan worden
+        String overig = null;
+        switch (regeling) {
+            case "WAO": {
+                WaoProfiel wao = maakWao(null, null);
+                String mml = InvoerUtil.bedragCleanup(maatmanloon);
+                metInkomsten = InvoerUtil.isPositive(mml);
+                if (metInkomsten) {
+                    wao = wao.metMaatmanloon(mml);
+                }
+                uitkering = new WaoUitkering(wao);
+                break;
+            }
+            case "WAJONG": {
+                WajongProfiel wajong = maakWajong(null);
+                overig = leesBedrag(overigeInkomsten);
+                if (overig != null) {
+                    wajong = wajong.metOverigeInkomsten(overig);
+                }
+                metInkomsten = true;
+                uitkering = new WajongUitkering(wajong);
+                break;
+            }
+            default:
+                throw new Rekenfout(Foutcode.ONBEKENDE_REGELING, "Onbekende regeling " + regeling + ".");
+        }
+
+        // zonder inkomsten is de uitkering voor de hele reeks gelijk, met inkomsten samen doorrekenen
+        BigDecimal zonderInkomsten = null;
+        int[] plekken = new int[aantal];
+        String[] reeks = new String[aantal];
+        int metBedrag = 0;
+        for (int i = 0; i < aantal; i++) {
+            if (!geldig[i]) {
+                continue;
+            }
+            if (verdiensten[i] == null && overig == null) {
+                if (zonderInkomsten == null) {
+                    zonderInkomsten = uitkering.getMaanduitkering(rekenmaand);
+                }
+                uitkomsten[i] = zonderInkomsten;
+            }
+            else if (metInkomsten) {
+                plekken[metBedrag] = i;
+                reeks[metBedrag++] = (verdiensten[i] == null) ? "0" : verdiensten[i];
+            }
+        }
+        if (metBedrag > 0) {
+            String[] bedragen = new String[metBedrag];
+            System.arraycopy(reeks, 0, bedragen, 0, metBedrag);
+            BigDecimal[] berekend = uitkering.getMaanduitkeringen(bedragen, rekenmaand);
+            for (int j = 0; j < metBedrag; j++) {
+                uitkomsten[plekken[j]] = berekend[j];
+            }
+        }
+        return uitkomsten;
+    }
+
+    /**
+     * Bepaalt voor deze regel welke tak van de berekening van toepassing is en hoe de uitkering
+     * afhangt van de beleidsparameters, zie Gevoeligheid.
+     * @return Gevoeligheid van de daguitkering.
+     * @throws Rekenfout als de gegevens op de regel geen berekening toelaten.
+     */
+    public Gevoeligheid berekenGevoeligheid() {
+        Gevoeligheid gevoeligheid;
+        switch (regeling) {
+            case "WAO": {
+                String verdiensten = leesBedrag(inkomsten);
+                gevoeligheid = maakWao(verdiensten, null).getGevoeligheid(verdiensten == null ? "0" : verdiensten, rekenmaand);
+                break;
+            }
+            case "WAJONG": {
+                WajongProfiel wajong = maakWajong(null);
+                String verdiensten = leesBedrag(inkomsten);
+                String overig = leesBedrag(overigeInkomsten);
+                if (overig != null) {
+                    wajong = wajong.metOverigeInkomsten(overig);
+                }
+                gevoeligheid = wajong.getGevoeligheid(verdiensten == null ? "0" : verdiensten, rekenmaand);
+                break;
+            }
+            default:
+                throw new Rekenfout(Foutcode.ONBEKENDE_REGELING, "Onbekende regeling " + regeling + ".");
+        }
+        if (gevoeligheid == null) {
+            throw new Rekenfout(regeling.equals("WAO") ? Foutcode.GEEN_CBS_INDEX : Foutcode.GEEN_GRONDSLAG,
+                    "Geen parameters voor " + rekenmaand + ".");
+        }
+        return gevoeligheid;
+    }
+
+    private BigDecimal berekenWao(BeleidsScenario scenario) {
+        String verdiensten = leesBedrag(inkomsten);
+        WaoUitkering wao = new WaoUitkering(maakWao(verdiensten, scenario));
+        if (verdiensten == null) { // zonder inkomsten
+            return wao.getMaanduitkering(rekenmaand);
+        }
+        return wao.getMaanduitkering(verdiensten, rekenmaand);
+    }
+
+    /**
+     * Maakt het WaoProfiel voor deze regel aan en controleert de gegevens.
+     * @param verdiensten de opgeschoonde inkomsten, of null als er geen inkomsten zijn.
+     * @param scenario het scenario, of null om met de huidige parameters te rekenen.
+     */
+    private WaoProfiel maakWao(String verdiensten, BeleidsScenario scenario) {
+        String dagloon = InvoerUtil.bedragCleanup(rekendagloon);
+        int uitkeringsklasse = leesKlasse();
+        if (!Uitkering.acceptedDagloon(dagloon)) {
+            throw new Rekenfout(Foutcode.ONGELDIG_DAGLOON, "Ongeldig rekendagloon.");
+        }
+
+        WaoProfiel wao = new WaoProfiel(dagloon, uitkeringsklasse).metScenario(scenario);
+        if (wao.findIndex(rekenmaand) == null) {
+            throw new Rekenfout(Foutcode.GEEN_CBS_INDEX, "Geen CBS-index voor " + rekenmaand + ".");
+        }
+        if (verdiensten != null) {
+            String mml = InvoerUtil.bedragCleanup(maatmanloon);
+            if (!InvoerUtil.isPositive(mml)) {
+                throw new Rekenfout(Foutcode.GEEN_MAATMANLOON, "Rekenen met inkomsten kan niet zonder maatmanloon.");
+            }
+            wao = wao.metMaatmanloon(mml);
+        }
+        return wao;
+    }
+
+    private BigDecimal berekenWajong(BeleidsScenario scenario) {
+        WajongProfiel profiel = maakWajong(scenario);
+        String verdiensten = leesBedrag(inkomsten);
+        String overig = leesBedrag(overigeInkomsten);
+        if (verdiensten == null && overig == null) { // zonder inkomsten
+            return new WajongUitkering(profiel).getMaanduitkering(rekenmaand);
+        }
+        if (overig != null) {
+            profiel = profiel.metOverigeInkomsten(overig);
+        }
+        return new WajongUitkering(profiel).getMaanduitkering(verdiensten == null ? "0" : verdiensten, rekenmaand);
+    }
+
+    /**
+     * Maakt het WajongProfiel voor deze regel aan en controleert de gegevens, zonder inkomsten.
+     * @param scenario het scenario, of null om met de huidige parameters te rekenen.
+     */
+    private WajongProfiel maakWajong(BeleidsScenario scenario) {
+        WajongProfiel wajong = new WajongProfiel().metScenario(scenario);
+        if (wajong.getGrondslag(rekenmaand) == null) {
+            throw new Rekenfout(Foutcode.GEEN_GRONDSLAG, "Geen grondslag voor " + rekenmaand + ".");
+        }
+
+        if (arbeidsvermogen.equalsIgnoreCase("nee")) {
+            wajong = wajong.metArbeidsvermogen(false);
+        }
+        if (!garantiebedrag.isEmpty()) {
+            String gar = InvoerUtil.bedragCleanup(garantiebedrag);
+            if (!InvoerUtil.isPositive(gar)) {
+                throw new Rekenfout(Foutcode.ONGELDIG_GARANTIEBEDRAG, "Ongeldig garantiebedrag.");
+            }
+            wajong = wajong.metGarantiebedrag(gar);
+        }
+        if (!loonwaarde.isEmpty()) {
+            String lw = InvoerUtil.bedragCleanup(loonwaarde);
+            if (!wajong.getArbeidsvermogen() || !InvoerUtil.isPercentage(lw)) {
+                throw new Rekenfout(Foutcode.ONGELDIGE_LOONWAARDE, "Ongeldige loonwaarde.");
+            }
+            wajong = wajong.metLoondispensatie(lw);
+        }
+        return wajong;
+    }
+
+    private int leesKlasse() {
+        try {
+            int uitkeringsklasse = Integer.parseInt(klasse);
+            if (uitkeringsklasse >= 1 && uitkeringsklasse <= 7) {
+                return uitkeringsklasse;
+            }
+        }
+        catch (NumberFormatException e) {
+            // valt door naar de foutmelding hieronder
+        }
+        throw new Rekenfout(Foutcode.ONGELDIGE_KLASSE, "Uw WAO-klasse is een geheel getal van minimaal 1 en maximaal 7.");
+    }
+
+    /**
+     * Leest een bedrag dat leeg mag zijn. Een leeg veld of een bedrag van 0 betekent geen inkomsten.
+     * @param veld het veld uit de invoerregel.
+     * @return het opgeschoonde bedrag, of null als er geen (positief) bedrag is.
+     * @throws Rekenfout als het veld niet als bedrag gelezen kan worden.
+     */
+    private static String leesBedrag(String veld) {
+        if (veld.isEmpty()) {
+            return null;
+        }
+        long centen = BedragLezer.lees(veld);
+        if (!BedragLezer.isGeldig(centen) || centen < 0) {
+            throw new Rekenfout(Foutcode.ONGELDIG_BEDRAG, "Ongeldig bedrag " + veld + ".");
+        }
+        return (centen > 0) ? BigDecimal.valueOf(centen, 2).toPlainString() : null;
+    }
+
+    /**
+     * Stelt de uitvoerregel samen voor deze invoerregel.
+     * @param maanduitkering de berekende maanduitkering, of null als de berekening mislukt is.
+     * @return uitvoerregel van het format id;regeling;rekenmaand;bedrag zonder regeleinde.
+     * Een mislukte berekening krijgt FOUT in plaats van een bedrag.
+     */
+    public String uitvoer(BigDecimal maanduitkering) {
+        String bedrag = (maanduitkering == null) ? "FOUT" : maanduitkering.toPlainString();
+        return id + SCHEIDINGSTEKEN + regeling + SCHEIDINGSTEKEN + rekenmaand + SCHEIDINGSTEKEN + bedrag;
+    }
+}
@@ -0,0 +1,465 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * De uitvoer van een batchberekening (id;regeling;rekenmaand;bedrag per regel, zie BatchRegel.uitvoer())
+ * in kolommen, om miljoenen regels te kunnen tonen en sorteren zonder per regel objecten te maken.
+ *
+ * Het bestand wordt in het geheugen gemapt en 1x doorlopen. Per regel worden alleen de positie in het
+ * bestand (int), het bedrag in centen (int), de maandindex (short) en de regeling (byte) in arrays
+ * bewaard, samen 11 bytes per regel. Het id blijft in het gemapte bestand staan en wordt pas gelezen als
+ * het nodig is, bijvoorbeeld voor een regel die in beeld komt.
+ *
+ * Sorteren en filteren veranderen deze arrays niet, maar geven een permutatie terug: een int[] met
+ * regelnummers in de gewenste volgorde. Het bestand moet kleiner zijn dan 2 GB. Na het lezen verandert
+ * een BatchResultaten niet meer en kan het vanuit meerdere threads gelezen worden.
+ */
+public class BatchResultaten {
+
+    public static final int FOUT = Integer.MIN_VALUE; // bedrag van een regel zonder uitkomst
+    public static final byte ONBEKEND = 0;
+    public static final byte WAO = 1;
+    public static final byte WAJONG = 2;
+    private static final String[] REGELINGEN = {"", "WAO", "WAJONG"};
+
+    // kolommen
+    public static final int ID = 0;
+    public static final int REGELING = 1;
+    public static final int REKENMAAND = 2;
+    public static final int BEDRAG = 3;
+
+    private final MappedByteBuffer bestand;
+    private final int aantal;
+    private final int[] posities;
+    private final int[] centen;
+    private final short[] maanden;
+    private final byte[] regelingen;
+
+    private BatchResultaten(MappedByteBuffer bestand, int aantal, int[] posities, int[] centen, short[] maanden,
+                            byte[] regelingen) {
+        this.bestand = bestand;
+        this.aantal = aantal;
+        this.posities = posities;
+        this.centen = centen;
+        this.maanden = maanden;
+        this.regelingen = regelingen;
+    }
+
+    /**
+     * Leest het uitvoerbestand van een batchberekening. Lege regels worden overgeslagen.
+     * @param uitvoer het uitvoerbestand.
+     * @return de resultaten.
+     * @throws IOException als het bestand niet gelezen kan worden of groter is dan 2 GB.
+     */
+    public static BatchResultaten lees(Path uitvoer) throws IOException {
+        MappedByteBuffer bestand;
+        try (FileChannel kanaal = FileChannel.open(uitvoer, StandardOpenOption.READ)) {
+            if (kanaal.size() > Integer.MAX_VALUE) {
+                throw new IOException("Bestand " + uitvoer + " is te groot, het maximum is 2 GB.");
+            }
+            bestand = kanaal.map(FileChannel.MapMode.READ_ONLY, 0, kanaal.size()); // blijft geldig na sluiten
+        }
+
+        int grootte = bestand.limit();
+        int capaciteit = Math.max(16, grootte / 24); // een uitvoerregel is meestal 20 tot 30 bytes
+        int[] posities = new int[capaciteit];
+        int[] centen = new int[capaciteit];
+        short[] maanden = new short[capaciteit];
+        byte[] regelingen = new byte[capaciteit];
+        MaandCache maandCache = new MaandCache();
+        int aantal = 0;
+        int begin = 0;
+        while (begin < grootte) {
+            int einde = begin;
+            while (einde < grootte && bestand.get(einde) != '\n') {
+                einde++;
+            }
+            int regelEinde = (einde > begin && bestand.get(einde - 1) == '\r') ? einde - 1 : einde;
+            if (regelEinde > begin) {
+                if (aantal == capaciteit) {
+                    capaciteit += capaciteit / 2;
+                    posities = Arrays.copyOf(posities, capaciteit);
+                    centen = Arrays.copyOf(centen, capaciteit);
+                    maanden = Arrays.copyOf(maanden, capaciteit);
+                    regelingen = Arrays.copyOf(regelingen, capaciteit);
+                }
+                posities[aantal] = begin;
+                // id;regeling;rekenmaand;bedrag
+                int na1 = volgendeScheiding(bestand, begin + 1, regelEinde); // id is niet leeg
+                int na2 = volgendeScheiding(bestand, na1 + 1, regelEinde);
+                int na3 = volgendeScheiding(bestand, na2 + 1, regelEinde);
+                if (na1 < 0 || na2 < 0 || na3 < 0) { // geen uitvoerregel
+                    regelingen[aantal] = ONBEKEND;
+                    maanden[aantal] = -1;
+                    centen[aantal] = FOUT;
+                }
+                else {
+                    regelingen[aantal] = leesRegeling(bestand, na1 + 1, na2);
+                    maanden[aantal] = maandCache.lees(bestand, na2 + 1, na3);
+                    centen[aantal] = leesCenten(bestand, na3 + 1, regelEinde);
+                }
+                aantal++;
+            }
+            begin = einde + 1;
+        }
+        return new BatchResultaten(bestand, aantal, posities, centen, maanden, regelingen);
+    }
+
+    /**
+     * @return de positie van de eerste ; vanaf van, of -1 als die er voor tot niet is.
+     */
+    private static int volgendeScheiding(MappedByteBuffer bestand, int van, int tot) {
+        if (van <= 0) {
+            return -1; // vorige scheiding niet gevonden
+        }
+        for (int i = van; i < tot; i++) {
+            if (bestand.get(i) == ';') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte leesRegeling(MappedByteBuffer bestand, int van, int tot) {
+        for (byte regeling = WAO; regeling < REGELINGEN.length; regeling++) {
+            String naam = REGELINGEN[regeling];
+            if (tot - van == naam.length()) {
+                boolean gelijk = true;
+                for (int i = 0; i < naam.length() && gelijk; i++) {
+                    gelijk = bestand.get(van + i) == naam.charAt(i);
+                }
+                if (gelijk) {
+                    return regeling;
+                }
+            }
+        }
+        return ONBEKEND;
+    }
+
+    /**
+     * Zet rekenmaanden om naar een maandindex zonder per regel een String te maken. Een bestand bevat
+     * maar weinig verschillende maanden; alleen de eerste keer dat een maand voorkomt wordt
+     * UitkeringCache.maandIndex() aangeroepen.
+     */
+    private static class MaandCache {
+        private static final int GROOTTE = 1024; // macht van 2
+        private final long[] sleutels = new long[GROOTTE]; // de 6 bytes van de maand, 0 is leeg
+        private final short[] indexen = new short[GROOTTE];
+
+        short lees(MappedByteBuffer bestand, int van, int tot) {
+            if (tot - van != 6) {
+                return -1;
+            }
+            long sleutel = 0;
+            for (int i = van; i < tot; i++) {
+                sleutel = (sleutel << 8) | (bestand.get(i) & 0xff);
+            }
+            int plek = Long.hashCode(sleutel * 0x9E3779B97F4A7C15L) & (GROOTTE - 1);
+            for (int poging = 0; poging < GROOTTE; poging++) {
+                if (sleutels[plek] == sleutel) {
+                    return indexen[plek];
+                }
+                if (sleutels[plek] == 0) {
+                    byte[] tekst = new byte[6];
+                    bestand.get(van, tekst);
+                    long index = UitkeringCache.maandIndex(new String(tekst, StandardCharsets.UTF_8));
+                    sleutels[plek] = sleutel;
+                    indexen[plek] = (short) (index > Short.MAX_VALUE ? -1 : index);
+                    return indexen[plek];
+                }
+                plek = (plek + 1) & (GROOTTE - 1);
+            }
+            return -1; // cache vol, komt bij een echt uitvoerbestand niet voor
+        }
+    }
+
+    /**
+     * Leest een bedrag zoals BigDecimal.toPlainString() het schrijft, afgekapt op 2 decimalen.
+     * @return het bedrag in centen, of FOUT als het geen bedrag is of niet in een int past.
+     */
+    private static int leesCenten(MappedByteBuffer bestand, int van, int tot) {
+        boolean negatief = van < tot && bestand.get(van) == '-';
+        long waarde = 0;
+        int decimalen = -1;
+        for (int i = negatief ? van + 1 : van; i < tot; i++) {
+            byte teken = bestand.get(i);
+            if (teken >= '0' && teken <= '9') {
+                if (decimalen < 2) {
+                    waarde = waarde * 10 + (teken - '0');
+                    if (decimalen >= 0) {
+                        decimalen++;
+                    }
+                }
+                if (waarde > Integer.MAX_VALUE) {
+                    return FOUT;
+                }
+            }
+            else if (teken == '.' && decimalen < 0) {
+                decimalen = 0;
+            }
+            else {
+                return FOUT;
+            }
+        }
+        if (tot == van || (negatief && tot == van + 1)) {
+            return FOUT;
+        }
+        for (int i = Math.max(decimalen, 0); i < 2; i++) {
+            waarde *= 10;
+        }
+        if (waarde > Integer.MAX_VALUE) {
+            return FOUT;
+        }
+        return (int) (negatief ? -waarde : waarde);
+    }
+
+    public int getAantal() {
+        return aantal;
+    }
+
+    /**
+     * @param rij regelnummer, van 0 tot getAantal().
+     * @return het id, gelezen uit het gemapte bestand.
+     */
+    public String getId(int rij) {
+        int begin = posities[rij];
+        int einde = idEinde(begin);
+        byte[] bytes = new byte[einde - begin];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = bestand.get(begin + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int idEinde(int begin) {
+        int einde = begin;
+        int grootte = bestand.limit();
+        while (einde < grootte) {
+            byte teken = bestand.get(einde);
+            if (teken == ';' || teken == '\n' || teken == '\r') {
+                break;
+            }
+            einde++;
+        }
+        return einde;
+    }
+
+    /**
+     * @return WAO, WAJONG of ONBEKEND.
+     */
+    public byte getRegeling(int rij) {
+        return regelingen[rij];
+    }
+
+    public static String getRegelingNaam(byte regeling) {
+        return REGELINGEN[regeling];
+    }
+
+    /**
+     * @return de maandindex (zie UitkeringCache.maandIndex()), of -1 als er geen rekenmaand is.
+     */
+    public int getMaand(int rij) {
+        return maanden[rij];
+    }
+
+    /**
+     * @return de maanduitkering in centen, of FOUT.
+     */
+    public int getCenten(int rij) {
+        return centen[rij];
+    }
+
+    /**
+     * @return alle regelnummers in de volgorde van het bestand.
+     */
+    public int[] alleRijen() {
+        int[] rijen = new int[aantal];
+        for (int i = 0; i < aantal; i++) {
+            rijen[i] = i;
+        }
+        return rijen;
+    }
+
+    /**
+     * @param rijen de regels waaruit gekozen wordt, bijvoorbeeld een eerdere permutatie.
+     * @param filter bepaalt per regelnummer of de regel blijft.
+     * @return de regels waarvoor het filter true geeft, in dezelfde volgorde.
+     */
+    public int[] filter(int[] rijen, IntPredicate filter) {
+        int[] gekozen = new int[rijen.length];
+        int aantalGekozen = 0;
+        for (int rij : rijen) {
+            if (filter.test(rij)) {
+                gekozen[aantalGekozen++] = rij;
+            }
+        }
+        return Arrays.copyOf(gekozen, aantalGekozen);
+    }
+
+    /**
+     * Maakt een filter op 1 kolom. Id: begint met de tekst. Regeling en rekenmaand: gelijk aan de tekst,
+     * hoofdletters maken niet uit. Bedrag: "FOUT" geeft de regels zonder uitkomst, een bedrag geeft de
+     * regels met minstens dat bedrag.
+     * @param kolom ID, REGELING, REKENMAAND of BEDRAG.
+     * @param tekst de tekst waarop gefilterd wordt.
+     * @return het filter.
+     * @throws IllegalArgumentException als de tekst niet bij de kolom past.
+     */
+    public IntPredicate maakFilter(int kolom, String tekst) {
+        String waarde = tekst.strip();
+        switch (kolom) {
+            case ID: {
+                byte[] begin = waarde.getBytes(StandardCharsets.UTF_8);
+                return rij -> begintMet(posities[rij], begin);
+            }
+            case REGELING: {
+                for (byte regeling = 0; regeling < REGELINGEN.length; regeling++) {
+                    if (REGELINGEN[regeling].equalsIgnoreCase(waarde)) {
+                        final byte gezocht = regeling;
+                        return rij -> regelingen[rij] == gezocht;
+                    }
+                }
+                throw new IllegalArgumentException("Onbekende regeling " + waarde + ", kies WAO of WAJONG.");
+            }
+            case REKENMAAND: {
+                long maand = UitkeringCache.maandIndex(waarde.toLowerCase());
+                if (maand < 0) {
+                    throw new IllegalArgumentException("Geef de rekenmaand als jan-24.");
+                }
+                return rij -> maanden[rij] == maand;
+            }
+            case BEDRAG: {
+                if (waarde.equalsIgnoreCase("FOUT")) {
+                    return rij -> centen[rij] == FOUT;
+                }
+                long minimum = BedragLezer.lees(waarde);
+                if (!BedragLezer.isGeldig(minimum)) {
+                    throw new IllegalArgumentException("Geef een bedrag of FOUT.");
+                }
+                return rij -> centen[rij] != FOUT && centen[rij] >= minimum;
+            }
+            default:
+                throw new IllegalArgumentException("Onbekende kolom " + kolom + ".");
+        }
+    }
+
+    private boolean begintMet(int positie, byte[] begin) {
+        if (positie + begin.length > bestand.limit()) {
+            return false;
+        }
+        for (int i = 0; i < begin.length; i++) {
+            if (bestand.get(positie + i) != begin[i]) {
+                return false;
+            }
+        }
+        return begin.length == 0 || idEinde(positie) >= positie + begin.length;
+    }
+
+    /**
+     * Sorteert regels op 1 kolom. Bij gelijke waarden blijft de volgorde van rijen behouden. Regels met
+     * FOUT of zonder rekenmaand komen bij oplopend sorteren vooraan.
+     * @param rijen de regels die gesorteerd worden, bijvoorbeeld na een filter. Wordt niet gewijzigd.
+     * @param kolom ID, REGELING, REKENMAAND of BEDRAG.
+     * @param oplopend true voor van klein naar groot.
+     * @return de regels in de nieuwe volgorde.
+     */
+    public int[] sorteer(int[] rijen, int kolom, boolean oplopend) {
+        if (kolom == ID) {
+            int[] gesorteerd = rijen.clone();
+            mergeSort(gesorteerd, new int[gesorteerd.length], 0, gesorteerd.length, oplopend);
+            return gesorteerd;
+        }
+        // sleutel in de bovenste 32 bits, volgnummer in rijen eronder: Arrays.sort op long[] is dan stabiel
+        long[] sleutels = new long[rijen.length];
+        for (int i = 0; i < rijen.length; i++) {
+            int sleutel = getSleutel(rijen[i], kolom);
+            sleutels[i] = ((long) (oplopend ? sleutel : ~sleutel) << 32) | i;
+        }
+        Arrays.sort(sleutels);
+        int[] gesorteerd = new int[rijen.length];
+        for (int i = 0; i < sleutels.length; i++) {
+            gesorteerd[i] = rijen[(int) sleutels[i]];
+        }
+        return gesorteerd;
+    }
+
+    private int getSleutel(int rij, int kolom) {
+        switch (kolom) {
+            case REGELING: return regelingen[rij];
+            case REKENMAAND: return maanden[rij];
+            case BEDRAG: return centen[rij];
+            default: throw new IllegalArgumentException("Onbekende kolom " + kolom + ".");
+        }
+    }
+
+    /**
+     * Stabiele merge sort op id, rechtstreeks op de bytes in het gemapte bestand.
+     */
+    private void mergeSort(int[] rijen, int[] hulp, int van, int tot, boolean oplopend) {
+        if (tot - van < 2) {
+            return;
+        }
+        int midden = (van + tot) >>> 1;
+        mergeSort(rijen, hulp, van, midden, oplopend);
+        mergeSort(rijen, hulp, midden, tot, oplopend);
+        int links = van;
+        int rechts = midden;
+        int doel = van;
+        while (links < midden && rechts < tot) {
+            int verschil = vergelijkId(rijen[links], rijen[rechts]);
+            hulp[doel++] = (oplopend ? verschil <= 0 : verschil >= 0) ? rijen[links++] : rijen[rechts++];
+        }
+        while (links < midden) {
+            hulp[doel++] = rijen[links++];
+        }
+        while (rechts < tot) {
+            hulp[doel++] = rijen[rechts++];
+        }
+        System.arraycopy(hulp, van, rijen, van, tot - van);
+    }
+
+    /**
+     * Vergelijkt 2 ids. Ids die alleen uit cijfers bestaan komen voor de andere ids en worden als getal
+     * vergeleken, zodat 9 voor 10 komt. De andere ids worden als tekst vergeleken.
+     */
+    private int vergelijkId(int a, int b) {
+        int beginA = posities[a];
+        int beginB = posities[b];
+        int lengteA = idEinde(beginA) - beginA;
+        int lengteB = idEinde(beginB) - beginB;
+        boolean getalA = isGetal(beginA, lengteA);
+        boolean getalB = isGetal(beginB, lengteB);
+        if (getalA != getalB) { // een getal tussen de tekst maakt de volgorde niet transitief
+            return getalA ? -1 : 1;
+        }
+        if (getalA && lengteA != lengteB) {
+            return Integer.compare(lengteA, lengteB);
+        }
+        for (int i = 0; i < Math.min(lengteA, lengteB); i++) {
+            int verschil = (bestand.get(beginA + i) & 0xff) - (bestand.get(beginB + i) & 0xff);
+            if (verschil != 0) {
+                return verschil;
+            }
+        }
+        return Integer.compare(lengteA, lengteB);
+    }
+
+    private boolean isGetal(int begin, int lengte) {
+        if (lengte == 0 || (lengte > 1 && bestand.get(begin) == '0')) {
+            return false;
+        }
+        for (int i = 0; i < lengte; i++) {
+            byte teken = bestand.get(begin + i);
+            if (teken < '0' || teken > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
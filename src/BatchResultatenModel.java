@@ -0,0 +1,76 @@
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * TableModel over BatchResultaten. Het model bewaart geen rijen, alleen de permutatie zicht: rij i in de
+ * tabel is regel zicht[i] in de resultaten. Sorteren en filteren vervangen alleen zicht.
+ *
+ * Een JTable vraagt alleen de cellen op die in beeld zijn, en pas dan worden id, rekenmaand en bedrag
+ * tot tekst opgemaakt. Zo kost een uitvoerbestand met miljoenen regels in de tabel niet meer dan de
+ * kolommen in BatchResultaten en 1 int per zichtbare regel.
+ */
+public class BatchResultatenModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+    private static final String[] KOLOMMEN = {"Id", "Regeling", "Rekenmaand", "Maanduitkering"};
+
+    private final StringBuilder buffer = new StringBuilder(32); // alleen op de EDT gebruikt
+    private BatchResultaten resultaten = null;
+    private int[] zicht = new int[0];
+
+    /**
+     * Toont andere resultaten of een andere selectie of volgorde. Alleen op de EDT aanroepen.
+     * @param resultaten de resultaten, of null voor een lege tabel.
+     * @param zicht de regelnummers in de volgorde waarin ze getoond worden.
+     */
+    public void setZicht(BatchResultaten resultaten, int[] zicht) {
+        this.resultaten = resultaten;
+        this.zicht = (resultaten == null) ? new int[0] : zicht;
+        fireTableDataChanged();
+    }
+
+    public BatchResultaten getResultaten() {
+        return resultaten;
+    }
+
+    public int[] getZicht() {
+        return zicht;
+    }
+
+    @Override
+    public int getRowCount() {
+        return zicht.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return KOLOMMEN.length;
+    }
+
+    @Override
+    public String getColumnName(int kolom) {
+        return KOLOMMEN[kolom];
+    }
+
+    @Override
+    public Object getValueAt(int rij, int kolom) {
+        int regel = zicht[rij];
+        switch (kolom) {
+            case BatchResultaten.ID:
+                return resultaten.getId(regel);
+            case BatchResultaten.REGELING:
+                return BatchResultaten.getRegelingNaam(resultaten.getRegeling(regel));
+            case BatchResultaten.REKENMAAND: {
+                int maand = resultaten.getMaand(regel);
+                return (maand < 0) ? "" : UitkeringCache.maandNaam(maand);
+            }
+            default: {
+                int centen = resultaten.getCenten(regel);
+                if (centen == BatchResultaten.FOUT) {
+                    return "FOUT";
+                }
+                buffer.setLength(0);
+                return OpmaakUtil.bedrag(centen, buffer).toString();
+            }
+        }
+    }
+}
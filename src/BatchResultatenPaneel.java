@@ -0,0 +1,338 @@
+import java.awt.BorderLayout;
+import java.awt.Cursor;
+import java.awt.FlowLayout;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.Timer;
+import javax.swing.TransferHandler;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+/**
+ * Tabblad met de uitvoer van een batchberekening (zie BatchBerekening). Het uitvoerbestand wordt als
+ * BatchResultaten ingelezen en via BatchResultatenModel getoond, dus zonder per regel een object of
+ * tekst te maken; ook een uitvoer van miljoenen regels blijft zo snel te openen en te doorlopen.
+ *
+ * Klik op een kolomkop om op die kolom te sorteren, nog een keer klikken draait de volgorde om. Het
+ * filter werkt op 1 kolom en wordt toegepast terwijl de gebruiker typt. Inlezen, sorteren en filteren
+ * gebeuren op de achtergrond met een GuiRekenaar.
+ *
+ * Een invoerbestand met cliëntgegevens (zie BatchRegel) kan hier ook worden doorgerekend, via de knop of
+ * door het bestand op het venster te slepen (zie getImportHandler()). Dat gebeurt met dezelfde
+ * BatchBerekening als op de commandline, met de tabellen die de GUI al heeft ingelezen. De uitvoer komt
+ * naast de invoer in invoer.uitvoer.csv. Tijdens het rekenen lopen de uitkomsten de tabel in en tonen een
+ * voortgangsbalk en het aantal regels per seconde hoe ver het is; de EDT doet daarvoor alleen elke
+ * VERVERSEN ms een kort stukje werk. Na annuleren of een fout blijft het journaal staan en gaat Hervatten
+ * verder waar de berekening gebleven was.
+ */
+public class BatchResultatenPaneel extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+    public static final int VERVERSEN = 200; // in ms, tijdens een batchberekening
+    private static final String[] FILTERKOLOMMEN = {"Id begint met", "Regeling", "Rekenmaand", "Bedrag vanaf"};
+
+    private final BatchResultatenModel model = new BatchResultatenModel();
+    private final JTable tabel = new JTable(model);
+    private final JComboBox<String> filterKolomComboBox = new JComboBox<>(FILTERKOLOMMEN);
+    private final JTextField filterTextfield = new JTextField(12);
+    private final JLabel statusLabel = new JLabel("Open het uitvoerbestand van een batchberekening.");
+    private final GuiRekenaar leesRekenaar = new GuiRekenaar();
+    private final GuiRekenaar zichtRekenaar = new GuiRekenaar();
+    private final GuiRekenaar batchRekenaar = new GuiRekenaar(); // nooit annuleren, zie annuleerBatch()
+    private final BatchVoortgangModel voortgangModel = new BatchVoortgangModel();
+    private final ConcurrentLinkedQueue<String> nieuweRegels = new ConcurrentLinkedQueue<>();
+    private final String[] overdracht = new String[4096];
+    private final JProgressBar voortgangBalk = new JProgressBar(0, 1000);
+    private final JButton batchButton = new JButton("Hervatten");
+    private final Timer verversTimer = new Timer(VERVERSEN, e -> ververs());
+    private BatchBerekening batch = null; // de lopende batchberekening
+    private Path batchInvoer = null; // van de laatste batchberekening, voor Hervatten
+    private long batchStart = 0;
+    private File map = null; // laatst gekozen map
+    private int sorteerKolom = -1; // -1 is de volgorde van het bestand
+    private boolean oplopend = true;
+
+    public BatchResultatenPaneel() {
+        super(new BorderLayout());
+        JButton openenButton = new JButton("Uitvoerbestand openen...");
+        openenButton.addActionListener(e -> kiesBestand());
+        JButton berekenenButton = new JButton("Invoerbestand berekenen...");
+        berekenenButton.addActionListener(e -> kiesInvoer());
+        batchButton.addActionListener(e -> {
+            if (batch != null) {
+                annuleerBatch();
+            }
+            else if (batchInvoer != null) {
+                bereken(batchInvoer);
+            }
+        });
+        batchButton.setEnabled(false);
+        voortgangBalk.setStringPainted(true);
+        voortgangBalk.setVisible(false);
+
+        JPanel bovenPaneel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        bovenPaneel.add(openenButton);
+        bovenPaneel.add(berekenenButton);
+        bovenPaneel.add(new JLabel("Filter:"));
+        bovenPaneel.add(filterKolomComboBox);
+        bovenPaneel.add(filterTextfield);
+        add(bovenPaneel, BorderLayout.NORTH);
+
+        tabel.setFillsViewportHeight(true);
+        tabel.getTableHeader().setReorderingAllowed(false);
+        tabel.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int kolom = tabel.convertColumnIndexToModel(tabel.columnAtPoint(e.getPoint()));
+                if (kolom >= 0 && tabel.getModel() == model) {
+                    oplopend = (kolom != sorteerKolom) || !oplopend;
+                    sorteerKolom = kolom;
+                    werkZichtBij();
+                }
+            }
+        });
+        add(new JScrollPane(tabel), BorderLayout.CENTER);
+        JPanel onderPaneel = new JPanel(new BorderLayout());
+        onderPaneel.add(statusLabel, BorderLayout.CENTER);
+        JPanel batchPaneel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        batchPaneel.add(voortgangBalk);
+        batchPaneel.add(batchButton);
+        onderPaneel.add(batchPaneel, BorderLayout.EAST);
+        add(onderPaneel, BorderLayout.SOUTH);
+
+        GuiUtil.bijWijziging(filterTextfield, () -> zichtRekenaar.plan(this::werkZichtBij));
+        filterKolomComboBox.addActionListener(e -> {
+            if (!filterTextfield.getText().isBlank()) {
+                werkZichtBij();
+            }
+        });
+    }
+
+    private void kiesBestand() {
+        JFileChooser kiezer = new JFileChooser(map);
+        kiezer.setFileFilter(new FileNameExtensionFilter("Uitvoer batchberekening (*.csv, *.txt)", "csv", "txt"));
+        if (kiezer.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            map = kiezer.getCurrentDirectory();
+            open(kiezer.getSelectedFile().toPath());
+        }
+    }
+
+    private void kiesInvoer() {
+        JFileChooser kiezer = new JFileChooser(map);
+        kiezer.setFileFilter(new FileNameExtensionFilter("Cliëntgegevens (*.csv, *.txt)", "csv", "txt"));
+        if (kiezer.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            map = kiezer.getCurrentDirectory();
+            bereken(kiezer.getSelectedFile().toPath());
+        }
+    }
+
+    /**
+     * Maakt een TransferHandler waarmee een invoerbestand op een component (bijvoorbeeld het hele
+     * venster) gesleept kan worden om het door te rekenen. Het paneel zelf hoeft dan nog niet te bestaan.
+     * @param toon wordt bij het loslaten van een bestand aangeroepen, om het paneel zo nodig te maken en in
+     * beeld te brengen.
+     * @return de TransferHandler.
+     */
+    public static TransferHandler getImportHandler(Supplier<BatchResultatenPaneel> toon) {
+        return new TransferHandler() {
+            @Override
+            public boolean canImport(TransferSupport support) {
+                return support.isDataFlavorSupported(DataFlavor.javaFileListFlavor);
+            }
+
+            @Override
+            public boolean importData(TransferSupport support) {
+                if (!canImport(support)) {
+                    return false;
+                }
+                try {
+                    @SuppressWarnings("unchecked")
+                    List<File> bestanden = (List<File>) support.getTransferable()
+                            .getTransferData(DataFlavor.javaFileListFlavor);
+                    if (bestanden.size() != 1 || !bestanden.get(0).isFile()) {
+                        JOptionPane.showMessageDialog(support.getComponent(), "Sleep 1 bestand met cliëntgegevens.",
+                                "Batchberekening", JOptionPane.WARNING_MESSAGE);
+                        return false;
+                    }
+                    toon.get().bereken(bestanden.get(0).toPath());
+                    return true;
+                }
+                catch (Exception e) { // UnsupportedFlavorException of IOException van de bron
+                    return false;
+                }
+            }
+        };
+    }
+
+    /**
+     * Rekent een invoerbestand door met een BatchBerekening op de achtergrond. Als er van een eerdere,
+     * onderbroken berekening van dit bestand nog een journaal is, wordt die hervat. Alleen op de EDT
+     * aanroepen.
+     * @param invoer het invoerbestand met cliëntgegevens.
+     */
+    public void bereken(Path invoer) {
+        if (batch != null) {
+            JOptionPane.showMessageDialog(this, "Er loopt al een batchberekening.", "Batchberekening",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        Path uitvoer = getUitvoer(invoer);
+        BatchBerekening nieuw = new BatchBerekening(invoer, uitvoer);
+        nieuw.setVolger(nieuweRegels::add);
+        batch = nieuw;
+        batchInvoer = invoer;
+        batchStart = System.nanoTime();
+        leesRekenaar.annuleer();
+        zichtRekenaar.annuleer();
+        nieuweRegels.clear();
+        voortgangModel.wis();
+        model.setZicht(null, null);
+        tabel.setModel(voortgangModel);
+        voortgangBalk.setValue(0);
+        voortgangBalk.setVisible(true);
+        batchButton.setText("Annuleren");
+        batchButton.setEnabled(true);
+        statusLabel.setText("Bezig met berekenen van " + invoer.getFileName() + "...");
+        verversTimer.start();
+        batchRekenaar.voerUit(() -> {
+            nieuw.voerUit();
+            return nieuw;
+        }, klaar -> {
+            stopBatch();
+            batchButton.setEnabled(false);
+            tabel.setModel(model);
+            voortgangModel.wis();
+            open(uitvoer);
+        }, e -> {
+            stopBatch();
+            batchButton.setText("Hervatten");
+            statusLabel.setText(nieuw.getAantalNieuweRegels() + " regels berekend, " +
+                    (e instanceof InterruptedIOException ? "geannuleerd." : "gestopt: " + e.getMessage()) +
+                    " Klik op Hervatten om verder te gaan.");
+            if (!(e instanceof InterruptedIOException)) {
+                JOptionPane.showMessageDialog(this, e.getMessage(), "Batchberekening", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
+
+    /**
+     * @param invoer een invoerbestand met cliëntgegevens.
+     * @return het uitvoerbestand van de batchberekening uit de GUI, naast de invoer.
+     */
+    public static Path getUitvoer(Path invoer) {
+        return Paths.get(invoer + ".uitvoer.csv");
+    }
+
+    /**
+     * Laat de lopende batchberekening stoppen. De SwingWorker zelf wordt niet geannuleerd: een interrupt
+     * zou de bestanden van de berekening sluiten voor het laatste checkpoint. BatchBerekening stopt zelf,
+     * en bereken() toont daarna de melding.
+     */
+    private void annuleerBatch() {
+        batch.annuleer();
+        batchButton.setEnabled(false);
+        statusLabel.setText("Bezig met annuleren...");
+    }
+
+    private void stopBatch() {
+        verversTimer.stop();
+        ververs();
+        batch = null;
+        batchButton.setEnabled(true);
+        voortgangBalk.setVisible(false);
+    }
+
+    /**
+     * Zet de regels die sinds de vorige keer berekend zijn in de tabel en werkt voortgang en doorvoer bij.
+     */
+    private void ververs() {
+        int lengte;
+        do {
+            lengte = 0;
+            String regel;
+            while (lengte < overdracht.length && (regel = nieuweRegels.poll()) != null) {
+                overdracht[lengte++] = regel;
+            }
+            voortgangModel.voegToe(overdracht, lengte);
+        } while (lengte == overdracht.length);
+
+        if (batch != null) {
+            voortgangBalk.setValue((int) (batch.getVoortgang() * voortgangBalk.getMaximum()));
+            long regels = batch.getAantalNieuweRegels();
+            double seconden = (System.nanoTime() - batchStart) / 1e9;
+            statusLabel.setText(regels + " regels berekend, " + Math.round(regels / Math.max(seconden, 0.001)) +
+                    " per seconde" + (regels > BatchVoortgangModel.MAXIMUM ? " (de eerste " +
+                    BatchVoortgangModel.MAXIMUM + " in beeld)" : "") + ".");
+        }
+    }
+
+    /**
+     * Leest een uitvoerbestand op de achtergrond in en toont het. Sortering en filter blijven staan.
+     * @param uitvoer het uitvoerbestand van een batchberekening.
+     */
+    public void open(Path uitvoer) {
+        if (batch != null) {
+            return; // de tabel is in gebruik voor de lopende batchberekening
+        }
+        zichtRekenaar.annuleer();
+        statusLabel.setText("Bezig met inlezen van " + uitvoer.getFileName() + "...");
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        leesRekenaar.voerUit(() -> BatchResultaten.lees(uitvoer), resultaten -> {
+            setCursor(null);
+            model.setZicht(resultaten, resultaten.alleRijen());
+            werkZichtBij();
+        }, e -> {
+            setCursor(null);
+            statusLabel.setText("Kan " + uitvoer.getFileName() + " niet inlezen.");
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Batchresultaten", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    /**
+     * Bepaalt op de achtergrond de regels en volgorde bij het huidige filter en de sortering.
+     */
+    private void werkZichtBij() {
+        BatchResultaten resultaten = model.getResultaten();
+        if (resultaten == null) {
+            return;
+        }
+        int filterKolom = filterKolomComboBox.getSelectedIndex();
+        String filterTekst = filterTextfield.getText();
+        int kolom = sorteerKolom;
+        boolean richting = oplopend;
+        zichtRekenaar.voerUit(() -> {
+            int[] rijen = resultaten.alleRijen();
+            if (!filterTekst.isBlank()) {
+                rijen = resultaten.filter(rijen, resultaten.maakFilter(filterKolom, filterTekst));
+            }
+            return (kolom < 0) ? rijen : resultaten.sorteer(rijen, kolom, richting);
+        }, zicht -> {
+            GuiUtil.inputAccepted(filterTextfield);
+            filterTextfield.setEditable(true);
+            model.setZicht(resultaten, zicht);
+            statusLabel.setText(zicht.length + " van " + resultaten.getAantal() + " regels" +
+                    (kolom < 0 ? "" : ", gesorteerd op " + model.getColumnName(kolom) +
+                            (richting ? " (oplopend)" : " (aflopend)")) + ".");
+        }, e -> {
+            GuiUtil.inputRejected(filterTextfield);
+            statusLabel.setText(e.getMessage());
+        });
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.Arrays;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * TableModel voor de uitvoerregels van een batchberekening die nog loopt. De regels komen binnen in de
+ * volgorde waarin de partities ze berekenen, niet in die van de invoer (zie BatchBerekening.setVolger()).
+ * Na afloop toont BatchResultatenPaneel het uitvoerbestand zelf, in de goede volgorde.
+ *
+ * De regels worden als tekst bewaard en pas in getValueAt() in kolommen gesplitst en opgemaakt, dus
+ * alleen voor de regels die in beeld zijn. Er worden hooguit MAXIMUM regels bewaard, zodat een groot
+ * bestand tijdens het rekenen niet het hele geheugen vult.
+ */
+public class BatchVoortgangModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+    public static final int MAXIMUM = 100_000;
+    private static final String[] KOLOMMEN = {"Id", "Regeling", "Rekenmaand", "Maanduitkering"};
+
+    private final StringBuilder buffer = new StringBuilder(32); // alleen op de EDT gebruikt
+    private String[] regels = new String[1024];
+    private int aantal = 0;
+
+    /**
+     * Voegt uitvoerregels toe en meldt dat aan de tabel met 1 event. Alleen op de EDT aanroepen.
+     * @param nieuw uitvoerregels zoals BatchRegel.uitvoer() ze maakt.
+     * @param lengte het aantal regels in nieuw dat gebruikt wordt.
+     */
+    public void voegToe(String[] nieuw, int lengte) {
+        int toevoegen = Math.min(lengte, MAXIMUM - aantal);
+        if (toevoegen <= 0) {
+            return;
+        }
+        if (aantal + toevoegen > regels.length) {
+            regels = Arrays.copyOf(regels, Math.min(MAXIMUM, Math.max(aantal + toevoegen, regels.length * 2)));
+        }
+        System.arraycopy(nieuw, 0, regels, aantal, toevoegen);
+        aantal += toevoegen;
+        fireTableRowsInserted(aantal - toevoegen, aantal - 1);
+    }
+
+    public void wis() {
+        regels = new String[1024];
+        aantal = 0;
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return aantal;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return KOLOMMEN.length;
+    }
+
+    @Override
+    public String getColumnName(int kolom) {
+        return KOLOMMEN[kolom];
+    }
+
+    @Override
+    public Object getValueAt(int rij, int kolom) {
+        String regel = regels[rij];
+        int begin = 0;
+        for (int i = 0; i < kolom; i++) {
+            begin = regel.indexOf(BatchRegel.SCHEIDINGSTEKEN, begin) + 1;
+            if (begin == 0) {
+                return "";
+            }
+        }
+        int einde = regel.indexOf(BatchRegel.SCHEIDINGSTEKEN, begin);
+        String waarde = regel.substring(begin, (einde < 0) ? regel.length() : einde);
+        if (kolom != BatchResultaten.BEDRAG) {
+            return waarde;
+        }
+        long centen = BedragLezer.lees(waarde);
+        if (!BedragLezer.isGeldig(centen)) {
+            return waarde; // FOUT
+        }
+        buffer.setLength(0);
+        return OpmaakUtil.bedrag(centen, buffer).toString();
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Leest bedragen en percentages uit gebruikersinput in 1 doorgang, zonder exceptions, substrings of
+ * BigDecimals. Accepteert dezelfde invoer als de GUI: een euroteken voor of achter het bedrag, spaties
+ * eromheen, een komma of punt als decimaalteken en een + of - ervoor, bijvoorbeeld "€ 1200,50",
+ * "1200.5 €" of "-12". Een scheidingsteken voor duizendtallen of een exponent (1e3) wordt niet
+ * geaccepteerd.
+ *
+ * De uitkomst is een long: het bedrag in centen, afgerond op 2 decimalen met HALF_UP zoals in
+ * BigDecimalUtil. Een percentage komt er zo als honderdsten van een procent (basispunten) uit: "55,5"
+ * wordt 5550. Als de invoer geen bedrag is, is de uitkomst een van de foutwaarden LEEG, ONGELDIG of
+ * TE_GROOT; die liggen ver buiten het bereik van geldige bedragen. De klasse heeft geen toestand en kan
+ * vanuit elke thread worden gebruikt.
+ */
+public class BedragLezer {
+
+    /** Het grootste bedrag dat gelezen kan worden, in centen (1 biljard euro). */
+    public static final long MAXIMUM = 100_000_000_000_000_000L;
+    public static final long LEEG = Long.MIN_VALUE; // geen cijfers, alleen spaties of een euroteken
+    public static final long ONGELDIG = Long.MIN_VALUE + 1; // andere tekens dan die van een bedrag
+    public static final long TE_GROOT = Long.MIN_VALUE + 2; // meer dan MAXIMUM
+    public static final long HONDERD_PROCENT = 10_000; // in basispunten
+
+    private static final char EURO = '€';
+
+    /**
+     * Mogelijke uitkomsten van het lezen, om foutwaarden te onderscheiden zonder op de long te vergelijken.
+     */
+    public enum Status {
+        GELDIG, LEEG, ONGELDIG, TE_GROOT
+    }
+
+    /**
+     * @param invoer de tekst, mag null zijn.
+     * @return het bedrag in centen, of LEEG, ONGELDIG of TE_GROOT.
+     */
+    public static long lees(CharSequence invoer) {
+        if (invoer == null) {
+            return LEEG;
+        }
+        return lees(invoer, 0, invoer.length());
+    }
+
+    /**
+     * @param invoer de tekst.
+     * @param van positie van het eerste teken dat gelezen wordt.
+     * @param tot positie na het laatste teken dat gelezen wordt.
+     * @return het bedrag in centen, of LEEG, ONGELDIG of TE_GROOT.
+     */
+    public static long lees(CharSequence invoer, int van, int tot) {
+        // spaties en eurotekens voor en achter het bedrag overslaan
+        int i = van;
+        while (i < tot && isOpvulling(invoer.charAt(i))) {
+            i++;
+        }
+        int einde = tot;
+        while (einde > i && isOpvulling(invoer.charAt(einde - 1))) {
+            einde--;
+        }
+        if (i == einde) {
+            return LEEG;
+        }
+
+        boolean negatief = false;
+        char teken = invoer.charAt(i);
+        if (teken == '-' || teken == '+') {
+            negatief = (teken == '-');
+            i++;
+        }
+
+        long euros = 0;
+        int centen = 0;
+        int decimalen = -1; // -1 zolang er geen decimaalteken is geweest
+        boolean afronden = false;
+        boolean cijfers = false;
+        for (; i < einde; i++) {
+            teken = invoer.charAt(i);
+            if (teken >= '0' && teken <= '9') {
+                cijfers = true;
+                int cijfer = teken - '0';
+                if (decimalen < 0) {
+                    if (euros > MAXIMUM / 100) {
+                        return TE_GROOT;
+                    }
+                    euros = euros * 10 + cijfer;
+                }
+                else if (decimalen < 2) {
+                    centen = centen * 10 + cijfer;
+                    decimalen++;
+                }
+                else if (decimalen == 2) { // alleen het derde decimaal bepaalt de afronding
+                    afronden = cijfer >= 5;
+                    decimalen++;
+                }
+            }
+            else if ((teken == ',' || teken == '.') && decimalen < 0) {
+                decimalen = 0;
+            }
+            else {
+                return ONGELDIG;
+            }
+        }
+        if (!cijfers) {
+            return ONGELDIG;
+        }
+        if (decimalen == 1) {
+            centen *= 10;
+        }
+        long bedrag = euros * 100 + centen + (afronden ? 1 : 0);
+        if (bedrag > MAXIMUM) {
+            return TE_GROOT;
+        }
+        return negatief ? -bedrag : bedrag;
+    }
+
+    private static boolean isOpvulling(char teken) {
+        return teken <= ' ' || teken == EURO || Character.isWhitespace(teken);
+    }
+
+    /**
+     * @param uitkomst de uitkomst van lees().
+     * @return de status die bij de uitkomst hoort.
+     */
+    public static Status status(long uitkomst) {
+        if (uitkomst == LEEG) {
+            return Status.LEEG;
+        }
+        if (uitkomst == ONGELDIG) {
+            return Status.ONGELDIG;
+        }
+        if (uitkomst == TE_GROOT) {
+            return Status.TE_GROOT;
+        }
+        return Status.GELDIG;
+    }
+
+    /**
+     * @param uitkomst de uitkomst van lees().
+     * @return true als de uitkomst een bedrag is en geen foutwaarde.
+     */
+    public static boolean isGeldig(long uitkomst) {
+        return uitkomst >= -MAXIMUM;
+    }
+
+    /**
+     * @param uitkomst de uitkomst van lees().
+     * @return true als de uitkomst een bedrag groter dan 0 is.
+     */
+    public static boolean isPositief(long uitkomst) {
+        return uitkomst > 0;
+    }
+
+    /**
+     * @param uitkomst de uitkomst van lees().
+     * @return true als de uitkomst een percentage groter dan 0 en maximaal 100 is.
+     */
+    public static boolean isPercentage(long uitkomst) {
+        return uitkomst > 0 && uitkomst <= HONDERD_PROCENT;
+    }
+}
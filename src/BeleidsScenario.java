@@ -0,0 +1,68 @@
+import java.math.BigDecimal;
+
+/**
+ * Een wijziging van de beleidsparameters waarmee wordt gerekend, om de gevolgen ervan door te
+ * rekenen voordat de wijziging ingaat. Zonder aanpassingen geeft een scenario dezelfde uitkomsten
+ * als de gewone berekening. Een scenario kan op een Uitkering worden gezet (setScenario()), of
+ * worden doorgerekend over een hele populatie met BudgetSimulatie.
+ */
+public class BeleidsScenario {
+
+    private static final BigDecimal EEN = BigDecimal.ONE;
+
+    private BigDecimal grondslagFactor = EEN;
+    private BigDecimal percentageArbeidsvermogen = WajongUitkering.PERCENTAGE_ARBEIDSVERMOGEN;
+    private BigDecimal percentageGeenArbeidsvermogen = WajongUitkering.PERCENTAGE_GEEN_ARBEIDSVERMOGEN;
+    private BigDecimal indexFactor = EEN;
+
+    /**
+     * @param grondslagFactor factor waarmee alle Wajong-grondslagen worden vermenigvuldigd, bijv. 1.02 voor 2% hoger.
+     */
+    public void setGrondslagFactor(String grondslagFactor) {
+        this.grondslagFactor = new BigDecimal(grondslagFactor);
+    }
+
+    /**
+     * @param percentage het percentage van de grondslag bij arbeidsvermogen als fractie van 1, standaard 0.7.
+     */
+    public void setPercentageArbeidsvermogen(String percentage) {
+        this.percentageArbeidsvermogen = new BigDecimal(percentage);
+    }
+
+    /**
+     * @param percentage het percentage van de grondslag zonder arbeidsvermogen als fractie van 1, standaard 0.75.
+     */
+    public void setPercentageGeenArbeidsvermogen(String percentage) {
+        this.percentageGeenArbeidsvermogen = new BigDecimal(percentage);
+    }
+
+    /**
+     * @param indexFactor factor waarmee alle CBS-indexcijfers worden vermenigvuldigd (WAO-maatmanloon).
+     */
+    public void setIndexFactor(String indexFactor) {
+        this.indexFactor = new BigDecimal(indexFactor);
+    }
+
+    public BigDecimal getGrondslagFactor() {
+        return grondslagFactor;
+    }
+
+    public BigDecimal getPercentageArbeidsvermogen() {
+        return percentageArbeidsvermogen;
+    }
+
+    public BigDecimal getPercentageGeenArbeidsvermogen() {
+        return percentageGeenArbeidsvermogen;
+    }
+
+    public BigDecimal getIndexFactor() {
+        return indexFactor;
+    }
+
+    public String toString() {
+        return "grondslag x " + grondslagFactor.toPlainString()
+                + ", percentage arbeidsvermogen " + percentageArbeidsvermogen.toPlainString()
+                + ", zonder arbeidsvermogen " + percentageGeenArbeidsvermogen.toPlainString()
+                + ", CBS-index x " + indexFactor.toPlainString();
+    }
+}
@@ -0,0 +1,341 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rekenservice met een compact binair protocol, voor systemen die heel veel kleine berekeningen
+ * laten doen. Bij HTTP met JSON kosten de headers en het parsen meer dan de berekening zelf.
+ *
+ * Elk bericht begint met een int met de lengte van de rest van het bericht. Een verzoek bestaat
+ * daarna uit een long met een volgnummer en een RekenVerzoek van RekenVerzoek.LENGTE bytes. Een
+ * antwoord bestaat uit hetzelfde volgnummer, een statusbyte en dan bij OK een long met de
+ * maanduitkering in centen, of bij FOUT een short met de lengte en de foutmelding in UTF-8.
+ * Alle getallen zijn big-endian.
+ *
+ * Een client mag veel verzoeken achter elkaar sturen zonder op de antwoorden te wachten. De
+ * antwoorden kunnen in een andere volgorde terugkomen; het volgnummer geeft aan bij welk verzoek
+ * een antwoord hoort. Zie RekenClient.
+ *
+ * Eén thread doet met een Selector al het lezen en schrijven. De verzoeken gaan naar een Bundelaar,
+ * die verzoeken van alle verbindingen samen doorrekent. De antwoorden op alle verzoeken die in één
+ * keer binnenkwamen worden in één buffer verstuurd. Als een verbinding te veel van zulke reeksen
+ * openstaand heeft, wordt er niet meer van gelezen tot de antwoorden verstuurd zijn, zodat een snelle
+ * client de server niet kan overspoelen.
+ */
+public class BinaireRekenServer {
+
+    public static final int STANDAARD_POORT = 8081;
+    public static final byte OK = 0;
+    public static final byte FOUT = 1;
+    public static final int VERZOEK_LENGTE = Long.BYTES + RekenVerzoek.LENGTE;
+    private static final int ANTWOORD_LENGTE = Long.BYTES + 1 + Long.BYTES; // bij OK
+    private static final int BUFFERGROOTTE = 64 * 1024;
+    private static final int MAXIMAAL_OPENSTAAND = 16; // reeksen verzoeken per verbinding
+    private static final int CACHEGROOTTE = 100_000;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverKanaal;
+    private final Bundelaar bundelaar;
+    private final UitkeringCache cache = new UitkeringCache(CACHEGROOTTE);
+    private final Queue<Verbinding> klaar = new ConcurrentLinkedQueue<>(); // verbindingen met nieuwe antwoorden
+    private volatile boolean actief = false;
+    private Thread lus;
+
+    /**
+     * @param poort de poort waarop de server luistert, 0 voor een vrije poort.
+     * @throws IOException als de poort niet geopend kan worden.
+     */
+    public BinaireRekenServer(int poort) throws IOException {
+        this(poort, Bundelaar.STANDAARD_GROOTTE, Bundelaar.STANDAARD_WACHTTIJD);
+    }
+
+    /**
+     * @param poort de poort waarop de server luistert, 0 voor een vrije poort.
+     * @param bundelgrootte maximaal aantal verzoeken dat samen wordt doorgerekend.
+     * @param wachttijd maximale tijd in microseconden die een verzoek wacht op andere verzoeken.
+     * @throws IOException als de poort niet geopend kan worden.
+     */
+    public BinaireRekenServer(int poort, int bundelgrootte, long wachttijd) throws IOException {
+        selector = Selector.open();
+        serverKanaal = ServerSocketChannel.open();
+        serverKanaal.bind(new InetSocketAddress(poort));
+        serverKanaal.configureBlocking(false);
+        serverKanaal.register(selector, SelectionKey.OP_ACCEPT);
+        bundelaar = new Bundelaar(bundelgrootte, wachttijd);
+    }
+
+    /**
+     * Warmt de berekening op en start daarna de thread die verbindingen afhandelt. Clients die in die
+     * tijd al verbinden, wachten in de wachtrij van de socket. Zie Opwarmer.
+     * @return korte beschrijving van het opwarmen, voor de aanroeper om te tonen of te loggen.
+     */
+    public String start() {
+        String opwarmen = Opwarmer.warmOp(Opwarmer.STANDAARD_MAXIMALE_DUUR);
+        Uitkering.setCache(cache);
+        actief = true;
+        lus = new Thread(this::verwerk, "BinaireRekenServer");
+        lus.start();
+        return opwarmen;
+    }
+
+    /**
+     * Stopt de server en sluit alle verbindingen.
+     */
+    public void stop() {
+        actief = false;
+        selector.wakeup();
+        try {
+            lus.join(1000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        bundelaar.stop();
+        if (Uitkering.getCache() == cache) {
+            Uitkering.setCache(null);
+        }
+    }
+
+    public int getPoort() {
+        return serverKanaal.socket().getLocalPort();
+    }
+
+    public Bundelaar getBundelaar() {
+        return bundelaar;
+    }
+
+    private void verwerk() {
+        try {
+            while (actief) {
+                selector.select();
+                Verbinding verbinding;
+                while ((verbinding = klaar.poll()) != null) {
+                    schrijf(verbinding);
+                }
+                Iterator<SelectionKey> sleutels = selector.selectedKeys().iterator();
+                while (sleutels.hasNext()) {
+                    SelectionKey sleutel = sleutels.next();
+                    sleutels.remove();
+                    if (!sleutel.isValid()) {
+                        continue;
+                    }
+                    if (sleutel.isAcceptable()) {
+                        accepteer();
+                        continue;
+                    }
+                    verbinding = (Verbinding) sleutel.attachment();
+                    if (sleutel.isReadable()) {
+                        lees(verbinding);
+                    }
+                    if (sleutel.isValid() && sleutel.isWritable()) {
+                        schrijf(verbinding);
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            System.err.println("BinaireRekenServer gestopt: " + e.getMessage());
+        }
+        finally {
+            for (SelectionKey sleutel : selector.keys()) {
+                sluit(sleutel);
+            }
+            try {
+                selector.close();
+                serverKanaal.close();
+            }
+            catch (IOException e) {
+                // de server stopt toch
+            }
+        }
+    }
+
+    private void accepteer() throws IOException {
+        SocketChannel kanaal = serverKanaal.accept();
+        if (kanaal == null) {
+            return;
+        }
+        kanaal.configureBlocking(false);
+        kanaal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Verbinding verbinding = new Verbinding(kanaal);
+        verbinding.sleutel = kanaal.register(selector, SelectionKey.OP_READ, verbinding);
+    }
+
+    /**
+     * Leest wat er binnen is en geeft de complete verzoeken aan de Bundelaar.
+     */
+    private void lees(Verbinding verbinding) {
+        ByteBuffer invoer = verbinding.invoer;
+        try {
+            if (verbinding.kanaal.read(invoer) < 0) {
+                sluit(verbinding.sleutel);
+                return;
+            }
+        }
+        catch (IOException e) {
+            sluit(verbinding.sleutel);
+            return;
+        }
+
+        invoer.flip();
+        int aantal = 0;
+        int begin = invoer.position();
+        while (invoer.remaining() >= Integer.BYTES) {
+            int lengte = invoer.getInt(invoer.position());
+            if (lengte != VERZOEK_LENGTE) { // onbekend bericht, de rest van de stroom is niet meer te lezen
+                sluit(verbinding.sleutel);
+                return;
+            }
+            if (invoer.remaining() < Integer.BYTES + lengte) {
+                break;
+            }
+            invoer.position(invoer.position() + Integer.BYTES + lengte);
+            aantal++;
+        }
+        if (aantal > 0) {
+            Reeks reeks = new Reeks(verbinding, aantal);
+            verbinding.openstaand.incrementAndGet();
+            invoer.position(begin);
+            for (int i = 0; i < aantal; i++) {
+                invoer.getInt();
+                long volgnummer = invoer.getLong();
+                bundelaar.bereken(RekenVerzoek.lees(invoer),
+                        (maanduitkering, fout) -> reeks.voegToe(volgnummer, maanduitkering, fout));
+            }
+        }
+        invoer.compact();
+        werkInteresseBij(verbinding);
+    }
+
+    /**
+     * @return de buffer, of een 2x zo grote kopie als er minder dan nodig bytes vrij zijn.
+     */
+    private static ByteBuffer ruimte(ByteBuffer buffer, int nodig) {
+        if (buffer.remaining() >= nodig) {
+            return buffer;
+        }
+        ByteBuffer groter = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + nodig));
+        return groter.put(buffer.flip());
+    }
+
+    private void schrijf(Verbinding verbinding) {
+        if (!verbinding.sleutel.isValid()) {
+            return;
+        }
+        try {
+            ByteBuffer buffer;
+            while ((buffer = verbinding.uitvoer.peek()) != null) {
+                verbinding.kanaal.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break; // de socket zit vol, verder bij OP_WRITE
+                }
+                verbinding.uitvoer.poll();
+            }
+        }
+        catch (IOException e) {
+            sluit(verbinding.sleutel);
+            return;
+        }
+        werkInteresseBij(verbinding);
+    }
+
+    /**
+     * Schrijven als er nog iets te versturen is, lezen zolang er niet te veel taken openstaan.
+     */
+    private void werkInteresseBij(Verbinding verbinding) {
+        if (!verbinding.sleutel.isValid()) {
+            return;
+        }
+        int interesse = verbinding.uitvoer.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+        if (verbinding.openstaand.get() < MAXIMAAL_OPENSTAAND) {
+            interesse |= SelectionKey.OP_READ;
+        }
+        verbinding.sleutel.interestOps(interesse);
+    }
+
+    private static void sluit(SelectionKey sleutel) {
+        sleutel.cancel();
+        try {
+            sleutel.channel().close();
+        }
+        catch (IOException e) {
+            // de verbinding is toch al weg
+        }
+    }
+
+    /**
+     * De antwoorden op de verzoeken die in één keer van een verbinding zijn gelezen. Als alle
+     * antwoorden binnen zijn, gaat de buffer naar de verbinding.
+     */
+    private class Reeks {
+        private final Verbinding verbinding;
+        private ByteBuffer antwoorden;
+        private int resterend;
+
+        private Reeks(Verbinding verbinding, int aantal) {
+            this.verbinding = verbinding;
+            this.antwoorden = ByteBuffer.allocate(aantal * (Integer.BYTES + ANTWOORD_LENGTE));
+            this.resterend = aantal;
+        }
+
+        private void voegToe(long volgnummer, BigDecimal maanduitkering, String fout) {
+            synchronized (this) {
+                if (fout == null) {
+                    antwoorden = ruimte(antwoorden, Integer.BYTES + ANTWOORD_LENGTE);
+                    antwoorden.putInt(ANTWOORD_LENGTE).putLong(volgnummer).put(OK)
+                            .putLong(maanduitkering.movePointRight(2).longValue());
+                }
+                else {
+                    byte[] tekst = fout.getBytes(StandardCharsets.UTF_8);
+                    int lengte = Long.BYTES + 1 + Short.BYTES + tekst.length;
+                    antwoorden = ruimte(antwoorden, Integer.BYTES + lengte);
+                    antwoorden.putInt(lengte).putLong(volgnummer).put(FOUT).putShort((short) tekst.length).put(tekst);
+                }
+                if (--resterend > 0) {
+                    return;
+                }
+            }
+            verbinding.uitvoer.add(antwoorden.flip());
+            verbinding.openstaand.decrementAndGet();
+            klaar.add(verbinding);
+            selector.wakeup();
+        }
+    }
+
+    private static class Verbinding {
+        private final SocketChannel kanaal;
+        private final ByteBuffer invoer = ByteBuffer.allocate(BUFFERGROOTTE);
+        private final Queue<ByteBuffer> uitvoer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger openstaand = new AtomicInteger();
+        private SelectionKey sleutel;
+
+        private Verbinding(SocketChannel kanaal) {
+            this.kanaal = kanaal;
+        }
+    }
+
+    /**
+     * Start de server.
+     * @param args [poort] [bundelgrootte] [wachttijd in microseconden], standaard 8081, 256 en 200.
+     */
+    public static void main(String[] args) throws IOException {
+        int poort = (args.length > 0) ? Integer.parseInt(args[0]) : STANDAARD_POORT;
+        int bundelgrootte = (args.length > 1) ? Integer.parseInt(args[1]) : Bundelaar.STANDAARD_GROOTTE;
+        long wachttijd = (args.length > 2) ? Long.parseLong(args[2]) : Bundelaar.STANDAARD_WACHTTIJD;
+        BinaireRekenServer server = new BinaireRekenServer(poort, bundelgrootte, wachttijd);
+        System.out.println(server.start());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        System.out.println("Binaire rekenservice luistert op poort " + server.getPoort());
+    }
+}
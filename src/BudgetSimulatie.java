@@ -0,0 +1,298 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Schat de gevolgen van een wijziging in grondslag, percentages of CBS-index (een BeleidsScenario)
+ * voor de totale kosten van een populatie, zonder alle uitkeringen opnieuw te berekenen.
+ *
+ * Met lees() wordt het invoerbestand (format zie BatchRegel) één keer doorgerekend. Per cliënt
+ * worden de maanduitkering, de tak van de berekening en de gevoeligheid voor de parameters bewaard
+ * in arrays van primitieven (zie Gevoeligheid). Een scenario doorrekenen is daarna per cliënt een
+ * paar vermenigvuldigingen. Alleen als de tak door het scenario verandert, bijvoorbeeld omdat het
+ * garantiebedrag niet meer bepalend is of de WAO-klasse verschuift, wordt de regel opnieuw uit het
+ * invoerbestand gelezen en exact berekend. De lineaire schatting kan per cliënt een cent afwijken
+ * van de exacte berekening, omdat de echte berekening tussentijds afrondt.
+ */
+public class BudgetSimulatie {
+
+    private static final Gevoeligheid.Tak[] TAKKEN = Gevoeligheid.Tak.values();
+    private static final int GEEN_ARBEIDSVERMOGEN = 0x40; // bit in tak, welk percentage voor de cliënt geldt
+    private static final double CENTEN_PER_DAGBEDRAG = Uitkering.UK_DAGEN_IN_MND.doubleValue() * 100;
+
+    private final Path invoer;
+    private int aantal = 0;
+    private long aantalFouten = 0;
+    private long[] positie = new long[0]; // begin van de regel in het invoerbestand, voor herberekening
+    private long[] maandCenten = new long[0]; // exacte maanduitkering met de huidige parameters
+    private byte[] tak = new byte[0]; // ordinal van de tak, plus GEEN_ARBEIDSVERMOGEN
+    private float[] vrij = new float[0];
+    private float[] perGrondslag = new float[0];
+    private float[] perPercentage = new float[0];
+    private float[] perGrondslagEnPercentage = new float[0];
+    private float[] loondispensatie2 = new float[0];
+    private float[] garantiebedrag = new float[0];
+    private float[] indexMinimum = new float[0];
+    private float[] indexMaximum = new float[0];
+
+    public BudgetSimulatie(Path invoer) {
+        this.invoer = invoer;
+    }
+
+    /**
+     * Rekent het invoerbestand één keer door en bewaart per cliënt uitkering en gevoeligheid.
+     * Regels die niet berekend kunnen worden tellen niet mee, zie getAantalFouten().
+     * @throws IOException als het invoerbestand niet gelezen kan worden.
+     */
+    public void lees() throws IOException {
+        aantal = 0;
+        aantalFouten = 0;
+        try (FileChannel kanaal = FileChannel.open(invoer, StandardOpenOption.READ)) {
+            RegelLezer lezer = new RegelLezer(kanaal, 0, kanaal.size());
+            long begin = lezer.getPositie();
+            String regel;
+            while ((regel = lezer.volgendeRegel()) != null) {
+                if (!regel.isBlank()) {
+                    voegToe(regel, begin);
+                }
+                begin = lezer.getPositie();
+            }
+        }
+    }
+
+    private void voegToe(String regel, long begin) {
+        BigDecimal maanduitkering;
+        Gevoeligheid gevoeligheid;
+        try {
+            BatchRegel batchRegel = BatchRegel.lees(regel);
+            maanduitkering = batchRegel.bereken();
+            gevoeligheid = batchRegel.berekenGevoeligheid();
+        }
+        catch (RuntimeException e) { // zelfde fouten als in BatchBerekening, die regel telt niet mee
+            aantalFouten++;
+            return;
+        }
+        if (aantal == positie.length) {
+            vergroot(Math.max(1024, aantal * 2));
+        }
+        positie[aantal] = begin;
+        maandCenten[aantal] = maanduitkering.movePointRight(2).longValue();
+        tak[aantal] = (byte) (gevoeligheid.getTak().ordinal() | (gevoeligheid.getGeenArbeidsvermogen() ? GEEN_ARBEIDSVERMOGEN : 0));
+        vrij[aantal] = (float) gevoeligheid.getVrij();
+        perGrondslag[aantal] = (float) gevoeligheid.getPerGrondslag();
+        perPercentage[aantal] = (float) gevoeligheid.getPerPercentage();
+        perGrondslagEnPercentage[aantal] = (float) gevoeligheid.getPerGrondslagEnPercentage();
+        loondispensatie2[aantal] = (float) gevoeligheid.getLoondispensatie2();
+        garantiebedrag[aantal] = (float) gevoeligheid.getGarantiebedrag();
+        indexMinimum[aantal] = (float) gevoeligheid.getIndexMinimum();
+        indexMaximum[aantal] = (float) gevoeligheid.getIndexMaximum();
+        aantal++;
+    }
+
+    private void vergroot(int grootte) {
+        positie = Arrays.copyOf(positie, grootte);
+        maandCenten = Arrays.copyOf(maandCenten, grootte);
+        tak = Arrays.copyOf(tak, grootte);
+        vrij = Arrays.copyOf(vrij, grootte);
+        perGrondslag = Arrays.copyOf(perGrondslag, grootte);
+        perPercentage = Arrays.copyOf(perPercentage, grootte);
+        perGrondslagEnPercentage = Arrays.copyOf(perGrondslagEnPercentage, grootte);
+        loondispensatie2 = Arrays.copyOf(loondispensatie2, grootte);
+        garantiebedrag = Arrays.copyOf(garantiebedrag, grootte);
+        indexMinimum = Arrays.copyOf(indexMinimum, grootte);
+        indexMaximum = Arrays.copyOf(indexMaximum, grootte);
+    }
+
+    public int getAantal() {
+        return aantal;
+    }
+
+    public long getAantalFouten() {
+        return aantalFouten;
+    }
+
+    /**
+     * Rekent een scenario door over alle ingelezen cliënten, verdeeld over alle processorkernen.
+     * @param scenario het door te rekenen scenario.
+     * @return de totale maandlasten met de huidige parameters en met het scenario.
+     * @throws IOException als het invoerbestand niet gelezen kan worden voor een herberekening.
+     */
+    public Uitkomst simuleer(BeleidsScenario scenario) throws IOException {
+        long start = System.nanoTime();
+        double grondslag = scenario.getGrondslagFactor().doubleValue() - 1;
+        double arbeidsvermogen = scenario.getPercentageArbeidsvermogen()
+                .subtract(WajongUitkering.PERCENTAGE_ARBEIDSVERMOGEN).doubleValue();
+        double geenArbeidsvermogen = scenario.getPercentageGeenArbeidsvermogen()
+                .subtract(WajongUitkering.PERCENTAGE_GEEN_ARBEIDSVERMOGEN).doubleValue();
+        double index = scenario.getIndexFactor().doubleValue();
+
+        try (FileChannel kanaal = FileChannel.open(invoer, StandardOpenOption.READ)) {
+            Uitkomst uitkomst = IntStream.range(0, aantal).parallel().collect(Uitkomst::new, (u, i) -> {
+                Gevoeligheid.Tak oud = TAKKEN[tak[i] & ~GEEN_ARBEIDSVERMOGEN];
+                boolean zelfdeTak;
+                double verschil = 0;
+                if (oud == Gevoeligheid.Tak.WAO) {
+                    zelfdeTak = index >= indexMinimum[i] && index < indexMaximum[i];
+                }
+                else {
+                    double percentage = ((tak[i] & GEEN_ARBEIDSVERMOGEN) != 0) ? geenArbeidsvermogen : arbeidsvermogen;
+                    double nieuw = vrij[i] + perGrondslag[i] * grondslag + perPercentage[i] * percentage
+                            + perGrondslagEnPercentage[i] * grondslag * percentage;
+                    zelfdeTak = Gevoeligheid.bepaalTak(nieuw, loondispensatie2[i], garantiebedrag[i]) == oud;
+                    if (oud == Gevoeligheid.Tak.BASIS || oud == Gevoeligheid.Tak.LOONDISPENSATIE_1) {
+                        verschil = nieuw - vrij[i]; // de andere takken hangen niet van de parameters af
+                    }
+                }
+                u.basis += maandCenten[i];
+                if (zelfdeTak) {
+                    u.scenario += maandCenten[i] + Math.round(verschil * CENTEN_PER_DAGBEDRAG);
+                }
+                else {
+                    u.scenario += herbereken(kanaal, i, scenario);
+                    u.herberekend++;
+                }
+                u.aantal++;
+            }, Uitkomst::voegSamen);
+            uitkomst.nanos = System.nanoTime() - start;
+            return uitkomst;
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Rekent een scenario door door alle cliënten exact te herberekenen. Bedoeld om de schatting van
+     * simuleer() te controleren.
+     */
+    public Uitkomst simuleerExact(BeleidsScenario scenario) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel kanaal = FileChannel.open(invoer, StandardOpenOption.READ)) {
+            Uitkomst uitkomst = IntStream.range(0, aantal).parallel().collect(Uitkomst::new, (u, i) -> {
+                u.basis += maandCenten[i];
+                u.scenario += herbereken(kanaal, i, scenario);
+                u.herberekend++;
+                u.aantal++;
+            }, Uitkomst::voegSamen);
+            uitkomst.nanos = System.nanoTime() - start;
+            return uitkomst;
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Leest de regel van een cliënt opnieuw uit het invoerbestand en berekent de maanduitkering exact.
+     * @return de maanduitkering in centen.
+     */
+    private long herbereken(FileChannel kanaal, int i, BeleidsScenario scenario) {
+        String regel;
+        try {
+            regel = new RegelLezer(kanaal, positie[i], kanaal.size()).volgendeRegel();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return BatchRegel.lees(regel).bereken(scenario).movePointRight(2).longValue();
+    }
+
+    /**
+     * De totale maandlasten van een doorgerekend scenario, in centen.
+     */
+    public static class Uitkomst {
+        private long basis = 0;
+        private long scenario = 0;
+        private long aantal = 0;
+        private long herberekend = 0;
+        private long nanos = 0;
+
+        private void voegSamen(Uitkomst andere) {
+            basis += andere.basis;
+            scenario += andere.scenario;
+            aantal += andere.aantal;
+            herberekend += andere.herberekend;
+        }
+
+        public long getBasisCenten() {
+            return basis;
+        }
+
+        public long getScenarioCenten() {
+            return scenario;
+        }
+
+        public long getAantal() {
+            return aantal;
+        }
+
+        /**
+         * @return aantal cliënten dat exact is herberekend omdat de tak veranderde.
+         */
+        public long getAantalHerberekend() {
+            return herberekend;
+        }
+
+        public String toString() {
+            return "Maandlasten nu: " + Uitkering.bedragFormat(BigDecimal.valueOf(basis, 2))
+                    + ", met scenario: " + Uitkering.bedragFormat(BigDecimal.valueOf(scenario, 2))
+                    + ", verschil: " + Uitkering.bedragFormat(BigDecimal.valueOf(scenario - basis, 2)) + "\n"
+                    + aantal + " cliënten, waarvan " + herberekend + " herberekend, in "
+                    + String.format("%.1f", nanos / 1e6) + " ms";
+        }
+    }
+
+    /**
+     * Rekent een scenario door vanaf de commandline.
+     * Gebruik: java BudgetSimulatie invoer grondslagfactor [percentageArbeidsvermogen]
+     * [percentageGeenArbeidsvermogen] [indexfactor] [controle]
+     * Met controle wordt het scenario ook exact doorgerekend om de schatting te vergelijken.
+     * @param args de commandline argumenten.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Gebruik: java BudgetSimulatie invoer grondslagfactor [percentageArbeidsvermogen] "
+                    + "[percentageGeenArbeidsvermogen] [indexfactor] [controle]");
+            return;
+        }
+        BeleidsScenario scenario = new BeleidsScenario();
+        scenario.setGrondslagFactor(args[1]);
+        if (args.length > 2) {
+            scenario.setPercentageArbeidsvermogen(args[2]);
+        }
+        if (args.length > 3) {
+            scenario.setPercentageGeenArbeidsvermogen(args[3]);
+        }
+        if (args.length > 4) {
+            scenario.setIndexFactor(args[4]);
+        }
+        BudgetSimulatie simulatie = new BudgetSimulatie(Paths.get(args[0]));
+        try {
+            long start = System.nanoTime();
+            simulatie.lees();
+            System.out.println(simulatie.getAantal() + " cliënten ingelezen in "
+                    + String.format("%.1f", (System.nanoTime() - start) / 1e6) + " ms ("
+                    + simulatie.getAantalFouten() + " met fouten)");
+            System.out.println("Scenario: " + scenario);
+            System.out.println(simulatie.simuleer(scenario));
+            if (args.length > 5 && args[5].equals("controle")) {
+                System.out.println("Exact:");
+                System.out.println(simulatie.simuleerExact(scenario));
+            }
+        }
+        catch (IOException e) {
+            System.out.println("Simulatie gestopt: " + e.getMessage());
+            System.exit(1); // zodat een script ziet dat de simulatie mislukt is
+        }
+        catch (UncheckedIOException e) { // uit simuleerExact()
+            System.out.println("Simulatie gestopt: " + e.getCause().getMessage());
+            System.exit(1);
+        }
+    }
+}
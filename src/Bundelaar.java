@@ -0,0 +1,294 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Verzamelt losse rekenverzoeken in kleine bundels en rekent die in één keer door. Onder belasting
+ * komen veel verzoeken binnen voor dezelfde rekenmaand en vaak ook voor hetzelfde profiel. Binnen een
+ * bundel wordt een verzoek dat meer dan 1x voorkomt maar 1x berekend, en worden verzoeken met hetzelfde
+ * profiel en dezelfde maand samen doorgerekend met BatchRegel.bereken(String[]). De gegevens van het
+ * profiel worden dan maar 1x gecontroleerd en grondslag, CBS-index en maatmanloon maar 1x opgezocht.
+ *
+ * Een bundel is klaar als hij vol is of als de wachttijd voorbij is. De wachttijd past zich aan de
+ * drukte aan: hij is het maximum maal de gemiddelde lengte van de wachtrij gedeeld door de maximale
+ * bundelgrootte. Bij weinig verzoeken wordt er dus vrijwel niet gewacht, en bij veel verzoeken is de
+ * bundel vol voordat de wachttijd voorbij is. Verzoeken wachten zo nooit langer dan de maximale
+ * wachttijd plus de rekentijd van één bundel.
+ *
+ * Eén thread vormt de bundels, de rekenthreads rekenen meerdere bundels tegelijk door. Alle threads
+ * zijn daemon-threads, zodat een vergeten stop() het afsluiten van de JVM niet tegenhoudt.
+ *
+ * Elke ontvanger wordt precies 1x aangeroepen, ook als de berekening op een onverwachte fout stuit:
+ * die fout wordt gelogd en de ontvanger krijgt een foutmelding, zodat geen client blijft wachten.
+ */
+public class Bundelaar {
+
+    public static final int STANDAARD_GROOTTE = 256;
+    public static final long STANDAARD_WACHTTIJD = 200; // microseconden
+    private static final String INTERNE_FOUT = "Interne fout in de berekening.";
+    private static final Logger LOG = Logger.getLogger(Bundelaar.class.getName());
+
+    /**
+     * Ontvangt de uitkomst van één verzoek. Wordt aangeroepen op een rekenthread.
+     */
+    public interface Ontvanger {
+        /**
+         * @param maanduitkering de maanduitkering in euro, of null als de berekening mislukt is.
+         * @param fout de foutmelding als de berekening mislukt is, anders null.
+         */
+        void ontvang(BigDecimal maanduitkering, String fout);
+    }
+
+    private final int maximaleGrootte;
+    private final long maximaleWachttijd; // nanoseconden
+    private final BlockingQueue<Wachtend> wachtrij = new LinkedBlockingQueue<>();
+    private final ExecutorService executor;
+    private final Thread bundelaar;
+    private volatile boolean actief = true;
+    private double gemiddeldeDiepte = 0;
+
+    private final LongAdder aantalBundels = new LongAdder();
+    private final LongAdder aantalVerzoeken = new LongAdder();
+    private final LongAdder aantalBerekend = new LongAdder();
+
+    /**
+     * @param maximaleGrootte maximaal aantal verzoeken in een bundel.
+     * @param maximaleWachttijd maximale tijd in microseconden die de eerste in een bundel wacht op meer
+     * verzoeken, 0 om alleen te bundelen wat al in de wachtrij staat.
+     */
+    public Bundelaar(int maximaleGrootte, long maximaleWachttijd) {
+        this.maximaleGrootte = Math.max(1, maximaleGrootte);
+        this.maximaleWachttijd = TimeUnit.MICROSECONDS.toNanos(Math.max(0, maximaleWachttijd));
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), taak -> {
+            Thread thread = new Thread(taak, "Bundelaar-reken");
+            thread.setDaemon(true);
+            return thread;
+        });
+        bundelaar = new Thread(this::bundel, "Bundelaar");
+        bundelaar.setDaemon(true);
+        bundelaar.start();
+    }
+
+    public Bundelaar() {
+        this(STANDAARD_GROOTTE, STANDAARD_WACHTTIJD);
+    }
+
+    /**
+     * Zet een verzoek in de wachtrij voor de volgende bundel.
+     * @param verzoek het verzoek.
+     * @param ontvanger krijgt de uitkomst als de bundel is doorgerekend.
+     */
+    public void bereken(RekenVerzoek verzoek, Ontvanger ontvanger) {
+        wachtrij.add(new Wachtend(verzoek, ontvanger));
+    }
+
+    /**
+     * Zet een verzoek in de wachtrij voor de volgende bundel.
+     * @param verzoek het verzoek.
+     * @return future met de maanduitkering in euro, of met een IllegalArgumentException als de berekening
+     * mislukt.
+     */
+    public CompletableFuture<BigDecimal> bereken(RekenVerzoek verzoek) {
+        CompletableFuture<BigDecimal> uitkomst = new CompletableFuture<>();
+        bereken(verzoek, (maanduitkering, fout) -> {
+            if (fout == null) {
+                uitkomst.complete(maanduitkering);
+            }
+            else {
+                uitkomst.completeExceptionally(new IllegalArgumentException(fout));
+            }
+        });
+        return uitkomst;
+    }
+
+    /**
+     * Stopt met bundelen. Verzoeken die al in de wachtrij staan worden nog doorgerekend.
+     */
+    public void stop() {
+        actief = false;
+        bundelaar.interrupt();
+        try {
+            bundelaar.join(1000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Vormt bundels uit de wachtrij en geeft ze aan de rekenthreads.
+     */
+    private void bundel() {
+        while (actief || !wachtrij.isEmpty()) {
+            ArrayList<Wachtend> bundel = new ArrayList<>();
+            try {
+                bundel.add(wachtrij.take());
+            }
+            catch (InterruptedException e) {
+                continue; // stop() is aangeroepen, de rest van de wachtrij nog afhandelen
+            }
+            int diepte = wachtrij.drainTo(bundel, maximaleGrootte - 1) + 1;
+            gemiddeldeDiepte = 0.9 * gemiddeldeDiepte + 0.1 * diepte;
+            long wachttijd = (long) (maximaleWachttijd * Math.min(1.0, gemiddeldeDiepte / maximaleGrootte));
+            long deadline = System.nanoTime() + wachttijd;
+            try {
+                while (actief && bundel.size() < maximaleGrootte) {
+                    long resterend = deadline - System.nanoTime();
+                    if (resterend <= 0) {
+                        break;
+                    }
+                    Wachtend volgende = wachtrij.poll(resterend, TimeUnit.NANOSECONDS);
+                    if (volgende == null) {
+                        break;
+                    }
+                    bundel.add(volgende);
+                    wachtrij.drainTo(bundel, maximaleGrootte - bundel.size());
+                }
+            }
+            catch (InterruptedException e) {
+                // stop() is aangeroepen, deze bundel nog afmaken
+            }
+            try {
+                executor.execute(() -> berekenBundel(bundel));
+            }
+            catch (RejectedExecutionException e) { // stop() wachtte niet lang genoeg op deze thread
+                berekenBundel(bundel);
+            }
+        }
+    }
+
+    /**
+     * Rekent een bundel door en geeft elke ontvanger zijn uitkomst, ook als het rekenen onverwacht mislukt.
+     */
+    private void berekenBundel(ArrayList<Wachtend> bundel) {
+        Map<RekenVerzoek, Uitkomst> uniek = new HashMap<>();
+        try {
+            berekenUniek(bundel, uniek);
+        }
+        catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Bundel van " + bundel.size() + " verzoeken mislukt", e);
+        }
+
+        aantalBundels.increment();
+        aantalVerzoeken.add(bundel.size());
+        aantalBerekend.add(uniek.size());
+        for (Wachtend wachtend : bundel) {
+            Uitkomst uitkomst = uniek.get(wachtend.verzoek);
+            boolean berekend = (uitkomst != null) && (uitkomst.maanduitkering != null || uitkomst.fout != null);
+            try {
+                if (berekend) {
+                    wachtend.ontvanger.ontvang(uitkomst.maanduitkering, uitkomst.fout);
+                }
+                else {
+                    wachtend.ontvanger.ontvang(null, INTERNE_FOUT);
+                }
+            }
+            catch (RuntimeException e) { // de andere ontvangers moeten hun uitkomst nog krijgen
+                LOG.log(Level.WARNING, "Ontvanger van een uitkomst mislukt", e);
+            }
+        }
+    }
+
+    /**
+     * Ontdubbelt de bundel en rekent per profiel en maand samen door. Als het profiel zelf geen
+     * berekening toelaat, of een bedrag niet gelezen kan worden, wordt het verzoek los berekend voor
+     * de juiste foutmelding.
+     * @param uniek krijgt per uniek verzoek de uitkomst.
+     */
+    private static void berekenUniek(ArrayList<Wachtend> bundel, Map<RekenVerzoek, Uitkomst> uniek) {
+        Map<RekenVerzoek, ArrayList<RekenVerzoek>> perProfiel = new LinkedHashMap<>();
+        for (Wachtend wachtend : bundel) {
+            if (uniek.putIfAbsent(wachtend.verzoek, new Uitkomst()) == null) {
+                perProfiel.computeIfAbsent(wachtend.verzoek.getProfiel(), p -> new ArrayList<>()).add(wachtend.verzoek);
+            }
+        }
+
+        for (Map.Entry<RekenVerzoek, ArrayList<RekenVerzoek>> groep : perProfiel.entrySet()) {
+            ArrayList<RekenVerzoek> verzoeken = groep.getValue();
+            String[] inkomsten = new String[verzoeken.size()];
+            for (int i = 0; i < inkomsten.length; i++) {
+                inkomsten[i] = verzoeken.get(i).getInkomsten();
+            }
+            BigDecimal[] maanduitkeringen;
+            try {
+                maanduitkeringen = groep.getKey().naarBatchRegel("-").bereken(inkomsten);
+            }
+            catch (RuntimeException e) { // los berekenen geeft per verzoek de juiste foutmelding
+                maanduitkeringen = new BigDecimal[inkomsten.length];
+            }
+            for (int i = 0; i < inkomsten.length; i++) {
+                Uitkomst uitkomst = uniek.get(verzoeken.get(i));
+                uitkomst.maanduitkering = maanduitkeringen[i];
+                if (uitkomst.maanduitkering == null) {
+                    uitkomst.berekenLos(verzoeken.get(i));
+                }
+            }
+        }
+    }
+
+    public long getAantalBundels() {
+        return aantalBundels.sum();
+    }
+
+    public long getAantalVerzoeken() {
+        return aantalVerzoeken.sum();
+    }
+
+    public String toString() {
+        long bundels = aantalBundels.sum();
+        long verzoeken = aantalVerzoeken.sum();
+        return "Bundelaar: " + verzoeken + " verzoeken in " + bundels + " bundels (gemiddeld "
+                + String.format("%.1f", bundels == 0 ? 0.0 : (double) verzoeken / bundels) + "), "
+                + (verzoeken - aantalBerekend.sum()) + " dubbel";
+    }
+
+    private static class Wachtend {
+        private final RekenVerzoek verzoek;
+        private final Ontvanger ontvanger;
+
+        private Wachtend(RekenVerzoek verzoek, Ontvanger ontvanger) {
+            this.verzoek = verzoek;
+            this.ontvanger = ontvanger;
+        }
+    }
+
+    private static class Uitkomst {
+        private BigDecimal maanduitkering;
+        private String fout;
+
+        private void berekenLos(RekenVerzoek verzoek) {
+            try {
+                maanduitkering = verzoek.bereken();
+            }
+            catch (IllegalArgumentException | ArithmeticException e) {
+                fout = e.getMessage();
+            }
+            catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Berekening voor " + verzoek.getRekenmaand() + " mislukt", e);
+                fout = INTERNE_FOUT;
+            }
+            if (maanduitkering == null && fout == null) {
+                fout = "Onbekende fout.";
+            }
+        }
+    }
+}
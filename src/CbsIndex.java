@@ -12,8 +12,8 @@ import java.math.BigDecimal;
  */
 public class CbsIndex {
 
-    private String maand;
-    private BigDecimal index;
+    private final String maand;
+    private final BigDecimal index;
 
     public CbsIndex(String maand, BigDecimal index) {
         this.maand = maand;
@@ -0,0 +1,272 @@
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * De gegevens van 1 cliënt zoals een behandelaar ze in de GUI heeft ingevoerd: de basisgegevens van de
+ * WAO- en de Wajong-uitkering en per regeling de laatst vastgelegde berekening. Een Dossier wordt bewaard
+ * in een DossierBestand en later weer in de GUI gezet.
+ *
+ * Bedragen zijn in centen (inkomsten en uitkeringen per maand, dagloon en garantiebedrag per dag), de
+ * loonwaarde in honderdsten van een procent en een rekenmaand als maandindex (zie
+ * UitkeringCache.maandIndex()). LEEG betekent dat de waarde er niet is. Een Dossier verandert niet; de
+ * met-methoden geven een nieuw Dossier terug, zoals bij WaoProfiel en WajongProfiel.
+ */
+public final class Dossier {
+
+    public static final int LEEG = -1;
+    public static final int GEEN_WAJONG = 0;
+    public static final int WAJONG_ZONDER_ARBEIDSVERMOGEN = 1;
+    public static final int WAJONG_MET_ARBEIDSVERMOGEN = 2;
+
+    private final String naam;
+    private final long opgeslagen; // ms sinds 1970
+    private final int[] wao; // klasse (0 is geen WAO), dagloon, maatmanloon, en een berekening
+    private final int[] wajong; // soort, garantiebedrag, loonwaarde, overige inkomsten, en een berekening
+
+    // posities in wao en wajong
+    private static final int WAO_KLASSE = 0;
+    private static final int WAO_DAGLOON = 1;
+    private static final int WAO_MAATMANLOON = 2;
+    private static final int WAJONG_SOORT = 0;
+    private static final int WAJONG_GARANTIEBEDRAG = 1;
+    private static final int WAJONG_LOONWAARDE = 2;
+    private static final int WAJONG_OVERIG = 3;
+    private static final int BEREKENING = 4; // bij allebei: maand, inkomsten, uitkering, uitkering met inkomsten
+    static final int LENGTE = BEREKENING + 4;
+
+    public Dossier(String naam) {
+        this(naam, 0, leegDeel(0), leegDeel(GEEN_WAJONG));
+    }
+
+    Dossier(String naam, long opgeslagen, int[] wao, int[] wajong) {
+        this.naam = naam;
+        this.opgeslagen = opgeslagen;
+        this.wao = wao;
+        this.wajong = wajong;
+    }
+
+    private static int[] leegDeel(int soort) {
+        int[] deel = new int[LENGTE];
+        Arrays.fill(deel, LEEG);
+        deel[0] = soort; // WAO_KLASSE of WAJONG_SOORT
+        return deel;
+    }
+
+    public Dossier metNaam(String naam) {
+        return new Dossier(naam, opgeslagen, wao, wajong);
+    }
+
+    public Dossier metOpgeslagen(long opgeslagen) {
+        return new Dossier(naam, opgeslagen, wao, wajong);
+    }
+
+    /**
+     * Zet de basisgegevens van de WAO-uitkering. Een vastgelegde berekening blijft staan.
+     * @param klasse 1 tot en met 7, of 0 om de WAO-gegevens en de berekening te wissen.
+     * @param maatmanloon null als er geen maatmanloon is.
+     */
+    public Dossier metWao(int klasse, BigDecimal rekendagloon, BigDecimal maatmanloon) {
+        int[] nieuw = (klasse == 0) ? leegDeel(0) : wao.clone();
+        if (klasse != 0) {
+            nieuw[WAO_KLASSE] = klasse;
+            nieuw[WAO_DAGLOON] = centen(rekendagloon);
+            nieuw[WAO_MAATMANLOON] = centen(maatmanloon);
+        }
+        return new Dossier(naam, opgeslagen, nieuw, wajong);
+    }
+
+    /**
+     * Zet de basisgegevens van de Wajong-uitkering. Een vastgelegde berekening blijft staan.
+     * @param soort GEEN_WAJONG (wist de Wajong-gegevens en de berekening), WAJONG_ZONDER_ARBEIDSVERMOGEN
+     * of WAJONG_MET_ARBEIDSVERMOGEN.
+     * @param garantiebedrag per dag, null als er geen is.
+     * @param loonwaarde percentage, null als er geen loondispensatie is.
+     */
+    public Dossier metWajong(int soort, BigDecimal garantiebedrag, BigDecimal loonwaarde) {
+        int[] nieuw = (soort == GEEN_WAJONG) ? leegDeel(GEEN_WAJONG) : wajong.clone();
+        if (soort != GEEN_WAJONG) {
+            nieuw[WAJONG_SOORT] = soort;
+            nieuw[WAJONG_GARANTIEBEDRAG] = centen(garantiebedrag);
+            nieuw[WAJONG_LOONWAARDE] = centen(loonwaarde);
+        }
+        return new Dossier(naam, opgeslagen, wao, nieuw);
+    }
+
+    /**
+     * Legt een berekening op het WAO-tabblad vast.
+     * @param inkomsten per maand, null bij een berekening zonder inkomsten (uitkeringMetInkomsten is dan ook null).
+     */
+    public Dossier metWaoBerekening(String rekenmaand, BigDecimal inkomsten, BigDecimal uitkering,
+                                    BigDecimal uitkeringMetInkomsten) {
+        int[] nieuw = wao.clone();
+        zetBerekening(nieuw, rekenmaand, inkomsten, uitkering, uitkeringMetInkomsten);
+        return new Dossier(naam, opgeslagen, nieuw, wajong);
+    }
+
+    /**
+     * Legt een berekening op het Wajong-tabblad vast.
+     * @param inkomsten uit werk per maand, null bij een berekening zonder inkomsten.
+     * @param overigeInkomsten per maand, null of 0 als er geen zijn.
+     */
+    public Dossier metWajongBerekening(String rekenmaand, BigDecimal inkomsten, BigDecimal overigeInkomsten,
+                                       BigDecimal uitkering, BigDecimal uitkeringMetInkomsten) {
+        int[] nieuw = wajong.clone();
+        nieuw[WAJONG_OVERIG] = centen(overigeInkomsten);
+        zetBerekening(nieuw, rekenmaand, inkomsten, uitkering, uitkeringMetInkomsten);
+        return new Dossier(naam, opgeslagen, wao, nieuw);
+    }
+
+    private static void zetBerekening(int[] deel, String rekenmaand, BigDecimal inkomsten, BigDecimal uitkering,
+                                      BigDecimal uitkeringMetInkomsten) {
+        deel[BEREKENING] = (int) UitkeringCache.maandIndex(rekenmaand);
+        deel[BEREKENING + 1] = centen(inkomsten);
+        deel[BEREKENING + 2] = centen(uitkering);
+        deel[BEREKENING + 3] = centen(uitkeringMetInkomsten);
+    }
+
+    /**
+     * @return het bedrag in centen, of LEEG als het bedrag null is of niet in een int past.
+     */
+    private static int centen(BigDecimal bedrag) {
+        long inCenten = UitkeringCache.centen(bedrag, 31);
+        return (bedrag == null || inCenten < 0) ? LEEG : (int) inCenten;
+    }
+
+    private static BigDecimal bedrag(int centen) {
+        return (centen == LEEG) ? null : BigDecimal.valueOf(centen, 2);
+    }
+
+    private static String maand(int index) {
+        return (index == LEEG) ? null : UitkeringCache.maandNaam(index);
+    }
+
+    public String getNaam() {
+        return naam;
+    }
+
+    public long getOpgeslagen() {
+        return opgeslagen;
+    }
+
+    public boolean isLeeg() {
+        return !heeftWao() && !heeftWajong();
+    }
+
+    public boolean heeftWao() {
+        return wao[WAO_KLASSE] != 0;
+    }
+
+    public int getWaoKlasse() {
+        return wao[WAO_KLASSE];
+    }
+
+    public BigDecimal getRekendagloon() {
+        return bedrag(wao[WAO_DAGLOON]);
+    }
+
+    public BigDecimal getMaatmanloon() {
+        return bedrag(wao[WAO_MAATMANLOON]);
+    }
+
+    /**
+     * @return de rekenmaand van de laatste WAO-berekening (bijv. jan-24), of null als er geen is.
+     */
+    public String getWaoRekenmaand() {
+        return maand(wao[BEREKENING]);
+    }
+
+    public BigDecimal getWaoInkomsten() {
+        return bedrag(wao[BEREKENING + 1]);
+    }
+
+    public BigDecimal getWaoUitkering() {
+        return bedrag(wao[BEREKENING + 2]);
+    }
+
+    public BigDecimal getWaoUitkeringMetInkomsten() {
+        return bedrag(wao[BEREKENING + 3]);
+    }
+
+    public boolean heeftWajong() {
+        return wajong[WAJONG_SOORT] != GEEN_WAJONG;
+    }
+
+    public boolean getArbeidsvermogen() {
+        return wajong[WAJONG_SOORT] == WAJONG_MET_ARBEIDSVERMOGEN;
+    }
+
+    public BigDecimal getGarantiebedrag() {
+        return bedrag(wajong[WAJONG_GARANTIEBEDRAG]);
+    }
+
+    public BigDecimal getLoonwaarde() {
+        return bedrag(wajong[WAJONG_LOONWAARDE]);
+    }
+
+    public String getWajongRekenmaand() {
+        return maand(wajong[BEREKENING]);
+    }
+
+    public BigDecimal getWajongInkomsten() {
+        return bedrag(wajong[BEREKENING + 1]);
+    }
+
+    public BigDecimal getWajongOverigeInkomsten() {
+        return bedrag(wajong[WAJONG_OVERIG]);
+    }
+
+    public BigDecimal getWajongUitkering() {
+        return bedrag(wajong[BEREKENING + 2]);
+    }
+
+    public BigDecimal getWajongUitkeringMetInkomsten() {
+        return bedrag(wajong[BEREKENING + 3]);
+    }
+
+    // voor DossierBestand
+    int getWaoWaarde(int i) {
+        return wao[i];
+    }
+
+    int getWajongWaarde(int i) {
+        return wajong[i];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder tekst = new StringBuilder(naam);
+        if (heeftWao()) {
+            tekst.append("\nWAO klasse ").append(getWaoKlasse()).append(", rekendagloon ")
+                    .append(Uitkering.bedragFormat(getRekendagloon()));
+            if (getMaatmanloon() != null) {
+                tekst.append(", maatmanloon ").append(Uitkering.bedragFormat(getMaatmanloon()));
+            }
+            if (getWaoUitkering() != null) {
+                tekst.append("\n  ").append(getWaoRekenmaand()).append(": uitkering ")
+                        .append(Uitkering.bedragFormat(getWaoUitkering()));
+                if (getWaoInkomsten() != null) {
+                    tekst.append(", met inkomsten van ").append(Uitkering.bedragFormat(getWaoInkomsten()))
+                            .append(": ").append(Uitkering.bedragFormat(getWaoUitkeringMetInkomsten()));
+                }
+            }
+        }
+        if (heeftWajong()) {
+            tekst.append("\nWajong ").append(getArbeidsvermogen() ? "met" : "zonder").append(" arbeidsvermogen");
+            if (getGarantiebedrag() != null) {
+                tekst.append(", garantiebedrag ").append(Uitkering.bedragFormat(getGarantiebedrag()));
+            }
+            if (getLoonwaarde() != null) {
+                tekst.append(", loonwaarde ").append(getLoonwaarde().stripTrailingZeros().toPlainString()).append('%');
+            }
+            if (getWajongUitkering() != null) {
+                tekst.append("\n  ").append(getWajongRekenmaand()).append(": uitkering ")
+                        .append(Uitkering.bedragFormat(getWajongUitkering()));
+                if (getWajongInkomsten() != null) {
+                    tekst.append(", met inkomsten van ").append(Uitkering.bedragFormat(getWajongInkomsten()))
+                            .append(": ").append(Uitkering.bedragFormat(getWajongUitkeringMetInkomsten()));
+                }
+            }
+        }
+        return tekst.toString();
+    }
+}
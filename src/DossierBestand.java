@@ -0,0 +1,301 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Een bestand met bewaarde Dossiers, zodat een behandelaar de cliënten van een dag later weer kan openen.
+ *
+ * Het bestand wordt in het geheugen gemapt. Bij het openen wordt alleen de index gelezen: per dossier de
+ * positie in het bestand. Naam en datum worden pas gelezen als de lijst ze toont, en een heel Dossier pas
+ * als het gekozen wordt. Ook met honderden dossiers is het openen daardoor direct klaar.
+ *
+ * Format (big-endian): MAGIC en VERSIE, dan de dossiers, elk met de lengte van de naam (short), de naam
+ * in UTF-8, de datum (long) en 2 keer Dossier.LENGTE ints (WAO en Wajong, zie Dossier). Daarna de index,
+ * met het aantal dossiers en hun posities (ints), en tot slot de positie van de index (long) en MAGIC.
+ *
+ * Bewaren schrijft alleen achteraan bij: het nieuwe dossier, een nieuwe index en een nieuw slot. Een
+ * dossier met dezelfde naam verdwijnt uit de index maar blijft staan tot het bestand wordt opgeschoond, wat
+ * gebeurt als meer dan de helft van het bestand niet meer gebruikt wordt. Doordat het bestand nooit in
+ * zijn geheel vervangen hoeft te worden, kan er bewaard worden terwijl het nog gemapt is. Mislukt het
+ * schrijven halverwege, dan wordt bij het openen het laatste complete slot gebruikt.
+ */
+public class DossierBestand {
+
+    public static final int MAGIC = 0x52484431; // "RHD1"
+    public static final int VERSIE = 1;
+    private static final int KOP = 8; // MAGIC en VERSIE
+    private static final int SLOT = 12; // positie van de index en MAGIC
+    private static final int OPSCHONEN_VANAF = 64 * 1024; // kleinere bestanden niet opschonen
+
+    private final ByteBuffer bestand;
+    private final int[] posities;
+
+    private DossierBestand(ByteBuffer bestand, int[] posities) {
+        this.bestand = bestand;
+        this.posities = posities;
+    }
+
+    /**
+     * Opent een dossierbestand. Een bestand dat nog niet bestaat is leeg.
+     * @throws IOException als het bestand niet te lezen is of geen dossierbestand is.
+     */
+    public static DossierBestand open(Path pad) throws IOException {
+        if (!Files.exists(pad)) {
+            return new DossierBestand(ByteBuffer.allocate(0), new int[0]);
+        }
+        try (FileChannel kanaal = FileChannel.open(pad, StandardOpenOption.READ)) {
+            return lees(kanaal, pad);
+        }
+    }
+
+    private static DossierBestand lees(FileChannel kanaal, Path pad) throws IOException {
+        long grootte = kanaal.size();
+        if (grootte > Integer.MAX_VALUE) {
+            throw new IOException(pad + " is groter dan 2 GB.");
+        }
+        MappedByteBuffer bestand = kanaal.map(FileChannel.MapMode.READ_ONLY, 0, grootte);
+        if (grootte < KOP + SLOT || bestand.getInt(0) != MAGIC) {
+            throw new IOException(pad + " is geen dossierbestand.");
+        }
+        if (bestand.getInt(4) != VERSIE) {
+            throw new IOException(pad + " heeft een onbekende versie " + bestand.getInt(4) + ".");
+        }
+        for (int slot = (int) grootte - SLOT; slot >= KOP; slot--) { // meestal alleen het laatste slot
+            int[] posities = leesIndex(bestand, slot);
+            if (posities != null) {
+                return new DossierBestand(bestand, posities);
+            }
+        }
+        throw new IOException(pad + " heeft geen leesbare index.");
+    }
+
+    /**
+     * @return de posities uit de index waar het slot op positie slot naar wijst, of null als daar geen
+     * geldig slot staat.
+     */
+    private static int[] leesIndex(ByteBuffer bestand, int slot) {
+        if (bestand.getInt(slot + 8) != MAGIC) {
+            return null;
+        }
+        long index = bestand.getLong(slot);
+        if (index < KOP || index + 4 > slot) {
+            return null;
+        }
+        int aantal = bestand.getInt((int) index);
+        if (aantal < 0 || index + 4 + 4L * aantal != slot) {
+            return null;
+        }
+        int[] posities = new int[aantal];
+        for (int i = 0; i < aantal; i++) {
+            posities[i] = bestand.getInt((int) index + 4 + 4 * i);
+            if (posities[i] < KOP || posities[i] >= index) {
+                return null;
+            }
+        }
+        return posities;
+    }
+
+    /**
+     * Bewaart een dossier met de huidige datum. Een dossier met dezelfde naam wordt vervangen. Wacht op
+     * een ander venster dat aan het bewaren is en schrijft naar de schijf, dus niet op de EDT aanroepen.
+     * @return het bestand na het bewaren; dit DossierBestand blijft het oude tonen.
+     * @throws IOException als het bestand niet te lezen of te schrijven is.
+     */
+    public static DossierBestand bewaar(Path pad, Dossier dossier) throws IOException {
+        Path map = pad.toAbsolutePath().getParent();
+        if (map != null) {
+            Files.createDirectories(map);
+        }
+        byte[] naam = dossier.getNaam().getBytes(StandardCharsets.UTF_8);
+        if (naam.length > Short.MAX_VALUE) {
+            throw new IOException("Naam van het dossier is te lang.");
+        }
+        try (FileChannel kanaal = FileChannel.open(pad, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE)) {
+            kanaal.lock(); // vrijgegeven als het kanaal sluit
+            // de index van nu lezen, niet die van bij het openen: een ander venster kan intussen hebben bewaard
+            int[] oud = new int[0];
+            ByteBuffer huidig = ByteBuffer.allocate(0);
+            if (kanaal.size() > 0) {
+                DossierBestand bestaand = lees(kanaal, pad);
+                huidig = bestaand.bestand;
+                oud = bestaand.posities;
+            }
+            int[] posities = new int[oud.length + 1];
+            int aantal = 0;
+            for (int positie : oud) {
+                if (!bevatNaam(huidig, positie, naam)) {
+                    posities[aantal++] = positie;
+                }
+            }
+            long einde = kanaal.size();
+            if (einde == 0) {
+                ByteBuffer kop = ByteBuffer.allocate(KOP).putInt(MAGIC).putInt(VERSIE).flip();
+                kanaal.write(kop, 0);
+                einde = KOP;
+            }
+            posities[aantal++] = (int) einde;
+
+            ByteBuffer nieuw = ByteBuffer.allocate(recordLengte(naam.length) + 4 + 4 * aantal + SLOT);
+            schrijfRecord(nieuw, naam, dossier.metOpgeslagen(System.currentTimeMillis()));
+            long index = einde + nieuw.position();
+            nieuw.putInt(aantal);
+            for (int i = 0; i < aantal; i++) {
+                nieuw.putInt(posities[i]);
+            }
+            nieuw.putLong(index).putInt(MAGIC).flip();
+            if (index + nieuw.remaining() > Integer.MAX_VALUE) {
+                throw new IOException(pad + " wordt groter dan 2 GB.");
+            }
+            while (nieuw.hasRemaining()) {
+                kanaal.write(nieuw, einde + nieuw.position());
+            }
+            kanaal.force(false);
+
+            DossierBestand resultaat = lees(kanaal, pad);
+            if (resultaat.bestand.capacity() > OPSCHONEN_VANAF
+                    && resultaat.bestand.capacity() > 2L * resultaat.getGebruikt()) {
+                return resultaat.schoonOp(pad);
+            }
+            return resultaat;
+        }
+    }
+
+    private static boolean bevatNaam(ByteBuffer bestand, int positie, byte[] naam) {
+        if (bestand.getShort(positie) != naam.length) {
+            return false;
+        }
+        for (int i = 0; i < naam.length; i++) {
+            if (bestand.get(positie + 2 + i) != naam[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int recordLengte(int naamLengte) {
+        return 2 + naamLengte + 8 + 2 * 4 * Dossier.LENGTE;
+    }
+
+    private static void schrijfRecord(ByteBuffer uit, byte[] naam, Dossier dossier) {
+        uit.putShort((short) naam.length).put(naam).putLong(dossier.getOpgeslagen());
+        for (int i = 0; i < Dossier.LENGTE; i++) {
+            uit.putInt(dossier.getWaoWaarde(i));
+        }
+        for (int i = 0; i < Dossier.LENGTE; i++) {
+            uit.putInt(dossier.getWajongWaarde(i));
+        }
+    }
+
+    /**
+     * @return het aantal bytes van de dossiers in de index, plus kop, index en slot.
+     */
+    private long getGebruikt() {
+        long gebruikt = KOP + 4 + 4L * posities.length + SLOT;
+        for (int positie : posities) {
+            gebruikt += recordLengte(bestand.getShort(positie));
+        }
+        return gebruikt;
+    }
+
+    /**
+     * Schrijft alleen de dossiers uit de index naar een nieuw bestand, zonder ze te decoderen, en zet dat
+     * op de plaats van het oude. Lukt dat niet, bijvoorbeeld omdat het oude nog gemapt is op een systeem
+     * dat dat niet toestaat, dan blijft het oude bestand gewoon in gebruik.
+     */
+    private DossierBestand schoonOp(Path pad) {
+        Path tijdelijk = pad.resolveSibling(pad.getFileName() + ".nieuw");
+        try {
+            ByteBuffer nieuw = ByteBuffer.allocate((int) getGebruikt());
+            nieuw.putInt(MAGIC).putInt(VERSIE);
+            int[] nieuwePosities = new int[posities.length];
+            for (int i = 0; i < posities.length; i++) {
+                nieuwePosities[i] = nieuw.position();
+                int lengte = recordLengte(bestand.getShort(posities[i]));
+                nieuw.put(bestand.slice(posities[i], lengte));
+            }
+            long index = nieuw.position();
+            nieuw.putInt(posities.length);
+            for (int positie : nieuwePosities) {
+                nieuw.putInt(positie);
+            }
+            nieuw.putLong(index).putInt(MAGIC).flip();
+            try (FileChannel kanaal = FileChannel.open(tijdelijk, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (nieuw.hasRemaining()) {
+                    kanaal.write(nieuw);
+                }
+                kanaal.force(false);
+            }
+            Files.move(tijdelijk, pad, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return open(pad);
+        }
+        catch (IOException e) {
+            try {
+                Files.deleteIfExists(tijdelijk);
+            }
+            catch (IOException negeren) {
+                // het tijdelijke bestand wordt de volgende keer overschreven
+            }
+            return this;
+        }
+    }
+
+    /**
+     * @return het aantal dossiers, in de volgorde waarin ze zijn bewaard (het laatst bewaarde achteraan).
+     */
+    public int getAantal() {
+        return posities.length;
+    }
+
+    /**
+     * Leest alleen de naam, niet de rest van het dossier.
+     */
+    public String getNaam(int i) {
+        int positie = posities[i];
+        byte[] naam = new byte[bestand.getShort(positie)];
+        bestand.get(positie + 2, naam);
+        return new String(naam, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return de datum waarop dossier i is bewaard, in ms sinds 1970.
+     */
+    public long getOpgeslagen(int i) {
+        int positie = posities[i];
+        return bestand.getLong(positie + 2 + bestand.getShort(positie));
+    }
+
+    /**
+     * @return de index van het dossier met deze naam, of -1 als er geen is.
+     */
+    public int zoek(String naam) {
+        byte[] gezocht = naam.getBytes(StandardCharsets.UTF_8);
+        for (int i = posities.length - 1; i >= 0; i--) {
+            if (bevatNaam(bestand, posities[i], gezocht)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Leest dossier i helemaal.
+     */
+    public Dossier lees(int i) {
+        int positie = posities[i] + 2 + bestand.getShort(posities[i]) + 8;
+        int[] wao = new int[Dossier.LENGTE];
+        int[] wajong = new int[Dossier.LENGTE];
+        for (int j = 0; j < Dossier.LENGTE; j++) {
+            wao[j] = bestand.getInt(positie + 4 * j);
+            wajong[j] = bestand.getInt(positie + 4 * (Dossier.LENGTE + j));
+        }
+        return new Dossier(getNaam(i), getOpgeslagen(i), wao, wajong);
+    }
+}
@@ -0,0 +1,69 @@
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import javax.swing.AbstractListModel;
+import javax.swing.JList;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.ListSelectionModel;
+
+/**
+ * Venster om een bewaard Dossier te kiezen. De lijst toont het laatst bewaarde dossier bovenaan en leest
+ * naam en datum pas uit het DossierBestand als een regel in beeld komt; het gekozen dossier wordt pas
+ * helemaal gelezen als het geselecteerd wordt, om het eronder samen te vatten.
+ */
+public class DossierKiezer {
+
+    private DossierKiezer() {
+    }
+
+    /**
+     * Toont de dossiers en laat de gebruiker er 1 kiezen. Alleen op de EDT aanroepen.
+     * @param ouder het component waarboven het venster komt.
+     * @return het gekozen dossier, of null als er geen is gekozen.
+     */
+    public static Dossier kies(Component ouder, DossierBestand bestand) {
+        if (bestand.getAantal() == 0) {
+            JOptionPane.showMessageDialog(ouder, "Er zijn nog geen dossiers bewaard.", "Dossier openen",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return null;
+        }
+        SimpleDateFormat datum = new SimpleDateFormat("dd-MM-yyyy HH:mm");
+        int aantal = bestand.getAantal();
+        JList<String> lijst = new JList<>(new AbstractListModel<String>() {
+            @Override
+            public int getSize() {
+                return aantal;
+            }
+
+            @Override
+            public String getElementAt(int i) {
+                int index = aantal - 1 - i; // laatst bewaarde bovenaan
+                return datum.format(new Date(bestand.getOpgeslagen(index))) + "   " + bestand.getNaam(index);
+            }
+        });
+        lijst.setPrototypeCellValue("00-00-0000 00:00   Een naam van gemiddelde lengte");
+        lijst.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        JTextArea samenvatting = new JTextArea(5, 40);
+        samenvatting.setEditable(false);
+        lijst.addListSelectionListener(e -> {
+            int i = lijst.getSelectedIndex();
+            samenvatting.setText(i < 0 ? "" : bestand.lees(aantal - 1 - i).toString());
+        });
+        lijst.setSelectedIndex(0);
+
+        JPanel paneel = new JPanel(new BorderLayout(0, 5));
+        JScrollPane rol = new JScrollPane(lijst);
+        rol.setPreferredSize(new Dimension(420, 260));
+        paneel.add(rol, BorderLayout.CENTER);
+        paneel.add(samenvatting, BorderLayout.SOUTH);
+        int keuze = JOptionPane.showConfirmDialog(ouder, paneel, "Dossier openen", JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE);
+        int i = lijst.getSelectedIndex();
+        return (keuze == JOptionPane.OK_OPTION && i >= 0) ? bestand.lees(aantal - 1 - i) : null;
+    }
+}
@@ -0,0 +1,312 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Meet hoe lang de Event Dispatch Thread (EDT) over elk event doet, om te zien wanneer en waarom de GUI
+ * niet reageert, bijvoorbeeld door het lezen van een bestand op een trage netwerkschijf op de EDT.
+ *
+ * De monitor zet een eigen EventQueue op de EDT die om elk event 2 tijdstippen meet. De duur komt in een
+ * histogram met klassen van 1, 2, 4 ... 1024 ms en langer, per VENSTER ms, waarvan de laatste VENSTERS
+ * bewaard blijven (samen 10 minuten). Een aparte thread kijkt elke drempel / 2 ms of het event van nu al
+ * langer dan de drempel loopt en legt dan de stack van de EDT vast, terwijl die nog in het trage werk zit.
+ * Na afloop komt het event met duur en stack bij de laatste MAXIMUM_TRAAG trage taken en in het log.
+ *
+ * Een modaal venster (zoals JOptionPane) verwerkt de events binnen het event dat het opende. Die events
+ * worden gewoon gemeten, maar het event dat het venster opende niet: dat duurt tot het venster dicht is
+ * en zegt niets over de reactiesnelheid.
+ */
+public class EdtMonitor {
+
+    public static final int VENSTER = 10_000; // in ms
+    public static final int VENSTERS = 60;
+    public static final int MAXIMUM_TRAAG = 50;
+    private static final long[] GRENZEN = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024}; // in ms, bovengrens per klasse
+    private static final Logger LOG = Logger.getLogger(EdtMonitor.class.getName());
+
+    /**
+     * Een event waarover de EDT langer dan de drempel deed.
+     */
+    public static final class TrageTaak {
+        private final long tijdstip; // ms sinds 1970, begin van het event
+        private final long duur; // in ms
+        private final String event;
+        private final StackTraceElement[] stack; // leeg als de stack niet op tijd is vastgelegd
+
+        private TrageTaak(long tijdstip, long duur, String event, StackTraceElement[] stack) {
+            this.tijdstip = tijdstip;
+            this.duur = duur;
+            this.event = event;
+            this.stack = stack;
+        }
+
+        public long getTijdstip() {
+            return tijdstip;
+        }
+
+        public long getDuur() {
+            return duur;
+        }
+
+        public String getEvent() {
+            return event;
+        }
+
+        public StackTraceElement[] getStack() {
+            return stack.clone();
+        }
+    }
+
+    private final long drempel; // in ns
+    private final long[][] vensters = new long[VENSTERS][GRENZEN.length + 1];
+    private final long[] vensterNummers = new long[VENSTERS]; // welk venster in vensters[i] staat
+    private final ArrayDeque<TrageTaak> trageTaken = new ArrayDeque<>();
+
+    // alleen op de EDT, behalve waar volatile
+    private volatile Thread edt = null;
+    private int diepte = 0; // > 1 binnen een modaal venster
+    private boolean onderbroken = false; // het buitenste event heeft een modaal venster geopend
+    private volatile long begin = 0; // System.nanoTime() bij het begin van het event van nu, 0 als de EDT wacht
+    private volatile long volgnummer = 0; // van het event van nu
+    private volatile long stackVolgnummer = -1; // van het event waarvan stack de stack is
+    private volatile StackTraceElement[] stack = null;
+
+    private EdtMonitor(long drempelMs) {
+        this.drempel = drempelMs * 1_000_000;
+    }
+
+    /**
+     * Zet de monitor op de EDT en start de thread die trage events vastlegt. Mag op elke thread.
+     * @param drempelMs events die langer duren zijn traag.
+     */
+    public static EdtMonitor installeer(long drempelMs) {
+        EdtMonitor monitor = new EdtMonitor(Math.max(1, drempelMs));
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(monitor.new MeetQueue());
+        Thread waker = new Thread(monitor::waak, "EdtMonitor");
+        waker.setDaemon(true);
+        waker.start();
+        return monitor;
+    }
+
+    private class MeetQueue extends EventQueue {
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            if (diepte > 0) {
+                onderbroken = true; // een modaal venster: het buitenste event niet meten
+            }
+            diepte++;
+            long start = System.nanoTime();
+            long nummer = ++volgnummer;
+            edt = Thread.currentThread();
+            begin = start;
+            try {
+                super.dispatchEvent(event);
+            }
+            finally {
+                long duur = System.nanoTime() - start;
+                begin = 0;
+                diepte--;
+                if (diepte == 0 && onderbroken) {
+                    onderbroken = false;
+                }
+                else {
+                    registreer(event, duur, nummer);
+                }
+            }
+        }
+    }
+
+    private void registreer(AWTEvent event, long duur, long nummer) {
+        long ms = duur / 1_000_000;
+        int klasse = 0;
+        while (klasse < GRENZEN.length && ms >= GRENZEN[klasse]) {
+            klasse++;
+        }
+        long nu = System.currentTimeMillis();
+        synchronized (this) {
+            long vensterNummer = nu / VENSTER;
+            int i = (int) (vensterNummer % VENSTERS);
+            if (vensterNummers[i] != vensterNummer) { // oud venster hergebruiken
+                Arrays.fill(vensters[i], 0);
+                vensterNummers[i] = vensterNummer;
+            }
+            vensters[i][klasse]++;
+        }
+        if (duur < drempel) {
+            return;
+        }
+        StackTraceElement[] vastgelegd = (stackVolgnummer == nummer) ? stack : null;
+        TrageTaak taak = new TrageTaak(nu - ms, ms, beschrijf(event),
+                vastgelegd == null ? new StackTraceElement[0] : vastgelegd);
+        synchronized (this) {
+            if (trageTaken.size() == MAXIMUM_TRAAG) {
+                trageTaken.removeFirst();
+            }
+            trageTaken.addLast(taak);
+        }
+        LOG.warning("EDT " + ms + " ms bezig met " + taak.getEvent()
+                + (taak.stack.length == 0 ? "" : " in " + eigenFrame(taak.stack)));
+    }
+
+    /**
+     * Legt de stack van de EDT vast zodra een event langer dan de drempel loopt, 1 keer per event.
+     */
+    private void waak() {
+        long slaap = Math.max(1, drempel / 2_000_000);
+        while (true) {
+            try {
+                Thread.sleep(slaap);
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+            long start = begin;
+            long nummer = volgnummer;
+            Thread thread = edt;
+            if (start != 0 && thread != null && nummer != stackVolgnummer && System.nanoTime() - start > drempel) {
+                StackTraceElement[] vastgelegd = thread.getStackTrace();
+                if (begin == start) { // nog steeds hetzelfde event
+                    stack = vastgelegd;
+                    stackVolgnummer = nummer;
+                }
+            }
+        }
+    }
+
+    private static String beschrijf(AWTEvent event) {
+        String naam = event.getClass().getSimpleName();
+        Object bron = event.getSource();
+        return naam + " id " + event.getID() + (bron == null ? "" : " van " + bron.getClass().getSimpleName());
+    }
+
+    /**
+     * @return het bovenste frame dat niet van Java zelf is, want daar zit het werk dat te lang duurt.
+     */
+    private static StackTraceElement eigenFrame(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            String klasse = frame.getClassName();
+            if (!klasse.startsWith("java.") && !klasse.startsWith("javax.") && !klasse.startsWith("sun.")
+                    && !klasse.startsWith("jdk.")) {
+                return frame;
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * @return het aantal events per klasse over de laatste VENSTERS vensters; klasse i loopt tot
+     * getGrens(i) ms, de laatste klasse is alles vanaf 1024 ms.
+     */
+    public synchronized long[] getHistogram() {
+        long[] totaal = new long[GRENZEN.length + 1];
+        long oudste = System.currentTimeMillis() / VENSTER - VENSTERS + 1;
+        for (int i = 0; i < VENSTERS; i++) {
+            if (vensterNummers[i] >= oudste) {
+                for (int klasse = 0; klasse < totaal.length; klasse++) {
+                    totaal[klasse] += vensters[i][klasse];
+                }
+            }
+        }
+        return totaal;
+    }
+
+    /**
+     * @return de bovengrens van klasse i in ms, of Long.MAX_VALUE voor de laatste klasse.
+     */
+    public static long getGrens(int klasse) {
+        return klasse < GRENZEN.length ? GRENZEN[klasse] : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return de laatste trage taken, de oudste eerst.
+     */
+    public synchronized List<TrageTaak> getTrageTaken() {
+        return new ArrayList<>(trageTaken);
+    }
+
+    public long getDrempel() {
+        return drempel / 1_000_000;
+    }
+
+    /**
+     * @return het histogram met percentielen en de trage taken met hun stack, als tekst.
+     */
+    public String getRapport() {
+        StringBuilder rapport = new StringBuilder();
+        try {
+            schrijfRapport(rapport);
+        }
+        catch (IOException e) { // kan niet bij een StringBuilder
+            throw new UncheckedIOException(e);
+        }
+        return rapport.toString();
+    }
+
+    /**
+     * Schrijft het rapport van getRapport() naar een bestand.
+     */
+    public void exporteer(Path bestand) throws IOException {
+        try (Writer uit = Files.newBufferedWriter(bestand, StandardCharsets.UTF_8)) {
+            schrijfRapport(uit);
+        }
+    }
+
+    private void schrijfRapport(Appendable uit) throws IOException {
+        long[] histogram = getHistogram();
+        long aantal = 0;
+        for (long n : histogram) {
+            aantal += n;
+        }
+        uit.append("Duur van events op de EDT, laatste ").append(String.valueOf(VENSTERS * VENSTER / 60_000))
+                .append(" minuten: ").append(String.valueOf(aantal)).append(" events\n");
+        uit.append("tot ms;aantal\n");
+        for (int klasse = 0; klasse < histogram.length; klasse++) {
+            uit.append(klasse < GRENZEN.length ? String.valueOf(GRENZEN[klasse]) : "langer").append(';')
+                    .append(String.valueOf(histogram[klasse])).append('\n');
+        }
+        for (double p : new double[] {0.5, 0.95, 0.99}) {
+            uit.append("P").append(String.valueOf((int) Math.round(p * 100))).append(": ")
+                    .append(percentiel(histogram, aantal, p)).append('\n');
+        }
+
+        List<TrageTaak> taken = getTrageTaken();
+        uit.append("\nTrage taken (langer dan ").append(String.valueOf(getDrempel())).append(" ms): ")
+                .append(String.valueOf(taken.size())).append('\n');
+        SimpleDateFormat tijd = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss.SSS");
+        for (TrageTaak taak : taken) {
+            uit.append(tijd.format(new Date(taak.tijdstip))).append("  ").append(String.valueOf(taak.duur))
+                    .append(" ms  ").append(taak.event).append('\n');
+            for (StackTraceElement frame : taak.stack) {
+                uit.append("    at ").append(frame.toString()).append('\n');
+            }
+        }
+    }
+
+    private static String percentiel(long[] histogram, long aantal, double p) {
+        if (aantal == 0) {
+            return "-";
+        }
+        long nodig = (long) Math.ceil(p * aantal);
+        long geteld = 0;
+        for (int klasse = 0; klasse < histogram.length; klasse++) {
+            geteld += histogram[klasse];
+            if (geteld >= nodig) {
+                return klasse < GRENZEN.length ? "< " + GRENZEN[klasse] + " ms" : ">= 1024 ms";
+            }
+        }
+        return "-";
+    }
+}
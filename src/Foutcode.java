@@ -0,0 +1,38 @@
+/**
+ * Reden waarom een regel of verzoek niet berekend kon worden. De naam van de code komt in het
+ * quarantainebestand van de batch en in de tellingen van het verslag en /status; de omschrijving is
+ * voor mensen.
+ */
+public enum Foutcode {
+    REGEL_ONVOLLEDIG("regel mist id, regeling of rekenmaand"),
+    ONGELDIGE_REKENMAAND("rekenmaand is geen maand in het format mnd-jr"),
+    ONBEKENDE_REGELING("regeling is niet WAO of WAJONG"),
+    ONGELDIG_BEDRAG("inkomsten of overige inkomsten zijn geen bedrag"),
+    ONGELDIG_DAGLOON("rekendagloon ontbreekt, is 0 of te hoog"),
+    ONGELDIGE_KLASSE("WAO-klasse is geen getal van 1 tot en met 7"),
+    GEEN_MAATMANLOON("inkomsten zonder maatmanloon"),
+    ONGELDIG_GARANTIEBEDRAG("garantiebedrag is geen positief bedrag"),
+    ONGELDIGE_LOONWAARDE("loonwaarde is geen percentage, of er is geen arbeidsvermogen"),
+    ONGELDIG_ARBEIDSVERMOGEN("arbeidsvermogen is niet ja, nee, true of false"),
+    GEEN_CBS_INDEX("geen CBS-index voor de rekenmaand"),
+    GEEN_GRONDSLAG("geen Wajong-grondslag voor de rekenmaand"),
+    REKENFOUT("onverwachte fout in de berekening");
+
+    private final String omschrijving;
+
+    Foutcode(String omschrijving) {
+        this.omschrijving = omschrijving;
+    }
+
+    public String getOmschrijving() {
+        return omschrijving;
+    }
+
+    /**
+     * @param fout een exception uit het lezen of berekenen van een regel.
+     * @return de code van een Rekenfout, en REKENFOUT voor elke andere exception.
+     */
+    public static Foutcode van(RuntimeException fout) {
+        return (fout instanceof Rekenfout) ? ((Rekenfout) fout).getFoutcode() : REKENFOUT;
+    }
+}
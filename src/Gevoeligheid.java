@@ -0,0 +1,156 @@
+/**
+ * Legt vast hoe een berekende daguitkering afhangt van de beleidsparameters, zie BeleidsScenario.
+ * Naast de tak van de berekening die van toepassing was (bijv. het garantiebedrag of de 2e methode
+ * bij loondispensatie) bevat het object het "vrije" bedrag: de uitkomst van de basisberekening of
+ * methode 1 bij loondispensatie, voordat er met garantiebedrag, methode 2 of nul wordt vergeleken.
+ * Dat vrije bedrag is percentage * (grondslag - inkomsten), en hangt dus lineair af van de grondslag
+ * en van het percentage dat voor de cliënt geldt. De afgeleiden staan erbij, plus de kruisterm voor
+ * als grondslag en percentage allebei veranderen.
+ *
+ * Voor de WAO hangt het bedrag niet af van grondslag of percentages. Wel kan een andere CBS-index
+ * het actuele maatmanloon, en daarmee de klasse waarnaar betaald wordt, veranderen. Daarvoor wordt
+ * het bereik van de indexfactor vastgelegd waarbinnen de klasse gelijk blijft.
+ *
+ * Alle waarden zijn doubles zonder afronding: het is een model van de berekening om snel de
+ * gevolgen van een scenario te schatten, de echte berekening blijft in de Uitkering-klassen.
+ */
+public class Gevoeligheid {
+
+    public enum Tak {
+        BASIS, // percentage * (grondslag - inkomsten)
+        LOONDISPENSATIE_1, // compensatiefactor-berekening
+        LOONDISPENSATIE_2, // aanvulling tot normloon
+        GARANTIEBEDRAG,
+        NUL, // berekend bedrag was negatief
+        WAO
+    }
+
+    private final Tak tak;
+    private final boolean geenArbeidsvermogen;
+    private final double vrij;
+    private final double perGrondslag;
+    private final double perPercentage;
+    private final double perGrondslagEnPercentage;
+    private final double loondispensatie2;
+    private final double garantiebedrag;
+    private final double indexMinimum;
+    private final double indexMaximum;
+
+    /**
+     * Gevoeligheid van een Wajong-uitkering.
+     * @param geenArbeidsvermogen true als het percentage bij geen arbeidsvermogen geldt.
+     * @param vrij bedrag per dag volgens de basisberekening of methode 1 bij loondispensatie.
+     * @param perGrondslag verandering van het vrije bedrag per eenheid relatieve wijziging van de grondslag.
+     * @param perPercentage verandering per eenheid wijziging van het percentage dat voor de cliënt geldt.
+     * @param perGrondslagEnPercentage kruisterm, per eenheid wijziging van grondslag en percentage samen.
+     * @param loondispensatie2 bedrag per dag volgens methode 2 bij loondispensatie, NaN als die niet van toepassing is.
+     * @param garantiebedrag garantiebedrag per dag, NaN als er geen garantiebedrag is.
+     */
+    public Gevoeligheid(boolean geenArbeidsvermogen, double vrij, double perGrondslag, double perPercentage,
+                        double perGrondslagEnPercentage, double loondispensatie2, double garantiebedrag) {
+        this.tak = bepaalTak(vrij, loondispensatie2, garantiebedrag);
+        this.geenArbeidsvermogen = geenArbeidsvermogen;
+        this.vrij = vrij;
+        this.perGrondslag = perGrondslag;
+        this.perPercentage = perPercentage;
+        this.perGrondslagEnPercentage = perGrondslagEnPercentage;
+        this.loondispensatie2 = loondispensatie2;
+        this.garantiebedrag = garantiebedrag;
+        this.indexMinimum = Double.NEGATIVE_INFINITY;
+        this.indexMaximum = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Gevoeligheid van een WAO-uitkering.
+     * @param daguitkering de berekende daguitkering.
+     * @param indexMinimum laagste indexfactor waarbij de betaalklasse gelijk blijft.
+     * @param indexMaximum indexfactor vanaf waar de betaalklasse verandert.
+     */
+    public Gevoeligheid(double daguitkering, double indexMinimum, double indexMaximum) {
+        this.tak = Tak.WAO;
+        this.geenArbeidsvermogen = false;
+        this.vrij = daguitkering;
+        this.perGrondslag = 0;
+        this.perPercentage = 0;
+        this.perGrondslagEnPercentage = 0;
+        this.loondispensatie2 = Double.NaN;
+        this.garantiebedrag = Double.NaN;
+        this.indexMinimum = indexMinimum;
+        this.indexMaximum = indexMaximum;
+    }
+
+    /**
+     * Bepaalt welke tak van de Wajong-berekening van toepassing is, met dezelfde vergelijkingen als
+     * WajongUitkering: eerst het hoogste van methode 1 en 2 bij loondispensatie, dan het garantiebedrag
+     * als dat hoger is, en tot slot nul als het bedrag negatief is.
+     * @param vrij bedrag volgens de basisberekening of methode 1.
+     * @param loondispensatie2 bedrag volgens methode 2, NaN als er geen loondispensatie is.
+     * @param garantiebedrag het garantiebedrag, NaN als er geen is.
+     * @return de tak die de uitkomst bepaalt.
+     */
+    public static Tak bepaalTak(double vrij, double loondispensatie2, double garantiebedrag) {
+        Tak tak = Tak.BASIS;
+        double bedrag = vrij;
+        if (!Double.isNaN(loondispensatie2)) {
+            tak = (vrij > loondispensatie2) ? Tak.LOONDISPENSATIE_1 : Tak.LOONDISPENSATIE_2;
+            bedrag = Math.max(vrij, loondispensatie2);
+        }
+        if (!Double.isNaN(garantiebedrag) && garantiebedrag > bedrag) {
+            return Tak.GARANTIEBEDRAG;
+        }
+        if (bedrag < 0) {
+            return Tak.NUL;
+        }
+        return tak;
+    }
+
+    public Tak getTak() {
+        return tak;
+    }
+
+    public boolean getGeenArbeidsvermogen() {
+        return geenArbeidsvermogen;
+    }
+
+    public double getVrij() {
+        return vrij;
+    }
+
+    /**
+     * Het vrije bedrag bij gewijzigde parameters.
+     * @param grondslag relatieve wijziging van de grondslag, bijv. 0.02 voor 2% hoger.
+     * @param percentage wijziging van het percentage dat voor de cliënt geldt, bijv. 0.02 voor 0.7 naar 0.72.
+     * @return het vrije bedrag per dag.
+     */
+    public double getVrij(double grondslag, double percentage) {
+        return vrij + perGrondslag * grondslag + perPercentage * percentage + perGrondslagEnPercentage * grondslag * percentage;
+    }
+
+    public double getPerGrondslag() {
+        return perGrondslag;
+    }
+
+    public double getPerPercentage() {
+        return perPercentage;
+    }
+
+    public double getPerGrondslagEnPercentage() {
+        return perGrondslagEnPercentage;
+    }
+
+    public double getLoondispensatie2() {
+        return loondispensatie2;
+    }
+
+    public double getGarantiebedrag() {
+        return garantiebedrag;
+    }
+
+    public double getIndexMinimum() {
+        return indexMinimum;
+    }
+
+    public double getIndexMaximum() {
+        return indexMaximum;
+    }
+}
@@ -10,9 +10,9 @@ import java.math.BigDecimal;
  */
 public class Grondslag {
 
-    private String startmaand;
-    private String eindmaand;
-    private BigDecimal grondslag;
+    private final String startmaand;
+    private final String eindmaand;
+    private final BigDecimal grondslag;
 
     public Grondslag(String startmaand, BigDecimal grondslag) {
         this.startmaand = startmaand;
@@ -0,0 +1,112 @@
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+/**
+ * Voert berekeningen voor de GUI uit met een SwingWorker, zodat de Event Dispatch Thread (EDT) vrij
+ * blijft en de GUI niet bevriest, ook niet bij het inlezen van de tabellen of een Monte
+ * Carlo-berekening. De uitkomst wordt daarna weer op de EDT getoond.
+ *
+ * Per GuiRekenaar telt alleen de laatst gestarte berekening. Een nieuwe berekening annuleert de
+ * vorige, en de uitkomst van een geannuleerde of ingehaalde berekening wordt nooit getoond, ook niet
+ * als die toevallig later klaar is. Met plan() wordt een actie pas uitgevoerd als er WACHTTIJD ms
+ * geen nieuwe plan() is geweest, om mee te rekenen terwijl de gebruiker typt zonder bij elke
+ * toetsaanslag een berekening te starten.
+ *
+ * Alle methoden moeten op de EDT worden aangeroepen. De berekening zelf mag geen Swing-componenten
+ * lezen: lees de velden vooraf uit en geef de waarden mee.
+ */
+public class GuiRekenaar {
+
+    public static final int WACHTTIJD = 250; // in ms
+
+    private final Timer timer;
+    private Runnable gepland = null;
+    private SwingWorker<?, ?> lopend = null;
+    private long generatie = 0; // hoort bij de laatst gestarte berekening
+
+    public GuiRekenaar() {
+        timer = new Timer(WACHTTIJD, e -> {
+            Runnable actie = gepland;
+            gepland = null;
+            if (actie != null) {
+                actie.run();
+            }
+        });
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Start een berekening op de achtergrond. Een lopende of geplande berekening vervalt.
+     * @param berekening de berekening, draait niet op de EDT.
+     * @param toon krijgt op de EDT de uitkomst, als er intussen geen nieuwere berekening is gestart.
+     * @param fout krijgt op de EDT de exception als de berekening mislukt.
+     */
+    public <T> void voerUit(Callable<T> berekening, Consumer<T> toon, Consumer<Exception> fout) {
+        annuleer();
+        final long mijnGeneratie = generatie;
+        SwingWorker<T, Void> worker = new SwingWorker<>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return berekening.call();
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || mijnGeneratie != generatie) {
+                    return; // ingehaald door nieuwere invoer
+                }
+                lopend = null;
+                try {
+                    toon.accept(get());
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                catch (ExecutionException e) {
+                    Throwable oorzaak = e.getCause();
+                    fout.accept(oorzaak instanceof Exception ? (Exception) oorzaak : e);
+                }
+            }
+        };
+        lopend = worker;
+        worker.execute();
+    }
+
+    /**
+     * Voert een actie uit op de EDT zodra er WACHTTIJD ms geen nieuwe plan() is geweest. Een lopende
+     * berekening is dan al verouderd en wordt direct geannuleerd.
+     * @param actie de actie, die zelf de velden uitleest en voerUit() aanroept.
+     */
+    public void plan(Runnable actie) {
+        annuleerLopend();
+        gepland = actie;
+        timer.restart();
+    }
+
+    /**
+     * Annuleert de geplande en de lopende berekening. Er wordt daarna niets meer getoond.
+     */
+    public void annuleer() {
+        timer.stop();
+        gepland = null;
+        annuleerLopend();
+    }
+
+    private void annuleerLopend() {
+        generatie++;
+        if (lopend != null) {
+            lopend.cancel(true);
+            lopend = null;
+        }
+    }
+
+    /**
+     * @return true als er een berekening loopt waarvan de uitkomst nog getoond wordt.
+     */
+    public boolean isBezig() {
+        return lopend != null;
+    }
+}
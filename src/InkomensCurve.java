@@ -0,0 +1,283 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * De maanduitkering als functie van de inkomsten per maand, voor 1 profiel en 1 rekenmaand, om als
+ * grafiek te tonen (zie UitkeringsGrafiek).
+ *
+ * De curve wordt niet bemonsterd, maar afgeleid uit de knikpunten van de berekening. Tussen 2
+ * knikpunten volgt de berekening steeds dezelfde tak, en die is lineair in de inkomsten: bij de WAO
+ * een vast bedrag per klasse, bij de Wajong percentage * (grondslag - inkomsten), methode 1 of 2 bij
+ * loondispensatie, het garantiebedrag of nul. De knikpunten worden uitgerekend, en alleen daar wordt
+ * de echte berekening van het profiel gedaan; daartussen is lineair interpoleren exact, op de
+ * afronding op centen na. Een sprong (WAO-klassen) staat als 2 punten met hetzelfde inkomen in de curve.
+ *
+ * Markeringen zijn de punten die in de grafiek worden uitgelicht: de grenzen van de WAO-klassen, en bij
+ * de Wajong het garantiebedrag en het snijpunt van methode 1 en 2 bij loondispensatie. Een InkomensCurve
+ * verandert na het maken niet meer.
+ */
+public final class InkomensCurve {
+
+    private static final double WAO_MARGE = 1.1; // grafiek loopt tot iets boven het maatmanloon
+    private static final double WAJONG_MARGE = 1.25; // en tot iets voorbij het laatste knikpunt
+
+    private final Object profiel;
+    private final String rekenmaand;
+    private final double[] inkomsten; // per maand, oplopend
+    private final double[] uitkeringen; // maanduitkering bij inkomsten[i]
+    private final double overigeInkomsten; // per maand, tellen mee in het totaal
+    private final double[] markeringen;
+    private final String[] markeringNamen;
+
+    private InkomensCurve(Object profiel, String rekenmaand, double[] inkomsten, double[] uitkeringen,
+                          double overigeInkomsten, double[] markeringen, String[] markeringNamen) {
+        this.profiel = profiel;
+        this.rekenmaand = rekenmaand;
+        this.inkomsten = inkomsten;
+        this.uitkeringen = uitkeringen;
+        this.overigeInkomsten = overigeInkomsten;
+        this.markeringen = markeringen;
+        this.markeringNamen = markeringNamen;
+    }
+
+    /**
+     * Curve van een WAO-uitkering: trappen bij de grenzen van de klassen, tot aan de eigen klasse.
+     * @param profiel het profiel, met maatmanloon.
+     * @param rekenmaand maand in het format mnd-jr (bijv. jan-24).
+     * @return de curve.
+     * @throws Rekenfout zonder maatmanloon of zonder CBS-index voor de rekenmaand.
+     */
+    public static InkomensCurve wao(WaoProfiel profiel, String rekenmaand) {
+        if (profiel.getMaatmanloon() == null) {
+            throw new Rekenfout(Foutcode.GEEN_MAATMANLOON, "Zonder maatmanloon hangt de uitkering niet af van de inkomsten.");
+        }
+        BigDecimal actueel = profiel.getActueelMaatmanloon(rekenmaand);
+        BigDecimal dagloon = profiel.getRekendagloonExclVT();
+        double maatmanloon = actueel.doubleValue();
+
+        // aoPercentage wordt op hele procenten afgerond (HALF_UP), een grens G geldt dus tot
+        // inkomsten van maatmanloon * (1 - (G - 0.5) / 100). Van hoog naar laag inkomen:
+        List<Double> grenzen = new ArrayList<>();
+        List<String> namen = new ArrayList<>();
+        for (WaoKlasse k : WaoKlasse.values()) {
+            grenzen.add(maatmanloon * (1 - (k.getOndergrens().doubleValue() - 0.5) / 100));
+            namen.add("AO " + k.getOndergrens().intValue() + "%");
+            if (k == profiel.getKlasse()) {
+                break; // hogere klassen betalen niet meer dan de eigen klasse
+            }
+        }
+        grenzen.add(maatmanloon * 0.005); // vanaf aoPercentage 100 valt het inkomen buiten elke klasse
+        namen.add(null);
+
+        double[] knikken = new double[grenzen.size() + 2];
+        knikken[0] = 0;
+        for (int i = 0; i < grenzen.size(); i++) {
+            knikken[grenzen.size() - i] = grenzen.get(i);
+        }
+        knikken[knikken.length - 1] = maatmanloon * WAO_MARGE;
+
+        // per trap 1 keer rekenen, in het midden van de trap
+        double[] inkomsten = new double[2 * (knikken.length - 1)];
+        double[] uitkeringen = new double[inkomsten.length];
+        for (int i = 0; i + 1 < knikken.length; i++) {
+            double midden = (knikken[i] + knikken[i + 1]) / 2;
+            double bedrag = maandbedrag(profiel.berekenDaguitkering(actueel, dagloon, tekst(midden)));
+            inkomsten[2 * i] = knikken[i];
+            inkomsten[2 * i + 1] = knikken[i + 1];
+            uitkeringen[2 * i] = bedrag;
+            uitkeringen[2 * i + 1] = bedrag;
+        }
+        int aantal = namen.size() - 1;
+        double[] markeringen = new double[aantal];
+        String[] markeringNamen = new String[aantal];
+        for (int i = 0; i < aantal; i++) {
+            markeringen[i] = grenzen.get(i);
+            markeringNamen[i] = namen.get(i);
+        }
+        return new InkomensCurve(profiel, rekenmaand, inkomsten, uitkeringen, 0, markeringen, markeringNamen);
+    }
+
+    /**
+     * Curve van een Wajong-uitkering, met de overige inkomsten uit het profiel.
+     * @param profiel het profiel.
+     * @param rekenmaand maand in het format mnd-jr (bijv. jan-24).
+     * @return de curve.
+     * @throws Rekenfout als er geen grondslag is voor de rekenmaand.
+     */
+    public static InkomensCurve wajong(WajongProfiel profiel, String rekenmaand) {
+        BigDecimal rekenGrondslag = profiel.getGrondslag(rekenmaand);
+        if (rekenGrondslag == null) {
+            throw new Rekenfout(Foutcode.GEEN_GRONDSLAG, "Geen grondslag voor " + rekenmaand + ", berekening is alleen " +
+                    "mogelijk over de periode " + profiel.getGrondslagRange() + ".");
+        }
+        double dagen = Uitkering.UK_DAGEN_IN_MND.doubleValue();
+        double grondslag = rekenGrondslag.doubleValue();
+        double overig = profiel.getOverigeInkomstenPerDag().doubleValue();
+        double garantie = (profiel.getGarantiebedrag() == null) ? Double.NaN : profiel.getGarantiebedrag().doubleValue();
+        double percentage = (profiel.getArbeidsvermogen() ? profiel.getPercentageArbeidsvermogen()
+                : profiel.getPercentageGeenArbeidsvermogen()).doubleValue();
+
+        // knikpunten in inkomsten per dag, zie WajongProfiel.berekenDaguitkering()
+        List<Double> knikken = new ArrayList<>();
+        List<String> namen = new ArrayList<>();
+        if (profiel.getLoonwaarde() == null || !profiel.getArbeidsvermogen()) {
+            voegToe(knikken, namen, grondslag - overig - garantie / percentage, "Garantiebedrag");
+            voegToe(knikken, namen, grondslag - overig, null); // uitkering wordt 0
+        }
+        else {
+            double loonwaarde = profiel.getLoonwaarde().doubleValue() / 100;
+            double compensatiefactor = (loonwaarde - 0.3) / (0.7 * loonwaarde);
+            double aanvulling = 1 / loonwaarde - 1; // methode 2 is aanvulling * inkomsten
+            voegToe(knikken, namen, percentage * (grondslag - overig) / (percentage * compensatiefactor + aanvulling),
+                    "LD1 = LD2");
+            voegToe(knikken, namen, (grondslag - overig - garantie / percentage) / compensatiefactor, "Garantiebedrag LD1");
+            voegToe(knikken, namen, garantie / aanvulling, "Garantiebedrag LD2");
+            voegToe(knikken, namen, (grondslag - overig) / compensatiefactor, null); // methode 1 wordt 0
+        }
+        double laatste = grondslag;
+        for (double knik : knikken) {
+            laatste = Math.max(laatste, knik);
+        }
+        double maximum = laatste * WAJONG_MARGE * dagen;
+
+        // alle punten per maand, gesorteerd, en op elk punt de echte berekening
+        double[] inkomsten = new double[knikken.size() + 2];
+        inkomsten[0] = 0;
+        for (int i = 0; i < knikken.size(); i++) {
+            inkomsten[i + 1] = knikken.get(i) * dagen;
+        }
+        inkomsten[inkomsten.length - 1] = maximum;
+        Arrays.sort(inkomsten);
+        double[] uitkeringen = new double[inkomsten.length];
+        for (int i = 0; i < inkomsten.length; i++) {
+            uitkeringen[i] = maandbedrag(profiel.berekenDaguitkering(rekenGrondslag, tekst(inkomsten[i])));
+        }
+
+        // alleen knikpunten die in de curve echt een knik zijn; een snijpunt onder het garantiebedrag niet
+        List<Double> gekozen = new ArrayList<>();
+        List<String> gekozenNamen = new ArrayList<>();
+        for (int i = 0; i < namen.size(); i++) {
+            int punt = Arrays.binarySearch(inkomsten, knikken.get(i) * dagen);
+            if (namen.get(i) != null && punt > 0 && punt + 1 < inkomsten.length
+                    && Math.abs(helling(inkomsten, uitkeringen, punt - 1) - helling(inkomsten, uitkeringen, punt)) > 0.01) {
+                gekozen.add(inkomsten[punt]);
+                gekozenNamen.add(namen.get(i));
+            }
+        }
+        double[] markeringen = new double[gekozen.size()];
+        for (int i = 0; i < markeringen.length; i++) {
+            markeringen[i] = gekozen.get(i);
+        }
+        return new InkomensCurve(profiel, rekenmaand, inkomsten, uitkeringen, overig * dagen, markeringen,
+                gekozenNamen.toArray(new String[0]));
+    }
+
+    /**
+     * Voegt een knikpunt toe als het bestaat en binnen het bereik van positieve inkomsten valt. Een
+     * garantiebedrag of loonwaarde die er niet is geeft NaN, een tak die nooit wordt gehaald een
+     * negatief of oneindig punt.
+     */
+    private static void voegToe(List<Double> knikken, List<String> namen, double inkomenPerDag, String naam) {
+        if (inkomenPerDag > 0 && !Double.isInfinite(inkomenPerDag)) { // ook false bij NaN
+            knikken.add(inkomenPerDag);
+            namen.add(naam);
+        }
+    }
+
+    /**
+     * @return de helling van de curve tussen punt en punt + 1, 0 als ze op hetzelfde inkomen liggen.
+     */
+    private static double helling(double[] inkomsten, double[] uitkeringen, int punt) {
+        double breedte = inkomsten[punt + 1] - inkomsten[punt];
+        return (breedte <= 0) ? 0 : (uitkeringen[punt + 1] - uitkeringen[punt]) / breedte;
+    }
+
+    private static String tekst(double inkomen) {
+        return BigDecimal.valueOf(inkomen).setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private static double maandbedrag(BigDecimal daguitkering) {
+        return BigDecimalUtil.multiply(daguitkering, Uitkering.UK_DAGEN_IN_MND).doubleValue();
+    }
+
+    /**
+     * @return het profiel waarvoor de curve is gemaakt, een WaoProfiel of WajongProfiel.
+     */
+    public Object getProfiel() {
+        return profiel;
+    }
+
+    public String getRekenmaand() {
+        return rekenmaand;
+    }
+
+    /**
+     * @return het aantal punten, ten minste 2.
+     */
+    public int getAantal() {
+        return inkomsten.length;
+    }
+
+    public double getInkomen(int punt) {
+        return inkomsten[punt];
+    }
+
+    public double getUitkering(int punt) {
+        return uitkeringen[punt];
+    }
+
+    /**
+     * @return de overige inkomsten per maand, die bij het totaal van uitkering en inkomsten horen.
+     */
+    public double getOverigeInkomsten() {
+        return overigeInkomsten;
+    }
+
+    public double getMaximumInkomen() {
+        return inkomsten[inkomsten.length - 1];
+    }
+
+    /**
+     * @return het hoogste totaal van uitkering, inkomsten en overige inkomsten, voor de schaal van de grafiek.
+     */
+    public double getMaximumTotaal() {
+        double maximum = 0;
+        for (int i = 0; i < inkomsten.length; i++) {
+            maximum = Math.max(maximum, uitkeringen[i] + inkomsten[i] + overigeInkomsten);
+        }
+        return maximum;
+    }
+
+    /**
+     * Leest de uitkering af bij een inkomen, door te interpoleren tussen de punten. Rekent niet opnieuw.
+     * @param inkomen inkomsten per maand.
+     * @return de maanduitkering; bij een sprong de waarde rechts ervan.
+     */
+    public double getUitkering(double inkomen) {
+        if (inkomen <= inkomsten[0]) {
+            return uitkeringen[0];
+        }
+        for (int i = 1; i < inkomsten.length; i++) {
+            if (inkomen < inkomsten[i]) {
+                double deel = (inkomen - inkomsten[i - 1]) / (inkomsten[i] - inkomsten[i - 1]);
+                return uitkeringen[i - 1] + deel * (uitkeringen[i] - uitkeringen[i - 1]);
+            }
+        }
+        return uitkeringen[uitkeringen.length - 1];
+    }
+
+    public int getAantalMarkeringen() {
+        return markeringen.length;
+    }
+
+    public double getMarkering(int markering) {
+        return markeringen[markering];
+    }
+
+    public String getMarkeringNaam(int markering) {
+        return markeringNamen[markering];
+    }
+}
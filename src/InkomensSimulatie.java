@@ -0,0 +1,183 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo-berekening van de uitkering van één cliënt bij onzekere inkomsten. Per maand wordt
+ * een InkomensVerdeling opgegeven. Er worden een groot aantal keer inkomsten getrokken en voor elke
+ * trekking wordt de maanduitkering berekend met de opgegeven Uitkering. Daaruit volgen de verwachte
+ * uitkering en de bandbreedte (percentielen), per maand en over alle maanden samen.
+ *
+ * De trekkingen worden in blokken verdeeld over alle processorkernen. Elk blok krijgt een eigen
+ * SplittableRandom die vooraf, in vaste volgorde, van het startzaad is afgesplitst. De uitkomst is
+ * daardoor bij hetzelfde zaad altijd gelijk, ongeacht het aantal threads.
+ *
+ * De Uitkering wordt door alle threads tegelijk gebruikt. Dat kan omdat de berekening de
+ * eigenschappen van het object alleen leest; pas de Uitkering niet aan tijdens voerUit().
+ */
+public class InkomensSimulatie {
+
+    public static final int STANDAARD_TREKKINGEN = 10_000;
+    private static final int BLOKGROOTTE = 256;
+    private static final double[] PERCENTIELEN = {0.05, 0.25, 0.5, 0.75, 0.95};
+
+    private final Uitkering uitkering;
+    private final ArrayList<String> maanden = new ArrayList<>();
+    private final ArrayList<InkomensVerdeling> verdelingen = new ArrayList<>();
+    private int aantalTrekkingen = STANDAARD_TREKKINGEN;
+    private long zaad = 2024;
+
+    /**
+     * @param uitkering de uitkering waarmee gerekend wordt, met alle basisgegevens ingevuld. Een
+     * WaoUitkering moet een maatmanloon hebben, anders hangt de uitkering niet van de inkomsten af.
+     */
+    public InkomensSimulatie(Uitkering uitkering) {
+        if (uitkering instanceof WaoUitkering && ((WaoUitkering) uitkering).getMaatmanloon() == null) {
+            throw new IllegalArgumentException("Rekenen met inkomsten kan niet zonder maatmanloon.");
+        }
+        this.uitkering = uitkering;
+    }
+
+    /**
+     * @param rekenmaand maand in het format mnd-jr (bijv. jan-24).
+     * @param verdeling de verdeling van de inkomsten in die maand.
+     */
+    public void voegMaandToe(String rekenmaand, InkomensVerdeling verdeling) {
+        maanden.add(rekenmaand);
+        verdelingen.add(verdeling);
+    }
+
+    public void setAantalTrekkingen(int aantalTrekkingen) {
+        this.aantalTrekkingen = Math.max(1, aantalTrekkingen);
+    }
+
+    public void setZaad(long zaad) {
+        this.zaad = zaad;
+    }
+
+    /**
+     * Voert de trekkingen uit.
+     * @return de uitkomst met verwachting en percentielen.
+     * @throws IllegalStateException als er geen maand is opgegeven.
+     */
+    public Uitkomst voerUit() {
+        if (maanden.isEmpty()) {
+            throw new IllegalStateException("Geen maand opgegeven.");
+        }
+        long start = System.nanoTime();
+        int aantalMaanden = maanden.size();
+        long[][] bedragen = new long[aantalMaanden + 1][aantalTrekkingen]; // laatste rij is het totaal
+
+        int aantalBlokken = (aantalTrekkingen + BLOKGROOTTE - 1) / BLOKGROOTTE;
+        SplittableRandom[] randoms = new SplittableRandom[aantalBlokken];
+        SplittableRandom basis = new SplittableRandom(zaad);
+        for (int b = 0; b < aantalBlokken; b++) { // vaste volgorde, dus onafhankelijk van de threads
+            randoms[b] = basis.split();
+        }
+
+        IntStream.range(0, aantalBlokken).parallel().forEach(b -> {
+            SplittableRandom random = randoms[b];
+            int eind = Math.min(aantalTrekkingen, (b + 1) * BLOKGROOTTE);
+            for (int t = b * BLOKGROOTTE; t < eind; t++) {
+                long totaal = 0;
+                for (int m = 0; m < aantalMaanden; m++) {
+                    long centen = bereken(maanden.get(m), verdelingen.get(m).trek(random));
+                    bedragen[m][t] = centen;
+                    totaal += centen;
+                }
+                bedragen[aantalMaanden][t] = totaal;
+            }
+        });
+        return new Uitkomst(maanden, bedragen, System.nanoTime() - start);
+    }
+
+    /**
+     * Berekent de maanduitkering bij getrokken inkomsten. Geen inkomsten is de volledige uitkering,
+     * net als in de GUI en de batchberekening.
+     * @return de maanduitkering in centen.
+     */
+    private long bereken(String rekenmaand, double inkomsten) {
+        BigDecimal verdiensten = BigDecimal.valueOf(inkomsten).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal maanduitkering = (verdiensten.signum() > 0)
+                ? uitkering.getMaanduitkering(verdiensten.toPlainString(), rekenmaand)
+                : uitkering.getMaanduitkering(rekenmaand);
+        return maanduitkering.movePointRight(2).longValue();
+    }
+
+    /**
+     * De verdeling van de berekende uitkeringen, per maand en in totaal.
+     */
+    public static class Uitkomst {
+        private final ArrayList<String> maanden;
+        private final long[][] gesorteerd;
+        private final long nanos;
+
+        private Uitkomst(ArrayList<String> maanden, long[][] bedragen, long nanos) {
+            this.maanden = new ArrayList<>(maanden);
+            this.gesorteerd = bedragen;
+            for (long[] rij : gesorteerd) {
+                Arrays.sort(rij);
+            }
+            this.nanos = nanos;
+        }
+
+        /**
+         * @param maand volgnummer van de maand in de volgorde van voegMaandToe(), of het aantal
+         * maanden voor het totaal over alle maanden.
+         * @return de gemiddelde uitkering in euro.
+         */
+        public BigDecimal getVerwachting(int maand) {
+            long som = 0;
+            for (long centen : gesorteerd[maand]) {
+                som += centen;
+            }
+            return BigDecimal.valueOf(som).divide(BigDecimal.valueOf(gesorteerd[maand].length * 100L), 2, RoundingMode.HALF_UP);
+        }
+
+        /**
+         * @param maand volgnummer van de maand, of het aantal maanden voor het totaal.
+         * @param fractie het percentiel als fractie van 1, bijv. 0.95.
+         * @return de uitkering in euro waar die fractie van de trekkingen op of onder zit.
+         */
+        public BigDecimal getPercentiel(int maand, double fractie) {
+            long[] rij = gesorteerd[maand];
+            int plek = (int) Math.min(rij.length - 1, Math.max(0, Math.ceil(fractie * rij.length) - 1));
+            return BigDecimal.valueOf(rij[plek], 2);
+        }
+
+        public int getAantalTrekkingen() {
+            return gesorteerd[0].length;
+        }
+
+        /**
+         * Stelt een leesbaar rapport samen, zoals de GUI het toont.
+         * @return rapport als String van meerdere regels.
+         */
+        public String getRapport() {
+            StringBuilder rapport = new StringBuilder();
+            for (int m = 0; m < maanden.size(); m++) {
+                rapport.append(regel("Uitkering " + maanden.get(m), m));
+            }
+            if (maanden.size() > 1) {
+                rapport.append(regel("Totaal", maanden.size()));
+            }
+            rapport.append(getAantalTrekkingen()).append(" trekkingen in ")
+                    .append(String.format("%.0f", nanos / 1e6)).append(" ms");
+            return rapport.toString();
+        }
+
+        private String regel(String omschrijving, int maand) {
+            StringBuilder regel = new StringBuilder(omschrijving).append(": verwacht ");
+            OpmaakUtil.bedrag(OpmaakUtil.centen(getVerwachting(maand)), regel).append("\n    ");
+            for (double fractie : PERCENTIELEN) {
+                regel.append(fractie == 0.5 ? "mediaan" : String.format("%.0f%%", fractie * 100)).append(' ');
+                OpmaakUtil.bedrag(OpmaakUtil.centen(getPercentiel(maand, fractie)), regel)
+                        .append(fractie == PERCENTIELEN[PERCENTIELEN.length - 1] ? "\n" : ", ");
+            }
+            return regel.toString();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * Kansverdeling van de inkomsten van een cliënt in een maand, voor cliënten met wisselend werk
+ * die niet één bedrag kunnen opgeven. Zie InkomensSimulatie.
+ */
+public interface InkomensVerdeling {
+
+    /**
+     * Trekt een bedrag uit de verdeling.
+     * @param random de randomgenerator van de thread die trekt.
+     * @return inkomsten per maand in euro, niet negatief.
+     */
+    double trek(SplittableRandom random);
+
+    /**
+     * Verdeling op basis van eerder verdiende bedragen: elk bedrag heeft dezelfde kans.
+     * @param bedragen inkomsten per maand in eerdere maanden, minimaal 1.
+     */
+    static InkomensVerdeling empirisch(double... bedragen) {
+        if (bedragen.length == 0) {
+            throw new IllegalArgumentException("Geen bedragen opgegeven.");
+        }
+        double[] kopie = bedragen.clone();
+        return random -> kopie[random.nextInt(kopie.length)];
+    }
+
+    /**
+     * Normale verdeling rond een gemiddelde. Negatieve trekkingen tellen als 0 (geen inkomsten).
+     * @param gemiddelde gemiddelde inkomsten per maand.
+     * @param spreiding standaardafwijking van de inkomsten per maand.
+     */
+    static InkomensVerdeling normaal(double gemiddelde, double spreiding) {
+        return random -> Math.max(0, gemiddelde + spreiding * random.nextGaussian());
+    }
+
+    /**
+     * Leest een verdeling zoals de gebruiker die opgeeft: bedragen gescheiden door spaties of
+     * puntkomma's voor een empirische verdeling (bijv. "0 850 1200,50"), of een gemiddelde en
+     * spreiding met +- ertussen voor een normale verdeling (bijv. "1200 +- 300").
+     * @param tekst de invoer van de gebruiker.
+     * @return de verdeling, of null als de tekst niet gelezen kan worden.
+     */
+    static InkomensVerdeling lees(String tekst) {
+        if (tekst == null) {
+            return null;
+        }
+        String[] delen = tekst.split("\\+-");
+        if (delen.length == 2) {
+            String gemiddelde = InvoerUtil.bedragCleanup(delen[0].strip());
+            String spreiding = InvoerUtil.bedragCleanup(delen[1].strip());
+            if (gemiddelde == null || spreiding == null) {
+                return null;
+            }
+            return normaal(Double.parseDouble(gemiddelde), Double.parseDouble(spreiding));
+        }
+        ArrayList<Double> bedragen = new ArrayList<>();
+        for (String deel : tekst.split("[\\s;]+")) {
+            if (deel.isEmpty()) {
+                continue;
+            }
+            String bedrag = InvoerUtil.bedragCleanup(deel);
+            if (bedrag == null || bedrag.startsWith("-")) {
+                return null;
+            }
+            bedragen.add(Double.parseDouble(bedrag));
+        }
+        if (bedragen.isEmpty()) {
+            return null;
+        }
+        return empirisch(bedragen.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Klasse met tools voor het controleren en opschonen van gebruikersinput, zonder Swing of AWT.
+ * De rekenklassen, de batch en de command line gebruiken deze klasse, zodat die zonder GUI-klassen
+ * kunnen draaien en snel opstarten. GuiUtil geeft dezelfde methoden door voor de GUI.
+ */
+public class InvoerUtil {
+
+    /**
+     * Methode om een String input te controleren op geschiktheid om omgezet
+     * te worden naar een bedrag. Veel voorkomende variaties zoals gebruik van een
+     * euroteken of extra spaties worden verwijderd. Een komma als scheidingsteken
+     * wordt vervangen door een punt. De controle gaat via BedragLezer, zonder exceptions;
+     * wie alleen de waarde nodig heeft kan BedragLezer beter direct gebruiken.
+     * @param input String die later omgezet moet worden naar een bedrag
+     * @return De inputstring in een geschikt format (xxxx.xx, waarbij x cijfers zijn van 0 tot 9).
+     * Returns null als input null is of ook na bovengenoemde bewerkingen geen bedrag is.
+     */
+    public static String bedragCleanup(String input) {
+        /* test voor een aantal andere mogelijkheden voor foute invoer,
+        zoals alleen spaties, letters, andere munteenheden of
+        een scheidingsteken voor duizendtallen.
+        */
+        if (!BedragLezer.isGeldig(BedragLezer.lees(input))) {
+            return null;
+        }
+
+        String outputString = input.replace('€',' '); // evt euroteken weg
+        outputString = outputString.strip(); // spaties e.d. voor en achter weg
+        return outputString.replace(',','.'); //decimaalteken moet een . zijn
+    }
+
+    /**
+     * Maakt van 2 Strings voor maand en jaar één String van het format mnd-jr (jan-24).
+     * @param maandinput maand volledig uitgeschreven als String
+     * @param jaarinput jaartal uitgeschreven als String
+     * @return String die weergave is van de ingegeven maand in het format mnd-jr (bijv. jan-24).
+     */
+    public static String getRekenmaand(String maandinput, String jaarinput) {
+        String maanddeel = maandinput.substring(0,3);
+        String jaardeel = jaarinput.substring(2,4);
+        if (maanddeel.equals("maa")) {
+            maanddeel = "mrt";
+        }
+        return maanddeel + "-" + jaardeel;
+    }
+
+    /**
+     * Controle of ingevulde waarde een positieve BigDecimal oplevert.
+     * @param getal als String
+     * @return true als waarde groter dan 0 is, anders false.
+     */
+    public static Boolean isPositive(String getal) {
+        return BedragLezer.isPositief(BedragLezer.lees(getal)); // null is LEEG, dus ook false
+    }
+
+    /**
+     * Methode om te controleren of gegeven input (te lezen als getal) een waarde heeft die als
+     * percentage gelezen kan worden, positief getal van maximaal 100.
+     * @param getal als String
+     * @return true als waarde > 0 en maximaal 100.00 is
+     */
+    public static Boolean isPercentage(String getal) {
+        return BedragLezer.isPercentage(BedragLezer.lees(getal)); // dit geeft ook false als input leeg is
+    }
+}
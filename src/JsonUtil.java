@@ -0,0 +1,161 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Minimale JSON-ondersteuning voor de RekenServer. Alleen een plat object met tekst, getallen,
+ * true, false of null als waarden wordt gelezen; meer is voor een berekening niet nodig. Getallen
+ * worden als tekst teruggegeven zoals ze in het verzoek staan, zodat bedragen niet via een double
+ * lopen en dezelfde controles krijgen als in de GUI.
+ */
+public class JsonUtil {
+
+    /**
+     * Leest een plat JSON-object.
+     * @param json de tekst van het object.
+     * @return de waarden op naam, in de volgorde van het object. Null wordt niet opgenomen.
+     * @throws IllegalArgumentException als de tekst geen plat JSON-object is.
+     */
+    public static Map<String, String> leesObject(String json) {
+        Lezer lezer = new Lezer(json);
+        Map<String, String> velden = new LinkedHashMap<>();
+        lezer.verwacht('{');
+        if (!lezer.volgt('}')) {
+            do {
+                String naam = lezer.leesTekst();
+                lezer.verwacht(':');
+                String waarde = lezer.leesWaarde();
+                if (waarde != null) {
+                    velden.put(naam, waarde);
+                }
+            } while (lezer.volgt(','));
+            lezer.verwacht('}');
+        }
+        if (!lezer.isKlaar()) {
+            throw new IllegalArgumentException("Onverwachte tekst na het JSON-object.");
+        }
+        return velden;
+    }
+
+    /**
+     * Voegt een tekst als JSON-string toe, met aanhalingstekens en escapes.
+     * @param json de StringBuilder waar de string aan wordt toegevoegd.
+     * @param tekst de tekst.
+     * @return dezelfde StringBuilder.
+     */
+    public static StringBuilder voegTekstToe(StringBuilder json, String tekst) {
+        json.append('"');
+        for (int i = 0; i < tekst.length(); i++) {
+            char c = tekst.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"');
+    }
+
+    private static class Lezer {
+        private final String json;
+        private int positie = 0;
+
+        private Lezer(String json) {
+            this.json = json;
+        }
+
+        private void slaWitOver() {
+            while (positie < json.length() && Character.isWhitespace(json.charAt(positie))) {
+                positie++;
+            }
+        }
+
+        private boolean volgt(char c) {
+            slaWitOver();
+            if (positie < json.length() && json.charAt(positie) == c) {
+                positie++;
+                return true;
+            }
+            return false;
+        }
+
+        private void verwacht(char c) {
+            if (!volgt(c)) {
+                throw new IllegalArgumentException("Verwacht " + c + " op positie " + positie + ".");
+            }
+        }
+
+        private boolean isKlaar() {
+            slaWitOver();
+            return positie == json.length();
+        }
+
+        private String leesTekst() {
+            verwacht('"');
+            StringBuilder tekst = new StringBuilder();
+            while (positie < json.length()) {
+                char c = json.charAt(positie++);
+                if (c == '"') {
+                    return tekst.toString();
+                }
+                if (c != '\\') {
+                    tekst.append(c);
+                    continue;
+                }
+                if (positie >= json.length()) {
+                    break;
+                }
+                char escape = json.charAt(positie++);
+                switch (escape) {
+                    case 'n': tekst.append('\n'); break;
+                    case 'r': tekst.append('\r'); break;
+                    case 't': tekst.append('\t'); break;
+                    case 'b': tekst.append('\b'); break;
+                    case 'f': tekst.append('\f'); break;
+                    case 'u':
+                        if (positie + 4 > json.length()) {
+                            throw new IllegalArgumentException("Onvolledige escape op positie " + positie + ".");
+                        }
+                        tekst.append((char) Integer.parseInt(json.substring(positie, positie + 4), 16));
+                        positie += 4;
+                        break;
+                    default: tekst.append(escape); // \" \\ en \/
+                }
+            }
+            throw new IllegalArgumentException("String zonder einde.");
+        }
+
+        /**
+         * @return de waarde als tekst, of null voor JSON null.
+         */
+        private String leesWaarde() {
+            slaWitOver();
+            if (positie >= json.length()) {
+                throw new IllegalArgumentException("Waarde ontbreekt.");
+            }
+            if (json.charAt(positie) == '"') {
+                return leesTekst();
+            }
+            int start = positie;
+            while (positie < json.length() && "-+.eE0123456789truefalsn".indexOf(json.charAt(positie)) >= 0) {
+                positie++;
+            }
+            String waarde = json.substring(start, positie);
+            if (waarde.equals("null")) {
+                return null;
+            }
+            if (waarde.equals("true") || waarde.equals("false") || waarde.matches("-?[0-9]+(\\.[0-9]+)?([eE][-+]?[0-9]+)?")) {
+                return waarde;
+            }
+            throw new IllegalArgumentException("Ongeldige waarde op positie " + start + ".");
+        }
+    }
+}
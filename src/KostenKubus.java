@@ -0,0 +1,190 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Totalen en aantallen van berekende maanduitkeringen per maand en per regime, voor de financiële
+ * rapportage. Een regime is de combinatie van WAO-klasse (of Wajong), arbeidsvermogen, loondispensatie
+ * en of het garantiebedrag bepalend was, samengevat in een code van 0 tot AANTAL_REGIMES (zie
+ * BatchRegel.getRegimeCode()).
+ *
+ * De tellingen staan in 2 long-arrays met een vak per (maand, regime), zodat meetellen alleen een
+ * optelling in een array is. De arrays beslaan alle AANTAL_MAANDEN maanden die een rekenmaand kan hebben
+ * (zie UitkeringCache.maandIndex()), samen ongeveer 1,2 MB, zodat ook een ongesorteerde invoer met maanden
+ * ver uit elkaar nooit naar de schijf hoeft. Elke thread houdt een eigen kubus bij, na afloop worden ze
+ * samengevoegd.
+ */
+public class KostenKubus {
+
+    public static final int AANTAL_REGIMES = 64; // 8 klassecodes x 2 x 2 x 2
+    public static final int AANTAL_MAANDEN = 100 * 12; // jaar 00 t/m 99
+    private static final int MAGIC = 0x574A4B31; // "WJK1"
+
+    private long[] aantallen = null; // pas aangemaakt bij de eerste telling
+    private long[] totalen = null; // in centen
+
+    /**
+     * Telt een berekende maanduitkering mee.
+     * @param maand maandindex, zie UitkeringCache.maandIndex().
+     * @param regime regimecode van 0 tot AANTAL_REGIMES.
+     * @param centen de maanduitkering in centen.
+     * @throws IllegalArgumentException als maand of regime buiten het bereik valt.
+     */
+    public void voegToe(long maand, int regime, long centen) {
+        telOp(maand, regime, 1, centen);
+    }
+
+    private void telOp(long maand, int regime, long aantal, long centen) {
+        if (maand < 0 || maand >= AANTAL_MAANDEN || regime < 0 || regime >= AANTAL_REGIMES) {
+            throw new IllegalArgumentException("Geen vak voor maand " + maand + " en regime " + regime + ".");
+        }
+        if (aantallen == null) {
+            aantallen = new long[AANTAL_MAANDEN * AANTAL_REGIMES];
+            totalen = new long[AANTAL_MAANDEN * AANTAL_REGIMES];
+        }
+        int vak = (int) maand * AANTAL_REGIMES + regime;
+        aantallen[vak] += aantal;
+        totalen[vak] += centen;
+    }
+
+    /**
+     * Telt alle vakken van een andere kubus op bij deze.
+     */
+    public void voegSamen(KostenKubus andere) {
+        if (andere.aantallen == null) {
+            return;
+        }
+        if (aantallen == null) {
+            aantallen = new long[AANTAL_MAANDEN * AANTAL_REGIMES];
+            totalen = new long[AANTAL_MAANDEN * AANTAL_REGIMES];
+        }
+        for (int vak = 0; vak < aantallen.length; vak++) {
+            aantallen[vak] += andere.aantallen[vak];
+            totalen[vak] += andere.totalen[vak];
+        }
+    }
+
+    /**
+     * Zet de gevulde vakken in 1 gesorteerde map.
+     * @return per (maand * AANTAL_REGIMES + regime) het aantal en totaal in centen.
+     */
+    private TreeMap<Long, long[]> verzamel() {
+        TreeMap<Long, long[]> vakken = new TreeMap<>();
+        if (aantallen != null) {
+            for (int vak = 0; vak < aantallen.length; vak++) {
+                if (aantallen[vak] != 0) {
+                    vakken.put((long) vak, new long[]{aantallen[vak], totalen[vak]});
+                }
+            }
+        }
+        return vakken;
+    }
+
+    private static void leesVakken(DataInputStream in, TreeMap<Long, long[]> vakken) throws IOException {
+        while (true) {
+            long maand;
+            try {
+                maand = in.readLong();
+            }
+            catch (EOFException e) { // einde van het bestand
+                return;
+            }
+            int regime = in.readByte();
+            vakken.merge(maand * AANTAL_REGIMES + regime, new long[]{in.readLong(), in.readLong()}, KostenKubus::tel);
+        }
+    }
+
+    private static long[] tel(long[] a, long[] b) {
+        return new long[]{a[0] + b[0], a[1] + b[1]};
+    }
+
+    /**
+     * Schrijft de kubus als binair bestand, om later samen te voegen met die van andere shards.
+     */
+    public void schrijf(Path pad) throws IOException {
+        TreeMap<Long, long[]> vakken = verzamel();
+        try (DataOutputStream uit = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(pad)))) {
+            uit.writeInt(MAGIC);
+            for (Map.Entry<Long, long[]> vak : vakken.entrySet()) {
+                uit.writeLong(vak.getKey() / AANTAL_REGIMES);
+                uit.writeByte((int) (vak.getKey() % AANTAL_REGIMES));
+                uit.writeLong(vak.getValue()[0]);
+                uit.writeLong(vak.getValue()[1]);
+            }
+        }
+    }
+
+    public static KostenKubus lees(Path pad) throws IOException {
+        TreeMap<Long, long[]> vakken = new TreeMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(pad)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Geen kubusbestand: " + pad);
+            }
+            leesVakken(in, vakken);
+        }
+        KostenKubus kubus = new KostenKubus();
+        for (Map.Entry<Long, long[]> vak : vakken.entrySet()) {
+            kubus.telOp(vak.getKey() / AANTAL_REGIMES, (int) (vak.getKey() % AANTAL_REGIMES),
+                    vak.getValue()[0], vak.getValue()[1]);
+        }
+        return kubus;
+    }
+
+    /**
+     * Schrijft de kubus als CSV voor de rapportage: eerst alle gevulde vakken, daarna de totalen per maand,
+     * per regime en het eindtotaal. Samengevoegde kolommen hebben de waarde *.
+     * Kolommen: maand;regeling;klasse;arbeidsvermogen;loondispensatie;garantiebedrag;aantal;totaal
+     */
+    public void schrijfCsv(Path pad) throws IOException {
+        TreeMap<Long, long[]> vakken = verzamel();
+        TreeMap<Long, long[]> perMaand = new TreeMap<>();
+        TreeMap<Integer, long[]> perRegime = new TreeMap<>();
+        long[] totaal = {0, 0};
+
+        try (BufferedWriter uit = Files.newBufferedWriter(pad, StandardCharsets.UTF_8)) {
+            uit.write("maand;regeling;klasse;arbeidsvermogen;loondispensatie;garantiebedrag;aantal;totaal\n");
+            for (Map.Entry<Long, long[]> vak : vakken.entrySet()) {
+                long maand = vak.getKey() / AANTAL_REGIMES;
+                int regime = (int) (vak.getKey() % AANTAL_REGIMES);
+                schrijfRegel(uit, UitkeringCache.maandNaam(maand), regimeKolommen(regime), vak.getValue());
+                perMaand.merge(maand, vak.getValue(), KostenKubus::tel);
+                perRegime.merge(regime, vak.getValue(), KostenKubus::tel);
+                totaal = tel(totaal, vak.getValue());
+            }
+            for (Map.Entry<Long, long[]> maand : perMaand.entrySet()) {
+                schrijfRegel(uit, UitkeringCache.maandNaam(maand.getKey()), "*;*;*;*;*", maand.getValue());
+            }
+            for (Map.Entry<Integer, long[]> regime : perRegime.entrySet()) {
+                schrijfRegel(uit, "*", regimeKolommen(regime.getKey()), regime.getValue());
+            }
+            schrijfRegel(uit, "*", "*;*;*;*;*", totaal);
+        }
+    }
+
+    private static void schrijfRegel(BufferedWriter uit, String maand, String regime, long[] telling) throws IOException {
+        uit.write(maand + ";" + regime + ";" + telling[0] + ";" + BigDecimal.valueOf(telling[1], 2).toPlainString() + "\n");
+    }
+
+    /**
+     * Zet een regimecode om naar de kolommen regeling;klasse;arbeidsvermogen;loondispensatie;garantiebedrag.
+     * Voor WAO zijn de Wajong-kolommen niet van toepassing (-).
+     */
+    private static String regimeKolommen(int regime) {
+        int klasse = regime / 8;
+        if (klasse > 0) {
+            return "WAO;" + klasse + ";-;-;-";
+        }
+        return "WAJONG;-;" + ((regime & 4) != 0 ? "ja" : "nee") + ";" + ((regime & 2) != 0 ? "ja" : "nee")
+                + ";" + ((regime & 1) != 0 ? "bepalend" : "nee");
+    }
+}
@@ -0,0 +1,120 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Schets van de verdeling van een reeks bedragen, waarmee mediaan, p90 en p99 geschat kunnen worden
+ * zonder alle bedragen te bewaren. De bedragen worden geteld in bakjes die elk 2% breder zijn dan het
+ * vorige (logaritmisch). Een geschat kwantiel wijkt daardoor hooguit ongeveer 1% af van de werkelijke
+ * waarde, en de schets is altijd even groot, hoeveel bedragen er ook worden toegevoegd.
+ *
+ * Twee schetsen worden samengevoegd door de bakjes bij elkaar op te tellen. Daarmee kunnen schetsen
+ * van verschillende threads of shards exact worden gecombineerd.
+ */
+public class KwantielSchets {
+
+    private static final double GAMMA = 1.02;
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int AANTAL_BAKJES = (int) Math.ceil(Math.log(Long.MAX_VALUE) / LOG_GAMMA) + 1;
+
+    private final long[] bakjes = new long[AANTAL_BAKJES]; // bakje i telt bedragen tussen GAMMA^(i-1) en GAMMA^i
+    private long aantalNul = 0; // bedragen van 0 centen passen niet in een logaritmisch bakje
+    private long aantal = 0;
+    private long minimum = Long.MAX_VALUE;
+    private long maximum = Long.MIN_VALUE;
+
+    /**
+     * @param centen het bedrag in centen, mag niet negatief zijn.
+     */
+    public void voegToe(long centen) {
+        if (centen <= 0) {
+            aantalNul++;
+        }
+        else {
+            bakjes[bakje(centen)]++;
+        }
+        aantal++;
+        minimum = Math.min(minimum, centen);
+        maximum = Math.max(maximum, centen);
+    }
+
+    public void voegSamen(KwantielSchets andere) {
+        for (int i = 0; i < AANTAL_BAKJES; i++) {
+            bakjes[i] += andere.bakjes[i];
+        }
+        aantalNul += andere.aantalNul;
+        aantal += andere.aantal;
+        minimum = Math.min(minimum, andere.minimum);
+        maximum = Math.max(maximum, andere.maximum);
+    }
+
+    public long getAantal() {
+        return aantal;
+    }
+
+    /**
+     * Schat het kwantiel, bijvoorbeeld 0.5 voor de mediaan.
+     * @param kwantiel getal tussen 0 en 1.
+     * @return het geschatte bedrag in centen, of 0 als de schets leeg is.
+     */
+    public long getKwantiel(double kwantiel) {
+        if (aantal == 0) {
+            return 0;
+        }
+        long rang = (long) Math.ceil(kwantiel * aantal); // het rang-ste bedrag in oplopende volgorde
+        if (rang <= aantalNul) {
+            return 0;
+        }
+        long geteld = aantalNul;
+        for (int i = 0; i < AANTAL_BAKJES; i++) {
+            geteld += bakjes[i];
+            if (geteld >= rang) {
+                // midden van het bakje, zodat de fout naar boven en beneden even groot is
+                long schatting = Math.round(2 * Math.pow(GAMMA, i) / (GAMMA + 1));
+                return Math.max(minimum, Math.min(maximum, schatting));
+            }
+        }
+        return maximum;
+    }
+
+    private static int bakje(long centen) {
+        return (int) Math.ceil(Math.log(centen) / LOG_GAMMA);
+    }
+
+    /**
+     * Schrijft alleen de gevulde bakjes, zodat het bestand klein blijft.
+     */
+    public void schrijf(DataOutputStream uit) throws IOException {
+        uit.writeLong(aantal);
+        uit.writeLong(aantalNul);
+        uit.writeLong(minimum);
+        uit.writeLong(maximum);
+        int gevuld = 0;
+        for (long bakje : bakjes) {
+            if (bakje != 0) {
+                gevuld++;
+            }
+        }
+        uit.writeInt(gevuld);
+        for (int i = 0; i < AANTAL_BAKJES; i++) {
+            if (bakjes[i] != 0) {
+                uit.writeShort(i);
+                uit.writeLong(bakjes[i]);
+            }
+        }
+    }
+
+    public static KwantielSchets lees(DataInputStream in) throws IOException {
+        KwantielSchets schets = new KwantielSchets();
+        schets.aantal = in.readLong();
+        schets.aantalNul = in.readLong();
+        schets.minimum = in.readLong();
+        schets.maximum = in.readLong();
+        int gevuld = in.readInt();
+        for (int i = 0; i < gevuld; i++) {
+            int bakje = in.readShort();
+            schets.bakjes[bakje] = in.readLong();
+        }
+        return schets;
+    }
+}
@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Start voor elke shard een apart Java-proces met BatchBerekening, met hetzelfde classpath en
+ * dezelfde werkmap als het huidige proces (de bronbestanden worden relatief aan de werkmap gelezen).
+ * Met een voorvoegsel kan het commando via een ander programma worden gestart, bijvoorbeeld
+ * {"ssh", "rekenserver1"} als die machine dezelfde schijf ziet.
+ *
+ * Wordt het wachten onderbroken, bijvoorbeeld omdat een andere shard mislukt is, dan wordt het proces
+ * gestopt: eerst netjes, na STOPTIJD seconden geforceerd. voerUit() keert pas terug als het proces weg is,
+ * zodat de BatchCoordinator daarna de tussenbestanden kan verwijderen.
+ */
+public class LokaleWerkerStarter implements WerkerStarter {
+
+    public static final int STOPTIJD = 5; // in s, voor een onderbroken werker geforceerd wordt gestopt
+
+    private final List<String> voorvoegsel;
+    private final int partitiesPerShard;
+
+    /**
+     * @param voorvoegsel onderdelen die voor het java-commando worden gezet, leeg voor een lokaal proces.
+     * @param partitiesPerShard aantal partities (threads) per werkerproces.
+     */
+    public LokaleWerkerStarter(List<String> voorvoegsel, int partitiesPerShard) {
+        this.voorvoegsel = voorvoegsel;
+        this.partitiesPerShard = partitiesPerShard;
+    }
+
+    public LokaleWerkerStarter(int partitiesPerShard) {
+        this(List.of(), partitiesPerShard);
+    }
+
+    public void voerUit(int shard, Path invoer, Path uitvoer) throws IOException, InterruptedException {
+        List<String> commando = new ArrayList<>(voorvoegsel);
+        commando.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        commando.add("-cp");
+        commando.add(System.getProperty("java.class.path"));
+        commando.add("BatchBerekening");
+        commando.add(invoer.toString());
+        commando.add(uitvoer.toString());
+        commando.add(String.valueOf(partitiesPerShard));
+
+        Process proces = new ProcessBuilder(commando).inheritIO().start();
+        int exitcode;
+        try {
+            exitcode = proces.waitFor();
+        }
+        catch (InterruptedException e) {
+            stop(proces);
+            throw e;
+        }
+        if (exitcode != 0) {
+            throw new IOException("Shard " + shard + " gestopt met exitcode " + exitcode + ".");
+        }
+    }
+
+    /**
+     * Stopt het proces en wacht tot het weg is, ook als deze thread intussen weer wordt onderbroken.
+     */
+    private static void stop(Process proces) {
+        proces.destroy();
+        boolean onderbroken = false;
+        while (true) {
+            try {
+                if (!proces.waitFor(STOPTIJD, TimeUnit.SECONDS)) {
+                    proces.destroyForcibly();
+                    proces.waitFor();
+                }
+                break;
+            }
+            catch (InterruptedException e) {
+                onderbroken = true;
+                proces.destroyForcibly();
+            }
+        }
+        if (onderbroken) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import javax.swing.JComponent;
+
+/**
+ * Heatmap van een LoondispensatieRaster: loonwaarde verticaal, inkomsten per maand horizontaal, en als
+ * kleur de maanduitkering of het totaal van uitkering en inkomsten.
+ *
+ * bereken() rekent het raster niveau voor niveau uit met een GuiRekenaar en toont na elk niveau het
+ * tussenresultaat: een cel die nog niet berekend is krijgt de kleur van de dichtstbijzijnde berekende cel
+ * links-onder, zodat het beeld van grove blokken naar losse cellen scherper wordt. Het raster heeft 1
+ * pixel per cel in een BufferedImage, die bij paint() alleen wordt geschaald. Als de muis boven de kaart
+ * staat worden de bedragen van die cel getoond.
+ *
+ * Alleen op de EDT gebruiken.
+ */
+public class LoondispensatieKaart extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+    public static final int GROOTTE = 200; // rijen en kolommen van het raster
+
+    private static final int MARGE_LINKS = 60;
+    private static final int MARGE_RECHTS = 110;
+    private static final int MARGE_BOVEN = 30;
+    private static final int MARGE_ONDER = 35;
+    private static final Color[] KLEUREN = {new Color(68, 1, 84), new Color(59, 82, 139), new Color(33, 145, 140),
+            new Color(94, 201, 98), new Color(253, 231, 37)}; // van 0 tot het maximum
+    private static final double SCHAAL = 0.8; // percentiel van de cellen waar de kleurschaal stopt
+
+    private final GuiRekenaar rekenaar = new GuiRekenaar();
+    private final StringBuilder buffer = new StringBuilder(32);
+    private LoondispensatieRaster raster = null;
+    private int stap = 0; // afstand tussen de berekende cellen in het getoonde raster, 0 is nog niets
+    private boolean totaal = false;
+    private double maximum = 1; // bovenkant van de kleurschaal
+    private boolean afgekapt = false; // er zijn cellen boven maximum
+    private BufferedImage cellen = null;
+    private String melding = "";
+    private int muisX = -1;
+    private int muisY = -1;
+
+    public LoondispensatieKaart() {
+        setPreferredSize(new Dimension(640, 520));
+        setOpaque(true);
+        MouseAdapter muis = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                muisX = e.getX();
+                muisY = e.getY();
+                repaint();
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                muisX = -1;
+                repaint();
+            }
+        };
+        addMouseListener(muis);
+        addMouseMotionListener(muis);
+    }
+
+    /**
+     * Berekent en toont een nieuw raster, van grof naar fijn. Een lopende berekening stopt.
+     * @param profiel een Wajong-profiel met arbeidsvermogen.
+     * @param rekenmaand maand in het format mnd-jr (bijv. jan-24).
+     */
+    public void bereken(WajongProfiel profiel, String rekenmaand) {
+        stop();
+        melding = "Bezig met berekenen...";
+        repaint();
+        long start = System.nanoTime();
+        rekenaar.voerUit(() -> {
+            LoondispensatieRaster nieuw = new LoondispensatieRaster(profiel, rekenmaand, GROOTTE);
+            nieuw.bereken(0);
+            return nieuw;
+        }, nieuw -> {
+            raster = nieuw;
+            toonNiveau(0, rekenmaand, start);
+        }, this::toonFout);
+    }
+
+    private void berekenNiveau(int niveau, String rekenmaand, long start) {
+        LoondispensatieRaster huidig = raster;
+        rekenaar.voerUit(() -> {
+            huidig.bereken(niveau);
+            return huidig;
+        }, klaar -> toonNiveau(niveau, rekenmaand, start), this::toonFout);
+    }
+
+    private void toonNiveau(int niveau, String rekenmaand, long start) {
+        if (raster.isGestopt()) {
+            return;
+        }
+        stap = LoondispensatieRaster.STAPPEN[niveau];
+        tekenCellen();
+        long ms = (System.nanoTime() - start) / 1_000_000;
+        if (niveau + 1 < LoondispensatieRaster.STAPPEN.length) {
+            melding = "Wajong " + rekenmaand + ", voorlopig (" + (niveau + 1) + " van "
+                    + LoondispensatieRaster.STAPPEN.length + ", " + ms + " ms)";
+            berekenNiveau(niveau + 1, rekenmaand, start);
+        }
+        else {
+            melding = "Wajong " + rekenmaand + ", " + GROOTTE * GROOTTE + " berekeningen in " + ms + " ms";
+        }
+        repaint();
+    }
+
+    private void toonFout(Exception e) {
+        melding = e.getMessage();
+        raster = null;
+        cellen = null;
+        repaint();
+    }
+
+    /**
+     * Stopt een lopende berekening, bijvoorbeeld als het venster sluit.
+     */
+    public void stop() {
+        rekenaar.annuleer();
+        if (raster != null) {
+            raster.stop();
+        }
+        raster = null;
+        cellen = null;
+        stap = 0;
+    }
+
+    /**
+     * @param totaal true om uitkering plus inkomsten te tonen, false voor alleen de uitkering.
+     */
+    public void setTotaal(boolean totaal) {
+        this.totaal = totaal;
+        if (cellen != null) {
+            tekenCellen();
+        }
+        repaint();
+    }
+
+    private double waarde(int rij, int kolom) {
+        // nog niet berekende cellen nemen de waarde van de berekende cel van het blok
+        rij -= rij % stap;
+        kolom -= kolom % stap;
+        return totaal ? raster.getTotaal(rij, kolom) : raster.getUitkering(rij, kolom);
+    }
+
+    private void tekenCellen() {
+        int grootte = raster.getGrootte();
+        // LD2 (aanvullen tot normloon) loopt bij een heel lage loonwaarde uit de hand; de schaal stopt
+        // daarom bij het percentiel SCHAAL, zodat de rest van de kaart niet in 1 kleur valt
+        int aantal = (grootte + stap - 1) / stap;
+        double[] berekend = new double[aantal * aantal];
+        int i = 0;
+        for (int rij = 0; rij < grootte; rij += stap) {
+            for (int kolom = 0; kolom < grootte; kolom += stap) {
+                berekend[i++] = waarde(rij, kolom);
+            }
+        }
+        Arrays.sort(berekend);
+        maximum = Math.max(1, berekend[(int) (SCHAAL * (berekend.length - 1))]);
+        afgekapt = berekend[berekend.length - 1] > maximum;
+        if (cellen == null) {
+            cellen = new BufferedImage(grootte, grootte, BufferedImage.TYPE_INT_RGB);
+        }
+        int[] pixels = new int[grootte * grootte];
+        for (int rij = 0; rij < grootte; rij++) {
+            int y = grootte - 1 - rij; // hoogste loonwaarde boven
+            for (int kolom = 0; kolom < grootte; kolom++) {
+                pixels[y * grootte + kolom] = kleur(waarde(rij, kolom) / maximum);
+            }
+        }
+        cellen.setRGB(0, 0, grootte, grootte, pixels, 0, grootte);
+    }
+
+    private static int kleur(double fractie) {
+        double plek = Math.max(0, Math.min(1, fractie)) * (KLEUREN.length - 1);
+        int i = Math.min((int) plek, KLEUREN.length - 2);
+        double t = plek - i;
+        Color van = KLEUREN[i];
+        Color tot = KLEUREN[i + 1];
+        int r = (int) Math.round(van.getRed() + t * (tot.getRed() - van.getRed()));
+        int g = (int) Math.round(van.getGreen() + t * (tot.getGreen() - van.getGreen()));
+        int b = (int) Math.round(van.getBlue() + t * (tot.getBlue() - van.getBlue()));
+        return (r << 16) | (g << 8) | b;
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        Graphics2D g = (Graphics2D) graphics;
+        g.setColor(getBackground() == null ? Color.WHITE : getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        g.setFont(getFont());
+        FontMetrics maten = g.getFontMetrics();
+        g.setColor(Color.DARK_GRAY);
+        g.drawString(melding, MARGE_LINKS, MARGE_BOVEN - 12);
+        if (cellen == null) {
+            return;
+        }
+        int breedte = Math.max(1, getWidth() - MARGE_LINKS - MARGE_RECHTS);
+        int hoogte = Math.max(1, getHeight() - MARGE_BOVEN - MARGE_ONDER);
+        g.drawImage(cellen, MARGE_LINKS, MARGE_BOVEN, breedte, hoogte, null);
+
+        // assen: loonwaarde per 25%, inkomsten in 4 stappen
+        g.setColor(Color.DARK_GRAY);
+        g.drawRect(MARGE_LINKS, MARGE_BOVEN, breedte, hoogte);
+        for (int procent = 0; procent <= 100; procent += 25) {
+            int y = MARGE_BOVEN + hoogte - hoogte * procent / 100;
+            String tekst = procent + "%";
+            g.drawString(tekst, MARGE_LINKS - 5 - maten.stringWidth(tekst), y + maten.getAscent() / 2);
+        }
+        for (int i = 0; i <= 4; i++) {
+            int x = MARGE_LINKS + breedte * i / 4;
+            String tekst = euroRond(raster.getMaximumInkomen() * i / 4);
+            g.drawString(tekst, x - maten.stringWidth(tekst) / 2, MARGE_BOVEN + hoogte + maten.getAscent() + 3);
+        }
+
+        // legenda
+        int legendaX = MARGE_LINKS + breedte + 10;
+        for (int y = 0; y < hoogte; y++) {
+            g.setColor(new Color(kleur(1 - (double) y / hoogte)));
+            g.drawLine(legendaX, MARGE_BOVEN + y, legendaX + 12, MARGE_BOVEN + y);
+        }
+        g.setColor(Color.DARK_GRAY);
+        g.drawString((afgekapt ? "≥ " : "") + euroRond(maximum), legendaX + 16, MARGE_BOVEN + maten.getAscent());
+        g.drawString(euroRond(0), legendaX + 16, MARGE_BOVEN + hoogte);
+        g.drawString(totaal ? "totaal" : "uitkering", legendaX + 16, MARGE_BOVEN + hoogte + maten.getAscent() + 3);
+
+        if (muisX >= MARGE_LINKS && muisX < MARGE_LINKS + breedte && muisY >= MARGE_BOVEN && muisY < MARGE_BOVEN + hoogte) {
+            tekenMuis(g, breedte, hoogte);
+        }
+    }
+
+    /**
+     * Toont loonwaarde, inkomsten en bedragen van de cel onder de muis.
+     */
+    private void tekenMuis(Graphics2D g, int breedte, int hoogte) {
+        int grootte = raster.getGrootte();
+        int kolom = Math.min(grootte - 1, (muisX - MARGE_LINKS) * grootte / breedte);
+        int rij = Math.min(grootte - 1, (MARGE_BOVEN + hoogte - 1 - muisY) * grootte / hoogte);
+        rij -= rij % stap;
+        kolom -= kolom % stap;
+        String[] regels = {"Loonwaarde " + raster.getLoonwaarde(rij).stripTrailingZeros().toPlainString() + "%",
+                "Inkomsten " + euro(raster.getInkomen(kolom)),
+                "Uitkering " + euro(raster.getUitkering(rij, kolom)),
+                "Totaal " + euro(raster.getTotaal(rij, kolom))};
+        FontMetrics maten = g.getFontMetrics();
+        int tekstBreedte = 0;
+        for (String regel : regels) {
+            tekstBreedte = Math.max(tekstBreedte, maten.stringWidth(regel));
+        }
+        int kaderHoogte = regels.length * maten.getHeight() + 6;
+        int x = (muisX + tekstBreedte + 20 > getWidth()) ? muisX - tekstBreedte - 16 : muisX + 10;
+        int y = (muisY + kaderHoogte + 10 > getHeight()) ? muisY - kaderHoogte - 6 : muisY + 10;
+        g.setColor(new Color(255, 255, 240));
+        g.fillRect(x, y, tekstBreedte + 8, kaderHoogte);
+        g.setColor(Color.GRAY);
+        g.drawRect(x, y, tekstBreedte + 8, kaderHoogte);
+        g.setColor(Color.BLACK);
+        for (int i = 0; i < regels.length; i++) {
+            g.drawString(regels[i], x + 4, y + 3 + maten.getAscent() + i * maten.getHeight());
+        }
+    }
+
+    private String euro(double bedrag) {
+        buffer.setLength(0);
+        return OpmaakUtil.bedrag(Math.round(bedrag * 100), buffer).toString();
+    }
+
+    private String euroRond(double bedrag) {
+        buffer.setLength(0);
+        OpmaakUtil.bedrag(Math.round(bedrag) * 100, buffer);
+        buffer.setLength(buffer.length() - 3); // zonder ",00"
+        return buffer.toString();
+    }
+}
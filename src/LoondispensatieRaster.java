@@ -0,0 +1,136 @@
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * De Wajong-maanduitkering op een raster van loonwaarde (rijen) en inkomsten per maand (kolommen), om
+ * aan werkgevers te laten zien hoe uitkering en totaal inkomen bij loondispensatie afhangen van beide.
+ * Elke cel is een echte berekening met WajongProfiel.berekenDaguitkering(), dus met de 2 methoden van
+ * loondispensatie, het garantiebedrag en de ondergrens van nul.
+ *
+ * Het raster wordt in niveaus berekend, van grof naar fijn: eerst elke STAPPEN[0]-de rij en kolom,
+ * dan de cellen daartussen, tot alle cellen berekend zijn. Na elk niveau kan het raster worden getoond
+ * (zie LoondispensatieKaart). Binnen een niveau worden de rijen met een parallel IntStream over alle
+ * processorkernen verdeeld; elke rij heeft een eigen profiel en schrijft alleen in de eigen cellen.
+ */
+public class LoondispensatieRaster {
+
+    public static final int[] STAPPEN = {8, 4, 2, 1}; // afstand tussen berekende cellen per niveau
+
+    private final WajongProfiel basis;
+    private final BigDecimal grondslag;
+    private final int grootte;
+    private final double maximumInkomen;
+    private final double overigeInkomsten; // per maand
+    private final double[] uitkeringen; // per maand, rij * grootte + kolom, NaN als nog niet berekend
+    private volatile boolean gestopt = false;
+
+    /**
+     * @param profiel het profiel met arbeidsvermogen; de loonwaarde erin wordt per rij vervangen.
+     * @param rekenmaand maand in het format mnd-jr (bijv. jan-24).
+     * @param grootte aantal rijen en kolommen, minimaal 2.
+     * @throws Rekenfout als er geen grondslag is voor de rekenmaand of het profiel geen arbeidsvermogen heeft.
+     */
+    public LoondispensatieRaster(WajongProfiel profiel, String rekenmaand, int grootte) {
+        if (!profiel.getArbeidsvermogen()) {
+            throw new Rekenfout(Foutcode.ONGELDIGE_LOONWAARDE, "Loondispensatie is alleen mogelijk met arbeidsvermogen.");
+        }
+        this.grondslag = profiel.getGrondslag(rekenmaand);
+        if (grondslag == null) {
+            throw new Rekenfout(Foutcode.GEEN_GRONDSLAG, "Geen grondslag voor " + rekenmaand + ", berekening is alleen " +
+                    "mogelijk over de periode " + profiel.getGrondslagRange() + ".");
+        }
+        this.basis = profiel;
+        this.grootte = Math.max(2, grootte);
+        // tot 2 keer de grondslag per maand, ruim boven het minimumloon waar loondispensatie om draait
+        this.maximumInkomen = 2 * BigDecimalUtil.multiply(grondslag, Uitkering.UK_DAGEN_IN_MND).doubleValue();
+        this.overigeInkomsten = BigDecimalUtil.multiply(profiel.getOverigeInkomstenPerDag(),
+                Uitkering.UK_DAGEN_IN_MND).doubleValue();
+        this.uitkeringen = new double[this.grootte * this.grootte];
+        Arrays.fill(uitkeringen, Double.NaN);
+    }
+
+    /**
+     * Berekent de cellen van 1 niveau: elke stap-de rij en kolom, voor zover een grover niveau die nog
+     * niet heeft berekend. Stopt tussen 2 rijen na stop(); het niveau is dan niet compleet.
+     * @param niveau index in STAPPEN.
+     */
+    public void bereken(int niveau) {
+        int stap = STAPPEN[niveau];
+        int grof = (niveau == 0) ? 0 : STAPPEN[niveau - 1];
+        int rijen = (grootte + stap - 1) / stap;
+        IntStream.range(0, rijen).parallel().forEach(r -> {
+            if (gestopt) {
+                return;
+            }
+            int rij = r * stap;
+            WajongProfiel profiel = basis.metLoondispensatie(getLoonwaarde(rij).toPlainString());
+            for (int kolom = 0; kolom < grootte; kolom += stap) {
+                if (grof > 0 && rij % grof == 0 && kolom % grof == 0) {
+                    continue; // al berekend op een grover niveau
+                }
+                BigDecimal dag = profiel.berekenDaguitkering(grondslag, getInkomenTekst(kolom));
+                uitkeringen[rij * grootte + kolom] = BigDecimalUtil.multiply(dag, Uitkering.UK_DAGEN_IN_MND).doubleValue();
+            }
+        });
+    }
+
+    /**
+     * Laat een lopende bereken() zo snel mogelijk stoppen, ook in de threads van de fork/join-pool die
+     * een interrupt van de aanroeper niet zien.
+     */
+    public void stop() {
+        gestopt = true;
+    }
+
+    public boolean isGestopt() {
+        return gestopt;
+    }
+
+    public int getGrootte() {
+        return grootte;
+    }
+
+    /**
+     * @param rij 0 tot getGrootte(), rij 0 is de laagste loonwaarde.
+     * @return de loonwaarde als percentage, van 100 / grootte tot en met 100.
+     */
+    public BigDecimal getLoonwaarde(int rij) {
+        return BigDecimal.valueOf((rij + 1) * 10_000L / grootte, 2);
+    }
+
+    /**
+     * @param kolom 0 tot getGrootte().
+     * @return de inkomsten per maand, van 0 tot en met getMaximumInkomen().
+     */
+    public double getInkomen(int kolom) {
+        return maximumInkomen * kolom / (grootte - 1);
+    }
+
+    private String getInkomenTekst(int kolom) {
+        return BigDecimal.valueOf(Math.round(getInkomen(kolom) * 100), 2).toPlainString();
+    }
+
+    public double getMaximumInkomen() {
+        return maximumInkomen;
+    }
+
+    public double getOverigeInkomsten() {
+        return overigeInkomsten;
+    }
+
+    /**
+     * @return de maanduitkering in de cel, of NaN als die nog niet berekend is. Lees een niveau pas
+     * nadat bereken() voor dat niveau klaar is.
+     */
+    public double getUitkering(int rij, int kolom) {
+        return uitkeringen[rij * grootte + kolom];
+    }
+
+    /**
+     * @return uitkering, inkomsten en overige inkomsten samen, of NaN als de cel nog niet berekend is.
+     */
+    public double getTotaal(int rij, int kolom) {
+        return getUitkering(rij, kolom) + getInkomen(kolom) + overigeInkomsten;
+    }
+}
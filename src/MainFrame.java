@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import javax.swing.JOptionPane;
 
 /**
@@ -15,6 +18,24 @@ public class MainFrame extends javax.swing.JFrame {
      */
     public MainFrame() {
         initComponents();
+        voegVoorlopigeBerekeningToe();
+        voegGrafiekenToe();
+        voegOnzekereInkomstenToe();
+        voegLoondispensatieKaartToe();
+        voegBatchResultatenToe();
+        voegDossiersToe();
+        voegReactiesnelheidToe();
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowOpened(java.awt.event.WindowEvent e) {
+                // tabellen pas inlezen als het venster er staat, zodat het starten er niet op wacht;
+                // een fout wordt pas gemeld bij "Basisgegevens opslaan"
+                tabelRekenaar.voerUit(() -> {
+                    new WajongProfiel();
+                    return new WaoProfiel("0", 1);
+                }, profiel -> { }, fout -> { });
+            }
+        });
     }
 
     /**
@@ -885,7 +906,30 @@ public class MainFrame extends javax.swing.JFrame {
         pack();
     }// </editor-fold>
 
+    /**
+     * Meldt dat een bronbestand met tabellen niet gelezen kon worden. De applicatie blijft open; bij de
+     * volgende poging wordt het bestand opnieuw gelezen.
+     */
+    private void toonTabelFout(UncheckedIOException e) {
+        JOptionPane.showMessageDialog(jTabbedPane1, e.getMessage() + "\nDe berekening kan niet worden uitgevoerd.",
+                "Bestand niet gevonden", JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Meldt een fout uit een berekening op de achtergrond, zie GuiRekenaar.
+     */
+    private void toonRekenfout(Exception e) {
+        if (e instanceof UncheckedIOException) {
+            toonTabelFout((UncheckedIOException) e);
+            return;
+        }
+        JOptionPane.showMessageDialog(jTabbedPane1, e.getMessage() == null ? "Onbekende fout." : e.getMessage(),
+                "Berekening mislukt", JOptionPane.ERROR_MESSAGE);
+    }
+
     private void afsluitenMenuItemActionPerformed(java.awt.event.ActionEvent evt) {
+        bewaarDossier();
+        wachtOpDossiers();
         System.exit(0);
     }
 
@@ -917,10 +961,16 @@ public class MainFrame extends javax.swing.JFrame {
             if (Uitkering.acceptedDagloon(rekendagloon)) { // waarde is toegestaan
 
                 GuiUtil.inputAccepted(rdagloonTextfield);
-                // WaoUitkering object kan nu aangemaakt worden
-                wao = new WaoUitkering(rekendagloon,klasse);
-                waoGegevensLabel1.setText("Gegevens opgeslagen. " + wao); // overschrijft label1
-                waoGegevensLabel2.setText("Zonder maatmanloon kunt u nog niet met inkomsten rekenen.");
+                // WaoUitkering object kan nu aangemaakt worden, op de achtergrond omdat de CBS-index
+                // bij het eerste object nog van schijf komt
+                waoGegevensLabel1.setText("Gegevens worden opgeslagen...");
+                waoBasisRekenaar.voerUit(() -> new WaoUitkering(rekendagloon,klasse), nieuw -> {
+                    wao = nieuw;
+                    waoGegevensLabel1.setText("Gegevens opgeslagen. " + wao); // overschrijft label1
+                    waoGegevensLabel2.setText("Zonder maatmanloon kunt u nog niet met inkomsten rekenen.");
+                    controleerMaatmanloon(maatmanloon);
+                }, this::toonRekenfout);
+                return; // maatmanloon wordt gecontroleerd als het object er is
             }
             else {  // format is niet goed, of waarde voldoet niet
                 waoGegevensLabel2.setText("Uw rekendagloon moet een positief bedrag zijn van maximaal "
@@ -928,7 +978,10 @@ public class MainFrame extends javax.swing.JFrame {
                 GuiUtil.inputRejected(rdagloonTextfield);
             }
         }
+        controleerMaatmanloon(maatmanloon);
+    }
 
+    private void controleerMaatmanloon(String maatmanloon) {
         // status maatmanloon controleren
         if (GuiUtil.isPositive(maatmanloon)) { // format goed en waarde is toegestaan
             waoGegevensLabel3.setText("Maatmanloon bewaard."); // bewaren door blokkeren tekstveld
@@ -938,6 +991,7 @@ public class MainFrame extends javax.swing.JFrame {
                 wao.setMaatmanloon(maatmanloon);
                 waoGegevensLabel2.setText("Maatmanloon ingesteld op " + Uitkering.bedragFormat(wao.getMaatmanloon()) + ".");
                 waoGegevensLabel3.setText("Klik op \"Basisgegevens wissen\" als u met nieuwe gegevens wilt rekenen.");
+                werkWaoGrafiekBij();
             }
         }
         else { // niets ingevuld of waarde is niet goed als maatmanloon
@@ -947,7 +1001,10 @@ public class MainFrame extends javax.swing.JFrame {
     }
 
     private void waoBasisWissenButtonActionPerformed(java.awt.event.ActionEvent evt) {
-        // basisgegevens deel resetten
+        // cliënt eerst bewaren, dan basisgegevens deel resetten
+        bewaarDossier();
+        dossier = dossier.metNaam("").metWao(0, null, null); // een nieuwe cliënt, het bewaarde dossier blijft staan
+        waoBasisRekenaar.annuleer(); // een object dat nog wordt aangemaakt niet meer opslaan
         wao = null;
         GuiUtil.reset(klasseKeuzeComboBox);
         GuiUtil.reset(rdagloonTextfield);
@@ -956,6 +1013,7 @@ public class MainFrame extends javax.swing.JFrame {
         waoGegevensLabel1.setText("Vul de basisgegevens over uw uitkering in en klik op \"Basisgegevens opslaan\".");
         waoGegevensLabel2.setText("");
         waoGegevensLabel3.setText("");
+        werkWaoGrafiekBij();
 
         // inkomstendeel resetten
         resetWaoInkomstenPanel();
@@ -991,8 +1049,20 @@ public class MainFrame extends javax.swing.JFrame {
     }
 
     private void berekenWaoUitkeringButtonActionPerformed(java.awt.event.ActionEvent evt) {
+        berekenWao(false);
+    }
+
+    /**
+     * Controleert de invoer op het WAO-tabblad en rekent de uitkering op de achtergrond uit.
+     * @param voorlopig true bij meerekenen tijdens het typen: ongeldige invoer wordt dan niet gemeld en
+     * er worden geen velden vastgezet.
+     */
+    private void berekenWao(boolean voorlopig) {
         // allereerst controleren of er wel een wao-object is opgeslagen
         if (wao == null) {
+            if (voorlopig) {
+                return;
+            }
             waoBerekeningInfoLabel1.setText("Vul eerst de basisgegevens over uw uitkering " +
                     "in en klik op \"Basisgegevens opslaan\".");
             // inputvelden die ontbreken arceren:
@@ -1008,53 +1078,67 @@ public class MainFrame extends javax.swing.JFrame {
         String jaar = jaarKeuzeComboBox.getSelectedItem().toString();
         String rekenmaand = GuiUtil.getRekenmaand(maand,jaar);
         if (wao.findIndex(rekenmaand) == null) {
-            waoBerekeningInfoLabel2.setText("Berekening is alleen mogelijk over de periode " + wao.getCbsRange() + ".");
+            if (!voorlopig) {
+                waoBerekeningInfoLabel2.setText("Berekening is alleen mogelijk over de periode " + wao.getCbsRange() + ".");
+            }
             return; // methode stoppen
         }
-        else {
-            GuiUtil.inputAccepted(maandKeuzeComboBox);
-            GuiUtil.inputAccepted(jaarKeuzeComboBox);
-        }
 
+        String maandloon = null; // null is rekenen zonder inkomsten
         if ((inkomstenCheckbox.isSelected()) && (wao.getMaatmanloon() != null)) { // gebruiker wil met inkomsten rekenen
 
             String inkomsten = GuiUtil.bedragCleanup(waoInkomstenTextfield.getText());
 
-            if (GuiUtil.isPositive(inkomsten)) { // inkomsten zijn een geldig bedrag en niet null: akkoord
-                GuiUtil.inputAccepted(waoInkomstenTextfield);
-                if (inkMndRadioButtonWao.isSelected()) {
-                    berekendWaoUitkeringTextfield.setText(Uitkering.bedragFormat(wao.getMaanduitkering(inkomsten,rekenmaand)));
-                    waoBerekeningInfoLabel1.setText("Uitkering berekend over " + rekenmaand + " met inkomsten van " +
-                            Uitkering.bedragFormat(BigDecimalUtil.create(inkomsten)) + " per maand.");
-                    waoBerekeningInfoLabel2.setText("Uitkeringsbedragen zijn bruto en exclusief vakantiegeld.");
-                }
-                else if (ink4wkRadioButtonWao.isSelected()) { // eerst omzetten naar maand om vergelijking met maatmanloon te kunnen maken
-                    String maandloon = Uitkering.inkomstenWeekNaarMaand(inkomsten,4);
-                    berekendWaoUitkeringTextfield.setText(Uitkering.bedragFormat(wao.getMaanduitkering(maandloon,rekenmaand)));
-                    waoBerekeningInfoLabel1.setText("Uitkering berekend over " + rekenmaand + " met inkomsten van " +
-                            Uitkering.bedragFormat(BigDecimalUtil.create(maandloon)) + " per maand.");
-                    waoBerekeningInfoLabel2.setText("Uitkeringsbedragen zijn bruto en exclusief vakantiegeld.");
+            if (!GuiUtil.isPositive(inkomsten)) { // input voor inkomsten is niet juist
+                if (!voorlopig) {
+                    waoBerekeningInfoLabel1.setText("Uw inkomsten moeten een positief bedrag zijn.");
+                    GuiUtil.inputRejected(waoInkomstenTextfield);
                 }
-                else { // enig overgebleven optie is weekloon, omzetten naar maand
-                    String maandloon = Uitkering.inkomstenWeekNaarMaand(inkomsten,1);
-                    berekendWaoUitkeringTextfield.setText(Uitkering.bedragFormat(wao.getMaanduitkering(maandloon,rekenmaand)));
-                    waoBerekeningInfoLabel1.setText("Uitkering berekend over " + rekenmaand + " met inkomsten van " +
-                            Uitkering.bedragFormat(BigDecimalUtil.create(maandloon)) + " per maand.");
-                    waoBerekeningInfoLabel2.setText("Uitkeringsbedragen zijn bruto en exclusief vakantiegeld.");
-                }
-                // volledige uitkering alsnog geven ter vergelijking
-                maxWaoUitkeringTextfield.setText(Uitkering.bedragFormat(wao.getMaanduitkering()));
+                return;
+            }
+            if (inkMndRadioButtonWao.isSelected()) {
+                maandloon = inkomsten;
+            }
+            else if (ink4wkRadioButtonWao.isSelected()) { // eerst omzetten naar maand om vergelijking met maatmanloon te kunnen maken
+                maandloon = Uitkering.inkomstenWeekNaarMaand(inkomsten,4);
             }
-            else { // input voor inkomsten is niet juist
-                waoBerekeningInfoLabel1.setText("Uw inkomsten moeten een positief bedrag zijn.");
-                GuiUtil.inputRejected(waoInkomstenTextfield);
+            else { // enig overgebleven optie is weekloon, omzetten naar maand
+                maandloon = Uitkering.inkomstenWeekNaarMaand(inkomsten,1);
+            }
+            if (!voorlopig) {
+                GuiUtil.inputAccepted(waoInkomstenTextfield);
             }
         }
-        else { // volledige maanduitkering, berekening zonder inkomsten
-            maxWaoUitkeringTextfield.setText(Uitkering.bedragFormat(wao.getMaanduitkering()));
-            waoBerekeningInfoLabel1.setText("Uitkering berekend over " + rekenmaand + " zonder inkomsten.");
-            waoBerekeningInfoLabel2.setText("Uitkeringsbedragen zijn bruto en exclusief vakantiegeld.");
+        if (!voorlopig) {
+            GuiUtil.inputAccepted(maandKeuzeComboBox);
+            GuiUtil.inputAccepted(jaarKeuzeComboBox);
         }
+
+        // een eigen object voor de achtergrond, zodat wijzigingen in wao de berekening niet raken
+        WaoUitkering uitkering = new WaoUitkering(wao.getProfiel());
+        String loon = maandloon;
+        waoRekenaar.voerUit(() -> new BigDecimal[] {uitkering.getMaanduitkering(),
+                        loon == null ? null : uitkering.getMaanduitkering(loon, rekenmaand)},
+                uitkomst -> {
+                    // volledige uitkering ook bij inkomsten geven ter vergelijking
+                    maxWaoUitkeringTextfield.setText(Uitkering.bedragFormat(uitkomst[0]));
+                    if (loon == null) {
+                        waoBerekeningInfoLabel1.setText((voorlopig ? "Voorlopig: uitkering" : "Uitkering")
+                                + " berekend over " + rekenmaand + " zonder inkomsten.");
+                    }
+                    else {
+                        berekendWaoUitkeringTextfield.setText(Uitkering.bedragFormat(uitkomst[1]));
+                        waoBerekeningInfoLabel1.setText((voorlopig ? "Voorlopig: uitkering" : "Uitkering")
+                                + " berekend over " + rekenmaand + " met inkomsten van "
+                                + Uitkering.bedragFormat(BigDecimalUtil.create(loon)) + " per maand.");
+                    }
+                    waoBerekeningInfoLabel2.setText(voorlopig ? "Klik op \"Bereken uitkering\" om de berekening vast te leggen."
+                            : "Uitkeringsbedragen zijn bruto en exclusief vakantiegeld.");
+                    if (!voorlopig) {
+                        dossier = dossier.metWaoBerekening(rekenmaand, loon == null ? null : BigDecimalUtil.create(loon),
+                                uitkomst[0], uitkomst[1]);
+                    }
+                }, this::toonRekenfout);
     }
 
     private void waoInkomstenPaneelComponentAdded(java.awt.event.ContainerEvent evt) {
@@ -1063,7 +1147,10 @@ public class MainFrame extends javax.swing.JFrame {
     }
 
     private void wajongBasisWissenButtonActionPerformed(java.awt.event.ActionEvent evt) {
-        // basisgegevens deel resetten
+        // cliënt eerst bewaren, dan basisgegevens deel resetten
+        bewaarDossier();
+        dossier = dossier.metNaam("").metWajong(Dossier.GEEN_WAJONG, null, null); // een nieuwe cliënt
+        wajongBasisRekenaar.annuleer(); // een object dat nog wordt aangemaakt niet meer opslaan
         wajong = null;
         arbeidsvermogenCheckBox.setSelected(true);
         arbeidsvermogenCheckBox.setEnabled(true);
@@ -1083,13 +1170,20 @@ public class MainFrame extends javax.swing.JFrame {
         wajongGegevensLabel1.setText("Vul de basisgegevens over uw uitkering in en klik op \"Basisgegevens opslaan\".");
         wajongGegevensLabel2.setText("");
         wajongGegevensLabel3.setText("");
+        werkWajongGrafiekBij();
 
         // inkomstendeel resetten
         resetWajongInkomstenPanel();
     }
 
     private void wajongBasisOpslaanButtonActionPerformed(java.awt.event.ActionEvent evt) {
-        wajong = new WajongUitkering();
+        // op de achtergrond, omdat de grondslagen bij het eerste object nog van schijf komen
+        wajongGegevensLabel1.setText("Gegevens worden opgeslagen...");
+        wajongBasisRekenaar.voerUit(WajongUitkering::new, this::slaWajongOp, this::toonRekenfout);
+    }
+
+    private void slaWajongOp(WajongUitkering nieuw) {
+        wajong = nieuw;
 
         // gegevens ophalen
         String gar = GuiUtil.bedragCleanup(garantiebedragTextfield.getText());
@@ -1158,21 +1252,33 @@ public class MainFrame extends javax.swing.JFrame {
             }
             wajong = null;
         }
+        werkWajongGrafiekBij();
     }
 
     private void berekenWajongUitkeringButtonActionPerformed(java.awt.event.ActionEvent evt) {
+        berekenWajong(false);
+    }
+
+    /**
+     * Controleert de invoer op het Wajong-tabblad en rekent de uitkering op de achtergrond uit.
+     * @param voorlopig true bij meerekenen tijdens het typen: ongeldige invoer wordt dan niet gemeld en
+     * er worden geen velden vastgezet.
+     */
+    private void berekenWajong(boolean voorlopig) {
         // stap 1: Controleren of er een WajongUitkering-object is aangemaakt
         if (wajong == null) {
+            if (voorlopig) {
+                return;
+            }
             wajongBerekeningInfoLabel1.setText("Vul eerst de basisgegevens over uw uitkering " +
                     "in en klik op \"Basisgegevens opslaan\".");
             wajongGegevensLabel2.setText("");
             return;
         }
-        else {
+        else if (!voorlopig) {
             GuiUtil.inputAccepted(arbeidsvermogenCheckBox);
             GuiUtil.inputAccepted(garantiebedragCheckBox);
             GuiUtil.inputAccepted(loondispensatieCheckBox);
-            wajong.setOverigeInkomstenPerDag("0"); // dit is nodig omdat anders niet gereset wordt als enkel periode wordt aangepast en niet gewist tussendoor
         }
 
         // stap 2: gegevens uit berekenpaneel inlezen
@@ -1180,117 +1286,97 @@ public class MainFrame extends javax.swing.JFrame {
         String jaar = wajongJaarKeuzeComboBox.getSelectedItem().toString();
         String rekenmaand = GuiUtil.getRekenmaand(maand,jaar);
         if (wajong.getGrondslag(rekenmaand) == null) {
-            wajongBerekeningInfoLabel2.setText("Berekening is alleen mogelijk over de periode " + wajong.getGrondslagRange() + ".");
+            if (!voorlopig) {
+                wajongBerekeningInfoLabel2.setText("Berekening is alleen mogelijk over de periode " + wajong.getGrondslagRange() + ".");
+            }
             return; // berekening niet mogelijk, geen grondslag bekend over gekozen maand
         }
-        else {
-            GuiUtil.inputAccepted(wajongMaandKeuzeComboBox);
-            GuiUtil.inputAccepted(wajongJaarKeuzeComboBox);
-        }
 
+        String inkomstenOverigMnd = "0"; // placeholder voor gebruiker feedback
+        String maandloon = null; // null is rekenen zonder inkomsten
         if (wajongInkomstenCheckbox.isSelected()) { // gebruiker wil met inkomsten rekenen
 
             // inkomstengegevens ophalen en omzetten naar maand
-            // overige inkomsten eerst ophalen en opslaan in wajong-object
+            // overige inkomsten eerst ophalen, daarmee wordt een profiel alleen voor deze berekening gemaakt
             String inkomstenOverig = GuiUtil.bedragCleanup(wajongOverigeInkomstenTextfield.getText());
-            String inkomstenOverigMnd = "0"; // placeholder voor gebruiker feedback
-
-            if (inkomstenOverig == null) {
-                GuiUtil.inputRejected(wajongOverigeInkomstenTextfield);
-                wajongBerekeningInfoLabel2.setText("Overige inkomsten moeten een positief bedrag zijn, of " +
-                        "nul als u die geen heeft.");
-            }
-            else {
-                if (GuiUtil.isPositive(inkomstenOverig)) {
-                    GuiUtil.inputAccepted(wajongOverigeInkomstenTextfield);
-                    if (inkMndRadioButtonWajong1.isSelected()) { // bedrag is per maand
-                        wajong.setOverigeInkomstenPerDag(inkomstenOverig);
-                        inkomstenOverigMnd = inkomstenOverig;
-                    }
-                    else if (ink4wkRadioButtonWajong1.isSelected()) { // 4wk-loon
-                        inkomstenOverigMnd = Uitkering.inkomstenWeekNaarMaand(inkomstenOverig,4);
-                        wajong.setOverigeInkomstenPerDag(inkomstenOverigMnd);
-                    }
-                    else {  // dus per week
-                        inkomstenOverigMnd = Uitkering.inkomstenWeekNaarMaand(inkomstenOverig,1);
-                        wajong.setOverigeInkomstenPerDag(inkomstenOverigMnd);
-                    }
-                }
-                else if (inkomstenOverig.contentEquals("0")) {  // default waarde, akkoord, niet in gebruik
-                    GuiUtil.inputAccepted(wajongOverigeInkomstenTextfield);
-                    wajongBerekeningInfoLabel2.setText("");
-                }
-                else {  // input niet leesbaar als correct bedrag
-                    GuiUtil.inputRejected(wajongOverigeInkomstenTextfield);
-                    wajongBerekeningInfoLabel2.setText("Overige inkomsten moeten een positief bedrag zijn, of " +
-                            "nul als u die geen heeft.");
-                    return;
-                }
-            }
 
             if (GuiUtil.isPositive(inkomstenOverig)) {
-                GuiUtil.inputAccepted(wajongOverigeInkomstenTextfield);
                 if (inkMndRadioButtonWajong1.isSelected()) { // bedrag is per maand
-                    wajong.setOverigeInkomstenPerDag(inkomstenOverig);
                     inkomstenOverigMnd = inkomstenOverig;
                 }
                 else if (ink4wkRadioButtonWajong1.isSelected()) { // 4wk-loon
                     inkomstenOverigMnd = Uitkering.inkomstenWeekNaarMaand(inkomstenOverig,4);
-                    wajong.setOverigeInkomstenPerDag(inkomstenOverigMnd);
                 }
                 else {  // dus per week
                     inkomstenOverigMnd = Uitkering.inkomstenWeekNaarMaand(inkomstenOverig,1);
-                    wajong.setOverigeInkomstenPerDag(inkomstenOverigMnd);
                 }
             }
-            else if (inkomstenOverig.contentEquals("0")) {  // default waarde, akkoord, niet in gebruik
-                GuiUtil.inputAccepted(wajongOverigeInkomstenTextfield);
-                wajongBerekeningInfoLabel2.setText("");
-            }
-            else {  // input niet leesbaar als correct bedrag
-                GuiUtil.inputRejected(wajongOverigeInkomstenTextfield);
-                wajongBerekeningInfoLabel2.setText("Overige inkomsten moeten een positief bedrag zijn, of " +
-                        "nul als u die geen heeft.");
+            else if (inkomstenOverig == null || !inkomstenOverig.contentEquals("0")) {  // input niet leesbaar als correct bedrag
+                if (!voorlopig) {
+                    GuiUtil.inputRejected(wajongOverigeInkomstenTextfield);
+                    wajongBerekeningInfoLabel2.setText("Overige inkomsten moeten een positief bedrag zijn, of " +
+                            "nul als u die geen heeft.");
+                }
                 return;
             }
 
             String inkomstenWerk = GuiUtil.bedragCleanup(wajongInkomstenTextfield.getText());
 
-            if (GuiUtil.isPositive(inkomstenWerk)) { // inkomsten uit werk geldig, positief bedrag
-                GuiUtil.inputAccepted(wajongInkomstenTextfield);
-                if (inkMndRadioButtonWajong.isSelected()) { // opgegeven loon is per maand
-                    berekendWajongUitkeringTextfield.setText(Uitkering.bedragFormat(wajong.getMaanduitkering(inkomstenWerk,rekenmaand)));
-                    wajongBerekeningInfoLabel1.setText("Uitkering berekend over " + rekenmaand + " met totale inkomsten van " +
-                            Uitkering.bedragFormat(BigDecimalUtil.create(inkomstenWerk).add(BigDecimalUtil.create(inkomstenOverigMnd))) + " per maand.");
-                    wajongBerekeningInfoLabel2.setText("Uitkeringsbedragen zijn bruto en exclusief vakantiegeld.");
-                }
-                else if (ink4wkRadioButtonWajong.isSelected()) { // 4wk-loon
-                    String maandloon = Uitkering.inkomstenWeekNaarMaand(inkomstenWerk,4);
-                    berekendWajongUitkeringTextfield.setText(Uitkering.bedragFormat(wajong.getMaanduitkering(maandloon,rekenmaand)));
-                    wajongBerekeningInfoLabel1.setText("Uitkering berekend over " + rekenmaand + " met totale inkomsten van " +
-                            Uitkering.bedragFormat(BigDecimalUtil.create(maandloon).add(BigDecimalUtil.create(inkomstenOverigMnd))) + " per maand.");
-                    wajongBerekeningInfoLabel2.setText("Uitkeringsbedragen zijn bruto en exclusief vakantiegeld.");
-                }
-                else {  // dus weekloon
-                    String maandloon = Uitkering.inkomstenWeekNaarMaand(inkomstenWerk,1);
-                    berekendWajongUitkeringTextfield.setText(Uitkering.bedragFormat(wajong.getMaanduitkering(maandloon,rekenmaand)));
-                    wajongBerekeningInfoLabel1.setText("Uitkering berekend over " + rekenmaand + " met totale inkomsten van " +
-                            Uitkering.bedragFormat(BigDecimalUtil.create(maandloon).add(BigDecimalUtil.create(inkomstenOverigMnd))) + " per maand.");
-                    wajongBerekeningInfoLabel2.setText("Uitkeringsbedragen zijn bruto en exclusief vakantiegeld.");
+            if (!GuiUtil.isPositive(inkomstenWerk)) { // Inkomsten uit werk niet ingevuld of ongeldig
+                if (!voorlopig) {
+                    GuiUtil.inputAccepted(wajongOverigeInkomstenTextfield);
+                    wajongBerekeningInfoLabel1.setText("Uw inkomsten moeten een positief bedrag zijn.");
+                    GuiUtil.inputRejected(wajongInkomstenTextfield);
                 }
-                // volledige uitkering alsnog geven ter vergelijking
-                maxWajongUitkeringTextfield.setText(Uitkering.bedragFormat(wajong.getMaanduitkering(rekenmaand)));
+                return;
+            }
+            if (inkMndRadioButtonWajong.isSelected()) { // opgegeven loon is per maand
+                maandloon = inkomstenWerk;
+            }
+            else if (ink4wkRadioButtonWajong.isSelected()) { // 4wk-loon
+                maandloon = Uitkering.inkomstenWeekNaarMaand(inkomstenWerk,4);
             }
-            else { // Inkomsten uit werk niet ingevuld of ongeldig
-                wajongBerekeningInfoLabel1.setText("Uw inkomsten moeten een positief bedrag zijn.");
-                GuiUtil.inputRejected(wajongInkomstenTextfield);
+            else {  // dus weekloon
+                maandloon = Uitkering.inkomstenWeekNaarMaand(inkomstenWerk,1);
+            }
+            if (!voorlopig) {
+                GuiUtil.inputAccepted(wajongOverigeInkomstenTextfield);
+                GuiUtil.inputAccepted(wajongInkomstenTextfield);
             }
         }
-        else {  // gebruiker wil niet met inkomsten rekenen
-            maxWajongUitkeringTextfield.setText(Uitkering.bedragFormat(wajong.getMaanduitkering(rekenmaand)));
-            wajongBerekeningInfoLabel1.setText("Uitkering berekend over " + rekenmaand + " zonder inkomsten.");
-            wajongBerekeningInfoLabel2.setText("Uitkeringsbedragen zijn bruto en exclusief vakantiegeld.");
+        if (!voorlopig) {
+            GuiUtil.inputAccepted(wajongMaandKeuzeComboBox);
+            GuiUtil.inputAccepted(wajongJaarKeuzeComboBox);
         }
+
+        // wajong zelf blijft ongewijzigd, dus er blijven geen overige inkomsten hangen voor een volgende berekening
+        WajongUitkering zonderOverig = new WajongUitkering(wajong.getProfiel());
+        WajongUitkering metOverig = new WajongUitkering(wajong.getProfiel().metOverigeInkomsten(inkomstenOverigMnd));
+        String loon = maandloon;
+        BigDecimal overig = BigDecimalUtil.create(inkomstenOverigMnd);
+        String totaal = (loon == null) ? null
+                : Uitkering.bedragFormat(BigDecimalUtil.create(loon).add(overig));
+        wajongRekenaar.voerUit(() -> new BigDecimal[] {zonderOverig.getMaanduitkering(rekenmaand),
+                        loon == null ? null : metOverig.getMaanduitkering(loon, rekenmaand)},
+                uitkomst -> {
+                    // volledige uitkering ook bij inkomsten geven ter vergelijking
+                    maxWajongUitkeringTextfield.setText(Uitkering.bedragFormat(uitkomst[0]));
+                    if (loon == null) {
+                        wajongBerekeningInfoLabel1.setText((voorlopig ? "Voorlopig: uitkering" : "Uitkering")
+                                + " berekend over " + rekenmaand + " zonder inkomsten.");
+                    }
+                    else {
+                        berekendWajongUitkeringTextfield.setText(Uitkering.bedragFormat(uitkomst[1]));
+                        wajongBerekeningInfoLabel1.setText((voorlopig ? "Voorlopig: uitkering" : "Uitkering")
+                                + " berekend over " + rekenmaand + " met totale inkomsten van " + totaal + " per maand.");
+                    }
+                    wajongBerekeningInfoLabel2.setText(voorlopig ? "Klik op \"Bereken uitkering\" om de berekening vast te leggen."
+                            : "Uitkeringsbedragen zijn bruto en exclusief vakantiegeld.");
+                    if (!voorlopig) {
+                        dossier = dossier.metWajongBerekening(rekenmaand, loon == null ? null : BigDecimalUtil.create(loon),
+                                overig, uitkomst[0], uitkomst[1]);
+                    }
+                }, this::toonRekenfout);
     }
 
     private void wajongInkomstenCheckboxActionPerformed(java.awt.event.ActionEvent evt) {
@@ -1365,6 +1451,76 @@ public class MainFrame extends javax.swing.JFrame {
         jTabbedPane1.setSelectedIndex(1);
     }
 
+    /**
+     * Zet "Bereken bij wisselende inkomsten" in het eerste menu, voor Afsluiten. initComponents() wordt
+     * gegenereerd, daarom komt het menu-item hier.
+     */
+    private void voegOnzekereInkomstenToe() {
+        javax.swing.JMenuItem onzekereInkomsten = new javax.swing.JMenuItem("Bereken bij wisselende inkomsten");
+        onzekereInkomsten.addActionListener(this::onzekereInkomstenMenuItemActionPerformed);
+        jMenu1.insert(onzekereInkomsten, jMenu1.getPopupMenu().getComponentIndex(afsluitenMenuItem));
+    }
+
+    private void onzekereInkomstenMenuItemActionPerformed(java.awt.event.ActionEvent evt) {
+        // rekent met de basisgegevens en de rekenmaand op het tabblad dat open staat
+        Uitkering uitkering;
+        String rekenmaand;
+        if (jTabbedPane1.getSelectedIndex() == 0) {
+            if (wao == null || wao.getMaatmanloon() == null) {
+                JOptionPane.showMessageDialog(jTabbedPane1, "Vul eerst de basisgegevens over uw uitkering in, " +
+                        "met maatmanloon, en klik op \"Basisgegevens opslaan\".", "Wisselende inkomsten",
+                        JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            uitkering = new WaoUitkering(wao.getProfiel()); // eigen object, wao kan intussen veranderen
+            rekenmaand = GuiUtil.getRekenmaand(maandKeuzeComboBox.getSelectedItem().toString(),
+                    jaarKeuzeComboBox.getSelectedItem().toString());
+            if (wao.findIndex(rekenmaand) == null) {
+                waoBerekeningInfoLabel2.setText("Berekening is alleen mogelijk over de periode " + wao.getCbsRange() + ".");
+                return;
+            }
+        }
+        else {
+            if (wajong == null) {
+                JOptionPane.showMessageDialog(jTabbedPane1, "Vul eerst de basisgegevens over uw uitkering " +
+                        "in en klik op \"Basisgegevens opslaan\".", "Wisselende inkomsten", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            uitkering = new WajongUitkering(wajong.getProfiel());
+            rekenmaand = GuiUtil.getRekenmaand(wajongMaandKeuzeComboBox.getSelectedItem().toString(),
+                    wajongJaarKeuzeComboBox.getSelectedItem().toString());
+            if (wajong.getGrondslag(rekenmaand) == null) {
+                wajongBerekeningInfoLabel2.setText("Berekening is alleen mogelijk over de periode " + wajong.getGrondslagRange() + ".");
+                return;
+            }
+        }
+
+        String invoer = JOptionPane.showInputDialog(jTabbedPane1, uitlegWisselendeInkomsten,
+                "Wisselende inkomsten " + rekenmaand, JOptionPane.QUESTION_MESSAGE);
+        if (invoer == null) { // geannuleerd
+            return;
+        }
+        InkomensVerdeling verdeling = InkomensVerdeling.lees(invoer);
+        if (verdeling == null) {
+            JOptionPane.showMessageDialog(jTabbedPane1, "Inkomsten konden niet worden gelezen.",
+                    "Wisselende inkomsten", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        InkomensSimulatie simulatie = new InkomensSimulatie(uitkering);
+        simulatie.voegMaandToe(rekenmaand, verdeling);
+        // duizenden trekkingen: op de achtergrond, met een wachtcursor tot het rapport er is
+        setCursor(java.awt.Cursor.getPredefinedCursor(java.awt.Cursor.WAIT_CURSOR));
+        simulatieRekenaar.voerUit(() -> simulatie.voerUit().getRapport(), rapport -> {
+            setCursor(null);
+            JOptionPane.showMessageDialog(jTabbedPane1, rapport +
+                            "\nUitkeringsbedragen zijn bruto en exclusief vakantiegeld.",
+                    "Wisselende inkomsten " + rekenmaand, JOptionPane.INFORMATION_MESSAGE);
+        }, e -> {
+            setCursor(null);
+            toonRekenfout(e);
+        });
+    }
+
     private void helpAlgemeenMenuItemActionPerformed(java.awt.event.ActionEvent evt) {
         JOptionPane.showMessageDialog(jTabbedPane1, uitlegAlgemeen,
                 "Wat doet deze tool?",JOptionPane.INFORMATION_MESSAGE);
@@ -1404,6 +1560,7 @@ public class MainFrame extends javax.swing.JFrame {
         inkMndRadioButtonWao.setSelected(true);
         waoBerekeningInfoLabel1.setText("Vul de gegevens in over de maand waarin u uw uitkering wilt berekenen, en klik op \"Bereken uitkering\".");
         waoBerekeningInfoLabel2.setText("");
+        waoRekenaar.annuleer(); // het resetten zelf plant een voorlopige berekening
     }
 
     private void resetWajongInkomstenPanel() {
@@ -1414,20 +1571,484 @@ public class MainFrame extends javax.swing.JFrame {
         GuiUtil.reset(wajongInkomstenTextfield);
         GuiUtil.reset(wajongOverigeInkomstenTextfield);
         wajongOverigeInkomstenTextfield.setText("0"); // default waarde
-        if (wajong != null) {
-            wajong.setOverigeInkomstenPerDag("0"); // anders blijft deze doortellen bij meerdere berekeningen met dezelfde Wajong-gegevens.
-        }
         GuiUtil.reset(maxWajongUitkeringTextfield);
         GuiUtil.reset(berekendWajongUitkeringTextfield);
         inkMndRadioButtonWajong.setSelected(true);
         inkMndRadioButtonWajong1.setSelected(true);
         wajongBerekeningInfoLabel1.setText("Vul de gegevens in over de maand waarin u uw uitkering wilt berekenen, en klik op \"Bereken uitkering\".");
         wajongBerekeningInfoLabel2.setText("");
+        wajongRekenaar.annuleer(); // het resetten zelf plant een voorlopige berekening
+    }
+
+    /**
+     * Rekent mee terwijl de gebruiker inkomsten typt of een andere maand of periode kiest, zolang de
+     * maand nog niet is vastgelegd met "Bereken uitkering". Zie GuiRekenaar.plan().
+     */
+    private void voegVoorlopigeBerekeningToe() {
+        Runnable wao = () -> waoRekenaar.plan(() -> {
+            if (maandKeuzeComboBox.isEnabled()) {
+                berekenWao(true);
+            }
+        });
+        GuiUtil.bijWijziging(waoInkomstenTextfield, wao);
+        maandKeuzeComboBox.addActionListener(e -> wao.run());
+        jaarKeuzeComboBox.addActionListener(e -> wao.run());
+        inkMndRadioButtonWao.addActionListener(e -> wao.run());
+        ink4wkRadioButtonWao.addActionListener(e -> wao.run());
+        inkWkRadioButtonWao.addActionListener(e -> wao.run());
+
+        Runnable wajong = () -> wajongRekenaar.plan(() -> {
+            if (wajongMaandKeuzeComboBox.isEnabled()) {
+                berekenWajong(true);
+            }
+        });
+        GuiUtil.bijWijziging(wajongInkomstenTextfield, wajong);
+        GuiUtil.bijWijziging(wajongOverigeInkomstenTextfield, wajong);
+        wajongMaandKeuzeComboBox.addActionListener(e -> wajong.run());
+        wajongJaarKeuzeComboBox.addActionListener(e -> wajong.run());
+        inkMndRadioButtonWajong.addActionListener(e -> wajong.run());
+        ink4wkRadioButtonWajong.addActionListener(e -> wajong.run());
+        inkWkRadioButtonWajong.addActionListener(e -> wajong.run());
+        inkMndRadioButtonWajong1.addActionListener(e -> wajong.run());
+        ink4wkRadioButtonWajong1.addActionListener(e -> wajong.run());
+        inkWkRadioButtonWajong1.addActionListener(e -> wajong.run());
+    }
+
+    /**
+     * Zet naast de invoer op het WAO- en Wajong-tabblad een grafiek van de uitkering over het hele bereik
+     * van de inkomsten, voor het opgeslagen profiel en de gekozen rekenmaand. initComponents() wordt
+     * gegenereerd, daarom wordt het tabblad hier samen met de grafiek in een nieuw paneel gezet.
+     *
+     * Alleen het gekozen tabblad wordt zo gebouwd. Het andere krijgt net als Batchresultaten eerst een leeg
+     * paneel en wordt pas gebouwd als het voor het eerst gekozen wordt, zodat het eerste venster niet op de
+     * opmaak van een tabblad wacht dat nog niet te zien is. Zie bouwTabblad().
+     */
+    private void voegGrafiekenToe() {
+        int gekozen = jTabbedPane1.getSelectedIndex();
+        for (int tab = 0; tab <= 1; tab++) {
+            if (tab != gekozen) {
+                jTabbedPane1.setComponentAt(tab, new javax.swing.JPanel());
+            }
+        }
+        bouwTabblad(gekozen);
+        jTabbedPane1.addChangeListener(e -> bouwTabblad(jTabbedPane1.getSelectedIndex()));
+        maandKeuzeComboBox.addActionListener(e -> werkWaoGrafiekBij());
+        jaarKeuzeComboBox.addActionListener(e -> werkWaoGrafiekBij());
+        wajongMaandKeuzeComboBox.addActionListener(e -> werkWajongGrafiekBij());
+        wajongJaarKeuzeComboBox.addActionListener(e -> werkWajongGrafiekBij());
+        werkWaoGrafiekBij();
+        werkWajongGrafiekBij();
+        pack();
+    }
+
+    /**
+     * Zet het WAO- (0) of Wajong-tabblad (1) met zijn grafiek in plaats van het lege paneel, als dat nog niet
+     * gebeurd is. Het venster wordt zo nodig groter, want pack() heeft alleen het lege paneel gezien.
+     */
+    private void bouwTabblad(int tab) {
+        if (tab < 0 || tab >= tabbladGebouwd.length || tabbladGebouwd[tab]) {
+            return;
+        }
+        tabbladGebouwd[tab] = true;
+        jTabbedPane1.setComponentAt(tab, (tab == 0) ? metGrafiek(waoTab, waoGrafiek)
+                : metGrafiek(wajongTab, wajongGrafiek));
+        if (isDisplayable()) {
+            java.awt.Dimension nodig = getPreferredSize();
+            if (nodig.width > getWidth() || nodig.height > getHeight()) {
+                setSize(Math.max(nodig.width, getWidth()), Math.max(nodig.height, getHeight()));
+            }
+        }
+    }
+
+    private static javax.swing.JPanel metGrafiek(javax.swing.JPanel tab, UitkeringsGrafiek grafiek) {
+        javax.swing.JPanel paneel = new javax.swing.JPanel(new java.awt.BorderLayout());
+        paneel.add(tab, java.awt.BorderLayout.CENTER);
+        paneel.add(grafiek, java.awt.BorderLayout.EAST);
+        return paneel;
+    }
+
+    /**
+     * Berekent de curve opnieuw als profiel of rekenmaand anders is dan in de getoonde grafiek.
+     */
+    private void werkWaoGrafiekBij() {
+        if (wao == null || wao.getMaatmanloon() == null) {
+            grafiekRekenaarWao.annuleer();
+            waoGrafiek.toon(null, "Sla basisgegevens met maatmanloon op voor een grafiek.");
+            return;
+        }
+        WaoProfiel profiel = wao.getProfiel();
+        String rekenmaand = GuiUtil.getRekenmaand(maandKeuzeComboBox.getSelectedItem().toString(),
+                jaarKeuzeComboBox.getSelectedItem().toString());
+        InkomensCurve huidig = waoGrafiek.getCurve();
+        if (huidig != null && huidig.getProfiel() == profiel && huidig.getRekenmaand().equals(rekenmaand)) {
+            return; // profielen veranderen niet, dezelfde instantie is dezelfde curve
+        }
+        grafiekRekenaarWao.voerUit(() -> InkomensCurve.wao(profiel, rekenmaand),
+                curve -> waoGrafiek.toon(curve, "WAO-uitkering per maand in " + rekenmaand),
+                e -> waoGrafiek.toon(null, e.getMessage()));
+    }
+
+    private void werkWajongGrafiekBij() {
+        if (wajong == null) {
+            grafiekRekenaarWajong.annuleer();
+            wajongGrafiek.toon(null, "Sla basisgegevens op voor een grafiek.");
+            return;
+        }
+        WajongProfiel profiel = wajong.getProfiel();
+        String rekenmaand = GuiUtil.getRekenmaand(wajongMaandKeuzeComboBox.getSelectedItem().toString(),
+                wajongJaarKeuzeComboBox.getSelectedItem().toString());
+        InkomensCurve huidig = wajongGrafiek.getCurve();
+        if (huidig != null && huidig.getProfiel() == profiel && huidig.getRekenmaand().equals(rekenmaand)) {
+            return;
+        }
+        grafiekRekenaarWajong.voerUit(() -> InkomensCurve.wajong(profiel, rekenmaand),
+                curve -> wajongGrafiek.toon(curve, "Wajong-uitkering per maand in " + rekenmaand),
+                e -> wajongGrafiek.toon(null, e.getMessage()));
+    }
+
+    /**
+     * Voegt het tabblad Batchresultaten toe. Het paneel wordt pas gemaakt als het tabblad voor het eerst
+     * wordt gekozen of er een bestand op het venster wordt gesleept; bij het starten is er alleen een
+     * leeg paneel, zodat de tabellen en bestandskiezers daarvan het eerste venster niet ophouden.
+     */
+    private void voegBatchResultatenToe() {
+        jTabbedPane1.addTab("Batchresultaten", new javax.swing.JPanel());
+        int tab = jTabbedPane1.getTabCount() - 1;
+        jTabbedPane1.addChangeListener(e -> {
+            if (jTabbedPane1.getSelectedIndex() == tab) {
+                getBatchResultaten(tab);
+            }
+        });
+        // een bestand met cliëntgegevens op het venster slepen rekent het door op het tabblad Batchresultaten
+        setTransferHandler(BatchResultatenPaneel.getImportHandler(() -> {
+            BatchResultatenPaneel paneel = getBatchResultaten(tab);
+            jTabbedPane1.setSelectedComponent(paneel);
+            return paneel;
+        }));
+    }
+
+    private BatchResultatenPaneel getBatchResultaten(int tab) {
+        if (batchResultaten == null) {
+            batchResultaten = new BatchResultatenPaneel();
+            jTabbedPane1.setComponentAt(tab, batchResultaten);
+        }
+        return batchResultaten;
+    }
+
+    /**
+     * Voegt het menu Dossiers toe en bewaart de cliënt bij het sluiten van het venster. Een cliënt wordt
+     * ook bewaard bij "Basisgegevens wissen" en voordat een ander dossier wordt geopend; zonder naam
+     * krijgt het dossier de datum en tijd als naam. Zie DossierBestand.
+     */
+    private void voegDossiersToe() {
+        javax.swing.JMenu menu = new javax.swing.JMenu("Dossiers");
+        javax.swing.JMenuItem openen = new javax.swing.JMenuItem("Dossier openen...");
+        openen.addActionListener(e -> openDossier());
+        javax.swing.JMenuItem bewarenAls = new javax.swing.JMenuItem("Dossier bewaren als...");
+        bewarenAls.addActionListener(e -> bewaarDossierAls());
+        menu.add(openen);
+        menu.add(bewarenAls);
+        jMenuBar1.add(menu, 1);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                bewaarDossier();
+                wachtOpDossiers(); // daarna sluit EXIT_ON_CLOSE de JVM
+            }
+        });
+    }
+
+    /**
+     * @return het dossier met de opgeslagen basisgegevens van nu en de laatst vastgelegde berekeningen.
+     */
+    private Dossier getHuidigDossier() {
+        Dossier huidig = dossier;
+        if (wao != null) {
+            huidig = huidig.metWao(wao.getProfiel().getKlasse().ordinal() + 1, wao.getRekendagloon(),
+                    wao.getMaatmanloon());
+        }
+        if (wajong != null) {
+            huidig = huidig.metWajong(wajong.getArbeidsvermogen() ? Dossier.WAJONG_MET_ARBEIDSVERMOGEN
+                    : Dossier.WAJONG_ZONDER_ARBEIDSVERMOGEN, wajong.getGarantiebedrag(), wajong.getLoonwaarde());
+        }
+        return huidig;
+    }
+
+    /**
+     * Bewaart de cliënt van nu onder zijn naam, als er basisgegevens zijn opgeslagen. Het schrijven
+     * gebeurt op de achtergrond, zie dossierBewaarder.
+     */
+    private void bewaarDossier() {
+        Dossier huidig = getHuidigDossier();
+        if (huidig.isLeeg()) {
+            return;
+        }
+        if (huidig.getNaam().isEmpty()) {
+            huidig = huidig.metNaam("Dossier " + new java.text.SimpleDateFormat("dd-MM-yyyy HH:mm:ss")
+                    .format(new java.util.Date()));
+            dossier = dossier.metNaam(huidig.getNaam()); // volgende keer hetzelfde dossier vervangen
+        }
+        Dossier bewaren = huidig;
+        dossierBewaarder.execute(() -> {
+            try {
+                DossierBestand.bewaar(DOSSIERS, bewaren);
+            }
+            catch (IOException e) {
+                java.util.logging.Logger.getLogger(MainFrame.class.getName()).log(java.util.logging.Level.WARNING,
+                        "Dossier " + bewaren.getNaam() + " niet bewaard", e); // ook als het venster al dicht is
+                java.awt.EventQueue.invokeLater(() -> JOptionPane.showMessageDialog(jTabbedPane1,
+                        "Dossier kon niet worden bewaard in " + DOSSIERS + ": " + e.getMessage(), "Dossiers",
+                        JOptionPane.WARNING_MESSAGE));
+            }
+        });
+    }
+
+    /**
+     * Wacht bij het afsluiten tot de dossiers die nog op de achtergrond worden bewaard in het bestand
+     * staan, maar niet langer dan DOSSIERS_WACHTTIJD seconden.
+     */
+    private void wachtOpDossiers() {
+        dossierBewaarder.shutdown();
+        try {
+            if (!dossierBewaarder.awaitTermination(DOSSIERS_WACHTTIJD, java.util.concurrent.TimeUnit.SECONDS)) {
+                java.util.logging.Logger.getLogger(MainFrame.class.getName()).warning(
+                        "Dossiers na " + DOSSIERS_WACHTTIJD + " s nog niet bewaard in " + DOSSIERS);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void bewaarDossierAls() {
+        if (getHuidigDossier().isLeeg()) {
+            JOptionPane.showMessageDialog(jTabbedPane1, "Sla eerst basisgegevens op.", "Dossier bewaren",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        String naam = (String) JOptionPane.showInputDialog(jTabbedPane1, "Naam of kenmerk van de cliënt:",
+                "Dossier bewaren", JOptionPane.QUESTION_MESSAGE, null, null, dossier.getNaam());
+        if (naam == null || naam.isBlank()) {
+            return;
+        }
+        dossier = dossier.metNaam(naam.strip());
+        bewaarDossier();
+    }
+
+    /**
+     * Opent het bestand op de dossierBewaarder, zodat de dossiers die nog bewaard worden er al in staan,
+     * en laat daarna op de EDT een dossier kiezen.
+     */
+    private void openDossier() {
+        dossierBewaarder.execute(() -> {
+            DossierBestand bestand;
+            try {
+                bestand = DossierBestand.open(DOSSIERS);
+            }
+            catch (IOException e) {
+                java.awt.EventQueue.invokeLater(() -> JOptionPane.showMessageDialog(jTabbedPane1, e.getMessage(),
+                        "Dossier openen", JOptionPane.WARNING_MESSAGE));
+                return;
+            }
+            java.awt.EventQueue.invokeLater(() -> {
+                Dossier gekozen = DossierKiezer.kies(jTabbedPane1, bestand);
+                if (gekozen != null) {
+                    zetDossier(gekozen);
+                }
+            });
+        });
+    }
+
+    /**
+     * Zet een bewaard dossier in de GUI: de cliënt van nu wordt eerst bewaard en gewist, dan worden de
+     * basisgegevens ingevuld en opgeslagen zoals met "Basisgegevens opslaan". De laatste berekening wordt
+     * getoond zoals hij bewaard is, de velden ervoor zijn ingevuld om verder te rekenen.
+     */
+    private void zetDossier(Dossier gekozen) {
+        bewaarDossier();
+        wao = null; // al bewaard, wissen hoeft niet nog een keer te bewaren
+        wajong = null;
+        waoBasisWissenButtonActionPerformed(null);
+        wajongBasisWissenButtonActionPerformed(null);
+        dossier = gekozen;
+
+        if (gekozen.heeftWao()) {
+            klasseKeuzeComboBox.setSelectedIndex(gekozen.getWaoKlasse());
+            rdagloonTextfield.setText(invoer(gekozen.getRekendagloon()));
+            mmlTextfield.setText(invoer(gekozen.getMaatmanloon()));
+            waoBasisOpslaanButton.doClick();
+            if (gekozen.getWaoRekenmaand() != null) {
+                zetRekenmaand(gekozen.getWaoRekenmaand(), maandKeuzeComboBox, jaarKeuzeComboBox);
+                if (gekozen.getWaoInkomsten() != null) {
+                    inkomstenCheckbox.setSelected(true);
+                    waoInkomstenPaneel.setVisible(true);
+                    waoInkomstenTextfield.setText(invoer(gekozen.getWaoInkomsten()));
+                    berekendWaoUitkeringTextfield.setText(Uitkering.bedragFormat(gekozen.getWaoUitkeringMetInkomsten()));
+                }
+                maxWaoUitkeringTextfield.setText(Uitkering.bedragFormat(gekozen.getWaoUitkering()));
+                waoBerekeningInfoLabel1.setText("Laatste berekening uit het dossier, over " + gekozen.getWaoRekenmaand() + ".");
+            }
+        }
+        if (gekozen.heeftWajong()) {
+            arbeidsvermogenCheckBox.setSelected(gekozen.getArbeidsvermogen());
+            arbeidsvermogenCheckBoxActionPerformed(null);
+            if (gekozen.getGarantiebedrag() != null) {
+                garantiebedragCheckBox.setSelected(true);
+                garantiebedragCheckBoxActionPerformed(null);
+                garantiebedragTextfield.setText(invoer(gekozen.getGarantiebedrag()));
+            }
+            if (gekozen.getLoonwaarde() != null) {
+                loondispensatieCheckBox.setSelected(true);
+                loondispensatieCheckBoxActionPerformed(null);
+                loonwaardePercentageTextfield.setText(invoer(gekozen.getLoonwaarde()));
+            }
+            wajongBasisOpslaanButton.doClick();
+            if (gekozen.getWajongRekenmaand() != null) {
+                zetRekenmaand(gekozen.getWajongRekenmaand(), wajongMaandKeuzeComboBox, wajongJaarKeuzeComboBox);
+                if (gekozen.getWajongInkomsten() != null) {
+                    wajongInkomstenCheckbox.setSelected(true);
+                    wajongInkomstenPaneel.setVisible(true);
+                    wajongInkomstenTextfield.setText(invoer(gekozen.getWajongInkomsten()));
+                    wajongOverigeInkomstenTextfield.setText(invoer(gekozen.getWajongOverigeInkomsten()));
+                    berekendWajongUitkeringTextfield.setText(Uitkering.bedragFormat(gekozen.getWajongUitkeringMetInkomsten()));
+                }
+                maxWajongUitkeringTextfield.setText(Uitkering.bedragFormat(gekozen.getWajongUitkering()));
+                wajongBerekeningInfoLabel1.setText("Laatste berekening uit het dossier, over " + gekozen.getWajongRekenmaand() + ".");
+            }
+        }
+        jTabbedPane1.setSelectedIndex(gekozen.heeftWao() ? 0 : 1);
+        setTitle(gekozen.getNaam());
+    }
+
+    /**
+     * @return het bedrag zoals een gebruiker het zou invullen (1234,5), of "" als er geen bedrag is.
+     */
+    private static String invoer(BigDecimal bedrag) {
+        return (bedrag == null) ? "" : bedrag.stripTrailingZeros().toPlainString().replace('.', ',');
+    }
+
+    private static void zetRekenmaand(String rekenmaand, javax.swing.JComboBox<String> maand,
+                                      javax.swing.JComboBox<String> jaar) {
+        long index = UitkeringCache.maandIndex(rekenmaand);
+        maand.setSelectedIndex((int) (index % 12));
+        jaar.setSelectedItem(String.valueOf(2000 + index / 12));
+    }
+
+    /**
+     * Zet "Reactiesnelheid" in het menu Help, als main() een EdtMonitor heeft gestart.
+     */
+    private void voegReactiesnelheidToe() {
+        if (edtMonitor == null) {
+            return;
+        }
+        javax.swing.JMenuItem item = new javax.swing.JMenuItem("Reactiesnelheid...");
+        item.addActionListener(e -> toonReactiesnelheid());
+        jMenu2.addSeparator();
+        jMenu2.add(item);
+    }
+
+    private void toonReactiesnelheid() {
+        javax.swing.JTextArea rapport = new javax.swing.JTextArea(edtMonitor.getRapport(), 20, 70);
+        rapport.setEditable(false);
+        rapport.setCaretPosition(0);
+        Object[] knoppen = {"Exporteren...", "Sluiten"};
+        int keuze = JOptionPane.showOptionDialog(jTabbedPane1, new javax.swing.JScrollPane(rapport), "Reactiesnelheid",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, knoppen, knoppen[1]);
+        if (keuze != 0) {
+            return;
+        }
+        javax.swing.JFileChooser kiezer = new javax.swing.JFileChooser();
+        kiezer.setSelectedFile(new java.io.File("reactiesnelheid.txt"));
+        if (kiezer.showSaveDialog(jTabbedPane1) == javax.swing.JFileChooser.APPROVE_OPTION) {
+            try {
+                edtMonitor.exporteer(kiezer.getSelectedFile().toPath());
+            }
+            catch (IOException e) {
+                JOptionPane.showMessageDialog(jTabbedPane1, "Exporteren mislukt: " + e.getMessage(),
+                        "Reactiesnelheid", JOptionPane.WARNING_MESSAGE);
+            }
+        }
+    }
+
+    /**
+     * Zet "Loondispensatie doorrekenen" in het menu Bestand, boven "Afsluiten". Het menu is gegenereerd,
+     * daarom gebeurt dat hier.
+     */
+    private void voegLoondispensatieKaartToe() {
+        javax.swing.JMenuItem item = new javax.swing.JMenuItem("Loondispensatie doorrekenen");
+        item.addActionListener(e -> toonLoondispensatieKaart());
+        jMenu1.insert(item, jMenu1.getPopupMenu().getComponentIndex(afsluitenMenuItem));
+    }
+
+    /**
+     * Opent een venster met de Wajong-uitkering bij elke loonwaarde en elk inkomen, voor de opgeslagen
+     * basisgegevens en de rekenmaand op het tabblad Wajong. Zie LoondispensatieKaart.
+     */
+    private void toonLoondispensatieKaart() {
+        if (wajong == null || !wajong.getArbeidsvermogen()) {
+            JOptionPane.showMessageDialog(jTabbedPane1, "Vul eerst de basisgegevens over uw Wajong-uitkering " +
+                    "in, met arbeidsvermogen, en klik op \"Basisgegevens opslaan\".", "Loondispensatie",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        String rekenmaand = GuiUtil.getRekenmaand(wajongMaandKeuzeComboBox.getSelectedItem().toString(),
+                wajongJaarKeuzeComboBox.getSelectedItem().toString());
+        if (wajong.getGrondslag(rekenmaand) == null) {
+            JOptionPane.showMessageDialog(jTabbedPane1, "Berekening is alleen mogelijk over de periode " +
+                    wajong.getGrondslagRange() + ".", "Loondispensatie", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        LoondispensatieKaart kaart = new LoondispensatieKaart();
+        javax.swing.JComboBox<String> weergave = new javax.swing.JComboBox<>(
+                new String[] {"Uitkering per maand", "Uitkering + inkomsten per maand"});
+        weergave.addActionListener(e -> kaart.setTotaal(weergave.getSelectedIndex() == 1));
+        javax.swing.JPanel keuze = new javax.swing.JPanel(new java.awt.FlowLayout(java.awt.FlowLayout.LEFT));
+        keuze.add(new javax.swing.JLabel("Toon:"));
+        keuze.add(weergave);
+
+        javax.swing.JDialog venster = new javax.swing.JDialog(this, "Loondispensatie " + rekenmaand, false);
+        venster.setDefaultCloseOperation(javax.swing.WindowConstants.DISPOSE_ON_CLOSE);
+        venster.add(keuze, java.awt.BorderLayout.NORTH);
+        venster.add(kaart, java.awt.BorderLayout.CENTER);
+        venster.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                kaart.stop();
+            }
+        });
+        venster.pack();
+        venster.setLocationRelativeTo(this);
+        venster.setVisible(true);
+        kaart.bereken(wajong.getProfiel(), rekenmaand);
     }
 
     // eigen variabelen
     private WaoUitkering wao = null;
     private WajongUitkering wajong = null;
+    private BatchResultatenPaneel batchResultaten = null; // pas gemaakt als het tabblad wordt gekozen
+    private final boolean[] tabbladGebouwd = new boolean[2]; // WAO en Wajong, zie bouwTabblad()
+    private Dossier dossier = new Dossier(""); // naam en vastgelegde berekeningen van de cliënt van nu
+    private static final java.nio.file.Path DOSSIERS = java.nio.file.Path.of(System.getProperty("rekenhulp.dossiers",
+            System.getProperty("user.home") + java.io.File.separator + ".rekenhulp-dossiers"));
+    private static final int DOSSIERS_WACHTTIJD = 10; // in s, bij het afsluiten
+    // bewaart de dossiers 1 voor 1 buiten de EDT, want DossierBestand.bewaar wacht op de lock en de schijf
+    private final java.util.concurrent.ExecutorService dossierBewaarder =
+            java.util.concurrent.Executors.newSingleThreadExecutor(taak -> {
+                Thread thread = new Thread(taak, "DossierBewaarder");
+                thread.setDaemon(true); // wachtOpDossiers() wacht bij het afsluiten
+                return thread;
+            });
+    private final UitkeringsGrafiek waoGrafiek = new UitkeringsGrafiek();
+    private final UitkeringsGrafiek wajongGrafiek = new UitkeringsGrafiek();
+    // berekeningen buiten de EDT, per soort een eigen GuiRekenaar zodat ze elkaar niet annuleren
+    private final GuiRekenaar tabelRekenaar = new GuiRekenaar();
+    private final GuiRekenaar waoBasisRekenaar = new GuiRekenaar();
+    private final GuiRekenaar waoRekenaar = new GuiRekenaar();
+    private final GuiRekenaar wajongBasisRekenaar = new GuiRekenaar();
+    private final GuiRekenaar wajongRekenaar = new GuiRekenaar();
+    private final GuiRekenaar simulatieRekenaar = new GuiRekenaar();
+    private final GuiRekenaar grafiekRekenaarWao = new GuiRekenaar();
+    private final GuiRekenaar grafiekRekenaarWajong = new GuiRekenaar();
 
     String[] uitlegAlgemeen = {"Deze tool helpt u met het schatten van de hoogte van uw uitkering. U kunt een \n"
             + "schatting maken voor een WAO-uitkering, of een Wajong-uitkering.\n ",
@@ -1491,6 +2112,14 @@ public class MainFrame extends javax.swing.JFrame {
             "Voor andere combinaties van uitkeringen geeft deze rekenhulp u niet het juiste\n"
                     + "bedrag. Neem contact op met UWV voor een schatting in uw situatie."};
 
+    String[] uitlegWisselendeInkomsten = {
+            "Weet u niet precies wat u deze maand gaat verdienen? Vul dan de bedragen in\n"
+                    + "die u de afgelopen maanden per maand heeft verdiend, gescheiden door spaties\n"
+                    + "(bijvoorbeeld 0 850 1200). Of vul uw gemiddelde inkomsten in met de spreiding\n"
+                    + "erachter (bijvoorbeeld 1200 +- 300).\n ",
+            "De tool rekent dan voor duizenden mogelijke inkomsten uw uitkering uit, en toont\n"
+                    + "wat u gemiddeld kunt verwachten en tussen welke bedragen uw uitkering waarschijnlijk ligt.\n "};
+
 
     /**
      * @param args the command line arguments
@@ -1500,14 +2129,10 @@ public class MainFrame extends javax.swing.JFrame {
         //<editor-fold defaultstate="collapsed" desc=" Look and feel setting code (optional) ">
         /* If Nimbus (introduced in Java SE 6) is not available, stay with the default look and feel.
          * For details see http://download.oracle.com/javase/tutorial/uiswing/lookandfeel/plaf.html
+         * Nimbus wordt direct op klassenaam geladen, zonder eerst alle geïnstalleerde look and feels op te vragen.
          */
         try {
-            for (javax.swing.UIManager.LookAndFeelInfo info : javax.swing.UIManager.getInstalledLookAndFeels()) {
-                if ("Nimbus".equals(info.getName())) {
-                    javax.swing.UIManager.setLookAndFeel(info.getClassName());
-                    break;
-                }
-            }
+            javax.swing.UIManager.setLookAndFeel("javax.swing.plaf.nimbus.NimbusLookAndFeel");
         } catch (ClassNotFoundException ex) {
             java.util.logging.Logger.getLogger(MainFrame.class.getName()).log(java.util.logging.Level.SEVERE, null, ex);
         } catch (InstantiationException ex) {
@@ -1519,14 +2144,59 @@ public class MainFrame extends javax.swing.JFrame {
         }
         //</editor-fold>
 
+        // meet de reactiesnelheid van de GUI vanaf het eerste event, zie EdtMonitor
+        edtMonitor = EdtMonitor.installeer(Long.getLong(EDT_DREMPEL, 100));
+        String rapport = System.getProperty(EDT_RAPPORT);
+        if (rapport != null) { // bijvoorbeeld na een geautomatiseerde test van de GUI
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    edtMonitor.exporteer(java.nio.file.Path.of(rapport));
+                }
+                catch (IOException e) {
+                    java.util.logging.Logger.getLogger(MainFrame.class.getName()).log(java.util.logging.Level.WARNING,
+                            "Rapport reactiesnelheid niet geschreven", e);
+                }
+            }));
+        }
+
         /* Create and display the form */
         java.awt.EventQueue.invokeLater(new Runnable() {
             public void run() {
-                new MainFrame().setVisible(true);
+                MainFrame frame = new MainFrame();
+                if (Boolean.getBoolean(MEET_START) || Boolean.getBoolean(STOP_NA_START)) {
+                    frame.addWindowListener(new java.awt.event.WindowAdapter() {
+                        @Override
+                        public void windowOpened(java.awt.event.WindowEvent e) {
+                            // na de paint-events die het openen heeft gepland, dan is het venster getekend
+                            java.awt.EventQueue.invokeLater(MainFrame::meldStart);
+                        }
+                    });
+                }
+                frame.setVisible(true);
             }
         });
     }
 
+    /**
+     * Meldt hoeveel ms na de start van het proces het eerste venster getekend is, en sluit de applicatie
+     * met -Drekenhulp.stopNaStart=true direct af. Dat laatste is voor herhaald meten en voor de
+     * oefenrun die het AppCDS-archief maakt (zie README).
+     */
+    private static void meldStart() {
+        ProcessHandle.current().info().startInstant().ifPresent(start ->
+                java.util.logging.Logger.getLogger(MainFrame.class.getName()).info("Eerste venster na " +
+                        java.time.Duration.between(start, java.time.Instant.now()).toMillis() + " ms"));
+        if (Boolean.getBoolean(STOP_NA_START)) {
+            System.exit(0);
+        }
+    }
+
+    private static final String MEET_START = "rekenhulp.meetStart";
+    private static final String STOP_NA_START = "rekenhulp.stopNaStart";
+    private static final String EDT_DREMPEL = "rekenhulp.edtDrempel"; // in ms
+    private static final String EDT_RAPPORT = "rekenhulp.edtRapport"; // bestand voor het rapport bij afsluiten
+    private static EdtMonitor edtMonitor = null;
+
     // Variables declaration - do not modify
     private javax.swing.JMenuItem afsluitenMenuItem;
     private javax.swing.JCheckBox arbeidsvermogenCheckBox;
@@ -0,0 +1,108 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Opmaak van bedragen en percentages zoals in de rest van de applicatie: "€ 1.234,56" en "1.234,56",
+ * met een punt tussen de duizendtallen en een komma voor de centen.
+ *
+ * Vervangt NumberFormat, dat niet thread-safe is en per aanroep objecten aanmaakt. Deze klasse heeft
+ * geen gedeelde toestand die verandert. De methoden met centen als long schrijven de cijfers direct in
+ * een StringBuilder van de aanroeper en maken zelf geen objecten aan; als die StringBuilder groot genoeg
+ * is en hergebruikt wordt, kost opmaken dus geen geheugen. Afronding naar centen is HALF_EVEN, net als
+ * bij NumberFormat.
+ */
+public class OpmaakUtil {
+
+    public static final char EURO = '€';
+    private static final int SCALE = 2;
+    private static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_EVEN; // zoals NumberFormat
+
+    // per thread 1 buffer voor de methoden die een String teruggeven
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(32));
+
+    /**
+     * Schrijft een bedrag in het format "€ 1.234,56" achter aan doel.
+     * @param centen het bedrag in centen.
+     * @param doel de StringBuilder waarin geschreven wordt.
+     * @return doel, zodat aanroepen achter elkaar kunnen.
+     */
+    public static StringBuilder bedrag(long centen, StringBuilder doel) {
+        doel.append(EURO).append(' ');
+        return getal(centen, doel);
+    }
+
+    /**
+     * Schrijft een getal met 2 decimalen in het format "1.234,56" achter aan doel.
+     * @param centen het getal maal 100.
+     * @param doel de StringBuilder waarin geschreven wordt.
+     * @return doel, zodat aanroepen achter elkaar kunnen.
+     */
+    public static StringBuilder getal(long centen, StringBuilder doel) {
+        if (centen < 0) {
+            doel.append('-');
+        }
+        long rest = (centen > 0) ? -centen : centen; // negatief rekenen, zodat ook Long.MIN_VALUE past
+        long euros = rest / 100;
+        int centdeel = (int) -(rest % 100);
+        int cijfers = aantalCijfers(euros);
+
+        // eerst de lengte vastleggen, dan de tekens van achter naar voren invullen
+        int einde = doel.length() + cijfers + (cijfers - 1) / 3 + 3;
+        doel.setLength(einde);
+        doel.setCharAt(einde - 1, (char) ('0' + centdeel % 10));
+        doel.setCharAt(einde - 2, (char) ('0' + centdeel / 10));
+        doel.setCharAt(einde - 3, ',');
+        int plek = einde - 4;
+        for (int i = 0; i < cijfers; i++) {
+            if (i > 0 && i % 3 == 0) {
+                doel.setCharAt(plek--, '.');
+            }
+            doel.setCharAt(plek--, (char) ('0' - euros % 10));
+            euros /= 10;
+        }
+        return doel;
+    }
+
+    /**
+     * @param getal een getal van 0 of kleiner.
+     * @return het aantal cijfers van het getal, minimaal 1.
+     */
+    private static int aantalCijfers(long getal) {
+        int cijfers = 1;
+        while (getal <= -10) {
+            getal /= 10;
+            cijfers++;
+        }
+        return cijfers;
+    }
+
+    /**
+     * Rondt een bedrag af op centen.
+     * @param bedrag het bedrag in euro, hooguit 92 biljard.
+     * @return het bedrag in centen.
+     * @throws ArithmeticException als het bedrag niet in een long past.
+     */
+    public static long centen(BigDecimal bedrag) {
+        return bedrag.setScale(SCALE, ROUNDING_MODE).unscaledValue().longValueExact();
+    }
+
+    /**
+     * @param bedrag het bedrag in euro.
+     * @return het bedrag als String in het format "€ 1.234,56".
+     */
+    public static String bedragFormat(BigDecimal bedrag) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        return bedrag(centen(bedrag), buffer).toString();
+    }
+
+    /**
+     * @param getal het getal, in deze applicatie meestal een percentage.
+     * @return het getal als String in het format "1.234,56".
+     */
+    public static String getalFormat(BigDecimal getal) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        return getal(centen(getal), buffer).toString();
+    }
+}
@@ -0,0 +1,178 @@
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Warmt de rekenklassen op voordat een service verzoeken krijgt. De eerste paar duizend berekeningen
+ * zijn traag, omdat de parametertabellen nog gelezen moeten worden en de JIT-compiler de code nog niet
+ * heeft gecompileerd. Na een herstart gaf dat pieken in de verwerkingstijd.
+ *
+ * De opwarmer rekent in rondes met verzonnen gegevens alle takken van de berekening door: elke
+ * WaoKlasse (ook de 0-klasse onder 15% arbeidsongeschiktheid), Wajong met en zonder arbeidsvermogen,
+ * loondispensatie waarbij methode 1 of methode 2 hoger is, het garantiebedrag, inkomsten boven de
+ * grondslag (negatief bedrag naar 0), inkomsten per week en per 4 weken, en de routes via BatchRegel en
+ * de berekening van een reeks inkomsten. Dat gaat door tot de JIT-compiler een aantal rondes niets
+ * nieuws meer heeft gecompileerd (gemeten met de CompilationMXBean), of tot de maximale duur voorbij is.
+ * Pas daarna staat isGereed() op true.
+ *
+ * Het opwarmen rekent zonder de UitkeringCache (zie Uitkering.zonderCache()). Anders komen de verzonnen
+ * uitkomsten in de cache en wordt de berekening zelf minder vaak uitgevoerd. De cache blijft daarbij
+ * gewoon aan voor verzoeken die een service tijdens het opwarmen al beantwoordt.
+ */
+public class Opwarmer {
+
+    public static final long STANDAARD_MAXIMALE_DUUR = 20_000; // milliseconden
+    private static final int RONDEGROOTTE = 500;
+    private static final int MINIMALE_RONDES = 10;
+    private static final int STABIELE_RONDES = 3;
+    private static final Logger LOG = Logger.getLogger(Opwarmer.class.getName());
+
+    private static volatile boolean gereed = false;
+    private static volatile long controlegetal = 0; // uitkomsten optellen, zodat de JIT de berekening niet weglaat
+
+    /**
+     * @return true als het opwarmen klaar is.
+     */
+    public static boolean isGereed() {
+        return gereed;
+    }
+
+    /**
+     * Warmt de rekenklassen op. Als dat al gebeurd is, keert de methode direct terug.
+     * @param maximaleDuur maximale duur in milliseconden.
+     * @return korte beschrijving van het verloop.
+     */
+    public static synchronized String warmOp(long maximaleDuur) {
+        if (gereed) {
+            return "Opwarmen was al klaar.";
+        }
+        return Uitkering.zonderCache(() -> rekenOpwarmrondes(maximaleDuur));
+    }
+
+    private static String rekenOpwarmrondes(long maximaleDuur) {
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean meetbaar = (jit != null) && jit.isCompilationTimeMonitoringSupported();
+        long start = System.nanoTime();
+        long eind = start + TimeUnit.MILLISECONDS.toNanos(maximaleDuur);
+        String waoMaand = laatsteMaand(new WaoUitkering("100", 1).getCbsRange());
+        String wajongMaand = laatsteMaand(new WajongUitkering().getGrondslagRange());
+        SplittableRandom random = new SplittableRandom(1);
+
+        long compilatietijd = meetbaar ? jit.getTotalCompilationTime() : 0;
+        int rondes = 0;
+        int stabiel = 0;
+        long som = 0;
+        while (System.nanoTime() < eind) {
+            som += ronde(random, waoMaand, wajongMaand);
+            rondes++;
+            if (meetbaar) {
+                long nu = jit.getTotalCompilationTime();
+                stabiel = (nu == compilatietijd) ? stabiel + 1 : 0;
+                compilatietijd = nu;
+            }
+            else {
+                stabiel++; // zonder meting alleen het minimale aantal rondes
+            }
+            if (rondes >= MINIMALE_RONDES && stabiel >= STABIELE_RONDES) {
+                break;
+            }
+        }
+        controlegetal += som;
+        gereed = true;
+        return "Opgewarmd in " + rondes + " rondes van " + RONDEGROOTTE + " cliënten, "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms"
+                + (meetbaar ? ", compilatietijd " + compilatietijd + " ms" : "")
+                + (stabiel >= STABIELE_RONDES ? "." : ", gestopt op de maximale duur.");
+    }
+
+    /**
+     * Start het opwarmen in een aparte thread, zodat een service al kan luisteren en kan melden dat
+     * hij nog niet gereed is. Het verloop komt in het log.
+     * @param maximaleDuur maximale duur in milliseconden.
+     */
+    public static void warmOpOpAchtergrond(long maximaleDuur) {
+        Thread thread = new Thread(() -> LOG.info(warmOp(maximaleDuur)), "Opwarmer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Een ronde berekeningen met verzonnen gegevens.
+     * @return de som van de uitkomsten in centen.
+     */
+    private static long ronde(SplittableRandom random, String waoMaand, String wajongMaand) {
+        long som = 0;
+        for (int i = 0; i < RONDEGROOTTE; i++) {
+            // WAO: elke klasse, inkomsten van 0 tot boven het maatmanloon zodat elk betaalpercentage voorkomt
+            WaoUitkering wao = new WaoUitkering(bedrag(random, 50, 274), 1 + i % 7);
+            wao.setMaatmanloon(bedrag(random, 1500, 6000));
+            som += centen(wao.getMaanduitkering(waoMaand));
+            som += centen(wao.getMaanduitkering(bedrag(random, 0, 7000), waoMaand));
+            som += centen(wao.getMaanduitkering(Uitkering.inkomstenWeekNaarMaand(bedrag(random, 0, 1500), 1), waoMaand));
+            som += centen(wao.getMaanduitkering(Uitkering.inkomstenWeekNaarMaand(bedrag(random, 0, 6000), 4), waoMaand));
+
+            // Wajong: inkomsten tot boven de grondslag, zodat ook het negatieve bedrag voorkomt
+            WajongUitkering wajong = new WajongUitkering();
+            wajong.setArbeidsvermogen(i % 3 != 0);
+            if (i % 4 == 0) {
+                wajong.setGarantiebedrag(bedrag(random, 20, 90)); // soms hoger dan het berekende bedrag
+            }
+            if (wajong.getArbeidsvermogen() && i % 2 == 0) {
+                wajong.setLoondispensatie(bedrag(random, 20, 100)); // methode 2 wint bij lage loonwaarde en hoge inkomsten
+            }
+            if (i % 5 == 0) {
+                wajong.setOverigeInkomstenPerDag(bedrag(random, 0, 800));
+            }
+            som += centen(wajong.getMaanduitkering(wajongMaand));
+            som += centen(wajong.getMaanduitkering(bedrag(random, 0, 4000), wajongMaand));
+            som += centen(wajong.getMaanduitkering(Uitkering.inkomstenWeekNaarMaand(bedrag(random, 0, 900), 1), wajongMaand));
+            som += centen(wajong.getMaanduitkering(Uitkering.inkomstenWeekNaarMaand(bedrag(random, 0, 3600), 4), wajongMaand));
+
+            // de route van de batch en de services: bedragen als tekst, een reeks inkomsten per profiel
+            String inkomsten = bedrag(random, 0, 3000).replace('.', ',');
+            BatchRegel regel = (i % 2 == 0)
+                    ? BatchRegel.lees("o;WAO;" + waoMaand + ";" + inkomsten + ";" + bedrag(random, 50, 274) + ";"
+                            + (1 + i % 7) + ";" + bedrag(random, 1500, 6000))
+                    : BatchRegel.lees("o;WAJONG;" + wajongMaand + ";" + inkomsten + ";;;;" + (i % 3 == 0 ? "nee" : "ja")
+                            + ";" + (i % 4 == 1 ? "40" : "") + ";" + (i % 6 == 1 ? "50" : ""));
+            som += centen(regel.bereken());
+            if (i % 10 == 0) {
+                for (BigDecimal bedrag : regel.bereken(new String[] {"", inkomsten, bedrag(random, 0, 3000)})) {
+                    som += centen(bedrag);
+                }
+            }
+        }
+        return som;
+    }
+
+    /**
+     * @return een willekeurig bedrag tussen minimum en maximum euro, met 2 decimalen.
+     */
+    private static String bedrag(SplittableRandom random, long minimum, long maximum) {
+        return BigDecimal.valueOf(minimum * 100 + random.nextLong((maximum - minimum) * 100), 2).toPlainString();
+    }
+
+    private static long centen(BigDecimal bedrag) {
+        return (bedrag == null) ? 0 : bedrag.unscaledValue().longValue();
+    }
+
+    /**
+     * @param bereik een bereik zoals "jan-21 t/m dec-24".
+     * @return de laatste maand van het bereik.
+     */
+    private static String laatsteMaand(String bereik) {
+        return bereik.substring(bereik.length() - 6);
+    }
+
+    /**
+     * Warmt op en toont hoe lang dat duurde.
+     * @param args optioneel de maximale duur in milliseconden.
+     */
+    public static void main(String[] args) {
+        long maximaleDuur = (args.length > 0) ? Long.parseLong(args[0]) : STANDAARD_MAXIMALE_DUUR;
+        System.out.println(warmOp(maximaleDuur));
+    }
+}
@@ -0,0 +1,126 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Verdeling van de berekende maanduitkeringen in een batch, per groep (WAO per klasse, Wajong met of
+ * zonder arbeidsvermogen en met of zonder loondispensatie, zie BatchRegel.getGroep()). Per groep
+ * wordt een KwantielSchets en een TopLijst bijgehouden. Het geheugengebruik hangt dus alleen af
+ * van het aantal groepen, niet van het aantal regels.
+ *
+ * Elke thread houdt een eigen PopulatieStatistiek bij, na afloop worden ze samengevoegd. Via
+ * schrijf() en lees() kunnen ook statistieken van verschillende shards worden samengevoegd.
+ */
+public class PopulatieStatistiek {
+
+    public static final int STANDAARD_TOP = 10;
+    private static final int MAGIC = 0x574A5331; // "WJS1"
+
+    private final int topGrootte;
+    private final TreeMap<String, Groep> groepen = new TreeMap<>();
+
+    public PopulatieStatistiek(int topGrootte) {
+        this.topGrootte = topGrootte;
+    }
+
+    public PopulatieStatistiek() {
+        this(STANDAARD_TOP);
+    }
+
+    /**
+     * Telt een berekende maanduitkering mee.
+     * @param groep de groep waar de cliënt in valt.
+     * @param id het cliënt-id, voor de lijst met hoogste bedragen.
+     * @param maanduitkering het berekende bedrag in euro.
+     */
+    public void voegToe(String groep, String id, BigDecimal maanduitkering) {
+        long centen = maanduitkering.movePointRight(2).longValue();
+        Groep g = groepen.get(groep);
+        if (g == null) {
+            g = new Groep(new KwantielSchets(), new TopLijst(topGrootte));
+            groepen.put(groep, g);
+        }
+        g.schets.voegToe(centen);
+        g.top.voegToe(centen, id);
+    }
+
+    public void voegSamen(PopulatieStatistiek andere) {
+        for (Map.Entry<String, Groep> entry : andere.groepen.entrySet()) {
+            Groep g = groepen.get(entry.getKey());
+            if (g == null) {
+                g = new Groep(new KwantielSchets(), new TopLijst(topGrootte));
+                groepen.put(entry.getKey(), g);
+            }
+            g.schets.voegSamen(entry.getValue().schets);
+            g.top.voegSamen(entry.getValue().top);
+        }
+    }
+
+    /**
+     * Stelt een leesbaar rapport samen met per groep het aantal, de mediaan, p90, p99 en de hoogste bedragen.
+     * @return rapport als String van meerdere regels, leeg als er niets is meegeteld.
+     */
+    public String getRapport() {
+        StringBuilder rapport = new StringBuilder();
+        for (Map.Entry<String, Groep> entry : groepen.entrySet()) {
+            KwantielSchets schets = entry.getValue().schets;
+            rapport.append(entry.getKey()).append(": ").append(schets.getAantal()).append(" uitkeringen")
+                    .append(", mediaan ");
+            OpmaakUtil.bedrag(schets.getKwantiel(0.5), rapport).append(", p90 ");
+            OpmaakUtil.bedrag(schets.getKwantiel(0.9), rapport).append(", p99 ");
+            OpmaakUtil.bedrag(schets.getKwantiel(0.99), rapport).append('\n');
+            rapport.append("    hoogste:");
+            for (TopLijst.Item item : entry.getValue().top.getLijst()) {
+                rapport.append(' ').append(item.getId()).append(" (");
+                OpmaakUtil.bedrag(item.getCenten(), rapport).append(')');
+            }
+            rapport.append('\n');
+        }
+        return rapport.toString();
+    }
+
+    public void schrijf(Path pad) throws IOException {
+        try (DataOutputStream uit = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(pad)))) {
+            uit.writeInt(MAGIC);
+            uit.writeInt(topGrootte);
+            uit.writeInt(groepen.size());
+            for (Map.Entry<String, Groep> entry : groepen.entrySet()) {
+                uit.writeUTF(entry.getKey());
+                entry.getValue().schets.schrijf(uit);
+                entry.getValue().top.schrijf(uit);
+            }
+        }
+    }
+
+    public static PopulatieStatistiek lees(Path pad) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(pad)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Geen statistiekbestand: " + pad);
+            }
+            PopulatieStatistiek statistiek = new PopulatieStatistiek(in.readInt());
+            int aantal = in.readInt();
+            for (int i = 0; i < aantal; i++) {
+                String groep = in.readUTF();
+                statistiek.groepen.put(groep, new Groep(KwantielSchets.lees(in), TopLijst.lees(in)));
+            }
+            return statistiek;
+        }
+    }
+
+    private static class Groep {
+        private final KwantielSchets schets;
+        private final TopLijst top;
+
+        Groep(KwantielSchets schets, TopLijst top) {
+            this.schets = schets;
+            this.top = top;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Klasse om regels te lezen uit een deel van een bestand, waarbij steeds bekend is op welke
+ * positie (in bytes) de volgende regel begint. Dat is nodig om een batchberekening na een
+ * onderbreking precies op de goede plek te kunnen hervatten. Een BufferedReader houdt die
+ * positie niet bij, daarom deze klasse.
+ * Regels eindigen op \n, een eventuele \r ervoor wordt weggelaten. Het bestand moet UTF-8 zijn.
+ */
+public class RegelLezer {
+
+    private static final int BUFFERGROOTTE = 64 * 1024;
+
+    private final FileChannel kanaal;
+    private final long eind;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFERGROOTTE);
+    private byte[] regelBytes = new byte[256];
+    private long positie; // positie in het bestand van de eerstvolgende ongelezen byte
+
+    /**
+     * @param kanaal het geopende bestand.
+     * @param start positie waar de eerste regel begint.
+     * @param eind positie waarna geen nieuwe regel meer begint. Een regel die voor eind begint
+     * wordt wel helemaal gelezen.
+     */
+    public RegelLezer(FileChannel kanaal, long start, long eind) {
+        this.kanaal = kanaal;
+        this.eind = eind;
+        this.positie = start;
+        buffer.limit(0);
+    }
+
+    /**
+     * @return de positie in het bestand waar de volgende regel begint.
+     */
+    public long getPositie() {
+        return positie;
+    }
+
+    /**
+     * Leest de volgende regel.
+     * @return de regel zonder regeleinde, of null als het einde van dit deel is bereikt.
+     * @throws IOException als het bestand niet gelezen kan worden.
+     */
+    public String volgendeRegel() throws IOException {
+        if (positie >= eind) {
+            return null;
+        }
+        int lengte = 0;
+        while (true) {
+            if (!buffer.hasRemaining() && !vulBuffer()) {
+                break; // einde bestand zonder afsluitende \n
+            }
+            byte b = buffer.get();
+            positie++;
+            if (b == '\n') {
+                break;
+            }
+            if (lengte == regelBytes.length) {
+                byte[] groter = new byte[lengte * 2];
+                System.arraycopy(regelBytes, 0, groter, 0, lengte);
+                regelBytes = groter;
+            }
+            regelBytes[lengte++] = b;
+        }
+        if (lengte > 0 && regelBytes[lengte - 1] == '\r') {
+            lengte--;
+        }
+        return new String(regelBytes, 0, lengte, StandardCharsets.UTF_8);
+    }
+
+    private boolean vulBuffer() throws IOException {
+        buffer.clear();
+        int gelezen = kanaal.read(buffer, positie);
+        buffer.flip();
+        return gelezen > 0;
+    }
+
+    /**
+     * Zoekt vanaf een willekeurige positie het begin van de eerstvolgende regel. Wordt gebruikt om
+     * een bestand op te delen in stukken die elk met een hele regel beginnen.
+     * @param kanaal het geopende bestand.
+     * @param vanaf positie vanaf waar gezocht wordt. Positie 0 is altijd het begin van een regel.
+     * @return de positie direct na de eerstvolgende \n op of na vanaf-1, of de grootte van het
+     * bestand als er geen regel meer begint.
+     * @throws IOException als het bestand niet gelezen kan worden.
+     */
+    public static long beginVolgendeRegel(FileChannel kanaal, long vanaf) throws IOException {
+        if (vanaf <= 0) {
+            return 0;
+        }
+        long grootte = kanaal.size();
+        ByteBuffer zoekBuffer = ByteBuffer.allocate(4096);
+        long positie = vanaf - 1; // als vanaf-1 een \n is, begint op vanaf al een regel
+        while (positie < grootte) {
+            zoekBuffer.clear();
+            int gelezen = kanaal.read(zoekBuffer, positie);
+            if (gelezen <= 0) {
+                break;
+            }
+            for (int i = 0; i < gelezen; i++) {
+                if (zoekBuffer.get(i) == '\n') {
+                    return positie + i + 1;
+                }
+            }
+            positie += gelezen;
+        }
+        return grootte;
+    }
+}
@@ -0,0 +1,261 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client voor de BinaireRekenServer. Verzoeken worden niet één voor één afgewacht: bereken() geeft
+ * direct een CompletableFuture terug en het verzoek wordt samen met andere verzoeken verstuurd.
+ * Een aparte thread leest de antwoorden en rondt de bijbehorende future af. Eén client kan door
+ * meerdere threads tegelijk gebruikt worden.
+ *
+ * Het aantal verzoeken dat tegelijk onderweg is, is begrensd; bereken() wacht als die grens bereikt
+ * is. Zo blijft het geheugengebruik beperkt als de server het tempo niet bijhoudt.
+ */
+public class RekenClient implements Closeable {
+
+    private static final int MAXIMAAL_ONDERWEG = 10_000;
+    private static final int BUFFERGROOTTE = 64 * 1024;
+
+    private final SocketChannel kanaal;
+    private final Map<Long, CompletableFuture<BigDecimal>> onderweg = new ConcurrentHashMap<>();
+    private final BlockingQueue<Uitgaand> wachtrij = new LinkedBlockingQueue<>();
+    private final Semaphore ruimte = new Semaphore(MAXIMAAL_ONDERWEG);
+    private final AtomicLong volgnummer = new AtomicLong();
+    private final Thread schrijver;
+    private final Thread lezer;
+    private volatile boolean gesloten = false;
+
+    /**
+     * @param host de host van de BinaireRekenServer.
+     * @param poort de poort van de BinaireRekenServer.
+     * @throws IOException als er geen verbinding gemaakt kan worden.
+     */
+    public RekenClient(String host, int poort) throws IOException {
+        kanaal = SocketChannel.open(new InetSocketAddress(host, poort));
+        kanaal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        schrijver = new Thread(this::schrijf, "RekenClient-schrijver");
+        lezer = new Thread(this::lees, "RekenClient-lezer");
+        schrijver.setDaemon(true);
+        lezer.setDaemon(true);
+        schrijver.start();
+        lezer.start();
+    }
+
+    /**
+     * Stuurt een verzoek naar de server.
+     * @param verzoek het verzoek.
+     * @return future met de maanduitkering in euro. Als de server de berekening afwijst wordt de
+     * future afgerond met een IllegalArgumentException met de foutmelding van de server.
+     */
+    public CompletableFuture<BigDecimal> bereken(RekenVerzoek verzoek) {
+        CompletableFuture<BigDecimal> uitkomst = new CompletableFuture<>();
+        if (gesloten) {
+            uitkomst.completeExceptionally(new IOException("Verbinding is gesloten."));
+            return uitkomst;
+        }
+        try {
+            ruimte.acquire();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            uitkomst.completeExceptionally(e);
+            return uitkomst;
+        }
+        long nummer = volgnummer.incrementAndGet();
+        onderweg.put(nummer, uitkomst);
+        wachtrij.add(new Uitgaand(nummer, verzoek));
+        return uitkomst;
+    }
+
+    /**
+     * Schrijft steeds alle verzoeken die klaarstaan in één keer weg.
+     */
+    private void schrijf() {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFERGROOTTE);
+        ArrayList<Uitgaand> verzoeken = new ArrayList<>();
+        int maximaal = BUFFERGROOTTE / (Integer.BYTES + BinaireRekenServer.VERZOEK_LENGTE);
+        try {
+            while (!gesloten) {
+                verzoeken.add(wachtrij.take());
+                wachtrij.drainTo(verzoeken, maximaal - 1);
+                for (Uitgaand uitgaand : verzoeken) {
+                    buffer.putInt(BinaireRekenServer.VERZOEK_LENGTE).putLong(uitgaand.volgnummer);
+                    uitgaand.verzoek.schrijf(buffer);
+                }
+                verzoeken.clear();
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    kanaal.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        catch (InterruptedException e) {
+            // close() is aangeroepen
+        }
+        catch (IOException e) {
+            faal(e);
+        }
+    }
+
+    private void lees() {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFERGROOTTE);
+        try {
+            while (kanaal.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.remaining() >= Integer.BYTES
+                        && buffer.remaining() >= Integer.BYTES + buffer.getInt(buffer.position())) {
+                    buffer.getInt();
+                    long nummer = buffer.getLong();
+                    byte status = buffer.get();
+                    CompletableFuture<BigDecimal> uitkomst = onderweg.remove(nummer);
+                    if (status == BinaireRekenServer.OK) {
+                        BigDecimal maanduitkering = BigDecimal.valueOf(buffer.getLong(), 2);
+                        if (uitkomst != null) {
+                            uitkomst.complete(maanduitkering);
+                        }
+                    }
+                    else {
+                        byte[] tekst = new byte[buffer.getShort()];
+                        buffer.get(tekst);
+                        if (uitkomst != null) {
+                            uitkomst.completeExceptionally(new IllegalArgumentException(new String(tekst, StandardCharsets.UTF_8)));
+                        }
+                    }
+                    ruimte.release();
+                }
+                buffer.compact();
+            }
+            faal(new IOException("Server heeft de verbinding gesloten."));
+        }
+        catch (IOException e) {
+            faal(e);
+        }
+    }
+
+    /**
+     * Rondt alle openstaande verzoeken af met een fout.
+     */
+    private void faal(IOException oorzaak) {
+        if (!gesloten) {
+            gesloten = true;
+            schrijver.interrupt();
+        }
+        for (Long nummer : onderweg.keySet()) {
+            CompletableFuture<BigDecimal> uitkomst = onderweg.remove(nummer);
+            if (uitkomst != null) {
+                uitkomst.completeExceptionally(oorzaak);
+                ruimte.release();
+            }
+        }
+    }
+
+    /**
+     * @return het aantal verzoeken waarop nog geen antwoord is ontvangen.
+     */
+    public int getAantalOnderweg() {
+        return onderweg.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        gesloten = true;
+        schrijver.interrupt();
+        kanaal.close();
+        faal(new IOException("Verbinding is gesloten."));
+    }
+
+    private static class Uitgaand {
+        private final long volgnummer;
+        private final RekenVerzoek verzoek;
+
+        private Uitgaand(long volgnummer, RekenVerzoek verzoek) {
+            this.volgnummer = volgnummer;
+            this.verzoek = verzoek;
+        }
+    }
+
+    /**
+     * Meet de doorvoer van de BinaireRekenServer met een mix van WAO- en Wajong-verzoeken.
+     * Zonder host wordt er een server in hetzelfde proces gestart.
+     * @param args [aantal] [verbindingen] [host poort]
+     */
+    public static void main(String[] args) throws Exception {
+        int aantal = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int verbindingen = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        BinaireRekenServer server = null;
+        String host = "localhost";
+        int poort;
+        if (args.length > 3) {
+            host = args[2];
+            poort = Integer.parseInt(args[3]);
+        }
+        else {
+            server = new BinaireRekenServer(0);
+            System.out.println(server.start());
+            poort = server.getPoort();
+        }
+
+        String[] maanden = {"jan-24", "feb-24", "mrt-24", "jul-24", "dec-23"};
+        RekenVerzoek[] verzoeken = new RekenVerzoek[1000];
+        for (int i = 0; i < verzoeken.length; i++) {
+            String maand = maanden[i % maanden.length];
+            BigDecimal inkomsten = (i % 7 == 0) ? null : BigDecimal.valueOf(i * 3L);
+            verzoeken[i] = (i % 3 == 0)
+                    ? RekenVerzoek.wao(maand, new BigDecimal("150.00"), 1 + i % 7, new BigDecimal("3200"), inkomsten)
+                    : RekenVerzoek.wajong(maand, i % 5 != 0, (i % 4 == 0) ? new BigDecimal("40") : null,
+                            (i % 6 == 1) ? new BigDecimal("50") : null, null, inkomsten);
+        }
+
+        for (int ronde = 1; ronde <= 2; ronde++) { // de eerste ronde is opwarmen
+            long start = System.nanoTime();
+            AtomicLong fouten = new AtomicLong();
+            Thread[] threads = new Thread[verbindingen];
+            for (int v = 0; v < verbindingen; v++) {
+                int perVerbinding = aantal / verbindingen;
+                int eerste = v;
+                String serverHost = host;
+                threads[v] = new Thread(() -> {
+                    try (RekenClient client = new RekenClient(serverHost, poort)) {
+                        CompletableFuture<?>[] uitkomsten = new CompletableFuture<?>[perVerbinding];
+                        for (int i = 0; i < perVerbinding; i++) {
+                            uitkomsten[i] = client.bereken(verzoeken[(eerste + i) % verzoeken.length])
+                                    .exceptionally(e -> {
+                                        fouten.incrementAndGet();
+                                        return null;
+                                    });
+                        }
+                        CompletableFuture.allOf(uitkomsten).join();
+                    }
+                    catch (IOException e) {
+                        System.err.println("Verbinding mislukt: " + e.getMessage());
+                    }
+                });
+                threads[v].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            double seconden = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Ronde %d: %d verzoeken over %d verbindingen in %.2f s, %.0f per seconde, %d fouten%n",
+                    ronde, aantal, verbindingen, seconden, aantal / seconden, fouten.get());
+        }
+        if (server != null) {
+            System.out.println(Uitkering.getCache());
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Rekendaemon op een Unix domain socket, voor scripts die de berekening heel vaak aanroepen. Een nieuwe
+ * JVM per berekening kost honderden milliseconden aan opstarten, tabellen laden en de eerste trage
+ * berekeningen. De daemon blijft draaien met de tabellen geladen en de berekening opgewarmd, zodat een
+ * aanroep maar een paar milliseconden kost. Zie RekenDaemonClient.
+ *
+ * Het protocol is tekst in UTF-8, één berekening per regel. Een regel is een reeks velden van
+ * BatchRegel in de vorm veld=waarde, gescheiden door spaties, bijvoorbeeld:
+ *
+ * regeling=WAJONG rekenmaand=jan-24 arbeidsvermogen=ja inkomsten=1200,00
+ *
+ * Het antwoord is één regel met de maanduitkering, of FOUT met de foutmelding. Een regel met
+ * puntkomma's wordt gelezen als regel uit het invoerbestand van de batch, en levert een regel op zoals
+ * in het uitvoerbestand van de batch (zie BatchBerekening). Een verbinding mag veel regels achter elkaar
+ * sturen; de antwoorden komen in dezelfde volgorde terug. Daarmee werkt de daemon ook met nc -U.
+ * Het protocol is hetzelfde als dat van java Rekenhulp --stdin.
+ *
+ * Alleen de gebruiker die de daemon start kan ermee verbinden: het socketbestand krijgt rechten
+ * rw------- en een map voor de socket die nog niet bestaat wordt gemaakt met rwx------. Het standaardpad
+ * ligt daarom in een eigen map per gebruiker, zie RekenDaemonClient.standaardPad().
+ */
+public class RekenDaemon {
+
+    private static final int CACHEGROOTTE = 100_000;
+    private static final Set<PosixFilePermission> ALLEEN_EIGENAAR_MAP = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> ALLEEN_EIGENAAR_SOCKET = PosixFilePermissions.fromString("rw-------");
+    private static final Logger LOG = Logger.getLogger(RekenDaemon.class.getName());
+
+    private final Path pad;
+    private final ServerSocketChannel kanaal;
+    private final ExecutorService executor = Executors.newCachedThreadPool(taak -> {
+        Thread thread = new Thread(taak, "RekenDaemon-verbinding");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final UitkeringCache cache = new UitkeringCache(CACHEGROOTTE);
+    private Thread lus;
+    private volatile boolean actief;
+
+    /**
+     * Opent de socket, alleen bereikbaar voor de eigen gebruiker. Een socketbestand van een daemon die
+     * niet meer draait wordt eerst verwijderd.
+     * @param pad het pad van de socket.
+     * @throws IOException als de socket niet geopend kan worden, of als er al een daemon draait.
+     */
+    public RekenDaemon(Path pad) throws IOException {
+        this.pad = pad;
+        Path map = pad.toAbsolutePath().getParent();
+        if (map != null && !Files.isDirectory(map)) {
+            try {
+                Files.createDirectories(map, PosixFilePermissions.asFileAttribute(ALLEEN_EIGENAAR_MAP));
+            }
+            catch (UnsupportedOperationException e) { // geen POSIX-rechten, bijvoorbeeld op Windows
+                Files.createDirectories(map);
+            }
+        }
+        if (Files.exists(pad)) {
+            if (bereikbaar(pad)) {
+                throw new IOException("Er draait al een rekendaemon op " + pad + ".");
+            }
+            Files.delete(pad);
+        }
+        kanaal = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        kanaal.bind(UnixDomainSocketAddress.of(pad));
+        try {
+            Files.setPosixFilePermissions(pad, ALLEEN_EIGENAAR_SOCKET);
+        }
+        catch (UnsupportedOperationException e) {
+            // geen POSIX-rechten, dan gelden de rechten van de map
+        }
+        catch (IOException e) {
+            kanaal.close();
+            throw e;
+        }
+    }
+
+    private static boolean bereikbaar(Path pad) {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(pad)).close();
+            return true;
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Warmt de berekening op en start daarna de thread die verbindingen aanneemt. Zie Opwarmer.
+     * @return korte beschrijving van het opwarmen, voor de aanroeper om te tonen of te loggen.
+     */
+    public String start() {
+        String opwarmen = Opwarmer.warmOp(Opwarmer.STANDAARD_MAXIMALE_DUUR);
+        Uitkering.setCache(cache);
+        actief = true;
+        lus = new Thread(this::neemAan, "RekenDaemon");
+        lus.start();
+        return opwarmen;
+    }
+
+    /**
+     * Stopt de daemon en verwijdert het socketbestand.
+     */
+    public void stop() {
+        actief = false;
+        try {
+            kanaal.close();
+            lus.join(1000);
+            Files.deleteIfExists(pad);
+        }
+        catch (IOException e) {
+            LOG.warning("Socket " + pad + " kon niet worden opgeruimd: " + e.getMessage());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (Uitkering.getCache() == cache) {
+            Uitkering.setCache(null);
+        }
+    }
+
+    public Path getPad() {
+        return pad;
+    }
+
+    private void neemAan() {
+        while (actief) {
+            try {
+                SocketChannel verbinding = kanaal.accept();
+                executor.execute(() -> verwerk(verbinding));
+            }
+            catch (IOException e) {
+                if (actief) {
+                    LOG.warning("Verbinding niet aangenomen: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Beantwoordt de regels van één verbinding tot de client de verbinding sluit. Er wordt pas
+     * geschreven als er geen regels meer klaarstaan, zodat een lange reeks in grote blokken teruggaat.
+     */
+    private void verwerk(SocketChannel verbinding) {
+        try (verbinding;
+             BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(verbinding), StandardCharsets.UTF_8));
+             Writer uit = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(verbinding), StandardCharsets.UTF_8))) {
+            String regel;
+            while ((regel = in.readLine()) != null) {
+                if (regel.isBlank()) {
+                    continue;
+                }
+                uit.write(Rekenhulp.beantwoord(regel));
+                uit.write('\n');
+                if (!in.ready()) {
+                    uit.flush();
+                }
+            }
+        }
+        catch (IOException e) {
+            // client heeft de verbinding verbroken, niets meer te beantwoorden
+        }
+    }
+
+    /**
+     * Start de daemon.
+     * @param args optioneel het pad van de socket, standaard RekenDaemonClient.standaardPad().
+     */
+    public static void main(String[] args) throws IOException {
+        Path pad = (args.length > 0) ? Path.of(args[0]) : RekenDaemonClient.standaardPad();
+        RekenDaemon daemon = new RekenDaemon(pad);
+        System.out.println(daemon.start());
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop));
+        System.out.println("Rekendaemon luistert op " + daemon.getPad());
+    }
+}
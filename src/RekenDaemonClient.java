@@ -0,0 +1,89 @@
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Dunne client voor de RekenDaemon. De client laadt zelf geen tabellen en rekent niets; hij stuurt
+ * alleen de argumenten door en schrijft het antwoord naar stdout.
+ *
+ * java RekenDaemonClient regeling=WAJONG rekenmaand=jan-24 arbeidsvermogen=ja inkomsten=1200,00
+ *
+ * Bij een fout gaat de melding naar stderr en is de exitcode 1. Zonder argumenten stuurt de client
+ * alle regels van stdin door en schrijft hij de antwoorden naar stdout zodra ze binnenkomen, zodat de
+ * client in een pijplijn past. Het pad van de socket kan worden gezet met -Drekendaemon.pad=...
+ */
+public class RekenDaemonClient {
+
+    private static final int BLOKGROOTTE = 64 * 1024;
+
+    /**
+     * @return het pad van de socket: de property rekendaemon.pad, of rekenhulp.sock in een eigen map per
+     * gebruiker (wao-wajong-rekenhulp-gebruikersnaam) in de map voor tijdelijke bestanden.
+     */
+    public static Path standaardPad() {
+        String pad = System.getProperty("rekendaemon.pad");
+        if (pad != null) {
+            return Path.of(pad);
+        }
+        return Path.of(System.getProperty("java.io.tmpdir"), "wao-wajong-rekenhulp-" + System.getProperty("user.name"),
+                "rekenhulp.sock");
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path pad = standaardPad();
+        SocketChannel kanaal;
+        try {
+            kanaal = SocketChannel.open(UnixDomainSocketAddress.of(pad));
+        }
+        catch (IOException e) {
+            System.err.println("Rekendaemon draait niet op " + pad + ". Start hem met java RekenDaemon.");
+            System.exit(2);
+            return;
+        }
+
+        try (kanaal) {
+            if (args.length > 0) {
+                kanaal.write(StandardCharsets.UTF_8.encode(String.join(" ", args) + "\n"));
+                kanaal.shutdownOutput();
+                String antwoord = new String(Channels.newInputStream(kanaal).readAllBytes(), StandardCharsets.UTF_8).strip();
+                if (antwoord.startsWith("FOUT")) {
+                    System.err.println(antwoord.substring(4).strip());
+                    System.exit(1);
+                }
+                System.out.println(antwoord);
+                return;
+            }
+
+            // stdin doorsturen op een aparte thread, zodat de antwoorden al binnenkomen tijdens het sturen.
+            // Rechtstreeks op het kanaal: de streams van Channels lezen en schrijven niet tegelijk.
+            Thread sturen = new Thread(() -> {
+                try {
+                    byte[] blok = new byte[BLOKGROOTTE];
+                    int gelezen;
+                    while ((gelezen = System.in.read(blok)) >= 0) {
+                        ByteBuffer buffer = ByteBuffer.wrap(blok, 0, gelezen);
+                        while (buffer.hasRemaining()) {
+                            kanaal.write(buffer);
+                        }
+                    }
+                    kanaal.shutdownOutput();
+                }
+                catch (IOException e) {
+                    System.err.println("Versturen mislukt: " + e.getMessage());
+                }
+            }, "RekenDaemonClient-sturen");
+            sturen.setDaemon(true);
+            sturen.start();
+            ByteBuffer buffer = ByteBuffer.allocate(BLOKGROOTTE);
+            while (kanaal.read(buffer) >= 0) {
+                System.out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            System.out.flush();
+        }
+    }
+}
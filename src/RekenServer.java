@@ -0,0 +1,292 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Rekenservice over HTTP, zonder GUI. Andere applicaties kunnen hiermee een uitkering laten berekenen
+ * met dezelfde controles als de GUI en de batchberekening. Een verzoek is een POST met een plat
+ * JSON-object met de velden van een BatchRegel (zie BatchRegel.VELDNAMEN), bijvoorbeeld:
+ *
+ * POST /wajong {"rekenmaand":"jan-24","arbeidsvermogen":true,"inkomsten":"1200,00"}
+ * POST /wao {"rekenmaand":"jan-24","rekendagloon":"150","klasse":5,"maatmanloon":"3000","inkomsten":900}
+ *
+ * Bij /bereken moet de regeling in het verzoek staan. Arbeidsvermogen is true, false, "ja" of "nee".
+ * Het antwoord is een JSON-object met de maanduitkering, of met een foutmelding bij status 400 (foute
+ * invoer) of 500 (onverwachte fout, staat ook in het log). GET /status geeft het aantal verzoeken,
+ * het aantal fouten per Foutcode, de cache en de verwerkingstijd (mediaan, p99) in microseconden.
+ *
+ * Na het starten warmt de server de berekening op de achtergrond op (zie Opwarmer). Verzoeken worden
+ * in die tijd al beantwoord, maar kunnen trager zijn. GET /gereed geeft status 503 tot het opwarmen
+ * klaar is en daarna 200, zodat een load balancer pas verkeer stuurt als de server op snelheid is.
+ *
+ * Alle verzoeken gebruiken dezelfde tabellen met grondslagen en CBS-indexen. Die worden bij het
+ * starten eenmalig geladen en daarna alleen nog gelezen. Elk verzoek krijgt een eigen Uitkering, dus
+ * verzoeken delen verder geen veranderlijke gegevens. Alleen de cache en de tellers zijn gedeeld. De
+ * verwerkingstijden komen in STREPEN losse KwantielSchetsen met elk een eigen lock, die /status
+ * samenvoegt; zo wachten gelijktijdige verzoeken zelden op elkaar.
+ *
+ * Verzoeken worden afgehandeld op virtuele threads als de Java-versie die heeft (vanaf Java 21),
+ * en anders op een vaste pool met 2 threads per processorkern. De berekening zelf blokkeert niet,
+ * dus meer threads dan dat levert geen extra doorvoer op.
+ */
+public class RekenServer {
+
+    public static final int STANDAARD_POORT = 8080;
+    private static final int CACHEGROOTTE = 100_000;
+    private static final int MAXIMALE_VERZOEKGROOTTE = 64 * 1024;
+    private static final int STREPEN = 4 * Runtime.getRuntime().availableProcessors();
+    private static final Logger LOG = Logger.getLogger(RekenServer.class.getName());
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final UitkeringCache cache = new UitkeringCache(CACHEGROOTTE);
+    private final KwantielSchets[] verwerkingstijd = new KwantielSchets[STREPEN]; // in nanoseconden
+    private final LongAdder verzoeken = new LongAdder();
+    private final LongAdder fouten = new LongAdder();
+    private final LongAdder[] foutenPerCode = new LongAdder[Foutcode.values().length];
+
+    /**
+     * @param poort de poort waarop de server luistert, 0 voor een vrije poort.
+     * @throws IOException als de poort niet geopend kan worden.
+     */
+    public RekenServer(int poort) throws IOException {
+        // antwoorden zijn klein; zonder TCP_NODELAY wacht elk antwoord op de vertraagde ACK van de client (~40 ms)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        for (int i = 0; i < foutenPerCode.length; i++) {
+            foutenPerCode[i] = new LongAdder();
+        }
+        for (int i = 0; i < STREPEN; i++) {
+            verwerkingstijd[i] = new KwantielSchets();
+        }
+        server = HttpServer.create(new InetSocketAddress(poort), 0);
+        executor = maakExecutor();
+        server.setExecutor(executor);
+        server.createContext("/wao", uitwisseling -> behandelBerekening(uitwisseling, "WAO"));
+        server.createContext("/wajong", uitwisseling -> behandelBerekening(uitwisseling, "WAJONG"));
+        server.createContext("/bereken", uitwisseling -> behandelBerekening(uitwisseling, null));
+        server.createContext("/status", this::behandelStatus);
+        server.createContext("/gereed", this::behandelGereed);
+    }
+
+    /**
+     * Virtuele threads als die er zijn, anders een vaste pool. Via reflectie, zodat de server ook
+     * op Java 17 compileert en draait.
+     */
+    private static ExecutorService maakExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(2 * Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Laadt de parametertabellen, start de server en begint met opwarmen.
+     */
+    public void start() {
+        new WajongUitkering().getGrondslag("jan-24");
+        new WaoUitkering("0", 1).findIndex("jan-24");
+        Uitkering.setCache(cache);
+        server.start();
+        Opwarmer.warmOpOpAchtergrond(Opwarmer.STANDAARD_MAXIMALE_DUUR);
+    }
+
+    /**
+     * Stopt de server. Lopende verzoeken krijgen nog een seconde om af te ronden.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (Uitkering.getCache() == cache) {
+            Uitkering.setCache(null);
+        }
+    }
+
+    public int getPoort() {
+        return server.getAddress().getPort();
+    }
+
+    private void behandelBerekening(HttpExchange uitwisseling, String regeling) throws IOException {
+        long start = System.nanoTime();
+        verzoeken.increment();
+        try {
+            if (!uitwisseling.getRequestMethod().equals("POST")) {
+                fouten.increment();
+                stuurFout(uitwisseling, 405, "Gebruik POST.");
+                return;
+            }
+            String body = leesBody(uitwisseling.getRequestBody());
+            if (body == null) {
+                fouten.increment();
+                stuurFout(uitwisseling, 413, "Verzoek is te groot.");
+                return;
+            }
+            BigDecimal maanduitkering;
+            try {
+                Map<String, String> velden = JsonUtil.leesObject(body);
+                velden.putIfAbsent("id", "-");
+                if (regeling != null) {
+                    velden.put("regeling", regeling);
+                }
+                String arbeidsvermogen = velden.get("arbeidsvermogen");
+                if (arbeidsvermogen != null) {
+                    velden.put("arbeidsvermogen", leesArbeidsvermogen(arbeidsvermogen));
+                }
+                maanduitkering = BatchRegel.lees(velden).bereken();
+            }
+            catch (IllegalArgumentException | ArithmeticException e) {
+                fouten.increment();
+                foutenPerCode[Foutcode.van(e).ordinal()].increment();
+                stuurFout(uitwisseling, 400, e.getMessage());
+                return;
+            }
+            catch (RuntimeException e) { // een fout in de server zelf, niet in het verzoek
+                fouten.increment();
+                foutenPerCode[Foutcode.REKENFOUT.ordinal()].increment();
+                LOG.log(Level.WARNING, "Verzoek op " + uitwisseling.getRequestURI() + " mislukt", e);
+                stuurFout(uitwisseling, 500, "Interne fout in de berekening.");
+                return;
+            }
+            StringBuilder json = new StringBuilder("{\"maanduitkering\":\"")
+                    .append(maanduitkering.toPlainString()).append("\"}");
+            stuur(uitwisseling, 200, json.toString());
+        }
+        finally {
+            uitwisseling.close();
+            long duur = System.nanoTime() - start;
+            KwantielSchets streep = verwerkingstijd[ThreadLocalRandom.current().nextInt(STREPEN)];
+            synchronized (streep) {
+                streep.voegToe(duur);
+            }
+        }
+    }
+
+    /**
+     * @param waarde arbeidsvermogen uit het verzoek.
+     * @return "ja" of "nee" zoals in een BatchRegel, leeg blijft leeg (is "ja").
+     * @throws Rekenfout als de waarde geen ja, nee, true of false is.
+     */
+    private static String leesArbeidsvermogen(String waarde) {
+        if (waarde.isEmpty() || waarde.equalsIgnoreCase("ja") || waarde.equalsIgnoreCase("nee")) {
+            return waarde;
+        }
+        if (waarde.equals("true")) {
+            return "ja";
+        }
+        if (waarde.equals("false")) {
+            return "nee";
+        }
+        throw new Rekenfout(Foutcode.ONGELDIG_ARBEIDSVERMOGEN, "Ongeldig arbeidsvermogen " + waarde + ".");
+    }
+
+    /**
+     * @return JSON-object met per Foutcode het aantal berekeningen dat daarop is mislukt, alleen codes
+     * die minstens 1x zijn voorgekomen.
+     */
+    private String getFoutcodes() {
+        StringBuilder json = new StringBuilder("{");
+        for (Foutcode code : Foutcode.values()) {
+            long aantal = foutenPerCode[code.ordinal()].sum();
+            if (aantal > 0) {
+                json.append(json.length() > 1 ? "," : "").append('"').append(code).append("\":").append(aantal);
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    private void behandelStatus(HttpExchange uitwisseling) throws IOException {
+        try {
+            KwantielSchets samen = new KwantielSchets();
+            for (KwantielSchets streep : verwerkingstijd) {
+                synchronized (streep) {
+                    samen.voegSamen(streep);
+                }
+            }
+            long aantal = samen.getAantal();
+            long mediaan = samen.getKwantiel(0.5);
+            long p99 = samen.getKwantiel(0.99);
+            String json = "{\"gereed\":" + Opwarmer.isGereed()
+                    + ",\"verzoeken\":" + verzoeken.sum()
+                    + ",\"fouten\":" + fouten.sum()
+                    + ",\"foutcodes\":" + getFoutcodes()
+                    + ",\"gemeten\":" + aantal
+                    + ",\"mediaanMicroseconden\":" + mediaan / 1000
+                    + ",\"p99Microseconden\":" + p99 / 1000
+                    + ",\"cache\":" + JsonUtil.voegTekstToe(new StringBuilder(), cache.toString())
+                    + "}";
+            stuur(uitwisseling, 200, json);
+        }
+        finally {
+            uitwisseling.close();
+        }
+    }
+
+    private void behandelGereed(HttpExchange uitwisseling) throws IOException {
+        try {
+            boolean gereed = Opwarmer.isGereed();
+            stuur(uitwisseling, gereed ? 200 : 503, "{\"gereed\":" + gereed + "}");
+        }
+        finally {
+            uitwisseling.close();
+        }
+    }
+
+    /**
+     * @return de tekst van het verzoek, of null als het verzoek groter is dan toegestaan.
+     */
+    private static String leesBody(InputStream in) throws IOException {
+        byte[] bytes = in.readNBytes(MAXIMALE_VERZOEKGROOTTE + 1);
+        if (bytes.length > MAXIMALE_VERZOEKGROOTTE) {
+            return null;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void stuurFout(HttpExchange uitwisseling, int status, String melding) throws IOException {
+        StringBuilder json = new StringBuilder("{\"fout\":");
+        JsonUtil.voegTekstToe(json, melding == null ? "Onbekende fout." : melding).append('}');
+        stuur(uitwisseling, status, json.toString());
+    }
+
+    private static void stuur(HttpExchange uitwisseling, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        uitwisseling.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        uitwisseling.sendResponseHeaders(status, bytes.length);
+        try (OutputStream uit = uitwisseling.getResponseBody()) {
+            uit.write(bytes);
+        }
+    }
+
+    /**
+     * Start de server.
+     * @param args optioneel de poort, standaard 8080.
+     */
+    public static void main(String[] args) throws IOException {
+        int poort = (args.length > 0) ? Integer.parseInt(args[0]) : STANDAARD_POORT;
+        RekenServer rekenServer = new RekenServer(poort);
+        rekenServer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(rekenServer::stop));
+        System.out.println("Rekenservice luistert op poort " + rekenServer.getPoort());
+    }
+}
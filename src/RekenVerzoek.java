@@ -0,0 +1,197 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+
+/**
+ * Verzoek om een maanduitkering te berekenen, in de compacte vorm van het binaire protocol
+ * (zie BinaireRekenServer). Bedragen staan in centen en de rekenmaand als volgnummer van
+ * UitkeringCache.maandIndex(). Een bedrag van -1 betekent dat het veld niet is ingevuld.
+ *
+ * De berekening loopt via BatchRegel, dus met dezelfde controles als de GUI en de batchberekening.
+ */
+public class RekenVerzoek {
+
+    /** Lengte van een verzoek in bytes, zonder lengteveld en volgnummer. */
+    public static final int LENGTE = 49;
+    public static final byte WAO = 1;
+    public static final byte WAJONG = 2;
+    public static final long LEEG = -1;
+
+    private final byte regeling;
+    private final short maand;
+    private final long inkomsten;
+    private final long rekendagloon;
+    private final byte klasse;
+    private final long maatmanloon;
+    private final boolean arbeidsvermogen;
+    private final long garantiebedrag;
+    private final int loonwaarde; // in honderdsten van een procent
+    private final long overigeInkomsten;
+
+    private RekenVerzoek(byte regeling, short maand, long inkomsten, long rekendagloon, byte klasse, long maatmanloon,
+                         boolean arbeidsvermogen, long garantiebedrag, int loonwaarde, long overigeInkomsten) {
+        this.regeling = regeling;
+        this.maand = maand;
+        this.inkomsten = inkomsten;
+        this.rekendagloon = rekendagloon;
+        this.klasse = klasse;
+        this.maatmanloon = maatmanloon;
+        this.arbeidsvermogen = arbeidsvermogen;
+        this.garantiebedrag = garantiebedrag;
+        this.loonwaarde = loonwaarde;
+        this.overigeInkomsten = overigeInkomsten;
+    }
+
+    /**
+     * @param rekenmaand maand in het format mnd-jr (bijv. jan-24).
+     * @param rekendagloon het rekendagloon.
+     * @param klasse de WAO-klasse van 1 tot en met 7.
+     * @param maatmanloon het maatmanloon per maand, of null.
+     * @param inkomsten inkomsten per maand, of null voor geen inkomsten.
+     */
+    public static RekenVerzoek wao(String rekenmaand, BigDecimal rekendagloon, int klasse, BigDecimal maatmanloon,
+                                   BigDecimal inkomsten) {
+        return new RekenVerzoek(WAO, leesMaand(rekenmaand), centen(inkomsten), centen(rekendagloon), (byte) klasse,
+                centen(maatmanloon), true, LEEG, (int) LEEG, LEEG);
+    }
+
+    /**
+     * @param rekenmaand maand in het format mnd-jr (bijv. jan-24).
+     * @param arbeidsvermogen false als de cliënt geen arbeidsvermogen heeft.
+     * @param garantiebedrag garantiebedrag per dag, of null.
+     * @param loonwaarde loonwaarde in procenten bij loondispensatie, of null.
+     * @param overigeInkomsten overige inkomsten per dag, of null.
+     * @param inkomsten inkomsten per maand, of null voor geen inkomsten.
+     */
+    public static RekenVerzoek wajong(String rekenmaand, boolean arbeidsvermogen, BigDecimal garantiebedrag,
+                                      BigDecimal loonwaarde, BigDecimal overigeInkomsten, BigDecimal inkomsten) {
+        return new RekenVerzoek(WAJONG, leesMaand(rekenmaand), centen(inkomsten), LEEG, (byte) 0, LEEG,
+                arbeidsvermogen, centen(garantiebedrag), (int) centen(loonwaarde), centen(overigeInkomsten));
+    }
+
+    private static short leesMaand(String rekenmaand) {
+        long index = UitkeringCache.maandIndex(rekenmaand);
+        if (index < 0) {
+            throw new IllegalArgumentException("Ongeldige rekenmaand " + rekenmaand + ".");
+        }
+        return (short) index;
+    }
+
+    private static long centen(BigDecimal bedrag) {
+        if (bedrag == null) {
+            return LEEG;
+        }
+        if (bedrag.signum() < 0) {
+            throw new IllegalArgumentException("Ongeldig bedrag " + bedrag + ".");
+        }
+        return bedrag.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static String tekst(long centen) {
+        return (centen < 0) ? "" : BigDecimal.valueOf(centen, 2).toPlainString();
+    }
+
+    public byte getRegeling() {
+        return regeling;
+    }
+
+    public String getRekenmaand() {
+        return (maand < 0 || maand >= 1200) ? "" : UitkeringCache.maandNaam(maand);
+    }
+
+    /**
+     * @return de inkomsten zoals in het invoerbestand van de batch, leeg voor geen inkomsten.
+     */
+    public String getInkomsten() {
+        return (inkomsten > 0) ? tekst(inkomsten) : "";
+    }
+
+    /**
+     * @return hetzelfde verzoek zonder inkomsten. Verzoeken met hetzelfde profiel kunnen samen worden
+     * doorgerekend, zie Bundelaar.
+     */
+    public RekenVerzoek getProfiel() {
+        if (inkomsten == 0) {
+            return this;
+        }
+        return new RekenVerzoek(regeling, maand, 0, rekendagloon, klasse, maatmanloon, arbeidsvermogen,
+                garantiebedrag, loonwaarde, overigeInkomsten);
+    }
+
+    /**
+     * Zet het verzoek om naar een BatchRegel.
+     * @param id het id van de regel, bijvoorbeeld het volgnummer van het verzoek.
+     * @return BatchRegel met de gegevens van het verzoek.
+     * @throws IllegalArgumentException als het verzoek geen geldige regeling of rekenmaand heeft.
+     */
+    public BatchRegel naarBatchRegel(String id) {
+        String naam = (regeling == WAO) ? "WAO" : (regeling == WAJONG) ? "WAJONG" : "ONBEKEND";
+        String[] velden = {id, naam, getRekenmaand(), getInkomsten(),
+                tekst(rekendagloon), (regeling == WAO) ? Integer.toString(klasse) : "", tekst(maatmanloon),
+                arbeidsvermogen ? "ja" : "nee", tekst(garantiebedrag), tekst(loonwaarde), tekst(overigeInkomsten)};
+        return BatchRegel.lees(velden);
+    }
+
+    /**
+     * Berekent de maanduitkering voor dit verzoek.
+     * @return de bruto maanduitkering in euro.
+     * @throws IllegalArgumentException als de gegevens geen berekening toelaten.
+     */
+    public BigDecimal bereken() {
+        return naarBatchRegel("-").bereken();
+    }
+
+    @Override
+    public boolean equals(Object ander) {
+        if (!(ander instanceof RekenVerzoek)) {
+            return false;
+        }
+        RekenVerzoek verzoek = (RekenVerzoek) ander;
+        return regeling == verzoek.regeling && maand == verzoek.maand && inkomsten == verzoek.inkomsten
+                && rekendagloon == verzoek.rekendagloon && klasse == verzoek.klasse
+                && maatmanloon == verzoek.maatmanloon && arbeidsvermogen == verzoek.arbeidsvermogen
+                && garantiebedrag == verzoek.garantiebedrag && loonwaarde == verzoek.loonwaarde
+                && overigeInkomsten == verzoek.overigeInkomsten;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = regeling;
+        h = h * 31 + maand;
+        h = h * 31 + inkomsten;
+        h = h * 31 + rekendagloon;
+        h = h * 31 + klasse;
+        h = h * 31 + maatmanloon;
+        h = h * 31 + (arbeidsvermogen ? 1 : 0);
+        h = h * 31 + garantiebedrag;
+        h = h * 31 + loonwaarde;
+        h = h * 31 + overigeInkomsten;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Schrijft het verzoek in het binaire format, LENGTE bytes.
+     */
+    public void schrijf(ByteBuffer uit) {
+        uit.put(regeling).putShort(maand).putLong(inkomsten).putLong(rekendagloon).put(klasse).putLong(maatmanloon)
+                .put((byte) (arbeidsvermogen ? 1 : 0)).putLong(garantiebedrag).putInt(loonwaarde).putLong(overigeInkomsten);
+    }
+
+    /**
+     * Leest een verzoek in het binaire format, LENGTE bytes.
+     */
+    public static RekenVerzoek lees(ByteBuffer in) {
+        byte regeling = in.get();
+        short maand = in.getShort();
+        long inkomsten = in.getLong();
+        long rekendagloon = in.getLong();
+        byte klasse = in.get();
+        long maatmanloon = in.getLong();
+        boolean arbeidsvermogen = in.get() != 0;
+        long garantiebedrag = in.getLong();
+        int loonwaarde = in.getInt();
+        long overigeInkomsten = in.getLong();
+        return new RekenVerzoek(regeling, maand, inkomsten, rekendagloon, klasse, maatmanloon, arbeidsvermogen,
+                garantiebedrag, loonwaarde, overigeInkomsten);
+    }
+}
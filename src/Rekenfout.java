@@ -0,0 +1,27 @@
+/**
+ * Fout in de invoer van een berekening, met een Foutcode naast de melding. Omdat dit een
+ * IllegalArgumentException is, werken bestaande catch-blokken en foutmeldingen ongewijzigd.
+ *
+ * Een Rekenfout legt geen stacktrace vast. Het is een verwachte uitkomst bij slechte invoer en geen
+ * programmeerfout, en zonder stacktrace kost hij weinig meer dan een gewone return. Zo blijft een
+ * batch met veel foute regels even snel als een schone batch.
+ */
+public class Rekenfout extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+    private final Foutcode foutcode;
+
+    public Rekenfout(Foutcode foutcode, String melding) {
+        super(melding);
+        this.foutcode = foutcode;
+    }
+
+    public Foutcode getFoutcode() {
+        return foutcode;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this; // geen stacktrace, zie de klassebeschrijving
+    }
+}
@@ -0,0 +1,223 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rekenhulp op de command line, zonder GUI. Berekent één WAO- of Wajong-uitkering met opties die
+ * overeenkomen met de velden in de GUI, bijvoorbeeld:
+ *
+ * java Rekenhulp wajong --rekenmaand jan-24 --inkomsten 1200,00
+ * java Rekenhulp wao --maand januari --jaar 2024 --rekendagloon 150 --klasse 5 --maatmanloon 3000 --inkomsten 300 --per week
+ *
+ * De maanduitkering gaat naar stdout. Bij een fout gaat de melding naar stderr en is de exitcode 1,
+ * bij verkeerde opties 2.
+ *
+ * Met --stdin leest de rekenhulp regels van stdin en schrijft hij per regel een antwoord naar stdout,
+ * zodat hij in een pijplijn past. Een regel is een reeks velden van BatchRegel in de vorm veld=waarde,
+ * of een regel uit het invoerbestand van de batch. Dit is hetzelfde protocol als dat van de RekenDaemon.
+ *
+ * Deze klasse en de rekenklassen gebruiken geen Swing of AWT (zie InvoerUtil), en de tabellen worden
+ * pas geladen als ze voor de berekening nodig zijn. Zo start de rekenhulp binnen ongeveer 100 ms.
+ */
+public class Rekenhulp {
+
+    private static final String FOUT = "FOUT";
+
+    /**
+     * Een methode en geen constante: de tekst wordt met + samengesteld, en dat kost bij de eerste keer
+     * een invokedynamic-bootstrap die niet bij elke aanroep hoeft.
+     */
+    private static String gebruik() {
+        return String.join("\n",
+            "Gebruik: java Rekenhulp wao|wajong [opties]",
+            "         java Rekenhulp --stdin",
+            "",
+            "Rekenmaand:  --rekenmaand jan-24, of --maand januari --jaar 2024",
+            "WAO:         --rekendagloon <bedrag> --klasse <1-7> [--maatmanloon <bedrag per maand>]",
+            "Wajong:      [--arbeidsvermogen ja|nee] [--garantiebedrag <bedrag per dag>] [--loonwaarde <procent>]",
+            "             [--overige-inkomsten <bedrag> [--overige-per maand|week|4weken]]",
+            "Inkomsten:   [--inkomsten <bedrag> [--per maand|week|4weken]]",
+            "",
+            "Met --stdin wordt elke regel van stdin berekend: velden als veld=waarde, of een regel uit het",
+            "invoerbestand van de batch. Velden: " + String.join(", ", BatchRegel.VELDNAMEN) + ".");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 1 && args[0].equals("--stdin")) {
+            verwerkStroom();
+            return;
+        }
+        if (args.length == 0 || args[0].equals("--help") || args[0].equals("-h")) {
+            System.out.println(gebruik());
+            return;
+        }
+
+        Map<String, String> velden;
+        try {
+            velden = leesOpties(args);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(gebruik());
+            System.exit(2);
+            return;
+        }
+        try {
+            System.out.println(BatchRegel.lees(velden).bereken().toPlainString());
+        }
+        catch (IllegalArgumentException | ArithmeticException e) {
+            System.err.println(e.getMessage() == null ? "Onbekende fout." : e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Zet de opties van de command line om naar de velden van een BatchRegel. Inkomsten per week of
+     * per 4 weken worden omgerekend naar inkomsten per maand, zoals in de GUI.
+     * @throws IllegalArgumentException bij een onbekende of onvolledige optie.
+     */
+    static Map<String, String> leesOpties(String[] args) {
+        Map<String, String> velden = new HashMap<>();
+        velden.put("id", "-");
+        String regeling = args[0].toUpperCase();
+        if (!regeling.equals("WAO") && !regeling.equals("WAJONG")) {
+            throw new IllegalArgumentException("Onbekende regeling " + args[0] + ", kies wao of wajong.");
+        }
+        velden.put("regeling", regeling);
+
+        String maand = null;
+        String jaar = null;
+        String per = "maand";
+        String overigePer = "maand";
+        for (int i = 1; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Optie " + args[i] + " mist een waarde.");
+            }
+            String waarde = args[i + 1];
+            switch (args[i]) {
+                case "--rekenmaand": velden.put("rekenmaand", waarde); break;
+                case "--maand": maand = waarde.toLowerCase(); break;
+                case "--jaar": jaar = waarde; break;
+                case "--inkomsten": velden.put("inkomsten", waarde); break;
+                case "--per": per = waarde; break;
+                case "--rekendagloon": velden.put("rekendagloon", waarde); break;
+                case "--klasse": velden.put("klasse", waarde); break;
+                case "--maatmanloon": velden.put("maatmanloon", waarde); break;
+                case "--arbeidsvermogen": velden.put("arbeidsvermogen", waarde); break;
+                case "--garantiebedrag": velden.put("garantiebedrag", waarde); break;
+                case "--loonwaarde": velden.put("loonwaarde", waarde); break;
+                case "--overige-inkomsten": velden.put("overigeInkomsten", waarde); break;
+                case "--overige-per": overigePer = waarde; break;
+                case "--id": velden.put("id", waarde); break;
+                default: throw new IllegalArgumentException("Onbekende optie " + args[i] + ".");
+            }
+        }
+
+        if (maand != null || jaar != null) {
+            if (maand == null || maand.length() < 3 || jaar == null || jaar.length() != 4) {
+                throw new IllegalArgumentException("Geef --maand als naam (januari) en --jaar met 4 cijfers (2024).");
+            }
+            velden.put("rekenmaand", InvoerUtil.getRekenmaand(maand, jaar));
+        }
+        naarMaand(velden, "inkomsten", per);
+        naarMaand(velden, "overigeInkomsten", overigePer);
+        return velden;
+    }
+
+    private static void naarMaand(Map<String, String> velden, String veld, String per) {
+        int aantalweken;
+        switch (per) {
+            case "maand": return;
+            case "week": aantalweken = 1; break;
+            case "4weken": aantalweken = 4; break;
+            default: throw new IllegalArgumentException("Onbekende periode " + per + ", kies maand, week of 4weken.");
+        }
+        String bedrag = InvoerUtil.bedragCleanup(velden.get(veld));
+        if (bedrag != null) { // een ongeldig bedrag wordt door BatchRegel gemeld
+            velden.put(veld, Uitkering.inkomstenWeekNaarMaand(bedrag, aantalweken));
+        }
+    }
+
+    /**
+     * Berekent elke regel van stdin en schrijft de antwoorden naar stdout. Er wordt pas geschreven als er
+     * geen regels meer klaarstaan, zodat een pijplijn in grote blokken werkt en een interactieve
+     * gebruiker toch direct antwoord krijgt.
+     */
+    private static void verwerkStroom() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 64 * 1024);
+        Writer uit = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024);
+        String regel;
+        while ((regel = in.readLine()) != null) {
+            if (regel.isBlank()) {
+                continue;
+            }
+            uit.write(beantwoord(regel));
+            uit.write('\n');
+            if (!in.ready()) {
+                uit.flush();
+            }
+        }
+        uit.flush();
+    }
+
+    /**
+     * @param regel veld=waarde-paren gescheiden door spaties, of een regel uit het invoerbestand van de batch.
+     * @return de maanduitkering, FOUT met de foutmelding, of bij een regel uit het invoerbestand een
+     * regel zoals in het uitvoerbestand van de batch. Zonder regeleinde.
+     */
+    static String beantwoord(String regel) {
+        if (regel.contains(BatchRegel.SCHEIDINGSTEKEN)) {
+            BatchRegel batchRegel;
+            try {
+                batchRegel = BatchRegel.lees(regel);
+            }
+            catch (IllegalArgumentException e) {
+                return regel.split(BatchRegel.SCHEIDINGSTEKEN, 2)[0] + ";;;" + FOUT;
+            }
+            BigDecimal maanduitkering;
+            try {
+                maanduitkering = batchRegel.bereken();
+            }
+            catch (RuntimeException e) {
+                maanduitkering = null;
+            }
+            return batchRegel.uitvoer(maanduitkering);
+        }
+
+        try {
+            BigDecimal maanduitkering = BatchRegel.lees(leesVelden(regel.strip().split("\\s+"))).bereken();
+            return maanduitkering.toPlainString();
+        }
+        catch (IllegalArgumentException | ArithmeticException e) {
+            return FOUT + " " + (e.getMessage() == null ? "Onbekende fout." : e.getMessage());
+        }
+    }
+
+    /**
+     * Leest velden in de vorm veld=waarde. Zonder id krijgt de regel id "-".
+     * @throws IllegalArgumentException bij een onbekend veld of een argument zonder =.
+     */
+    static Map<String, String> leesVelden(String[] argumenten) {
+        List<String> veldnamen = Arrays.asList(BatchRegel.VELDNAMEN);
+        Map<String, String> velden = new HashMap<>();
+        velden.put("id", "-");
+        for (String argument : argumenten) {
+            int is = argument.indexOf('=');
+            if (is <= 0 || !veldnamen.contains(argument.substring(0, is))) {
+                throw new IllegalArgumentException("Onbekend veld " + argument + ", gebruik veld=waarde met een veld uit "
+                        + String.join(", ", veldnamen) + ".");
+            }
+            velden.put(argument.substring(0, is), argument.substring(is + 1));
+        }
+        return velden;
+    }
+}
@@ -0,0 +1,98 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Houdt de K hoogste bedragen bij uit een reeks, met het cliënt-id erbij. Intern een min-heap van
+ * maximaal K elementen: een nieuw bedrag hoeft alleen vergeleken te worden met het laagste bedrag
+ * in de lijst. Bij gelijke bedragen wint het laagste id, zodat de uitkomst niet afhangt van de
+ * volgorde waarin threads of shards worden samengevoegd.
+ */
+public class TopLijst {
+
+    private static final Comparator<Item> OPLOPEND = Comparator.comparingLong((Item item) -> item.centen)
+            .thenComparing((Item item) -> item.id, Comparator.reverseOrder());
+
+    private final int maximum;
+    private final PriorityQueue<Item> heap;
+
+    /**
+     * @param maximum aantal bedragen dat wordt bijgehouden (K), minimaal 1.
+     */
+    public TopLijst(int maximum) {
+        this.maximum = Math.max(1, maximum);
+        this.heap = new PriorityQueue<>(this.maximum + 1, OPLOPEND);
+    }
+
+    public void voegToe(long centen, String id) {
+        if (heap.size() < maximum) {
+            heap.add(new Item(centen, id));
+        }
+        else if (centen >= heap.peek().centen) { // anders kan het bedrag nooit in de lijst komen
+            Item item = new Item(centen, id);
+            if (OPLOPEND.compare(item, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+    }
+
+    public void voegSamen(TopLijst andere) {
+        for (Item item : andere.heap) {
+            voegToe(item.centen, item.id);
+        }
+    }
+
+    /**
+     * @return de bijgehouden bedragen, hoogste eerst.
+     */
+    public List<Item> getLijst() {
+        List<Item> lijst = new ArrayList<>(heap);
+        lijst.sort(Collections.reverseOrder(OPLOPEND));
+        return lijst;
+    }
+
+    public void schrijf(DataOutputStream uit) throws IOException {
+        uit.writeInt(maximum);
+        uit.writeInt(heap.size());
+        for (Item item : heap) {
+            uit.writeLong(item.centen);
+            uit.writeUTF(item.id);
+        }
+    }
+
+    public static TopLijst lees(DataInputStream in) throws IOException {
+        TopLijst lijst = new TopLijst(in.readInt());
+        int aantal = in.readInt();
+        for (int i = 0; i < aantal; i++) {
+            lijst.voegToe(in.readLong(), in.readUTF());
+        }
+        return lijst;
+    }
+
+    /**
+     * Een bedrag in de lijst met het bijbehorende cliënt-id.
+     */
+    public static class Item {
+        private final long centen;
+        private final String id;
+
+        Item(long centen, String id) {
+            this.centen = centen;
+            this.id = id;
+        }
+
+        public long getCenten() {
+            return centen;
+        }
+
+        public String getId() {
+            return id;
+        }
+    }
+}
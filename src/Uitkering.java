@@ -1,6 +1,9 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.text.NumberFormat;
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.function.Supplier;
 
 /** Klasse met algemene eigenschappen en methoden die nodig zijn voor elke
  * uitkering. Klasse is abstract omdat berekening van de uitkering per dag
@@ -9,10 +12,6 @@ import java.util.Locale;
  * is van de implementatie in de subklassen.
  */
 public abstract class Uitkering {
-    // Constanten voor correcte output
-    private static final NumberFormat nf = NumberFormat.getInstance(Locale.GERMANY);
-    // decimaal naar komma voor String output, niet voor currency instance gekozen omdat
-    // het euro-teken dan aan het bedrag wordt vastgeplakt.
     public static final BigDecimal UK_DAGEN_IN_MND = BigDecimalUtil.create("21.75");
     // Gemiddeld aantal uitkeringsdagen per maand. (261 per jaar, gedeeld door 12, is 21.75)
     public static final BigDecimal MAXIMUM_DAGLOON = BigDecimalUtil.create("274.44"); // per jan-24
@@ -30,9 +29,12 @@ public abstract class Uitkering {
     public static final BigDecimal FOUR = BigDecimalUtil.create("4");
     // nodig om vierwekenlonen om te zetten naar een bedrag per maand
 
+    // volatile: de servers en de batch zetten de cache terwijl rekenthreads hem lezen
+    private static volatile UitkeringCache cache = null; // standaard uit, de GUI berekent maar 1 bedrag per keer
+    private static final ThreadLocal<Boolean> ZONDER_CACHE = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    private static int parameterVersie = 0; // telt op bij elke keer dat een parametertabel wordt ingelezen
+
     public Uitkering() {
-        nf.setMinimumFractionDigits(2);
-        nf.setMaximumFractionDigits(2);
     }
 
     /**
@@ -65,10 +67,143 @@ public abstract class Uitkering {
         return BigDecimalUtil.multiply(getDaguitkering(verdiensten, rekenmaand),UK_DAGEN_IN_MND);
     }
 
+    /**
+     * Berekent de maanduitkering voor een reeks verdiensten in dezelfde maand, met dezelfde uitkomsten
+     * als getMaanduitkering(verdiensten, rekenmaand) per bedrag. Gegevens die voor de hele reeks gelijk
+     * zijn, zoals de grondslag of het actuele maatmanloon, worden maar 1x opgezocht en berekend.
+     * @param verdiensten de brutobedragen van de inkomsten.
+     * @param rekenmaand is de maand waarover gerekend moet worden, format mnd-jr als String.
+     * @return bruto maanduitkeringen in euro, in de volgorde van verdiensten. Null als de rekenmaand
+     * niet beschikbaar is.
+     */
+    public BigDecimal[] getMaanduitkeringen(String[] verdiensten, String rekenmaand) {
+        BigDecimal[] maanduitkeringen = getDaguitkeringen(verdiensten, rekenmaand);
+        for (int i = 0; i < maanduitkeringen.length; i++) {
+            if (maanduitkeringen[i] != null) {
+                maanduitkeringen[i] = BigDecimalUtil.multiply(maanduitkeringen[i],UK_DAGEN_IN_MND);
+            }
+        }
+        return maanduitkeringen;
+    }
+
     public abstract BigDecimal getDaguitkering();
 
     public abstract BigDecimal getDaguitkering(String rekenmaand);
     public abstract BigDecimal getDaguitkering(String verdiensten, String rekenmaand);
+    public abstract BigDecimal[] getDaguitkeringen(String[] verdiensten, String rekenmaand);
+
+    /**
+     * Haalt een daguitkering uit de cache, of berekent die als de cache uit staat of de uitkomst er
+     * nog niet in zit. De sleutel komt van het profiel waarmee gerekend wordt en niet van dit object,
+     * zodat de uitkomst hoort bij precies het profiel dat de berekening gebruikt.
+     * @param profiel de eigenschappen van de uitkering verpakt in 1 long (zie WajongProfiel.getSleutel()),
+     * of -1 als de cache niet gebruikt kan worden.
+     * @param verdiensten de inkomsten waarmee gerekend wordt.
+     * @param rekenmaand de maand waarover gerekend wordt.
+     * @param berekening de berekening zonder cache.
+     * @return de daguitkering.
+     */
+    protected static BigDecimal metCache(long profiel, String verdiensten, String rekenmaand, Supplier<BigDecimal> berekening) {
+        UitkeringCache cache = getCache();
+        if (cache == null || ZONDER_CACHE.get()) {
+            return berekening.get();
+        }
+        long invoer = UitkeringCache.invoerSleutel(rekenmaand, BigDecimalUtil.create(verdiensten));
+        if (profiel < 0 || invoer < 0) { // past niet in een sleutel, dan zonder cache
+            return berekening.get();
+        }
+        return cache.haalOp(profiel, invoer, berekening);
+    }
+
+    /**
+     * Leest een parametertabel met per regel een maand en een waarde, gescheiden door spaties. Zonder
+     * Scanner, omdat die bij het aanmaken reguliere expressies en locale-gegevens laadt; dat kost bij
+     * het opstarten meer tijd dan het lezen van de tabel zelf.
+     * @param bestand pad van het bestand.
+     * @return de regels als paren {maand, waarde}, lege regels worden overgeslagen.
+     * @throws IOException als het bestand niet gelezen kan worden.
+     */
+    protected static ArrayList<String[]> leesTabel(String bestand) throws IOException {
+        ArrayList<String[]> regels = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(bestand))) {
+            String regel;
+            while ((regel = in.readLine()) != null) {
+                regel = regel.strip();
+                if (regel.isEmpty()) {
+                    continue;
+                }
+                int einde = 0;
+                while (einde < regel.length() && !Character.isWhitespace(regel.charAt(einde))) {
+                    einde++;
+                }
+                regels.add(new String[] {regel.substring(0, einde), regel.substring(einde).strip()});
+            }
+        }
+        return regels;
+    }
+
+    /**
+     * Legt vast welke tak van de berekening van toepassing is bij de opgegeven verdiensten, en hoe de
+     * daguitkering afhangt van de beleidsparameters. Zie Gevoeligheid en BudgetSimulatie.
+     * @param verdiensten het brutobedrag van de inkomsten, "0" als er geen inkomsten zijn.
+     * @param rekenmaand is de maand waarover gerekend moet worden, format mnd-jr als String.
+     * @return Gevoeligheid van de daguitkering, of null als de rekenmaand niet beschikbaar is.
+     */
+    public abstract Gevoeligheid getGevoeligheid(String verdiensten, String rekenmaand);
+
+    /**
+     * Laat deze uitkering rekenen met andere beleidsparameters. Uitkomsten met een scenario worden
+     * niet in de cache bewaard. De waarden van het scenario worden bij deze aanroep overgenomen in
+     * het profiel van de uitkering.
+     * @param scenario het scenario, of null om met de huidige parameters te rekenen.
+     */
+    public abstract void setScenario(BeleidsScenario scenario);
+
+    public abstract BeleidsScenario getScenario();
+
+    /**
+     * Zet een cache voor berekende daguitkeringen aan, voor alle Uitkering-objecten tegelijk.
+     * Vooral nuttig bij een batchberekening waarin veel cliënten dezelfde gegevens hebben. Andere threads
+     * zien de nieuwe cache bij hun volgende berekening.
+     * @param uitkeringCache de te gebruiken cache, of null om de cache uit te zetten.
+     */
+    public static void setCache(UitkeringCache uitkeringCache) {
+        cache = uitkeringCache;
+    }
+
+    public static UitkeringCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Voert berekeningen uit zonder de cache, alleen op de huidige thread. Andere threads gebruiken de
+     * cache gewoon en de ingestelde cache blijft staan. Zie Opwarmer.
+     * @param berekeningen de berekeningen.
+     * @return de uitkomst van berekeningen.
+     */
+    public static <T> T zonderCache(Supplier<T> berekeningen) {
+        Boolean vorige = ZONDER_CACHE.get();
+        ZONDER_CACHE.set(Boolean.TRUE);
+        try {
+            return berekeningen.get();
+        }
+        finally {
+            ZONDER_CACHE.set(vorige);
+        }
+    }
+
+    /**
+     * Versie van de ingelezen parametertabellen (grondslag, CBS-index). Onderdeel van de cachesleutel,
+     * zodat na het opnieuw inlezen van een tabel geen oude uitkomsten uit de cache komen.
+     * @return het aantal keer dat een parametertabel is ingelezen.
+     */
+    public static synchronized int getParameterVersie() {
+        return parameterVersie;
+    }
+
+    protected static synchronized void verhoogParameterVersie() {
+        parameterVersie++;
+    }
 
     public static BigDecimal getMaximumDagloon() { // nodig om afgeleide klasse toegang tot deze constante te geven
         return MAXIMUM_DAGLOON;
@@ -127,7 +262,7 @@ public abstract class Uitkering {
      * @return Het ingevoerde getal als String van het format "€ x.xxx,xx".
      */
     public static String bedragFormat(BigDecimal bedrag) {
-        return "€ " + nf.format(bedrag);
+        return OpmaakUtil.bedragFormat(bedrag);
     }
 
     /**
@@ -137,6 +272,6 @@ public abstract class Uitkering {
      * @return het ingevoerde getal als String van het format "x.xxx,xx".
      */
     public static String getalFormat(BigDecimal getal) {
-        return nf.format(getal);
+        return OpmaakUtil.getalFormat(getal);
     }
 }
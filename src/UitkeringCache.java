@@ -0,0 +1,218 @@
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Begrensde cache voor berekende daguitkeringen. Veel cliënten in een batch hebben precies dezelfde
+ * gegevens (zelfde soort uitkering, maand en inkomsten), en dan hoeft de berekening maar 1x gedaan
+ * te worden. De sleutel bestaat uit 2 longs waarin alle gegevens zijn verpakt die de uitkomst
+ * bepalen: het profiel van de uitkering en de maand, verdiensten en parameterversie, zie
+ * getCacheSleutel() in de rekenklassen. Een sleutel als String samenstellen kost meer tijd
+ * dan de berekening zelf, daarom deze compacte vorm.
+ *
+ * De cache is verdeeld in segmenten die elk hun eigen lock hebben, zodat threads elkaar weinig
+ * in de weg zitten. Elk segment gooit de langst niet gebruikte waarde weg als het vol is (LRU).
+ */
+public class UitkeringCache {
+
+    private static final int AANTAL_SEGMENTEN = 16;
+    private static final String[] MAANDEN = {"jan", "feb", "mrt", "apr", "mei", "jun",
+            "jul", "aug", "sep", "okt", "nov", "dec"};
+
+    private final Segment[] segmenten;
+    private final LongAdder treffers = new LongAdder();
+    private final LongAdder missers = new LongAdder();
+    private final LongAdder verwijderd = new LongAdder();
+
+    /**
+     * @param maximumGrootte maximaal aantal bewaarde uitkomsten, verdeeld over de segmenten.
+     */
+    public UitkeringCache(int maximumGrootte) {
+        int perSegment = Math.max(1, maximumGrootte / AANTAL_SEGMENTEN);
+        segmenten = new Segment[AANTAL_SEGMENTEN];
+        for (int i = 0; i < AANTAL_SEGMENTEN; i++) {
+            segmenten[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Geeft de bewaarde uitkomst voor de sleutel, of berekent die en bewaart hem.
+     * De berekening gebeurt buiten het lock. Als 2 threads tegelijk dezelfde sleutel missen wordt
+     * er dus 2x gerekend, met dezelfde uitkomst. Dat is goedkoper dan threads op elkaar laten wachten.
+     * @param profiel de eigenschappen van de uitkering, verpakt in een long.
+     * @param invoer maand, verdiensten en parameterversie, verpakt in een long.
+     * @param berekening de berekening als de uitkomst nog niet bewaard is.
+     * @return de uitkomst van de berekening. Null wordt niet bewaard, maar wel teruggegeven.
+     */
+    public BigDecimal haalOp(long profiel, long invoer, Supplier<BigDecimal> berekening) {
+        Sleutel sleutel = new Sleutel(profiel, invoer);
+        Segment segment = segmenten[(sleutel.hashCode() & 0x7fffffff) % AANTAL_SEGMENTEN];
+        BigDecimal uitkomst;
+        synchronized (segment) {
+            uitkomst = segment.get(sleutel);
+        }
+        if (uitkomst != null) {
+            treffers.increment();
+            return uitkomst;
+        }
+
+        missers.increment();
+        uitkomst = berekening.get();
+        if (uitkomst != null) {
+            synchronized (segment) {
+                segment.put(sleutel, uitkomst);
+            }
+        }
+        return uitkomst;
+    }
+
+    /**
+     * Zet een bedrag om naar een aantal centen dat in het gegeven aantal bits past.
+     * @param bedrag het bedrag in euro, mag null zijn.
+     * @param bits aantal bits dat beschikbaar is in de sleutel.
+     * @return het aantal centen, 0 als bedrag null is, of -1 als het bedrag negatief is, meer dan
+     * 2 decimalen heeft of niet in het aantal bits past. Dan kan de cache niet gebruikt worden.
+     */
+    public static long centen(BigDecimal bedrag, int bits) {
+        if (bedrag == null) {
+            return 0;
+        }
+        long inCenten;
+        try {
+            inCenten = bedrag.movePointRight(2).longValueExact();
+        }
+        catch (ArithmeticException e) { // meer dan 2 decimalen of veel te groot
+            return -1;
+        }
+        if (inCenten < 0 || inCenten >= (1L << bits)) {
+            return -1;
+        }
+        return inCenten;
+    }
+
+    /**
+     * Zet een rekenmaand om naar een volgnummer, zodat die in de sleutel past.
+     * @param rekenmaand maand in het format mnd-jr (bijv. jan-24).
+     * @return jaar * 12 + maandnummer, of -1 als de maand niet gelezen kan worden.
+     */
+    public static long maandIndex(String rekenmaand) {
+        if (rekenmaand.length() != 6 || rekenmaand.charAt(3) != '-') {
+            return -1;
+        }
+        char tiental = rekenmaand.charAt(4);
+        char eenheid = rekenmaand.charAt(5);
+        if (tiental < '0' || tiental > '9' || eenheid < '0' || eenheid > '9') {
+            return -1;
+        }
+        for (int i = 0; i < MAANDEN.length; i++) {
+            if (rekenmaand.regionMatches(true, 0, MAANDEN[i], 0, 3)) {
+                return ((tiental - '0') * 10 + (eenheid - '0')) * 12L + i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Zet een volgnummer van maandIndex() terug om naar een rekenmaand.
+     * @param index jaar * 12 + maandnummer.
+     * @return maand in het format mnd-jr (bijv. jan-24).
+     */
+    public static String maandNaam(long index) {
+        return MAANDEN[(int) (index % 12)] + "-" + String.format("%02d", index / 12);
+    }
+
+    /**
+     * Verpakt maand, verdiensten en parameterversie in 1 long: 8 bits versie, 16 bits maand en
+     * 40 bits verdiensten in centen.
+     * @param rekenmaand maand in het format mnd-jr.
+     * @param verdiensten de verdiensten in euro.
+     * @return de verpakte waarde, of -1 als een van de onderdelen niet past.
+     */
+    public static long invoerSleutel(String rekenmaand, BigDecimal verdiensten) {
+        long maand = maandIndex(rekenmaand);
+        long centen = centen(verdiensten, 40);
+        if (maand < 0 || centen < 0) {
+            return -1;
+        }
+        return ((long) (Uitkering.getParameterVersie() & 0xff) << 56) | (maand << 40) | centen;
+    }
+
+    public long getTreffers() {
+        return treffers.sum();
+    }
+
+    public long getMissers() {
+        return missers.sum();
+    }
+
+    public long getVerwijderd() {
+        return verwijderd.sum();
+    }
+
+    /**
+     * @return het percentage opvragingen dat uit de cache kwam, 0 als er nog niets is opgevraagd.
+     */
+    public double getTrefPercentage() {
+        long totaal = getTreffers() + getMissers();
+        return totaal == 0 ? 0 : 100.0 * getTreffers() / totaal;
+    }
+
+    public String toString() {
+        return "Cache: " + getTreffers() + " treffers, " + getMissers() + " missers, " + getVerwijderd()
+                + " verwijderd (" + String.format("%.1f", getTrefPercentage()) + "% treffers)";
+    }
+
+    /**
+     * Sleutel van 2 longs, met een hash waarin beide helften worden gemengd.
+     */
+    private static final class Sleutel {
+        private final long profiel;
+        private final long invoer;
+
+        Sleutel(long profiel, long invoer) {
+            this.profiel = profiel;
+            this.invoer = invoer;
+        }
+
+        @Override
+        public boolean equals(Object ander) {
+            if (!(ander instanceof Sleutel)) {
+                return false;
+            }
+            Sleutel sleutel = (Sleutel) ander;
+            return profiel == sleutel.profiel && invoer == sleutel.invoer;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = profiel * 0x9E3779B97F4A7C15L + invoer;
+            h ^= (h >>> 32);
+            return (int) (h ^ (h >>> 16));
+        }
+    }
+
+    /**
+     * Een LinkedHashMap in access-order houdt de volgorde van gebruik bij, zodat de oudste
+     * waarde verwijderd kan worden als het segment vol is.
+     */
+    private class Segment extends LinkedHashMap<Sleutel, BigDecimal> {
+        private static final long serialVersionUID = 1L;
+        private final int capaciteit;
+
+        Segment(int capaciteit) {
+            super(16, 0.75f, true);
+            this.capaciteit = capaciteit;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Sleutel, BigDecimal> oudste) {
+            if (size() > capaciteit) {
+                verwijderd.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import javax.swing.JComponent;
+
+/**
+ * Grafiek van een InkomensCurve: de maanduitkering en de uitkering plus inkomsten, over het hele bereik
+ * van de inkomsten. De grenzen van de WAO-klassen en bij de Wajong het garantiebedrag en het snijpunt van
+ * de 2 methoden bij loondispensatie zijn met een stippellijn gemarkeerd.
+ *
+ * De grafiek wordt 1 keer getekend in een BufferedImage, die bij elke paint() alleen wordt gekopieerd.
+ * Het beeld wordt pas opnieuw getekend als er een andere curve komt of het component een andere grootte
+ * krijgt; de curve zelf wordt daarbij niet opnieuw berekend. Als de muis boven de grafiek staat worden
+ * een lijn en de bedragen bij dat inkomen over het beeld heen getekend, afgelezen uit de curve.
+ *
+ * Alleen op de EDT gebruiken.
+ */
+public class UitkeringsGrafiek extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+    private static final int MARGE_LINKS = 70;
+    private static final int MARGE_RECHTS = 30;
+    private static final int MARGE_BOVEN = 30;
+    private static final int MARGE_ONDER = 35;
+    private static final Color KLEUR_UITKERING = new Color(0, 90, 170);
+    private static final Color KLEUR_TOTAAL = new Color(0, 140, 60);
+    private static final Color KLEUR_MARKERING = new Color(200, 80, 0);
+    private static final Color KLEUR_RASTER = new Color(225, 225, 225);
+    private static final BasicStroke LIJN = new BasicStroke(2f);
+    private static final BasicStroke STIPPEL = new BasicStroke(1f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER,
+            10f, new float[] {4f, 4f}, 0f);
+
+    private final StringBuilder buffer = new StringBuilder(32);
+    private InkomensCurve curve = null;
+    private String melding = "";
+    private BufferedImage beeld = null;
+    private int muisX = -1; // -1 is geen muis boven de grafiek
+    private double schaalX; // bij het beeld: euro inkomen per pixel
+    private double schaalY; // euro uitkering per pixel
+
+    public UitkeringsGrafiek() {
+        setPreferredSize(new Dimension(420, 320));
+        setOpaque(true);
+        MouseAdapter muis = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                muisX = e.getX();
+                repaint();
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                muisX = -1;
+                repaint();
+            }
+        };
+        addMouseListener(muis);
+        addMouseMotionListener(muis);
+    }
+
+    /**
+     * Toont een nieuwe curve.
+     * @param curve de curve, of null om alleen de melding te tonen.
+     * @param melding tekst boven de grafiek, of in plaats van de grafiek als curve null is.
+     */
+    public void toon(InkomensCurve curve, String melding) {
+        this.curve = curve;
+        this.melding = melding;
+        beeld = null;
+        repaint();
+    }
+
+    public InkomensCurve getCurve() {
+        return curve;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (beeld == null || beeld.getWidth() != getWidth() || beeld.getHeight() != getHeight()) {
+            if (getWidth() <= 0 || getHeight() <= 0) {
+                return;
+            }
+            beeld = tekenBeeld(getWidth(), getHeight());
+        }
+        g.drawImage(beeld, 0, 0, null);
+        if (curve != null && muisX >= MARGE_LINKS && muisX <= getWidth() - MARGE_RECHTS) {
+            tekenMuis((Graphics2D) g);
+        }
+    }
+
+    private BufferedImage tekenBeeld(int breedte, int hoogte) {
+        BufferedImage nieuw = new BufferedImage(breedte, hoogte, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = nieuw.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(getBackground() == null ? Color.WHITE : getBackground());
+            g.fillRect(0, 0, breedte, hoogte);
+            g.setFont(getFont());
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(melding, MARGE_LINKS, MARGE_BOVEN - 12);
+            if (curve == null) {
+                return nieuw;
+            }
+            int vlakBreedte = Math.max(1, breedte - MARGE_LINKS - MARGE_RECHTS);
+            int vlakHoogte = Math.max(1, hoogte - MARGE_BOVEN - MARGE_ONDER);
+            double stapY = rasterStap(curve.getMaximumTotaal());
+            double stapX = rasterStap(curve.getMaximumInkomen());
+            int stappenY = (int) Math.ceil(curve.getMaximumTotaal() / stapY - 1e-9);
+            int stappenX = (int) Math.ceil(curve.getMaximumInkomen() / stapX - 1e-9);
+            schaalX = stapX * stappenX / vlakBreedte;
+            schaalY = stapY * stappenY / vlakHoogte;
+
+            // raster en assen
+            FontMetrics maten = g.getFontMetrics();
+            for (int i = 0; i <= stappenY; i++) {
+                int y = naarY(stapY * i);
+                g.setColor(KLEUR_RASTER);
+                g.drawLine(MARGE_LINKS, y, MARGE_LINKS + vlakBreedte, y);
+                g.setColor(Color.DARK_GRAY);
+                String bedrag = euroRond(stapY * i);
+                g.drawString(bedrag, MARGE_LINKS - 5 - maten.stringWidth(bedrag), y + maten.getAscent() / 2);
+            }
+            for (int i = 0; i <= stappenX; i++) {
+                int x = naarX(stapX * i);
+                g.setColor(KLEUR_RASTER);
+                g.drawLine(x, MARGE_BOVEN, x, MARGE_BOVEN + vlakHoogte);
+                g.setColor(Color.DARK_GRAY);
+                String bedrag = euroRond(stapX * i);
+                g.drawString(bedrag, x - maten.stringWidth(bedrag) / 2, MARGE_BOVEN + vlakHoogte + maten.getAscent() + 3);
+            }
+            g.drawLine(MARGE_LINKS, MARGE_BOVEN, MARGE_LINKS, MARGE_BOVEN + vlakHoogte);
+            g.drawLine(MARGE_LINKS, MARGE_BOVEN + vlakHoogte, MARGE_LINKS + vlakBreedte, MARGE_BOVEN + vlakHoogte);
+
+            // markeringen
+            g.setStroke(STIPPEL);
+            for (int i = 0; i < curve.getAantalMarkeringen(); i++) {
+                int x = naarX(curve.getMarkering(i));
+                g.setColor(KLEUR_MARKERING);
+                g.drawLine(x, MARGE_BOVEN, x, MARGE_BOVEN + vlakHoogte);
+                g.drawString(curve.getMarkeringNaam(i), x + 3, MARGE_BOVEN + maten.getAscent() + (i % 4) * maten.getHeight());
+            }
+
+            // de lijnen: tussen de punten is de curve lineair, dus rechte stukken zijn exact
+            Path2D uitkering = new Path2D.Double();
+            Path2D totaal = new Path2D.Double();
+            for (int i = 0; i < curve.getAantal(); i++) {
+                double x = naarXDouble(curve.getInkomen(i));
+                double y = naarYDouble(curve.getUitkering(i));
+                double yTotaal = naarYDouble(curve.getUitkering(i) + curve.getInkomen(i) + curve.getOverigeInkomsten());
+                if (i == 0) {
+                    uitkering.moveTo(x, y);
+                    totaal.moveTo(x, yTotaal);
+                }
+                else {
+                    uitkering.lineTo(x, y);
+                    totaal.lineTo(x, yTotaal);
+                }
+            }
+            g.setStroke(LIJN);
+            g.setColor(KLEUR_TOTAAL);
+            g.draw(totaal);
+            g.setColor(KLEUR_UITKERING);
+            g.draw(uitkering);
+
+            // legenda
+            int legendaX = MARGE_LINKS + vlakBreedte - 160;
+            g.setColor(KLEUR_TOTAAL);
+            g.drawString("Uitkering + inkomsten", legendaX, MARGE_BOVEN - 12);
+            g.setColor(KLEUR_UITKERING);
+            g.drawString("Uitkering", legendaX, MARGE_BOVEN - 12 + maten.getHeight());
+        }
+        finally {
+            g.dispose();
+        }
+        return nieuw;
+    }
+
+    /**
+     * Tekent een lijn bij de muis en de bedragen bij dat inkomen. Gebruikt alleen de curve.
+     */
+    private void tekenMuis(Graphics2D g) {
+        double inkomen = (muisX - MARGE_LINKS) * schaalX;
+        double uitkering = curve.getUitkering(inkomen);
+        g.setColor(Color.GRAY);
+        g.drawLine(muisX, MARGE_BOVEN, muisX, getHeight() - MARGE_ONDER);
+        g.setColor(KLEUR_UITKERING);
+        g.fillOval(muisX - 3, naarY(uitkering) - 3, 7, 7);
+
+        String[] regels = {"Inkomsten " + euro(inkomen), "Uitkering " + euro(uitkering),
+                "Totaal " + euro(uitkering + inkomen + curve.getOverigeInkomsten())};
+        FontMetrics maten = g.getFontMetrics();
+        int breedte = 0;
+        for (String regel : regels) {
+            breedte = Math.max(breedte, maten.stringWidth(regel));
+        }
+        int x = (muisX + breedte + 16 > getWidth()) ? muisX - breedte - 12 : muisX + 6;
+        int y = MARGE_BOVEN + 3 * maten.getHeight() + 5;
+        g.setColor(new Color(255, 255, 240));
+        g.fillRect(x, y, breedte + 8, regels.length * maten.getHeight() + 6);
+        g.setColor(Color.GRAY);
+        g.drawRect(x, y, breedte + 8, regels.length * maten.getHeight() + 6);
+        g.setColor(Color.BLACK);
+        for (int i = 0; i < regels.length; i++) {
+            g.drawString(regels[i], x + 4, y + 3 + maten.getAscent() + i * maten.getHeight());
+        }
+    }
+
+    private int naarX(double inkomen) {
+        return (int) Math.round(naarXDouble(inkomen));
+    }
+
+    private double naarXDouble(double inkomen) {
+        return MARGE_LINKS + inkomen / schaalX;
+    }
+
+    private int naarY(double bedrag) {
+        return (int) Math.round(naarYDouble(bedrag));
+    }
+
+    private double naarYDouble(double bedrag) {
+        return getHeight() - MARGE_ONDER - bedrag / schaalY;
+    }
+
+    /**
+     * @return een rond bedrag (1, 2, 2,5 of 5 maal een macht van 10) tussen de rasterlijnen, zodat er
+     * tot het maximum hooguit 5 stappen zijn.
+     */
+    private static double rasterStap(double maximum) {
+        if (maximum <= 0) {
+            return 100;
+        }
+        double macht = Math.pow(10, Math.floor(Math.log10(maximum / 5)));
+        for (double factor : new double[] {1, 2, 2.5, 5}) {
+            if (macht * factor * 5 >= maximum) {
+                return macht * factor;
+            }
+        }
+        return macht * 10;
+    }
+
+    private String euro(double bedrag) {
+        buffer.setLength(0);
+        return OpmaakUtil.bedrag(Math.round(bedrag * 100), buffer).toString();
+    }
+
+    private String euroRond(double bedrag) {
+        buffer.setLength(0);
+        OpmaakUtil.bedrag(Math.round(bedrag) * 100, buffer);
+        buffer.setLength(buffer.length() - 3); // zonder ",00"
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,413 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * De gegevens van één Wajong-cliënt die de hoogte van de uitkering bepalen, met de berekening zelf.
+ * Een profiel verandert niet: de met-methoden geven een nieuw profiel terug en laten dit profiel
+ * ongemoeid. Alle berekeningen hangen alleen af van het profiel en hun parameters, dus één profiel
+ * kan zonder locks tegelijk vanuit meerdere threads worden doorgerekend.
+ *
+ * WajongUitkering is de bekende ingang voor de rest van de applicatie en legt de cache om deze
+ * berekeningen heen. Zie ook WaoProfiel.
+ */
+public final class WajongProfiel {
+
+    private static List<Grondslag> grondslagCache = null; // eenmalig ingelezen, gedeeld door alle profielen
+
+    private final List<Grondslag> grondslagData;
+    private final boolean arbeidsvermogen;
+    private final BigDecimal garantiebedrag; // null als er geen garantiebedrag is
+    private final BigDecimal loonwaarde; // null als er geen loondispensatie is
+    private final BigDecimal compensatiefactor; // hoort bij loonwaarde, null zonder loondispensatie
+    private final BigDecimal overigeInkomstenPerDag;
+    private final BeleidsScenario scenario;
+    // waarden uit het scenario op het moment dat het op dit profiel is gezet
+    private final BigDecimal grondslagFactor; // null zonder scenario
+    private final BigDecimal percentageArbeidsvermogen;
+    private final BigDecimal percentageGeenArbeidsvermogen;
+    private final long sleutel; // eigenschappen verpakt voor de cache, -1 als de cache niet kan
+
+    /**
+     * Profiel met arbeidsvermogen, zonder garantiebedrag, loondispensatie, overige inkomsten of scenario.
+     * Leest bij het eerste profiel de grondslagen in uit het bronbestand.
+     * @throws UncheckedIOException als de grondslagen niet gelezen kunnen worden.
+     */
+    public WajongProfiel() {
+        this(getGrondslagLijst(), true, null, null, Uitkering.ZERO, null);
+    }
+
+    private WajongProfiel(List<Grondslag> grondslagData, boolean arbeidsvermogen, BigDecimal garantiebedrag,
+                          BigDecimal loonwaarde, BigDecimal overigeInkomstenPerDag, BeleidsScenario scenario) {
+        this.grondslagData = grondslagData;
+        this.arbeidsvermogen = arbeidsvermogen;
+        this.garantiebedrag = garantiebedrag;
+        this.loonwaarde = loonwaarde;
+        this.compensatiefactor = (loonwaarde == null) ? null
+                : getCompensatiefactor(loonwaarde.divide(Uitkering.HONDERD,4,RoundingMode.HALF_UP)); // scale naar 4 anders dataverlies
+        this.overigeInkomstenPerDag = overigeInkomstenPerDag;
+        this.scenario = scenario;
+        if (scenario == null) {
+            grondslagFactor = null;
+            percentageArbeidsvermogen = WajongUitkering.PERCENTAGE_ARBEIDSVERMOGEN;
+            percentageGeenArbeidsvermogen = WajongUitkering.PERCENTAGE_GEEN_ARBEIDSVERMOGEN;
+        }
+        else {
+            grondslagFactor = scenario.getGrondslagFactor();
+            percentageArbeidsvermogen = scenario.getPercentageArbeidsvermogen();
+            percentageGeenArbeidsvermogen = scenario.getPercentageGeenArbeidsvermogen();
+        }
+        this.sleutel = bepaalSleutel();
+    }
+
+    // met-methoden, geven een aangepaste kopie terug
+    public WajongProfiel metArbeidsvermogen(boolean arbeidsvermogen) {
+        return new WajongProfiel(grondslagData, arbeidsvermogen, garantiebedrag, loonwaarde, overigeInkomstenPerDag, scenario);
+    }
+
+    /**
+     * @param garantiebedrag het garantiebedrag per dag, of null voor geen garantiebedrag.
+     */
+    public WajongProfiel metGarantiebedrag(String garantiebedrag) {
+        return new WajongProfiel(grondslagData, arbeidsvermogen, maakBedrag(garantiebedrag), loonwaarde,
+                overigeInkomstenPerDag, scenario);
+    }
+
+    /**
+     * @param loonwaardePercentage de loonwaarde als percentage tussen 0 en 100, of null voor geen loondispensatie.
+     */
+    public WajongProfiel metLoondispensatie(String loonwaardePercentage) {
+        return new WajongProfiel(grondslagData, arbeidsvermogen, garantiebedrag, maakBedrag(loonwaardePercentage),
+                overigeInkomstenPerDag, scenario);
+    }
+
+    /**
+     * @param overigeInkomstenMnd de overige inkomsten per maand, bijvoorbeeld uit een andere uitkering.
+     */
+    public WajongProfiel metOverigeInkomsten(String overigeInkomstenMnd) {
+        BigDecimal perDag = BigDecimalUtil.divide(BigDecimalUtil.create(overigeInkomstenMnd),Uitkering.UK_DAGEN_IN_MND);
+        return new WajongProfiel(grondslagData, arbeidsvermogen, garantiebedrag, loonwaarde, perDag, scenario);
+    }
+
+    /**
+     * De waarden van het scenario worden overgenomen op het moment van deze aanroep; als het scenario
+     * daarna nog wordt aangepast, verandert dit profiel niet mee.
+     * @param scenario het scenario, of null om met de huidige parameters te rekenen.
+     */
+    public WajongProfiel metScenario(BeleidsScenario scenario) {
+        return new WajongProfiel(grondslagData, arbeidsvermogen, garantiebedrag, loonwaarde, overigeInkomstenPerDag, scenario);
+    }
+
+    private static BigDecimal maakBedrag(String bedrag) {
+        return (bedrag == null) ? null : BigDecimalUtil.create(bedrag);
+    }
+
+    // getters
+    public boolean getArbeidsvermogen() {
+        return arbeidsvermogen;
+    }
+
+    public BigDecimal getGarantiebedrag() {
+        return garantiebedrag;
+    }
+
+    public BigDecimal getLoonwaarde() {
+        return loonwaarde;
+    }
+
+    public BigDecimal getOverigeInkomstenPerDag() {
+        return overigeInkomstenPerDag;
+    }
+
+    public BeleidsScenario getScenario() {
+        return scenario;
+    }
+
+    public BigDecimal getPercentageArbeidsvermogen() {
+        return percentageArbeidsvermogen;
+    }
+
+    public BigDecimal getPercentageGeenArbeidsvermogen() {
+        return percentageGeenArbeidsvermogen;
+    }
+
+    /**
+     * Verpakt de eigenschappen die de hoogte van de uitkering bepalen in 1 long voor de cache:
+     * 1 bit soort uitkering (bit 62, altijd 1 voor Wajong), 1 bit arbeidsvermogen, 24 bits
+     * garantiebedrag, 17 bits loonwaarde en 20 bits overige inkomsten per dag, alle bedragen in centen.
+     * @return de verpakte eigenschappen, of -1 als een van de bedragen niet past of er met een scenario
+     * wordt gerekend.
+     */
+    public long getSleutel() {
+        return sleutel;
+    }
+
+    private long bepaalSleutel() {
+        if (scenario != null) {
+            return -1;
+        }
+        long gar = UitkeringCache.centen(garantiebedrag, 24);
+        long lw = UitkeringCache.centen(loonwaarde, 17);
+        long overig = UitkeringCache.centen(overigeInkomstenPerDag, 20);
+        if (gar < 0 || lw < 0 || overig < 0) {
+            return -1;
+        }
+        return (1L << 62) | ((arbeidsvermogen ? 1L : 0L) << 61) | (gar << 37) | (lw << 20) | overig;
+    }
+
+    /**
+     * Grondslag die in bronbestand staat is een half jaar geldig met die maand als startmaand.
+     * Een berekening over maart 2023 maakt dus gebruik van de grondslag geldig van jan-23 t/m jun-23.
+     * @param zoekterm is de te berekenen maand in het format abc-xx (Bijvoorbeeld jan-21).
+     * @return De Grondslag voor die maand in euro, als BigDecimal waarde. Geeft null terug
+     * als gekozen maand niet beschikbaar is of input van het verkeerde format is.
+     * Met een scenario is de grondslag vermenigvuldigd met de grondslagfactor van het scenario.
+     */
+    public BigDecimal getGrondslag(String zoekterm) { //zoekterm moet format "jan-24" hebben
+        if (zoekterm.length() < 3) {
+            return null;
+        }
+        // concat() in plaats van +, dat kost bij de eerste aanroep een invokedynamic-bootstrap van ~20 ms
+        switch (zoekterm.substring(0,3)) {
+            case "jan","feb","mrt","apr","mei","jun":
+                zoekterm = "jan".concat(zoekterm.substring(3));
+                break;
+            case "jul","aug","sep","okt","nov","dec":
+                zoekterm = "jul".concat(zoekterm.substring(3));
+                break;
+            default:
+                return null; // geen maand, de aanroeper meldt dit net als een maand die niet op de lijst staat
+        }
+
+        for (Grondslag g : grondslagData) {
+            if (g.getStartmaand().contentEquals(zoekterm)) {
+                if (grondslagFactor != null) {
+                    return BigDecimalUtil.multiply(g.getGrondslag(), grondslagFactor);
+                }
+                return g.getGrondslag();
+            }
+        }
+        return null; // de aanroeper meldt dit, zie bijv. BatchRegel en MainFrame
+    }
+
+    /**
+     * @return de meest recente grondslag uit het bronbestand, zonder scenario.
+     */
+    public BigDecimal getLaatsteGrondslag() {
+        return grondslagData.get(grondslagData.size()-1).getGrondslag();
+        // return grondslagData.getLast().getGrondslag(); // getLast() niet bruikbaar voor JDK 21.
+    }
+
+    /**
+     * Bereken de Wajong-uitkering per dag met de opgegeven grondslag en zonder inkomsten.
+     * @param rekenGrondslag de grondslag, of null als er geen grondslag is voor de rekenmaand.
+     * @return Wajong-uitkering per dag in euro, of null als rekenGrondslag null is.
+     */
+    public BigDecimal berekenDaguitkering(BigDecimal rekenGrondslag) {
+        if (rekenGrondslag == null) {
+            return null;
+        }
+        BigDecimal dagbedrag;
+
+        if (arbeidsvermogen) {
+            dagbedrag = BigDecimalUtil.multiply(rekenGrondslag,percentageArbeidsvermogen);
+        }
+        else {
+            dagbedrag = BigDecimalUtil.multiply(rekenGrondslag,percentageGeenArbeidsvermogen);
+        }
+
+        if (garantiebedrag != null && garantiebedrag.compareTo(dagbedrag) > 0) {  // GAR is hoger dan berekend bedrag
+            return garantiebedrag;
+        }
+        return dagbedrag;
+    }
+
+    /**
+     * Bereken de Wajong-uitkering per dag in maand rekenmaand bij de opgegeven inkomsten, zonder cache.
+     * @param verdiensten de inkomsten in de maand waarover wordt gerekend.
+     * @param rekenmaand de maand waarover de inkomsten zijn genoten en de uitkering moet worden berekend.
+     * @return Wajong-uitkering per dag in euro, of null als er geen grondslag is voor de rekenmaand.
+     */
+    public BigDecimal berekenDaguitkering(String verdiensten, String rekenmaand) {
+        // Get grondslag voor rekenmaand
+        BigDecimal rekenGrondslag = getGrondslag(rekenmaand);
+        if (rekenGrondslag == null) {
+            return null;
+        }
+        return berekenDaguitkering(rekenGrondslag, verdiensten);
+    }
+
+    /**
+     * Berekening van de daguitkering met een grondslag die al is opgehaald.
+     */
+    public BigDecimal berekenDaguitkering(BigDecimal rekenGrondslag, String verdiensten) {
+        BigDecimal dagbedrag; // tijdelijke opslag voor berekend bedrag uitkering per dag
+        // verdiensten per dag zijn verdiensten per maand / 21.75
+        BigDecimal verdienstenPerDag = BigDecimalUtil.divide(BigDecimalUtil.create(verdiensten),Uitkering.UK_DAGEN_IN_MND);
+
+        if (arbeidsvermogen) { // hier controleren op loondispensatie (niet toegestaan bij geen arbeidsvermogen)
+            if (loonwaarde == null) { // geen loondispensatie
+                // in dit geval niet nodig verschil te maken tussen verdiensten en overige inkomsten, optellen
+                verdienstenPerDag = verdienstenPerDag.add(overigeInkomstenPerDag);
+                // 0.7 * (grondslag - verdiensten)
+                dagbedrag = BigDecimalUtil.multiply(rekenGrondslag.subtract(verdienstenPerDag),percentageArbeidsvermogen);
+            }
+            else { // wel loondispensatie
+                dagbedrag = berekeningLoondispensatie(rekenGrondslag,verdienstenPerDag);
+            }
+        }
+        else { // geen arbeidsvermogen
+            // ook in dit geval niet nodig verschil te maken tussen verdiensten en overige inkomsten, optellen
+            verdienstenPerDag = verdienstenPerDag.add(overigeInkomstenPerDag);
+            // 0.75 * (grondslag - verdiensten)
+            dagbedrag = BigDecimalUtil.multiply(rekenGrondslag.subtract(verdienstenPerDag),percentageGeenArbeidsvermogen);
+        }
+
+        // nu nog vergelijken met het garantiebedrag (dat niet 0 mag zijn), en of bedrag lager is dan nul.
+        if (garantiebedrag != null && garantiebedrag.compareTo(dagbedrag) > 0) {  // GAR is hoger dan berekend bedrag
+            return garantiebedrag;
+        }
+        if (dagbedrag.compareTo(Uitkering.ZERO) < 0) { // dagbedrag is negatief
+            return Uitkering.ZERO;
+        }
+        return dagbedrag;
+    }
+
+    /**
+     * Berekent de daguitkering volgens de 2 methoden die gelden bij loondispensatie, en geeft het hoogste
+     * van de 2 bedragen terug. Berekening maakt verschil tussen gedispenseerd loon en overige inkomsten.
+     * Overige inkomsten zijn geen parameter, maar zijn opgeslagen in het profiel.
+     * Deze berekening is kloppend vanaf 1-1-22. Over de periode 1-1-21 tot 1-1-22 gold een andere rekenwijze.
+     * @param grondslag De grondslag die al is opgehaald door bovenliggende methode
+     * @param inkomstenPerDag Inkomsten al omgezet naar een bedrag per dag door bovenliggende methode
+     * @return Dagbedrag aan uitkering berekend met methoden voor loondispensatie
+     */
+    private BigDecimal berekeningLoondispensatie(BigDecimal grondslag,BigDecimal inkomstenPerDag) {
+        BigDecimal rekenLoonwaarde = loonwaarde.divide(Uitkering.HONDERD,4,RoundingMode.HALF_UP); // scale naar 4 anders dataverlies
+        /* TOELICHTING BEREKENING:
+        - compensatiefactor = (loonwaarde - 0.3) / (0.7 * loonwaarde) --> Dit mag niet worden afgerond, niet aanmaken via Util.
+        1. Berekening LD1 = 0.7 * (grondslag - (compensatiefactor * inkomstenPerDag) --> we korten minder dan de normale 70%
+        2. Berekening LD2 = (inkomstenPerDag / loonwaarde) - inkomstenPerDag --> aanvullen tot normloon
+        3. Hoogste waarde komt tot betaling.
+
+        Stap 1 heeft een uitgebreidere versie voor het geval er naast het gedispenseerd inkomen ook andere inkomsten zijn.
+        Dat is het geval bij samenloop van uitkeringen, of meerdere dienstverbanden waarbij cliënt niet overal LD heeft.
+        Stap 1 wordt dan: 0.7 * (grondslag - ((cf - gedispenseerd inkomen) + overig inkomen))
+
+        Stap 2 heeft in theorie ook een andere berekening bij overige inkomsten, maar die komt op hetzelfde neer
+        als de basisberekening. Overige inkomsten worden buiten beschouwing gelaten. */
+
+        BigDecimal bedragLoondispensatie1 = BigDecimalUtil.multiply(percentageArbeidsvermogen,(grondslag.
+                subtract((compensatiefactor.multiply(inkomstenPerDag)).add(overigeInkomstenPerDag))));
+        // compensatiefactor-berekening
+
+        BigDecimal bedragLoondispensatie2 = BigDecimalUtil.divide(inkomstenPerDag,rekenLoonwaarde).subtract(inkomstenPerDag);
+        // aanvulling tot normloon
+
+        if (bedragLoondispensatie1.compareTo(bedragLoondispensatie2) > 0) { // LD1 > LD2
+            return bedragLoondispensatie1;
+        }
+        else {
+            return bedragLoondispensatie2;
+        }
+    }
+
+    /**
+     * Bereken de compensatiefactor die nodig is voor berekening loondispensatie regel 1.
+     * @param loonwaarde als decimale waarden tussen 0 en 1.
+     * @return Compensatiefactor als BigDecimal die niet is afgerond.
+     */
+    private static BigDecimal getCompensatiefactor(BigDecimal loonwaarde) { // loonwaarde als fractie van 1
+        // compensatiefactor = (loonwaarde - 0.3) / (0.7 * loonwaarde)
+        // Dit is de enige waarde die niet mag worden afgerond
+        BigDecimal noemer = loonwaarde.subtract(BigDecimalUtil.create("0.3"));
+        BigDecimal deler = BigDecimalUtil.create("0.7").multiply(loonwaarde);
+
+        return noemer.divide(deler,12, RoundingMode.HALF_UP); // slaat op tilt zonder scale en rounding mode.
+        // voor deze toepassing is dit voldoende "niet afgerond".
+    }
+
+    /**
+     * Legt vast hoe de daguitkering bij de opgegeven verdiensten afhangt van grondslag en percentages.
+     * Volgt dezelfde takken als berekenDaguitkering(), maar zonder tussentijdse afronding.
+     * De compensatiefactor bij loondispensatie hangt niet af van de percentages in een scenario.
+     * @param verdiensten de inkomsten in de maand waarover wordt gerekend, "0" als er geen inkomsten zijn.
+     * @param rekenmaand de maand waarover wordt gerekend.
+     * @return Gevoeligheid van de daguitkering, of null als er geen grondslag is voor de rekenmaand.
+     */
+    public Gevoeligheid getGevoeligheid(String verdiensten, String rekenmaand) {
+        BigDecimal rekenGrondslag = getGrondslag(rekenmaand);
+        if (rekenGrondslag == null) {
+            return null;
+        }
+        double grondslag = rekenGrondslag.doubleValue();
+        double inkomstenPerDag = BigDecimalUtil.divide(BigDecimalUtil.create(verdiensten),Uitkering.UK_DAGEN_IN_MND).doubleValue();
+        double overig = overigeInkomstenPerDag.doubleValue();
+        double gar = (garantiebedrag == null) ? Double.NaN : garantiebedrag.doubleValue();
+
+        // vrij bedrag = percentage * rest, met rest = grondslag - inkomsten
+        if (!arbeidsvermogen) {
+            double percentage = percentageGeenArbeidsvermogen.doubleValue();
+            double rest = grondslag - inkomstenPerDag - overig;
+            return new Gevoeligheid(true, percentage * rest, percentage * grondslag, rest, grondslag, Double.NaN, gar);
+        }
+        double percentage = percentageArbeidsvermogen.doubleValue();
+        if (loonwaarde == null) {
+            double rest = grondslag - inkomstenPerDag - overig;
+            return new Gevoeligheid(false, percentage * rest, percentage * grondslag, rest, grondslag, Double.NaN, gar);
+        }
+        double rekenLoonwaarde = loonwaarde.doubleValue() / 100;
+        double rest = grondslag - compensatiefactor.doubleValue() * inkomstenPerDag - overig;
+        return new Gevoeligheid(false, percentage * rest, percentage * grondslag, rest, grondslag,
+                inkomstenPerDag / rekenLoonwaarde - inkomstenPerDag, gar);
+    }
+
+    /**
+     * Haalt de periode op waarover grondslagwaarden bekend zijn, voor informatie
+     * aan gebruiker.
+     * @return String met de periode waarover grondslag (ofwel het Wettelijk Minimumloon excl. VT per dag)
+     * is ingelezen uit het bronbestand.
+     */
+    public String getGrondslagRange() {
+        return "jan-21 t/m " + grondslagData.get(grondslagData.size()-1).getEindmaand();
+        // return "jan-21 t/m " + grondslagData.getLast().getEindmaand(); // getLast() niet bruikbaar vóór JDK 21.
+    }
+
+    /**
+     * Inlezen van de grondslag-gegevens die beschikbaar zijn in het bronbestand WajongGrondslag.txt.
+     * Het bestand wordt maar 1x gelezen, daarna delen alle profielen dezelfde lijst. Dat is nodig voor
+     * de batchberekening, die per regel een nieuw profiel aanmaakt. De lijst wordt na het inlezen
+     * niet meer gewijzigd.
+     * @return lijst met alle beschikbare grondslag gegevens opgeslagen als Grondslag-objecten.
+     * @throws UncheckedIOException als het bestand niet gelezen kan worden. Er wordt dan niets bewaard,
+     * zodat een volgende aanroep het opnieuw probeert.
+     */
+    private static synchronized List<Grondslag> getGrondslagLijst() {
+        if (grondslagCache != null) {
+            return grondslagCache;
+        }
+
+        ArrayList<String[]> regels = null;
+        ArrayList<Grondslag> grondslagData = new ArrayList<>();
+
+        try
+        {
+            regels = Uitkering.leesTabel("src/resources/WajongGrondslag.txt");
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Bestand WajongGrondslag.txt niet gevonden of niet kunnen openen.", e);
+        }
+
+        // data in een ArrayList met Grondslag objecten zetten.
+        for (String[] regel : regels) {
+            grondslagData.add(new Grondslag(regel[0], BigDecimalUtil.create(regel[1])));
+        }
+        grondslagCache = grondslagData;
+        Uitkering.verhoogParameterVersie();
+        return grondslagData;
+    }
+}
@@ -1,95 +1,100 @@
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.ArrayList;
-import java.util.Scanner;
 
 /**
  * Klasse berekent de hoogte van de Wajong-uitkering bij gegeven verdiensten.
  * De berekening geldt alleen voor cliënten die 21 jaar of ouder zijn, en vanaf
  * 1 januari 2021.
+ *
+ * De gegevens van de cliënt en de berekening zelf staan in een WajongProfiel, dat niet verandert.
+ * De setters van deze klasse vervangen het profiel door een aangepaste kopie. Om dezelfde cliënt
+ * vanuit meerdere threads door te rekenen deel je het profiel, niet dit object: new
+ * WajongUitkering(profiel) kost niets extra.
  */
 public class WajongUitkering extends Uitkering {
 
-    private ArrayList<Grondslag> grondslagData;
-    private Boolean arbeidsvermogen = true;
-    private BigDecimal PERCENTAGE_ARBEIDSVERMOGEN = BigDecimalUtil.create("0.7");
-    private BigDecimal PERCENTAGE_GEEN_ARBEIDSVERMOGEN = BigDecimalUtil.create("0.75");
-    private BigDecimal garantiebedrag = null; // niet iedereen heeft een garantiebedrag
-    private BigDecimal loonwaarde = null; // alleen van toepassing bij loondispensatie
-    private BigDecimal overigeInkomstenPerDag = Uitkering.ZERO; // kan ingesteld worden als er bijv. een andere uitkering is.
-    // nog toevoegen aan berekening daguitkering als er tijd is (12 maart 2024)
+    public static final BigDecimal PERCENTAGE_ARBEIDSVERMOGEN = BigDecimalUtil.create("0.7");
+    public static final BigDecimal PERCENTAGE_GEEN_ARBEIDSVERMOGEN = BigDecimalUtil.create("0.75");
+    private WajongProfiel profiel;
 
-    // constructor
+    // constructors
     public WajongUitkering() {
-        super();
+        this(new WajongProfiel()); // leest de grondslagen in bij het eerste profiel
+    }
 
-        // inlezen Grondslag-gegevens uit bronbestand
-        grondslagData = getGrondslagLijst();
+    public WajongUitkering(WajongProfiel profiel) {
+        super();
+        this.profiel = profiel;
     }
 
     // setters
     public void setArbeidsvermogen(Boolean arbeidsvermogen) {
-        this.arbeidsvermogen = arbeidsvermogen;
+        profiel = profiel.metArbeidsvermogen(arbeidsvermogen);
     }
 
     public void setGarantiebedrag(String garantiebedrag) {
-        this.garantiebedrag = BigDecimalUtil.create(garantiebedrag);
+        profiel = profiel.metGarantiebedrag(garantiebedrag);
     }
 
     public void setLoondispensatie(String loonwaardePercentage) {
-        this.loonwaarde = BigDecimalUtil.create(loonwaardePercentage);
+        profiel = profiel.metLoondispensatie(loonwaardePercentage);
     }
 
     public void setOverigeInkomstenPerDag(String overigeInkomstenMnd) { //input als String en per maand
-        this.overigeInkomstenPerDag = BigDecimalUtil.divide(BigDecimalUtil.create(overigeInkomstenMnd),UK_DAGEN_IN_MND);
+        profiel = profiel.metOverigeInkomsten(overigeInkomstenMnd);
+    }
+
+    @Override
+    public void setScenario(BeleidsScenario scenario) {
+        profiel = profiel.metScenario(scenario);
     }
 
     // getters
+    public WajongProfiel getProfiel() {
+        return profiel;
+    }
+
+    @Override
+    public BeleidsScenario getScenario() {
+        return profiel.getScenario();
+    }
+
     public Boolean getArbeidsvermogen() {
-        return arbeidsvermogen;
+        return profiel.getArbeidsvermogen();
     }
 
     public BigDecimal getGarantiebedrag() {
-        return garantiebedrag;
+        return profiel.getGarantiebedrag();
     }
 
     public BigDecimal getLoonwaarde() {
-        return loonwaarde;
+        return profiel.getLoonwaarde();
     }
 
     public BigDecimal getOverigeInkomstenPerDag() {
-        return overigeInkomstenPerDag;
+        return profiel.getOverigeInkomstenPerDag();
     }
 
     /**
-     * Grondslag die in bronbestand staat is een half jaar geldig met die maand als startmaand.
-     * Een berekening over maart 2023 maakt dus gebruik van de grondslag geldig van jan-23 t/m jun-23.
-     * @param zoekterm is de te berekenen maand in het format abc-xx (Bijvoorbeeld jan-21).
-     * @return De Grondslag voor die maand in euro, als BigDecimal waarde. Geeft null terug
-     * als gekozen maand niet beschikbaar is, en BigDecimal 0.00 als input van het verkeerde format is.
+     * @return het percentage van de grondslag bij arbeidsvermogen, uit het scenario als dat is ingesteld.
      */
-    public BigDecimal getGrondslag(String zoekterm) { //zoekterm moet format "jan-24" hebben
-        switch (zoekterm.substring(0,3)) {
-            case "jan","feb","mrt","apr","mei","jun":
-                zoekterm = "jan" + zoekterm.substring(3);
-                break;
-            case "jul","aug","sep","okt","nov","dec":
-                zoekterm = "jul" + zoekterm.substring(3);
-                break;
-            default:
-                // dit komt nooit voor als GUI input goed controleert
-                return Uitkering.ZERO; // niet null om te onderscheiden van niet op lijst
-        }
+    public BigDecimal getPercentageArbeidsvermogen() {
+        return profiel.getPercentageArbeidsvermogen();
+    }
 
-        for (Grondslag g : grondslagData) {
-            if (g.getStartmaand().contentEquals(zoekterm)) {
-                return g.getGrondslag();
-            }
-        }
-        System.out.println("Grondslag niet gevonden voor opgegeven maand " + zoekterm + ".");
-        return null;
+    /**
+     * @return het percentage van de grondslag zonder arbeidsvermogen, uit het scenario als dat is ingesteld.
+     */
+    public BigDecimal getPercentageGeenArbeidsvermogen() {
+        return profiel.getPercentageGeenArbeidsvermogen();
+    }
+
+    /**
+     * Zie WajongProfiel.getGrondslag().
+     * @param zoekterm is de te berekenen maand in het format abc-xx (Bijvoorbeeld jan-21).
+     * @return De Grondslag voor die maand in euro, of null als gekozen maand niet beschikbaar is.
+     */
+    public BigDecimal getGrondslag(String zoekterm) {
+        return profiel.getGrondslag(zoekterm);
     }
 
     /**
@@ -101,28 +106,8 @@ public class WajongUitkering extends Uitkering {
     public BigDecimal getDaguitkering() {
         // Rekenmaand is nodig om grondslag op te halen.
         // In geval dat deze niet gegeven wordt, uitgaan van meest recente
-        BigDecimal rekenGrondslag = grondslagData.get(grondslagData.size()-1).getGrondslag();
-        // BigDecimal rekenGrondslag = grondslagData.getLast.getGrondslag(); // getLast() niet bruikbaar voor JDK 21.
-        BigDecimal dagbedrag;
-
-        if (arbeidsvermogen) {
-            dagbedrag = BigDecimalUtil.multiply(rekenGrondslag,PERCENTAGE_ARBEIDSVERMOGEN);
-        }
-        else {
-            dagbedrag = BigDecimalUtil.multiply(rekenGrondslag,PERCENTAGE_GEEN_ARBEIDSVERMOGEN);
-        }
-
-        if (getGarantiebedrag() == null) {
-            return dagbedrag;
-        }
-        else {
-            if (getGarantiebedrag().compareTo(dagbedrag) > 0) {  // GAR is hoger dan berekend bedrag
-                return getGarantiebedrag();
-            }
-            else {
-                return dagbedrag;
-            }
-        }
+        WajongProfiel p = profiel;
+        return p.berekenDaguitkering(p.getLaatsteGrondslag());
     }
 
     /**
@@ -132,32 +117,8 @@ public class WajongUitkering extends Uitkering {
      * grondslag in de opgegeven maand en zonder inkomsten.
      */
     public BigDecimal getDaguitkering(String rekenmaand) {
-        // Get grondslag voor rekenmaand
-        BigDecimal rekenGrondslag = getGrondslag(rekenmaand);
-        if (rekenGrondslag == null) {
-            return null;
-        }
-
-        BigDecimal dagbedrag;
-
-        if (arbeidsvermogen) {
-            dagbedrag = BigDecimalUtil.multiply(rekenGrondslag,PERCENTAGE_ARBEIDSVERMOGEN);
-        }
-        else {
-            dagbedrag = BigDecimalUtil.multiply(rekenGrondslag,PERCENTAGE_GEEN_ARBEIDSVERMOGEN);
-        }
-
-        if (garantiebedrag == null) {
-            return dagbedrag;
-        }
-        else {
-            if (garantiebedrag.compareTo(dagbedrag) > 0) {  // GAR is hoger dan berekend bedrag
-                return garantiebedrag;
-            }
-            else {
-                return dagbedrag;
-            }
-        }
+        WajongProfiel p = profiel;
+        return p.berekenDaguitkering(p.getGrondslag(rekenmaand));
     }
 
     /**
@@ -168,140 +129,40 @@ public class WajongUitkering extends Uitkering {
      * bij de grondslag in de opgegeven maand.
      */
     public BigDecimal getDaguitkering(String verdiensten, String rekenmaand) {
-        // Get grondslag voor rekenmaand
-        BigDecimal rekenGrondslag = getGrondslag(rekenmaand);
-        if (rekenGrondslag == null) {
-            return null;
-        }
-
-        BigDecimal dagbedrag; // tijdelijke opslag voor berekend bedrag uitkering per dag
-        // verdiensten per dag zijn verdiensten per maand / 21.75
-        BigDecimal verdienstenPerDag = BigDecimalUtil.divide(BigDecimalUtil.create(verdiensten),Uitkering.UK_DAGEN_IN_MND);
-
-        if (arbeidsvermogen) { // hier controleren op loondispensatie (niet toegestaan bij geen arbeidsvermogen)
-            if (loonwaarde == null) { // geen loondispensatie
-                // in dit geval niet nodig verschil te maken tussen verdiensten en overige inkomsten, optellen
-                verdienstenPerDag = verdienstenPerDag.add(overigeInkomstenPerDag);
-                // 0.7 * (grondslag - verdiensten)
-                dagbedrag = BigDecimalUtil.multiply(rekenGrondslag.subtract(verdienstenPerDag),PERCENTAGE_ARBEIDSVERMOGEN);
-            }
-            else { // wel loondispensatie
-                dagbedrag = berekeningLoondispensatie(rekenGrondslag,verdienstenPerDag);
-            }
-        }
-        else { // geen arbeidsvermogen
-            // ook in dit geval niet nodig verschil te maken tussen verdiensten en overige inkomsten, optellen
-            verdienstenPerDag = verdienstenPerDag.add(overigeInkomstenPerDag);
-            // 0.75 * (grondslag - verdiensten)
-            dagbedrag = BigDecimalUtil.multiply(rekenGrondslag.subtract(verdienstenPerDag),PERCENTAGE_GEEN_ARBEIDSVERMOGEN);
-        }
-
-        // nu nog vergelijken met het garantiebedrag (dat niet 0 mag zijn), en of bedrag lager is dan nul.
-        if (garantiebedrag == null) {
-            if (dagbedrag.compareTo(Uitkering.ZERO) < 0) { // dagbedrag is negatief
-                return Uitkering.ZERO;
-            }
-            else {
-                return dagbedrag;
-            }
-        }
-        else {
-            if (garantiebedrag.compareTo(dagbedrag) > 0) {  // GAR is hoger dan berekend bedrag
-                return garantiebedrag;
-            }
-            else {
-                if (dagbedrag.compareTo(Uitkering.ZERO) < 0) { // dagbedrag is negatief
-                    return Uitkering.ZERO;
-                }
-                else {
-                    return dagbedrag;
-                }
-            }
+        WajongProfiel p = profiel;
+        if (getCache() == null) { // zonder cache direct, de lambda kost bij het opstarten meer dan de berekening
+            return p.berekenDaguitkering(verdiensten, rekenmaand);
         }
+        return metCache(p.getSleutel(), verdiensten, rekenmaand, () -> p.berekenDaguitkering(verdiensten, rekenmaand));
     }
 
     /**
-     * Berekent de daguitkering volgens de 2 methoden die gelden bij loondispensatie, en geeft het hoogste
-     * van de 2 bedragen terug. Berekening maakt verschil tussen gedispenseerd loon en overige inkomsten.
-     * Overige inkomsten zijn geen parameter, maar zijn opgeslagen als eigenschap van het WajongUitkering object.
-     * Deze berekening is kloppend vanaf 1-1-22. Over de periode 1-1-21 tot 1-1-22 gold een andere rekenwijze.
-     * @param grondslag De grondslag die al is opgehaald door bovenliggende methode
-     * @param inkomstenPerDag Inkomsten al omgezet naar een bedrag per dag door bovenliggende methode
-     * @return Dagbedrag aan uitkering berekend met methoden voor loondispensatie
+     * Bereken de Wajong-uitkering per dag in maand rekenmaand voor een reeks verdiensten. De grondslag
+     * wordt maar 1x opgezocht.
+     * @param verdiensten de inkomsten in de maand waarover wordt gerekend.
+     * @param rekenmaand de maand waarover de uitkering berekend moet worden.
+     * @return array met de bedragen per dag in euro, in de volgorde van verdiensten. Allemaal null
+     * als er geen grondslag is voor de rekenmaand.
      */
-    private BigDecimal berekeningLoondispensatie(BigDecimal grondslag,BigDecimal inkomstenPerDag) {
-        BigDecimal rekenLoonwaarde = loonwaarde.divide(HONDERD,4,RoundingMode.HALF_UP); // scale naar 4 anders dataverlies
-        /* TOELICHTING BEREKENING:
-        - compensatiefactor = (loonwaarde - 0.3) / (0.7 * loonwaarde) --> Dit mag niet worden afgerond, niet aanmaken via Util.
-        1. Berekening LD1 = 0.7 * (grondslag - (compensatiefactor * inkomstenPerDag) --> we korten minder dan de normale 70%
-        2. Berekening LD2 = (inkomstenPerDag / loonwaarde) - inkomstenPerDag --> aanvullen tot normloon
-        3. Hoogste waarde komt tot betaling.
-
-        Stap 1 heeft een uitgebreidere versie voor het geval er naast het gedispenseerd inkomen ook andere inkomsten zijn.
-        Dat is het geval bij samenloop van uitkeringen, of meerdere dienstverbanden waarbij cliënt niet overal LD heeft.
-        Stap 1 wordt dan: 0.7 * (grondslag - ((cf - gedispenseerd inkomen) + overig inkomen))
-
-        Stap 2 heeft in theorie ook een andere berekening bij overige inkomsten, maar die komt op hetzelfde neer
-        als de basisberekening. Overige inkomsten worden buiten beschouwing gelaten. */
-
-        BigDecimal bedragLoondispensatie1 = BigDecimalUtil.multiply(PERCENTAGE_ARBEIDSVERMOGEN,(grondslag.
-                subtract((getCompensatiefactor(rekenLoonwaarde).multiply(inkomstenPerDag)).add(overigeInkomstenPerDag))));
-        // compensatiefactor-berekening
-
-        BigDecimal bedragLoondispensatie2 = BigDecimalUtil.divide(inkomstenPerDag,rekenLoonwaarde).subtract(inkomstenPerDag);
-        // aanvulling tot normloon
-
-        if (bedragLoondispensatie1.compareTo(bedragLoondispensatie2) > 0) { // LD1 > LD2
-            return bedragLoondispensatie1;
+    public BigDecimal[] getDaguitkeringen(String[] verdiensten, String rekenmaand) {
+        WajongProfiel p = profiel;
+        BigDecimal[] daguitkeringen = new BigDecimal[verdiensten.length];
+        BigDecimal rekenGrondslag = p.getGrondslag(rekenmaand);
+        if (rekenGrondslag == null) {
+            return daguitkeringen;
         }
-        else {
-            return bedragLoondispensatie2;
+        for (int i = 0; i < verdiensten.length; i++) {
+            String bedrag = verdiensten[i];
+            daguitkeringen[i] = metCache(p.getSleutel(), bedrag, rekenmaand, () -> p.berekenDaguitkering(rekenGrondslag, bedrag));
         }
+        return daguitkeringen;
     }
 
     /**
-     * Bereken de compensatiefactor die nodig is voor berekening loondispensatie regel 1.
-     * @param loonwaarde als decimale waarden tussen 0 en 1.
-     * @return Compensatiefactor als BigDecimal die niet is afgerond.
+     * Zie WajongProfiel.getGevoeligheid().
      */
-    private BigDecimal getCompensatiefactor(BigDecimal loonwaarde) { // loonwaarde als fractie van 1
-        // compensatiefactor = (loonwaarde - 0.3) / (0.7 * loonwaarde)
-        // Dit is de enige waarde die niet mag worden afgerond
-        BigDecimal noemer = loonwaarde.subtract(BigDecimalUtil.create("0.3"));
-        BigDecimal deler = BigDecimalUtil.create("0.7").multiply(loonwaarde);
-
-        return noemer.divide(deler,12, RoundingMode.HALF_UP); // slaat op tilt zonder scale en rounding mode.
-        // voor deze toepassing is dit voldoende "niet afgerond".
-    }
-
-    /**
-     * Inlezen van de grondslag-gegevens die beschikbaar zijn in het bronbestand WajongGrondslag.txt.
-     * Deze methode wordt alleen gebruikt in de constructor en is daarom private.
-     * @return ArrayList met alle beschikbare grondslag gegevens opgeslagen als Grondslag-objecten.
-     */
-    private ArrayList<Grondslag> getGrondslagLijst() {
-        Scanner inputStream = null;
-        grondslagData = new ArrayList<>();
-
-        try
-        {
-            inputStream = new Scanner(new FileInputStream("src/resources/WajongGrondslag.txt"));
-        }
-        catch (FileNotFoundException e)
-        {
-            System.out.println("Bestand WajongGrondslag.txt niet gevonden");
-            System.out.println("of niet kunnen openen.");
-            System.exit(0);
-        }
-
-        // uitlezen van het bestand en data in een ArrayList met Grondslag objecten zetten.
-        while (inputStream.hasNextLine()) {
-            Grondslag item = new Grondslag(inputStream.next(),BigDecimalUtil.create(inputStream.next()));
-            // System.out.println(item); // testregel, later verwijderen
-            grondslagData.add(item);
-        }
-        inputStream.close();
-        return grondslagData;
+    public Gevoeligheid getGevoeligheid(String verdiensten, String rekenmaand) {
+        return profiel.getGevoeligheid(verdiensten, rekenmaand);
     }
 
     /**
@@ -311,8 +172,7 @@ public class WajongUitkering extends Uitkering {
      * is ingelezen uit het bronbestand.
      */
     public String getGrondslagRange() {
-        return "jan-21 t/m " + grondslagData.get(grondslagData.size()-1).getEindmaand();
-        // return "jan-21 t/m " + grondslagData.getLast().getEindmaand(); // getLast() niet bruikbaar vóór JDK 21.
+        return profiel.getGrondslagRange();
     }
 
     /**
@@ -320,11 +180,12 @@ public class WajongUitkering extends Uitkering {
      * @return beschrijving van het object als String.
      */
     public String toString() {
+        WajongProfiel p = profiel;
         String beschrijving = "Wajong-uitkering ";
-        if (arbeidsvermogen) {
+        if (p.getArbeidsvermogen()) {
             beschrijving += "met arbeidsvermogen";
-            if (loonwaarde != null) {
-                beschrijving += " en loondispensatie met een loonwaarde van " + getalFormat(loonwaarde) + "%";
+            if (p.getLoonwaarde() != null) {
+                beschrijving += " en loondispensatie met een loonwaarde van " + getalFormat(p.getLoonwaarde()) + "%";
             }
         }
         else {
@@ -332,8 +193,8 @@ public class WajongUitkering extends Uitkering {
         }
         beschrijving += ".";
 
-        if (garantiebedrag != null) {
-            beschrijving += " Garantiebedrag van " + bedragFormat(BigDecimalUtil.multiply(garantiebedrag,UK_DAGEN_IN_MND)) + " per maand.";
+        if (p.getGarantiebedrag() != null) {
+            beschrijving += " Garantiebedrag van " + bedragFormat(BigDecimalUtil.multiply(p.getGarantiebedrag(),UK_DAGEN_IN_MND)) + " per maand.";
         }
         return beschrijving;
     }
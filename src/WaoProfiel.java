@@ -0,0 +1,316 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * De gegevens van één WAO-cliënt die de hoogte van de uitkering bepalen, met de berekening zelf.
+ * Net als WajongProfiel verandert een profiel niet: de met-methoden geven een nieuw profiel terug, en
+ * één profiel kan zonder locks tegelijk vanuit meerdere threads worden doorgerekend.
+ * WaoUitkering legt de cache om deze berekeningen heen.
+ */
+public final class WaoProfiel {
+
+    private static final BigDecimal VT_DELER = BigDecimalUtil.create("1.08"); // WAO specifiek
+    // VT is standaard 8%, dus een totaal incl. VT delen door 1.08 geeft basis bedrag zonder VT.
+    // maatmanloon, rekendagloon en opgegeven verdiensten voor WAO zijn inclusief VT.
+    private static final BigDecimal BASISINDEX = BigDecimalUtil.create("105.6"); // CBS-index van jan-15
+
+    private static List<CbsIndex> indexCache = null; // eenmalig ingelezen, gedeeld door alle profielen
+
+    private final List<CbsIndex> indexData;
+    private final BigDecimal rekendagloon; // null als het rekendagloon niet is geaccepteerd
+    private final WaoKlasse klasse; // null bij een ongeldige klasse
+    private final BigDecimal maatmanloon; // per standaarddatum 1 januari 2015, null als het niet is opgegeven
+    private final BeleidsScenario scenario;
+    private final BigDecimal indexFactor; // uit het scenario op het moment dat het is gezet, null zonder scenario
+    private final long sleutel; // eigenschappen verpakt voor de cache, -1 als de cache niet kan
+
+    /**
+     * Profiel zonder maatmanloon en scenario. Leest bij het eerste profiel de CBS-index in uit het bronbestand.
+     * @param rekendagloon het rekendagloon inclusief VT. Een rekendagloon dat niet positief is of hoger dan
+     * het maximum dagloon wordt niet geaccepteerd en opgeslagen als null.
+     * @param uitkeringsklasse de WAO-klasse, 1 t/m 7.
+     * @throws Rekenfout als de klasse niet 1 t/m 7 is.
+     * @throws UncheckedIOException als de CBS-index niet gelezen kan worden.
+     */
+    public WaoProfiel(String rekendagloon, int uitkeringsklasse) {
+        this(getCbsIndexLijst(), leesDagloon(rekendagloon), leesKlasse(uitkeringsklasse), null, null);
+    }
+
+    private WaoProfiel(List<CbsIndex> indexData, BigDecimal rekendagloon, WaoKlasse klasse, BigDecimal maatmanloon,
+                       BeleidsScenario scenario) {
+        this.indexData = indexData;
+        this.rekendagloon = rekendagloon;
+        this.klasse = klasse;
+        this.maatmanloon = maatmanloon;
+        this.scenario = scenario;
+        this.indexFactor = (scenario == null) ? null : scenario.getIndexFactor();
+        this.sleutel = bepaalSleutel();
+    }
+
+    // met-methoden, geven een aangepaste kopie terug
+    public WaoProfiel metRekendagloon(String rekendagloon) {
+        return new WaoProfiel(indexData, leesDagloon(rekendagloon), klasse, maatmanloon, scenario);
+    }
+
+    public WaoProfiel metKlasse(int uitkeringsklasse) {
+        return new WaoProfiel(indexData, rekendagloon, leesKlasse(uitkeringsklasse), maatmanloon, scenario);
+    }
+
+    /**
+     * @param maatmanloon het maatmanloon per maand. Een bedrag dat niet positief is wordt opgeslagen als null.
+     */
+    public WaoProfiel metMaatmanloon(String maatmanloon) {
+        // isPositive() geeft ook false als input null is, niet nodig in GUI implementatie
+        BigDecimal mml = InvoerUtil.isPositive(maatmanloon) ? BigDecimalUtil.create(maatmanloon) : null;
+        return new WaoProfiel(indexData, rekendagloon, klasse, mml, scenario);
+    }
+
+    /**
+     * De indexfactor van het scenario wordt overgenomen op het moment van deze aanroep.
+     * @param scenario het scenario, of null om met de huidige parameters te rekenen.
+     */
+    public WaoProfiel metScenario(BeleidsScenario scenario) {
+        return new WaoProfiel(indexData, rekendagloon, klasse, maatmanloon, scenario);
+    }
+
+    private static BigDecimal leesDagloon(String rekendagloon) {
+        // rekendagloon kan niet hoger zijn dan maximaal uitkeringsdagloon, en moet positief zijn.
+        // in GUI implementatie is deze controle niet meer nodig
+        if (Uitkering.acceptedDagloon(rekendagloon)) {
+            return BigDecimalUtil.create(rekendagloon);
+        }
+        return null; // opgegeven rekendagloon is te hoog, 0, of negatief
+    }
+
+    private static WaoKlasse leesKlasse(int uitkeringsklasse) {
+        if (uitkeringsklasse < 1 || uitkeringsklasse > 7) {
+            throw new Rekenfout(Foutcode.ONGELDIGE_KLASSE, "Uw WAO-klasse is een geheel getal van minimaal 1 en maximaal 7.");
+        }
+        return WaoKlasse.values()[uitkeringsklasse - 1];
+    }
+
+    // getters
+    public BigDecimal getRekendagloon() {
+        return rekendagloon;
+    }
+
+    public WaoKlasse getKlasse() {
+        return klasse;
+    }
+
+    public BigDecimal getMaatmanloon() {
+        return maatmanloon;
+    }
+
+    public BeleidsScenario getScenario() {
+        return scenario;
+    }
+
+    /**
+     * Het uitkeringspercentage van de klasse wordt opgeslagen als getal tussen 0 en 100. Voor gebruik in
+     * de verdere berekeningen moet het een getal tussen 0 en 1 zijn. Omdat in het geval van 50,75% de
+     * uitkomst meer dan 2 decimalen nodig heeft om te kloppen, wordt hier geen gebruik gemaakt van BigDecimalUtil.
+     * @return het uitkeringspercentage als getal tussen 0 en 1.
+     */
+    public BigDecimal getUitkeringspercentage() {
+        return klasse.getUitkeringspercentage().divide(Uitkering.HONDERD);
+    }
+
+    /**
+     * Verpakt de eigenschappen die de hoogte van de uitkering bepalen in 1 long voor de cache:
+     * 20 bits rekendagloon, 17 bits uitkeringspercentage en 25 bits maatmanloon, alle in centen.
+     * Bit 62 is 0, daarmee onderscheidt de sleutel zich van die van een Wajong-uitkering.
+     * @return de verpakte eigenschappen, of -1 als een van de waarden niet past of er met een scenario
+     * wordt gerekend.
+     */
+    public long getSleutel() {
+        return sleutel;
+    }
+
+    private long bepaalSleutel() {
+        if (scenario != null || klasse == null) {
+            return -1;
+        }
+        long dagloon = UitkeringCache.centen(rekendagloon, 20);
+        long percentage = UitkeringCache.centen(klasse.getUitkeringspercentage(), 17);
+        long mml = UitkeringCache.centen(maatmanloon, 25);
+        if (dagloon < 0 || percentage < 0 || mml < 0) {
+            return -1;
+        }
+        return (dagloon << 42) | (percentage << 25) | mml;
+    }
+
+    /**
+     * Zoekt in de indexData lijst naar de index die hoort bij de opgegeven maand.
+     * @param actueleMaand is de maand die is opgegeven om mee te rekenen, in het format abx-xx (bijv. jan-24).
+     * @return De CBS-index die hoort bij de maand waarnaar is gezocht. Geeft null terug als de opgegeven
+     * maand niet beschikbaar is. Met een scenario is de index vermenigvuldigd met de indexfactor.
+     */
+    public BigDecimal findIndex(String actueleMaand) {
+        String zoekterm = actueleMaand.toLowerCase();
+
+        for (CbsIndex c : indexData) {
+            if (c.getMaand().contentEquals(zoekterm)) {
+                if (indexFactor != null) {
+                    return BigDecimalUtil.multiply(c.getIndex(), indexFactor);
+                }
+                return c.getIndex();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rekent het maatmanloon om naar de maand waarover de uitkering berekend moet worden. Dat is nodig
+     * om het te kunnen vergelijken met de inkomsten over die maand.
+     * @param actueleMaand de maand waarnaar het maatmanloon moet worden omgezet.
+     * @return Het bedrag van het maatmanloon in de actueleMaand.
+     */
+    public BigDecimal getActueelMaatmanloon(String actueleMaand) {
+        BigDecimal nieuweIndex = findIndex(actueleMaand);
+        if (nieuweIndex == null) {
+            throw new Rekenfout(Foutcode.GEEN_CBS_INDEX, "CBS-index niet gevonden, kan maatmanloon niet correct berekenen.");
+        }
+        // Indexeren: actueelMaatmanloon = maatmanloonOud*nieuwIndex/oudeIndex (ga voor oude index altijd uit van jan15 en dus 105.6)
+        return BigDecimalUtil.divide(BigDecimalUtil.multiply(maatmanloon,nieuweIndex),BASISINDEX);
+    }
+
+    /**
+     * @return het rekendagloon zonder vakantietoeslag.
+     */
+    public BigDecimal getRekendagloonExclVT() {
+        return BigDecimalUtil.divide(rekendagloon,VT_DELER);
+    }
+
+    /**
+     * Bereken de WAO-uitkering per dag met het rekendagloon en het uitkeringspercentage van de klasse,
+     * zonder inkomsten.
+     * @return De hoogte van de volledige WAO-uitkering in euro per dag.
+     */
+    public BigDecimal berekenDaguitkering() {
+        return BigDecimalUtil.multiply(getRekendagloonExclVT(),getUitkeringspercentage());
+    }
+
+    /**
+     * Bereken de WAO-uitkering per dag in maand rekenmaand bij de opgegeven inkomsten, zonder cache.
+     * @param verdiensten de inkomsten in de maand waarover wordt gerekend.
+     * @param rekenmaand de maand waarover de inkomsten zijn genoten en de uitkering moet worden berekend.
+     * @return BigDecimal met het bedrag aan WAO-uitkering per dag in euro bij de opgegeven inkomsten.
+     */
+    public BigDecimal berekenDaguitkering(String verdiensten, String rekenmaand) {
+        return berekenDaguitkering(getActueelMaatmanloon(rekenmaand), getRekendagloonExclVT(), verdiensten);
+    }
+
+    /**
+     * Berekening van de daguitkering met een actueel maatmanloon en rekendagloon die al zijn berekend.
+     */
+    public BigDecimal berekenDaguitkering(BigDecimal actueelMaatmanloon, BigDecimal rekendagloonExclVT, String verdiensten) {
+        BigDecimal inkomsten = BigDecimalUtil.create(verdiensten);
+        BigDecimal uitkeringspercentage = klasse.getUitkeringspercentage();
+
+        // aoPercentage = (maatmanloon - inkomsten) / maatmanloon * 100%.
+        BigDecimal aoPercentage = BigDecimalUtil.multiply(BigDecimalUtil.divide(actueelMaatmanloon.subtract(inkomsten),actueelMaatmanloon),Uitkering.HONDERD);
+
+        // uitkeringspercentage ophalen
+        BigDecimal betaalPercentage = klasse.getBetaalPercentage(aoPercentage);
+        if (betaalPercentage.compareTo(uitkeringspercentage) > 0)
+            // ao-berekening geeft hoger percentage dan maximale horend bij deze klasse.
+        {
+            betaalPercentage = uitkeringspercentage; // zet naar maximaal.
+        }
+
+        // rekendagloon exclusief VT * betaalpercentage/100 (betaalpercentage wordt niet opgeslagen als fractie van 1, dus nu omzetten)
+        return BigDecimalUtil.multiply(rekendagloonExclVT,BigDecimalUtil.divide(betaalPercentage,Uitkering.HONDERD));
+    }
+
+    /**
+     * Legt vast bij welke indexfactoren de WAO-uitkering met de opgegeven verdiensten in dezelfde
+     * klasse blijft. Binnen dat bereik verandert de uitkering niet, grondslag en percentages van de
+     * Wajong spelen geen rol. Zonder inkomsten of maatmanloon hangt de uitkering niet van de index af.
+     * @param verdiensten de inkomsten in de maand waarover wordt gerekend, "0" als er geen inkomsten zijn.
+     * @param rekenmaand de maand waarover wordt gerekend.
+     * @return Gevoeligheid van de daguitkering, of null als er geen CBS-index is voor de rekenmaand.
+     */
+    public Gevoeligheid getGevoeligheid(String verdiensten, String rekenmaand) {
+        BigDecimal index = findIndex(rekenmaand);
+        if (index == null) {
+            return null;
+        }
+        BigDecimal inkomsten = BigDecimalUtil.create(verdiensten);
+        if (maatmanloon == null || inkomsten.compareTo(Uitkering.ZERO) <= 0) {
+            return new Gevoeligheid(berekenDaguitkering().doubleValue(), Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+        BigDecimal actueel = getActueelMaatmanloon(rekenmaand);
+        BigDecimal aoPercentage = BigDecimalUtil.multiply(BigDecimalUtil.divide(actueel.subtract(inkomsten),actueel),Uitkering.HONDERD);
+
+        // bereik van het aoPercentage waarbinnen hetzelfde percentage wordt betaald
+        double ondergrens = Double.NEGATIVE_INFINITY;
+        double bovengrens = WaoKlasse.KLASSE_1.getOndergrens().doubleValue();
+        for (WaoKlasse k : WaoKlasse.values()) {
+            if (aoPercentage.compareTo(k.getOndergrens()) >= 0) {
+                ondergrens = k.getOndergrens().doubleValue();
+                bovengrens = (k == klasse) ? Double.POSITIVE_INFINITY : k.getBovengrens().doubleValue();
+            }
+            if (k == klasse) { // hogere klassen betalen niet meer dan de eigen klasse
+                break;
+            }
+        }
+        // aoPercentage = (1 - inkomsten / (maatmanloon * index * factor / 105.6)) * 100, stijgt met de factor.
+        // In berekenDaguitkering() wordt het op hele procenten afgerond, een grens G wordt dus al bij G - 0.5 gehaald.
+        double basis = maatmanloon.doubleValue() * index.doubleValue() / 105.6;
+        double factorBij = inkomsten.doubleValue() / basis;
+        double indexMinimum = Double.isInfinite(ondergrens) ? Double.NEGATIVE_INFINITY
+                : factorBij / (1 - (ondergrens - 0.5) / 100);
+        double indexMaximum = (Double.isInfinite(bovengrens) || bovengrens >= 100) ? Double.POSITIVE_INFINITY
+                : factorBij / (1 - (bovengrens - 0.5) / 100);
+        return new Gevoeligheid(berekenDaguitkering(verdiensten, rekenmaand).doubleValue(), indexMinimum, indexMaximum);
+    }
+
+    /**
+     * Haalt de periode op waarover de CBS-index bekend is, voor informatie aan de gebruiker.
+     * @return String met de periode waarover de CBS-index is ingelezen uit het bronbestand. Gaat
+     * er vanuit dat er geen waarde ontbreken, geeft range als maand van eerste waarde t/m maand
+     * van laatste waarde.
+     */
+    public String getCbsRange() {
+        return "jan-21 t/m " + indexData.get(indexData.size()-1).getMaand();
+        // return "jan-21 t/m " + indexData.getLast().getMaand(); // getLast() niet bruikbaar voor JDK 21
+    }
+
+    /**
+     * Inlezen van de CBS-index gegevens die beschikbaar zijn in het bronbestand CbsIndex.txt.
+     * Het bestand wordt maar 1x gelezen, daarna delen alle profielen dezelfde lijst. De lijst wordt
+     * na het inlezen niet meer gewijzigd.
+     * @return lijst met alle beschikbare indexgegevens als CbsIndex objecten.
+     * @throws UncheckedIOException als het bestand niet gelezen kan worden. Er wordt dan niets bewaard,
+     * zodat een volgende aanroep het opnieuw probeert.
+     */
+    private static synchronized List<CbsIndex> getCbsIndexLijst() {
+        if (indexCache != null) {
+            return indexCache;
+        }
+
+        ArrayList<String[]> regels = null;
+        ArrayList<CbsIndex> indexData = new ArrayList<>();
+
+        try
+        {
+            regels = Uitkering.leesTabel("src/resources/CbsIndex.txt");
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Bestand CbsIndex.txt niet gevonden of niet kunnen openen.", e);
+        }
+
+        // data in een ArrayList met CbsIndex objecten zetten.
+        for (String[] regel : regels) {
+            indexData.add(new CbsIndex(regel[0], BigDecimalUtil.create(regel[1])));
+        }
+        indexCache = indexData;
+        Uitkering.verhoogParameterVersie();
+        return indexData;
+    }
+}
@@ -0,0 +1,22 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Manier waarop de BatchCoordinator de berekening van één shard laat uitvoeren. De standaard
+ * implementatie is LokaleWerkerStarter, die een nieuw Java-proces op dezelfde machine start.
+ * Een andere implementatie kan de berekening bijvoorbeeld op een andere machine laten draaien,
+ * zolang invoer en uitvoer daar via hetzelfde pad bereikbaar zijn.
+ */
+public interface WerkerStarter {
+
+    /**
+     * Rekent het invoerbestand van een shard door naar het uitvoerbestand, in hetzelfde format als
+     * BatchBerekening. Keert pas terug als de berekening klaar is.
+     * @param shard nummer van de shard, voor meldingen.
+     * @param invoer invoerbestand van de shard.
+     * @param uitvoer uitvoerbestand van de shard.
+     * @throws IOException als de berekening mislukt.
+     * @throws InterruptedException als er wordt onderbroken tijdens het wachten.
+     */
+    void voerUit(int shard, Path invoer, Path uitvoer) throws IOException, InterruptedException;
+}